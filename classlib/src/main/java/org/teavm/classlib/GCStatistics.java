@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib;
+
+import org.teavm.interop.Address;
+import org.teavm.runtime.GC;
+
+/**
+ * <p>Gives access to statistics of garbage collector of low-level targets (C and WebAssembly).
+ * On JavaScript all methods return zeros, since garbage collection is performed by JavaScript engine.</p>
+ *
+ * <p>When C code is generated with GC telemetry enabled, runtime additionally writes each collection and
+ * allocation samples as JSON lines to a file specified by <code>TEAVM_GC_LOG</code> environment variable,
+ * or to standard error stream.</p>
+ */
+public final class GCStatistics {
+    private GCStatistics() {
+    }
+
+    public static boolean isSupported() {
+        return PlatformDetector.isLowLevel();
+    }
+
+    public static int getCollectionCount() {
+        return PlatformDetector.isLowLevel() ? GC.getCollectionCount() : 0;
+    }
+
+    public static int getMinorCollectionCount() {
+        return PlatformDetector.isLowLevel() ? GC.getMinorCollectionCount() : 0;
+    }
+
+    public static int getCompactionCount() {
+        return PlatformDetector.isLowLevel() ? GC.getCompactionCount() : 0;
+    }
+
+    public static long getLastPauseTime() {
+        return PlatformDetector.isLowLevel() ? GC.getLastPauseTime() : 0;
+    }
+
+    public static long getMaxPauseTime() {
+        return PlatformDetector.isLowLevel() ? GC.getMaxPauseTime() : 0;
+    }
+
+    public static long getTotalPauseTime() {
+        return PlatformDetector.isLowLevel() ? GC.getTotalPauseTime() : 0;
+    }
+
+    /**
+     * Returns total number of bytes allocated since program start, including objects that are already
+     * collected.
+     */
+    public static long getAllocatedBytes() {
+        return PlatformDetector.isLowLevel() ? GC.getAllocatedBytes() : 0;
+    }
+
+    public static long getHeapSize() {
+        return PlatformDetector.isLowLevel() ? GC.availableBytes() : 0;
+    }
+
+    public static long getFreeMemory() {
+        return PlatformDetector.isLowLevel() ? GC.getFreeMemory() : 0;
+    }
+
+    public static long getLargestFreeChunk() {
+        return PlatformDetector.isLowLevel() ? GC.getLargestFreeChunk() : 0;
+    }
+
+    /**
+     * Returns fraction of free memory that can't be used to allocate an object of the size of the largest
+     * free chunk, i.e. 0 when all free memory is contiguous and close to 1 when it is split into small pieces.
+     */
+    public static double getFragmentation() {
+        long free = getFreeMemory();
+        if (free == 0) {
+            return 0;
+        }
+        return 1 - (double) getLargestFreeChunk() / free;
+    }
+
+    public static int getRegionSize() {
+        return PlatformDetector.isLowLevel() ? GC.getRegionSize() : 0;
+    }
+
+    /**
+     * Computes number of bytes occupied by objects in each region of heap. Note that unreachable objects
+     * are counted until they are swept.
+     *
+     * @return array with an element per region.
+     */
+    public static int[] getRegionOccupancy() {
+        if (!PlatformDetector.isLowLevel()) {
+            return new int[0];
+        }
+        int[] result = new int[GC.getRegionCount()];
+        GC.computeRegionOccupancy(Address.ofData(result), result.length);
+        return result;
+    }
+}
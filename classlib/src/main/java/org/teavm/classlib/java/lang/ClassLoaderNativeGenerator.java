@@ -45,6 +45,13 @@ public class ClassLoaderNativeGenerator implements Injector {
     }
 
     private void generateSupplyResources(InjectorContext context) throws IOException {
+        // Resource suppliers come from third-party plugins which are not required to be thread-safe
+        synchronized (ClassLoaderNativeGenerator.class) {
+            generateSupplyResourcesImpl(context);
+        }
+    }
+
+    private void generateSupplyResourcesImpl(InjectorContext context) throws IOException {
         SourceWriter writer = context.getWriter();
         writer.append("{").indent();
 
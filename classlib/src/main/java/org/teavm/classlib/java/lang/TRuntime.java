@@ -85,4 +85,17 @@ public class TRuntime {
     private long totalMemoryLowLevel() {
         return GC.availableBytes();
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the maximum amount of memory that the Java virtual machine will
+     * attempt to use.
+     */
+    @DelegateTo("maxMemoryLowLevel")
+    public long maxMemory() {
+        return Long.MAX_VALUE;
+    }
+
+    private long maxMemoryLowLevel() {
+        return GC.maxAvailableBytes();
+    }
+}
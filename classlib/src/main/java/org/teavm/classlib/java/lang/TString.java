@@ -18,6 +18,7 @@ package org.teavm.classlib.java.lang;
 import java.util.Iterator;
 import java.util.Locale;
 import org.teavm.backend.javascript.spi.GeneratedBy;
+import org.teavm.classlib.PlatformDetector;
 import org.teavm.classlib.java.io.TSerializable;
 import org.teavm.classlib.java.io.TUnsupportedEncodingException;
 import org.teavm.classlib.java.nio.TByteBuffer;
@@ -30,7 +31,9 @@ import org.teavm.classlib.java.util.TFormatter;
 import org.teavm.classlib.java.util.TLocale;
 import org.teavm.classlib.java.util.regex.TPattern;
 import org.teavm.dependency.PluggableDependency;
+import org.teavm.interop.Address;
 import org.teavm.interop.NoSideEffects;
+import org.teavm.interop.Vector128;
 
 public class TString extends TObject implements TSerializable, TComparable<TString>, TCharSequence {
     public static final TComparator<TString> CASE_INSENSITIVE_ORDER = (o1, o2) -> o1.compareToIgnoreCase(o2);
@@ -525,7 +528,19 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (str.length() != length()) {
             return false;
         }
-        for (int i = 0; i < str.length(); ++i) {
+        int i = 0;
+        if (PlatformDetector.isLowLevel() && Vector128.isSupported()) {
+            Address first = Address.ofData(characters);
+            Address second = Address.ofData(str.characters);
+            for (; i + 8 <= characters.length; i += 8) {
+                if (!Vector128.equal(first, second)) {
+                    return false;
+                }
+                first = first.add(Vector128.SIZE);
+                second = second.add(Vector128.SIZE);
+            }
+        }
+        for (; i < str.length(); ++i) {
             if (charAt(i) != str.charAt(i)) {
                 return false;
             }
@@ -22,6 +22,8 @@ import java.util.function.IntFunction;
 import java.util.function.IntToDoubleFunction;
 import java.util.function.IntToLongFunction;
 import java.util.function.IntUnaryOperator;
+import org.teavm.classlib.PlatformDetector;
+import org.teavm.classlib.java.lang.TArrayIndexOutOfBoundsException;
 import org.teavm.classlib.java.lang.TComparable;
 import org.teavm.classlib.java.lang.TDouble;
 import org.teavm.classlib.java.lang.TFloat;
@@ -38,6 +40,8 @@ import org.teavm.classlib.java.util.stream.doubleimpl.TArrayDoubleStreamImpl;
 import org.teavm.classlib.java.util.stream.impl.TArrayStreamImpl;
 import org.teavm.classlib.java.util.stream.intimpl.TArrayIntStreamImpl;
 import org.teavm.classlib.java.util.stream.longimpl.TArrayLongStreamImpl;
+import org.teavm.interop.Address;
+import org.teavm.interop.Vector128;
 
 public class TArrays extends TObject {
     public static char[] copyOf(char[] array, int length) {
@@ -337,6 +341,14 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isLowLevel() && Vector128.isSupported()) {
+            checkRange(a.length, fromIndex, toIndex);
+            Address address = Address.ofData(a).add((long) fromIndex * 8);
+            for (; fromIndex + 2 <= toIndex; fromIndex += 2) {
+                Vector128.fillLongs(address, val);
+                address = address.add(Vector128.SIZE);
+            }
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -350,6 +362,14 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isLowLevel() && Vector128.isSupported()) {
+            checkRange(a.length, fromIndex, toIndex);
+            Address address = Address.ofData(a).add((long) fromIndex * 4);
+            for (; fromIndex + 4 <= toIndex; fromIndex += 4) {
+                Vector128.fillInts(address, val);
+                address = address.add(Vector128.SIZE);
+            }
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -363,6 +383,14 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isLowLevel() && Vector128.isSupported()) {
+            checkRange(a.length, fromIndex, toIndex);
+            Address address = Address.ofData(a).add((long) fromIndex * 2);
+            for (; fromIndex + 8 <= toIndex; fromIndex += 8) {
+                Vector128.fillShorts(address, val);
+                address = address.add(Vector128.SIZE);
+            }
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -376,6 +404,14 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isLowLevel() && Vector128.isSupported()) {
+            checkRange(a.length, fromIndex, toIndex);
+            Address address = Address.ofData(a).add((long) fromIndex * 2);
+            for (; fromIndex + 8 <= toIndex; fromIndex += 8) {
+                Vector128.fillShorts(address, (short) val);
+                address = address.add(Vector128.SIZE);
+            }
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -389,6 +425,14 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isLowLevel() && Vector128.isSupported()) {
+            checkRange(a.length, fromIndex, toIndex);
+            Address address = Address.ofData(a).add(fromIndex);
+            for (; fromIndex + 16 <= toIndex; fromIndex += 16) {
+                Vector128.fillBytes(address, val);
+                address = address.add(Vector128.SIZE);
+            }
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -415,6 +459,14 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isLowLevel() && Vector128.isSupported()) {
+            checkRange(a.length, fromIndex, toIndex);
+            Address address = Address.ofData(a).add((long) fromIndex * 4);
+            for (; fromIndex + 4 <= toIndex; fromIndex += 4) {
+                Vector128.fillFloats(address, val);
+                address = address.add(Vector128.SIZE);
+            }
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -428,6 +480,14 @@ public class TArrays extends TObject {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
         }
+        if (PlatformDetector.isLowLevel() && Vector128.isSupported()) {
+            checkRange(a.length, fromIndex, toIndex);
+            Address address = Address.ofData(a).add((long) fromIndex * 8);
+            for (; fromIndex + 2 <= toIndex; fromIndex += 2) {
+                Vector128.fillDoubles(address, val);
+                address = address.add(Vector128.SIZE);
+            }
+        }
         while (fromIndex < toIndex) {
             a[fromIndex++] = val;
         }
@@ -437,6 +497,12 @@ public class TArrays extends TObject {
         fill(a, 0, a.length, val);
     }
 
+    private static void checkRange(int length, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > length) {
+            throw new TArrayIndexOutOfBoundsException();
+        }
+    }
+
     public static void fill(TObject[] a, int fromIndex, int toIndex, TObject val) {
         if (fromIndex > toIndex) {
             throw new TIllegalArgumentException();
@@ -27,8 +27,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 import org.teavm.ast.InvocationExpr;
 import org.teavm.ast.decompilation.Decompiler;
@@ -46,6 +49,7 @@ import org.teavm.backend.c.generate.NameProvider;
 import org.teavm.backend.c.generate.OutputFileUtil;
 import org.teavm.backend.c.generate.SimpleIncludeManager;
 import org.teavm.backend.c.generate.SimpleStringPool;
+import org.teavm.backend.c.generate.StringPool;
 import org.teavm.backend.c.generate.StringPoolGenerator;
 import org.teavm.backend.c.generators.ArrayGenerator;
 import org.teavm.backend.c.generators.Generator;
@@ -53,6 +57,7 @@ import org.teavm.backend.c.generators.GeneratorFactory;
 import org.teavm.backend.c.generators.ReferenceQueueGenerator;
 import org.teavm.backend.c.generators.WeakReferenceGenerator;
 import org.teavm.backend.c.intrinsic.AddressIntrinsic;
+import org.teavm.backend.c.intrinsic.AllocationProfilerIntrinsic;
 import org.teavm.backend.c.intrinsic.AllocatorIntrinsic;
 import org.teavm.backend.c.intrinsic.ConsoleIntrinsic;
 import org.teavm.backend.c.intrinsic.ExceptionHandlingIntrinsic;
@@ -72,15 +77,19 @@ import org.teavm.backend.c.intrinsic.RuntimeClassIntrinsic;
 import org.teavm.backend.c.intrinsic.ShadowStackIntrinsic;
 import org.teavm.backend.c.intrinsic.StringsIntrinsic;
 import org.teavm.backend.c.intrinsic.StructureIntrinsic;
+import org.teavm.backend.c.intrinsic.VectorIntrinsic;
 import org.teavm.backend.lowlevel.dependency.ExceptionHandlingDependencyListener;
 import org.teavm.backend.lowlevel.dependency.WeakReferenceDependencyListener;
 import org.teavm.backend.lowlevel.transform.CoroutineTransformation;
 import org.teavm.backend.lowlevel.transform.WeakReferenceTransformation;
 import org.teavm.cache.EmptyMethodNodeCache;
 import org.teavm.cache.MethodNodeCache;
+import org.teavm.common.ParallelTasks;
 import org.teavm.dependency.ClassDependency;
 import org.teavm.dependency.DependencyAnalyzer;
+import org.teavm.dependency.DependencyInfo;
 import org.teavm.dependency.DependencyListener;
+import org.teavm.diagnostics.AccumulationDiagnostics;
 import org.teavm.interop.Address;
 import org.teavm.interop.Platforms;
 import org.teavm.interop.Structure;
@@ -89,6 +98,7 @@ import org.teavm.model.ClassHierarchy;
 import org.teavm.model.ClassHolder;
 import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReader;
+import org.teavm.model.ClassReaderSource;
 import org.teavm.model.FieldReader;
 import org.teavm.model.FieldReference;
 import org.teavm.model.Instruction;
@@ -114,14 +124,18 @@ import org.teavm.model.lowlevel.ExportDependencyListener;
 import org.teavm.model.lowlevel.NullCheckInsertion;
 import org.teavm.model.lowlevel.NullCheckTransformation;
 import org.teavm.model.lowlevel.ShadowStackTransformer;
+import org.teavm.model.lowlevel.SynchronizedCharacteristics;
+import org.teavm.model.lowlevel.WriteBarrierInsertion;
 import org.teavm.model.transformation.ClassPatch;
 import org.teavm.model.util.AsyncMethodFinder;
+import org.teavm.runtime.AllocationProfiler;
 import org.teavm.runtime.Allocator;
 import org.teavm.runtime.CallSite;
 import org.teavm.runtime.CallSiteLocation;
 import org.teavm.runtime.EventQueue;
 import org.teavm.runtime.ExceptionHandling;
 import org.teavm.runtime.Fiber;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
 import org.teavm.runtime.RuntimeObject;
@@ -137,6 +151,8 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     ));
     private static final MethodReference STRING_CONSTRUCTOR = new MethodReference(String.class,
             "<init>", char[].class, void.class);
+    private static final MethodReference ALLOCATION_PROFILER_DUMP = new MethodReference(AllocationProfiler.class,
+            "dump", void.class);
 
     private TeaVMTargetController controller;
     private ClassInitializerEliminator classInitializerEliminator;
@@ -144,8 +160,10 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     private ShadowStackTransformer shadowStackTransformer;
     private NullCheckInsertion nullCheckInsertion;
     private NullCheckTransformation nullCheckTransformation;
+    private WriteBarrierInsertion writeBarrierInsertion;
     private ExportDependencyListener exportDependencyListener = new ExportDependencyListener();
     private int minHeapSize = 32 * 1024 * 1024;
+    private int maxHeapSize;
     private List<IntrinsicFactory> intrinsicFactories = new ArrayList<>();
     private List<GeneratorFactory> generatorFactories = new ArrayList<>();
     private Characteristics characteristics;
@@ -153,12 +171,28 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     private MethodNodeCache astCache = EmptyMethodNodeCache.INSTANCE;
     private boolean incremental;
     private boolean lineNumbersGenerated;
+    private boolean generationalGC;
+    private boolean compactingGC;
+    private boolean gcTelemetry;
+    private boolean allocationProfiler;
+    private int allocationSampleInterval;
+    private int gcThreadCount = 1;
     private SimpleStringPool stringPool;
 
     public void setMinHeapSize(int minHeapSize) {
         this.minHeapSize = minHeapSize;
     }
 
+    /**
+     * Sets size heap is allowed to grow to. Address space for the whole heap is reserved at startup, but memory
+     * is committed only as heap grows. Zero (default) means that heap never grows beyond min heap size.
+     *
+     * @param maxHeapSize max heap size in bytes.
+     */
+    public void setMaxHeapSize(int maxHeapSize) {
+        this.maxHeapSize = maxHeapSize;
+    }
+
     public void setIncremental(boolean incremental) {
         this.incremental = incremental;
     }
@@ -167,6 +201,68 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         this.lineNumbersGenerated = lineNumbersGenerated;
     }
 
+    /**
+     * Enables generational mode of GC. In this mode young objects are collected separately from old ones,
+     * at the cost of write barrier on each store of a reference into heap.
+     *
+     * @param generationalGC whether generational GC should be used.
+     */
+    public void setGenerationalGC(boolean generationalGC) {
+        this.generationalGC = generationalGC;
+    }
+
+    /**
+     * Enables compaction of heap. When free memory becomes fragmented after full collection, live objects are
+     * moved towards the beginning of heap, except for objects referenced from stack.
+     *
+     * @param compactingGC whether GC should compact heap.
+     */
+    public void setCompactingGC(boolean compactingGC) {
+        this.compactingGC = compactingGC;
+    }
+
+    /**
+     * Enables GC telemetry. Generated code reports each collection and sampled allocations as JSON lines
+     * to a file specified by <code>TEAVM_GC_LOG</code> environment variable, or to stderr.
+     *
+     * @param gcTelemetry whether telemetry should be reported.
+     */
+    public void setGCTelemetry(boolean gcTelemetry) {
+        this.gcTelemetry = gcTelemetry;
+    }
+
+    /**
+     * Enables allocation profiler. Generated code records call stack of each sampled allocation and,
+     * at exit, writes profile in collapsed stacks format to a file specified by
+     * <code>TEAVM_ALLOCATION_PROFILE</code> environment variable, or to stderr.
+     *
+     * @param allocationProfiler whether allocation profiler should be enabled.
+     */
+    public void setAllocationProfiler(boolean allocationProfiler) {
+        this.allocationProfiler = allocationProfiler;
+    }
+
+    /**
+     * Sets average number of allocated bytes between two allocation samples, which are taken both by
+     * GC telemetry and by allocation profiler. Zero (default) means 512 KiB.
+     *
+     * @param allocationSampleInterval sample interval in bytes.
+     */
+    public void setAllocationSampleInterval(int allocationSampleInterval) {
+        this.allocationSampleInterval = allocationSampleInterval;
+    }
+
+    /**
+     * Sets number of threads used to sweep heap after full collection. Marking is not parallel and always runs
+     * on the thread that triggered collection. Values greater than 1 require generated code to be linked against
+     * threading library (i.e. <code>-pthread</code> on POSIX systems).
+     *
+     * @param gcThreadCount number of GC threads, 1 (default) means that GC runs on the main thread only.
+     */
+    public void setGCThreadCount(int gcThreadCount) {
+        this.gcThreadCount = gcThreadCount;
+    }
+
     public void setAstCache(MethodNodeCache astCache) {
         this.astCache = astCache;
     }
@@ -195,6 +291,7 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         shadowStackTransformer = new ShadowStackTransformer(characteristics);
         nullCheckInsertion = new NullCheckInsertion(characteristics);
         nullCheckTransformation = new NullCheckTransformation();
+        writeBarrierInsertion = new WriteBarrierInsertion(characteristics);
 
         controller.addVirtualMethods(VIRTUAL_METHODS::contains);
     }
@@ -243,6 +340,19 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         dependencyAnalyzer.linkMethod(new MethodReference(ExceptionHandling.class, "catchException",
                 Throwable.class)).use();
 
+        if (generationalGC) {
+            dependencyAnalyzer.linkMethod(new MethodReference(GC.class, "writeBarrier", RuntimeObject.class,
+                    void.class)).use();
+            dependencyAnalyzer.linkMethod(new MethodReference(GC.class, "invalidateRememberedSet",
+                    void.class)).use();
+        }
+        if (gcThreadCount > 1) {
+            dependencyAnalyzer.linkMethod(GCIntrinsic.SWEEP_TASK).use();
+        }
+        if (allocationProfiler) {
+            dependencyAnalyzer.linkMethod(ALLOCATION_PROFILER_DUMP).use();
+        }
+
         dependencyAnalyzer.linkClass("java.lang.String");
         dependencyAnalyzer.linkClass("java.lang.Class");
         dependencyAnalyzer.linkField(new FieldReference("java.lang.String", "hashCode"));
@@ -302,6 +412,9 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         nullCheckTransformation.apply(program, method.getResultType());
         new CoroutineTransformation(controller.getUnprocessedClassSource(), asyncMethods)
                 .apply(program, method.getReference());
+        if (generationalGC) {
+            writeBarrierInsertion.apply(program, method);
+        }
         ShadowStackTransformer shadowStackTransformer = !incremental
                 ? this.shadowStackTransformer
                 : new ShadowStackTransformer(characteristics);
@@ -314,10 +427,16 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         ClassHierarchy hierarchy = new ClassHierarchy(classes);
         TagRegistry tagRegistry = new TagRegistry(classes, hierarchy);
 
+        // Already safe to query from several threads when controller uses several threads
+        DependencyInfo dependencyInfo = controller.getDependencyInfo();
+        ClassReaderSource unprocessedClassSource = dependencyInfo.getClassSource();
+
         Decompiler decompiler = new Decompiler(classes, new HashSet<>(), false, true);
-        Characteristics characteristics = new Characteristics(controller.getUnprocessedClassSource());
+        Characteristics characteristics = controller.getThreadCount() > 1
+                ? new SynchronizedCharacteristics(unprocessedClassSource)
+                : new Characteristics(unprocessedClassSource);
 
-        NameProvider nameProvider = new NameProvider(controller.getUnprocessedClassSource());
+        NameProvider nameProvider = new NameProvider(unprocessedClassSource);
 
         List<Intrinsic> intrinsics = new ArrayList<>();
         intrinsics.add(new ShadowStackIntrinsic());
@@ -329,6 +448,8 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         intrinsics.add(new PlatformClassIntrinsic());
         intrinsics.add(new PlatformClassMetadataIntrinsic());
         intrinsics.add(new GCIntrinsic());
+        intrinsics.add(new AllocationProfilerIntrinsic());
+        intrinsics.add(new VectorIntrinsic());
         intrinsics.add(new MutatorIntrinsic());
         intrinsics.add(new ExceptionHandlingIntrinsic());
         intrinsics.add(new FunctionIntrinsic(characteristics, exportDependencyListener.getResolvedMethods()));
@@ -346,7 +467,7 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
 
         stringPool = new SimpleStringPool();
         GenerationContext context = new GenerationContext(vtableProvider, characteristics,
-                controller.getDependencyInfo(), stringPool, nameProvider, controller.getDiagnostics(), classes,
+                dependencyInfo, stringPool, nameProvider, controller.getDiagnostics(), classes,
                 intrinsics, generators, asyncMethods::contains, buildTarget, incremental);
 
         BufferedCodeWriter runtimeWriter = new BufferedCodeWriter(false);
@@ -357,13 +478,31 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         if (incremental) {
             runtimeHeaderWriter.println("#define TEAVM_INCREMENTAL true");
         }
+        if (generationalGC) {
+            runtimeHeaderWriter.println("#define TEAVM_GENERATIONAL_GC true");
+        }
+        if (compactingGC) {
+            runtimeHeaderWriter.println("#define TEAVM_COMPACTING_GC true");
+        }
+        if (gcTelemetry) {
+            runtimeHeaderWriter.println("#define TEAVM_GC_TELEMETRY true");
+        }
+        if (allocationProfiler) {
+            runtimeHeaderWriter.println("#define TEAVM_ALLOCATION_PROFILER true");
+        }
+        if (allocationSampleInterval > 0) {
+            runtimeHeaderWriter.println("#define TEAVM_ALLOCATION_SAMPLE_INTERVAL " + allocationSampleInterval);
+        }
+        if (gcThreadCount > 1) {
+            runtimeHeaderWriter.println("#define TEAVM_GC_THREADS " + gcThreadCount);
+        }
         emitResource(runtimeHeaderWriter, "runtime.h");
 
         ClassGenerator classGenerator = new ClassGenerator(context, tagRegistry, decompiler,
                 controller.getCacheStatus());
         classGenerator.setAstCache(astCache);
         IntrinsicFactoryContextImpl intrinsicFactoryContext = new IntrinsicFactoryContextImpl(
-                controller.getUnprocessedClassSource(), controller.getClassLoader(), controller.getServices(),
+                unprocessedClassSource, controller.getClassLoader(), controller.getServices(),
                 controller.getProperties());
         for (IntrinsicFactory intrinsicFactory : intrinsicFactories) {
             context.addIntrinsic(intrinsicFactory.createIntrinsic(intrinsicFactoryContext));
@@ -372,7 +511,7 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
             context.addGenerator(generatorFactory.createGenerator(intrinsicFactoryContext));
         }
 
-        generateClasses(classes, classGenerator, buildTarget);
+        generateClasses(classes, classGenerator, context, buildTarget);
         generateSpecialFunctions(context, runtimeWriter);
         OutputFileUtil.write(runtimeWriter, "runtime.c", buildTarget);
         OutputFileUtil.write(runtimeHeaderWriter, "runtime.h", buildTarget);
@@ -413,42 +552,143 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     }
 
     private void generateClasses(ListableClassHolderSource classes, ClassGenerator classGenerator,
-            BuildTarget buildTarget) throws IOException {
+            GenerationContext context, BuildTarget buildTarget) throws IOException {
         List<String> classNames = sortClassNames(classes);
 
         classGenerator.prepare(classes);
 
+        List<ValueType> types = new ArrayList<>();
         for (String className : classNames) {
-            BufferedCodeWriter writer = new BufferedCodeWriter(lineNumbersGenerated);
-            BufferedCodeWriter headerWriter = new BufferedCodeWriter(false);
-            ClassHolder cls = classes.get(className);
-            if (cls != null) {
-                classGenerator.generateClass(writer, headerWriter, cls);
+            types.add(ValueType.object(className));
+        }
+        for (ValueType type : classGenerator.getTypes()) {
+            if (!(type instanceof ValueType.Object)) {
+                types.add(type);
             }
-            String name = ClassGenerator.fileName(className);
-            OutputFileUtil.write(writer, name + ".c", buildTarget);
-            OutputFileUtil.write(headerWriter, name + ".h", buildTarget);
+        }
+
+        // Names and strings are assigned in the same order regardless of thread count. Since workers can't assign
+        // new ones, this makes output of parallel generation identical to output of sequential generation.
+        // Custom generators may ask for any name or string, so classes that use them are generated
+        // on the calling thread, after all names and strings known in advance
+        classGenerator.assignNames(classes, types);
+
+        if (controller.getThreadCount() > 1) {
+            generateClassesInParallel(classes, types, classGenerator, context, buildTarget);
+            return;
+        }
+
+        for (ValueType type : types) {
+            writeFile(generateFile(classes, classGenerator, type), buildTarget);
             if (incremental) {
                 stringPool.reset();
             }
         }
+    }
 
-        for (ValueType type : classGenerator.getTypes()) {
-            if (type instanceof ValueType.Object) {
-                continue;
+    private void generateClassesInParallel(ListableClassHolderSource classes, List<ValueType> types,
+            ClassGenerator classGenerator, GenerationContext context, BuildTarget buildTarget) throws IOException {
+        List<ValueType> parallelTypes = new ArrayList<>();
+        for (ValueType type : types) {
+            if (!usesGenerators(classes, context, type)) {
+                parallelTypes.add(type);
+            }
+        }
+
+        List<GeneratedFile> files = new ArrayList<>();
+        List<ForkJoinTask<List<GeneratedFile>>> tasks = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(controller.getThreadCount());
+        context.getNames().setFrozen(true);
+        stringPool.setFrozen(true);
+        try {
+            for (List<ValueType> chunk : ParallelTasks.splitIntoChunks(parallelTypes, controller.getThreadCount())) {
+                tasks.add(pool.submit(() -> generateFilesOnWorker(classes, classGenerator, context, chunk)));
+            }
+            for (ForkJoinTask<List<GeneratedFile>> task : tasks) {
+                files.addAll(task.join());
+            }
+        } finally {
+            for (ForkJoinTask<?> task : tasks) {
+                task.quietlyJoin();
+            }
+            pool.shutdown();
+            context.getNames().setFrozen(false);
+            stringPool.setFrozen(false);
+        }
+
+        // Files of classes that use generators are produced at the same point as in sequential mode,
+        // so names and strings that generators request are assigned in the same order
+        Iterator<GeneratedFile> parallelFiles = files.iterator();
+        for (ValueType type : types) {
+            if (usesGenerators(classes, context, type)) {
+                writeFile(generateFile(classes, classGenerator, type), buildTarget);
+                if (incremental) {
+                    stringPool.reset();
+                }
+            } else {
+                GeneratedFile file = parallelFiles.next();
+                file.diagnostics.forwardTo(context.getDiagnostics());
+                writeFile(file, buildTarget);
+            }
+        }
+    }
+
+    private static boolean usesGenerators(ListableClassHolderSource classes, GenerationContext context,
+            ValueType type) {
+        if (!(type instanceof ValueType.Object)) {
+            return false;
+        }
+        ClassHolder cls = classes.get(((ValueType.Object) type).getClassName());
+        if (cls == null) {
+            return false;
+        }
+        for (MethodHolder method : cls.getMethods()) {
+            if (context.getGenerator(method.getReference()) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<GeneratedFile> generateFilesOnWorker(ListableClassHolderSource classes,
+            ClassGenerator classGenerator, GenerationContext context, List<ValueType> types) {
+        Decompiler decompiler = new Decompiler(classes, new HashSet<>(), false, true);
+        List<GeneratedFile> files = new ArrayList<>();
+        for (ValueType type : types) {
+            AccumulationDiagnostics diagnostics = new AccumulationDiagnostics();
+            StringPool workerStringPool = incremental ? new SimpleStringPool() : stringPool;
+            ClassGenerator worker = classGenerator.createWorker(
+                    context.createWorkerContext(workerStringPool, diagnostics), decompiler);
+            GeneratedFile file = generateFile(classes, worker, type);
+            file.diagnostics = diagnostics;
+            files.add(file);
+        }
+        return files;
+    }
+
+    private GeneratedFile generateFile(ListableClassHolderSource classes, ClassGenerator classGenerator,
+            ValueType type) {
+        BufferedCodeWriter headerWriter = new BufferedCodeWriter(false);
+        if (type instanceof ValueType.Object) {
+            String className = ((ValueType.Object) type).getClassName();
+            BufferedCodeWriter writer = new BufferedCodeWriter(lineNumbersGenerated);
+            ClassHolder cls = classes.get(className);
+            if (cls != null) {
+                classGenerator.generateClass(writer, headerWriter, cls);
             }
+            return new GeneratedFile(type, ClassGenerator.fileName(className), writer, headerWriter);
+        } else {
             BufferedCodeWriter writer = new BufferedCodeWriter(false);
-            BufferedCodeWriter headerWriter = new BufferedCodeWriter(false);
             classGenerator.generateType(writer, headerWriter, type);
-            String name = ClassGenerator.fileName(type);
-            OutputFileUtil.write(writer, name + ".c", buildTarget);
-            OutputFileUtil.write(headerWriter, name + ".h", buildTarget);
-            if (incremental) {
-                stringPool.reset();
-            }
+            return new GeneratedFile(type, ClassGenerator.fileName(type), writer, headerWriter);
         }
     }
 
+    private void writeFile(GeneratedFile file, BuildTarget buildTarget) throws IOException {
+        OutputFileUtil.write(file.writer, file.name + ".c", buildTarget);
+        OutputFileUtil.write(file.headerWriter, file.name + ".h", buildTarget);
+    }
+
     private List<String> sortClassNames(ListableClassReaderSource classes) {
         List<String> classNames = new ArrayList<>(classes.getClassNames().size());
         Deque<String> stack = new ArrayDeque<>(classes.getClassNames());
@@ -592,6 +832,9 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         generateAllocateStringArray(context, writer, includes);
         generateAllocateCharArray(context, writer, includes);
         generateCreateString(context, writer, includes);
+        if (generationalGC) {
+            generateWriteBarrier(context, writer, includes);
+        }
     }
 
     private void generateThrowCCE(GenerationContext context, CodeWriter writer, IncludeManager includes) {
@@ -604,6 +847,15 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         writer.outdent().println("}");
     }
 
+    private void generateWriteBarrier(GenerationContext context, CodeWriter writer, IncludeManager includes) {
+        includes.includeClass(GC.class.getName());
+        writer.println("void teavm_gc_writeBarrier(void* object) {").indent();
+        String methodName = context.getNames().forMethod(new MethodReference(GC.class, "writeBarrier",
+                RuntimeObject.class, void.class));
+        writer.println(methodName + "(object);");
+        writer.outdent().println("}");
+    }
+
     private void generateAllocateStringArray(GenerationContext context, CodeWriter writer, IncludeManager includes) {
         includes.includeClass(Allocator.class.getName());
         includes.includeType(ValueType.parse(String[].class));
@@ -721,7 +973,7 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         writer.println("int main(int argc, char** argv) {").indent();
 
         writer.println("teavm_beforeInit();");
-        writer.println("teavm_initHeap(" + minHeapSize + ");");
+        writer.println("teavm_initHeap(" + minHeapSize + ", " + Math.max(minHeapSize, maxHeapSize) + ");");
         generateVirtualTableHeaders(context, writer, types);
         writer.println("teavm_initStringPool();");
         for (ValueType type : types) {
@@ -731,6 +983,10 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         writer.println("teavm_afterInitClasses();");
         generateStaticInitializerCalls(context, writer, includes, classes);
         writer.println(context.getNames().forClassInitializer("java.lang.String") + "();");
+        if (allocationProfiler) {
+            includes.includeClass(AllocationProfiler.class.getName());
+            writer.println("atexit(&" + context.getNames().forMethod(ALLOCATION_PROFILER_DUMP) + ");");
+        }
         generateFiberStart(context, writer, includes);
 
         writer.outdent().println("}");
@@ -786,6 +1042,21 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         includes.includeClass(EventQueue.class.getName());
     }
 
+    static class GeneratedFile {
+        final ValueType type;
+        final String name;
+        final BufferedCodeWriter writer;
+        final BufferedCodeWriter headerWriter;
+        AccumulationDiagnostics diagnostics;
+
+        GeneratedFile(ValueType type, String name, BufferedCodeWriter writer, BufferedCodeWriter headerWriter) {
+            this.type = type;
+            this.name = name;
+            this.writer = writer;
+            this.headerWriter = headerWriter;
+        }
+    }
+
     class FiberIntrinsic implements Intrinsic {
         @Override
         public boolean canHandle(MethodReference method) {
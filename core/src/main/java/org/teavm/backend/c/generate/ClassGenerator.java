@@ -110,6 +110,23 @@ public class ClassGenerator {
         this.astCache = astCache;
     }
 
+    /**
+     * Creates generator that can produce files on another thread, concurrently with this generator.
+     * The new generator shares types collected by {@link #prepare(ListableClassHolderSource)} and AST cache
+     * with this one.
+     *
+     * @param context generation context, usually obtained via
+     * {@link GenerationContext#createWorkerContext(StringPool, org.teavm.diagnostics.Diagnostics)}.
+     * @param decompiler decompiler which is not used by other threads.
+     * @return new generator.
+     */
+    public ClassGenerator createWorker(GenerationContext context, Decompiler decompiler) {
+        ClassGenerator worker = new ClassGenerator(context, tagRegistry, decompiler, cacheStatus);
+        worker.types = types;
+        worker.astCache = astCache;
+        return worker;
+    }
+
     public void prepare(ListableClassHolderSource classes) {
         for (String className : classes.getClassNames()) {
             ClassHolder cls = classes.get(className);
@@ -180,6 +197,76 @@ public class ClassGenerator {
         }
     };
 
+    /**
+     * <p>Assigns names and string pool indexes that generated files are expected to refer to.
+     * Names are assigned in order of given types, so the result does not depend on the order in which files are
+     * generated later. After this, files can be generated concurrently while {@link NameProvider} and
+     * {@link SimpleStringPool} are frozen.</p>
+     *
+     * <p>Names and strings requested by custom generators are not covered here, so classes that use
+     * generators have to be generated while name provider and string pool are not frozen.</p>
+     *
+     * @param classes classes to generate files for.
+     * @param types types to generate files for, in the order in which they should get names.
+     */
+    public void assignNames(ListableClassHolderSource classes, List<? extends ValueType> types) {
+        NameProvider names = context.getNames();
+        for (ValueType type : types) {
+            names.forClassInstance(type);
+            names.forClassSystemInitializer(type);
+            names.forSupertypeFunction(type);
+            if (!context.isIncremental() && needsVirtualTable(context.getCharacteristics(), type)) {
+                context.getStringPool().getStringIndex(nameOfType(type));
+            }
+            if (type instanceof ValueType.Object) {
+                ClassHolder cls = classes.get(((ValueType.Object) type).getClassName());
+                if (cls != null) {
+                    assignClassNames(cls);
+                }
+            }
+        }
+    }
+
+    private void assignClassNames(ClassHolder cls) {
+        NameProvider names = context.getNames();
+        names.forClass(cls.getName());
+        names.forClassClass(cls.getName());
+        if (needsInitializer(cls)) {
+            names.forClassInitializer(cls.getName());
+        }
+
+        for (FieldHolder field : cls.getFields()) {
+            if (field.hasModifier(ElementModifier.STATIC)) {
+                names.forStaticField(field.getReference());
+                if (!context.isIncremental() && field.getInitialValue() instanceof String) {
+                    context.getStringPool().getStringIndex((String) field.getInitialValue());
+                }
+            } else if (!isMonitorField(field.getReference())) {
+                names.forMemberField(field.getReference());
+            }
+        }
+
+        for (MethodHolder method : cls.getMethods()) {
+            names.forMethod(method.getReference());
+            if (!method.hasModifier(ElementModifier.STATIC)) {
+                names.forVirtualMethod(method.getDescriptor());
+            }
+            if (!context.isIncremental() && method.getProgram() != null) {
+                addStrings(method.getProgram());
+            }
+        }
+    }
+
+    private void addStrings(Program program) {
+        for (BasicBlock block : program.getBasicBlocks()) {
+            for (Instruction insn : block) {
+                if (insn instanceof StringConstantInstruction) {
+                    context.getStringPool().getStringIndex(((StringConstantInstruction) insn).getConstant());
+                }
+            }
+        }
+    }
+
     public void generateClass(CodeWriter writer, CodeWriter headerWriter, ClassHolder cls) {
         ValueType type = ValueType.object(cls.getName());
         init(writer, headerWriter, fileName(cls.getName()), type);
@@ -291,11 +378,16 @@ public class ClassGenerator {
 
             generateMethodForwardDeclaration(method);
             RegularMethodNode methodNode;
-            AstCacheEntry entry = astCache.get(method.getReference(), cacheStatus);
+            AstCacheEntry entry;
+            synchronized (astCache) {
+                entry = astCache.get(method.getReference(), cacheStatus);
+            }
             if (entry == null) {
                 methodNode = decompiler.decompileRegular(method);
-                astCache.store(method.getReference(), new AstCacheEntry(methodNode, new ControlFlowEntry[0]),
-                        () -> dependencyExtractor.extract(methodNode));
+                synchronized (astCache) {
+                    astCache.store(method.getReference(), new AstCacheEntry(methodNode, new ControlFlowEntry[0]),
+                            () -> dependencyExtractor.extract(methodNode));
+                }
             } else {
                 methodNode = entry.method;
             }
@@ -63,6 +63,19 @@ public class GenerationContext {
         this.incremental = incremental;
     }
 
+    /**
+     * Creates context for generating code on another thread. The new context shares everything with this one
+     * except for string pool, diagnostics and intrinsic cache.
+     *
+     * @param stringPool string pool for the new context.
+     * @param diagnostics diagnostics for the new context.
+     * @return new context.
+     */
+    public GenerationContext createWorkerContext(StringPool stringPool, Diagnostics diagnostics) {
+        return new GenerationContext(virtualTableProvider, characteristics, dependencies, stringPool, names,
+                diagnostics, classSource, intrinsics, generators, asyncMethods, buildTarget, incremental);
+    }
+
     public void addIntrinsic(Intrinsic intrinsic) {
         intrinsics.add(intrinsic);
     }
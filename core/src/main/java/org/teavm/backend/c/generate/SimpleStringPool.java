@@ -25,11 +25,15 @@ public class SimpleStringPool implements StringPool {
     private ObjectIntMap<String> stringIndexes = new ObjectIntHashMap<>();
     private final List<String> strings = new ArrayList<>();
     private final List<String> readonlyStrings = Collections.unmodifiableList(strings);
+    private boolean frozen;
 
     @Override
     public int getStringIndex(String string) {
         int index = stringIndexes.getOrDefault(string, -1);
         if (index < 0) {
+            if (frozen) {
+                throw new IllegalStateException("String was not added to pool before generation: " + string);
+            }
             index = strings.size();
             strings.add(string);
             stringIndexes.put(string, index);
@@ -42,6 +46,17 @@ public class SimpleStringPool implements StringPool {
         return readonlyStrings;
     }
 
+    /**
+     * <p>Forbids or allows adding new strings to the pool. While frozen, the pool does not change its state,
+     * so it can be safely queried from several threads. Asking a frozen pool for a string that was not added
+     * earlier is an error.</p>
+     *
+     * @param frozen whether adding new strings is forbidden.
+     */
+    public void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+
     public void reset() {
         strings.clear();
         stringIndexes.clear();
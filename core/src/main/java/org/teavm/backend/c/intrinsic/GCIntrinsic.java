@@ -20,6 +20,9 @@ import org.teavm.model.MethodReference;
 import org.teavm.runtime.GC;
 
 public class GCIntrinsic implements Intrinsic {
+    public static final MethodReference SWEEP_TASK = new MethodReference(GC.class, "sweepTask", int.class,
+            void.class);
+
     @Override
     public boolean canHandle(MethodReference method) {
         if (!method.getClassName().equals(GC.class.getName())) {
@@ -33,7 +36,19 @@ public class GCIntrinsic implements Intrinsic {
             case "regionsAddress":
             case "regionMaxCount":
             case "availableBytes":
+            case "maxAvailableBytes":
+            case "resizeHeap":
             case "regionSize":
+            case "generational":
+            case "incremental":
+            case "sliceTime":
+            case "compacting":
+            case "sweepThreadCount":
+            case "runSweepTasks":
+            case "telemetry":
+            case "allocationSampleInterval":
+            case "reportCollection":
+            case "reportAllocationSample":
                 return true;
             default:
                 return false;
@@ -43,5 +58,24 @@ public class GCIntrinsic implements Intrinsic {
     @Override
     public void apply(IntrinsicContext context, InvocationExpr invocation) {
         context.writer().print("teavm_gc_").print(invocation.getMethod().getName());
+        switch (invocation.getMethod().getName()) {
+            case "runSweepTasks":
+                context.writer().print("(&").print(context.names().forMethod(SWEEP_TASK)).print(", ");
+                context.emit(invocation.getArguments().get(0));
+                context.writer().print(")");
+                break;
+            default:
+                if (!invocation.getArguments().isEmpty()) {
+                    context.writer().print("(");
+                    for (int i = 0; i < invocation.getArguments().size(); ++i) {
+                        if (i > 0) {
+                            context.writer().print(", ");
+                        }
+                        context.emit(invocation.getArguments().get(i));
+                    }
+                    context.writer().print(")");
+                }
+                break;
+        }
     }
 }
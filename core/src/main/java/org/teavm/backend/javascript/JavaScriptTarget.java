@@ -30,9 +30,15 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import org.teavm.ast.AsyncMethodNode;
 import org.teavm.ast.ControlFlowEntry;
@@ -44,12 +50,15 @@ import org.teavm.backend.javascript.codegen.AliasProvider;
 import org.teavm.backend.javascript.codegen.DefaultAliasProvider;
 import org.teavm.backend.javascript.codegen.DefaultNamingStrategy;
 import org.teavm.backend.javascript.codegen.MinifyingAliasProvider;
+import org.teavm.backend.javascript.codegen.NamingStrategy;
+import org.teavm.backend.javascript.codegen.ReferenceRecordingNamingStrategy;
 import org.teavm.backend.javascript.codegen.SourceWriter;
 import org.teavm.backend.javascript.codegen.SourceWriterBuilder;
 import org.teavm.backend.javascript.decompile.PreparedClass;
 import org.teavm.backend.javascript.decompile.PreparedMethod;
 import org.teavm.backend.javascript.rendering.Renderer;
 import org.teavm.backend.javascript.rendering.RenderingContext;
+import org.teavm.backend.javascript.rendering.RenderingUtil;
 import org.teavm.backend.javascript.rendering.RuntimeRenderer;
 import org.teavm.backend.javascript.spi.GeneratedBy;
 import org.teavm.backend.javascript.spi.Generator;
@@ -62,6 +71,7 @@ import org.teavm.cache.AstDependencyExtractor;
 import org.teavm.cache.CacheStatus;
 import org.teavm.cache.EmptyMethodNodeCache;
 import org.teavm.cache.MethodNodeCache;
+import org.teavm.common.ParallelTasks;
 import org.teavm.debugging.information.DebugInformationEmitter;
 import org.teavm.debugging.information.DummyDebugInformationEmitter;
 import org.teavm.debugging.information.SourceLocation;
@@ -110,10 +120,15 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     private static final NumberFormat STATS_PERCENT_FORMAT = new DecimalFormat("0.000 %");
     private static final MethodReference CURRENT_THREAD = new MethodReference(Thread.class,
             "currentThread", Thread.class);
+    private static final String STARTUP_CODE = "<startup>";
 
     private TeaVMTargetController controller;
     private boolean minifying = true;
     private boolean stackTraceIncluded;
+    private boolean longAsBigInt;
+    private boolean esModule;
+    private boolean flatObjectLayout;
+    private final Set<String> lazyEntryPoints = new HashSet<>();
     private final Map<MethodReference, Generator> methodGenerators = new HashMap<>();
     private final Map<MethodReference, Injector> methodInjectors = new HashMap<>();
     private final List<Function<ProviderContext, Generator>> generatorProviders = new ArrayList<>();
@@ -216,6 +231,68 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         this.stackTraceIncluded = stackTraceIncluded;
     }
 
+    /**
+     * Specifies whether Java <code>long</code> values should be represented by JavaScript <code>BigInt</code>
+     * values. By default, every <code>long</code> value is an object that holds two 32-bit halves, so every
+     * operation on <code>long</code> allocates. <code>BigInt</code> arithmetic is done by the engine
+     * instead, however generated code requires an engine that supports <code>BigInt</code>.
+     *
+     * @param longAsBigInt whether <code>long</code> should be represented by <code>BigInt</code>.
+     */
+    public void setLongAsBigInt(boolean longAsBigInt) {
+        this.longAsBigInt = longAsBigInt;
+    }
+
+    /**
+     * Specifies whether generated code should be an ECMAScript module. By default, generated code is a script
+     * that declares entry points as global variables. When producing module, entry points are exported instead,
+     * so the code can be imported, including by dynamic <code>import()</code>, and handled by bundlers.
+     * Module can be split into startup code and chunks loaded on demand, see {@link #setLazyEntryPoints(Set)}.
+     *
+     * @param esModule whether to generate ECMAScript module.
+     */
+    public void setEsModule(boolean esModule) {
+        this.esModule = esModule;
+    }
+
+    /**
+     * <p>Marks entry points whose code should be loaded on demand. Classes that are only reachable from
+     * a lazy entry point are written to a separate file next to the main module, <code>classes-1.js</code>,
+     * <code>classes-2.js</code> and so on for <code>classes.js</code>, one file per lazy entry point.
+     * Classes reachable from startup code, i.e. from other entry points and from runtime, as well as classes
+     * shared by several lazy entry points, stay in the main module.</p>
+     *
+     * <p>Every chunk is an ECMAScript module that imports names of startup code it needs from main module
+     * and is loaded by <code>import()</code> when its entry point is called for the first time. Since
+     * <code>import()</code> is asynchronous, a lazy entry point returns <code>Promise</code>, which is resolved
+     * after its chunk is loaded and the entry point is started. There are no other lazy boundaries, so
+     * generated code remains synchronous. Chunk imports main module by its file name, so main module should be
+     * loaded by the same URL, without query string. Imported names can't be assigned, therefore classes that
+     * assign static fields of startup classes stay in main module. Reflection can't find classes of chunks
+     * that were not loaded yet.</p>
+     *
+     * <p>Only takes effect in {@link #setEsModule(boolean) ECMAScript module} mode without debug information
+     * and with {@link #setLongAsBigInt(boolean) BigInt} disabled, otherwise lazy entry points are loaded
+     * at startup, like other entry points, and a warning is reported.</p>
+     *
+     * @param lazyEntryPoints public names of entry points, as passed to
+     *     {@link org.teavm.vm.TeaVM#entryPoint(String, String)}.
+     */
+    public void setLazyEntryPoints(Set<String> lazyEntryPoints) {
+        this.lazyEntryPoints.clear();
+        this.lazyEntryPoints.addAll(lazyEntryPoints);
+    }
+
+    /**
+     * Specifies whether constructor of a class should assign fields of the whole class hierarchy instead
+     * of delegating to constructor of parent class. See {@link Renderer#setFlatObjectLayout(boolean)}.
+     *
+     * @param flatObjectLayout whether to generate flat constructors.
+     */
+    public void setFlatObjectLayout(boolean flatObjectLayout) {
+        this.flatObjectLayout = flatObjectLayout;
+    }
+
     @Override
     public List<TeaVMHostExtension> getHostExtensions() {
         return Collections.singletonList(this);
@@ -316,7 +393,7 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     public void emit(ListableClassHolderSource classes, BuildTarget target, String outputName) {
         try (OutputStream output = target.createResource(outputName);
                 Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
-            emit(classes, writer, target);
+            emit(classes, writer, target, outputName);
         } catch (IOException e) {
             throw new RenderingException(e);
         }
@@ -330,19 +407,30 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     public void afterOptimizations(Program program, MethodReader method) {
     }
 
-    private void emit(ListableClassHolderSource classes, Writer writer, BuildTarget target) {
+    private void emit(ListableClassHolderSource classes, Writer writer, BuildTarget target, String outputName) {
         List<PreparedClass> clsNodes = modelToAst(classes);
         if (controller.wasCancelled()) {
             return;
         }
 
+        List<String> lazyEntryPointNames = getLazyEntryPoints();
+        boolean splitting = !lazyEntryPointNames.isEmpty();
         AliasProvider aliasProvider = minifying
                 ? new MinifyingAliasProvider(topLevelNameLimit)
                 : new DefaultAliasProvider(topLevelNameLimit);
-        DefaultNamingStrategy naming = new DefaultNamingStrategy(aliasProvider, controller.getUnprocessedClassSource());
+        int renderingThreadCount = debugEmitter == null && !splitting ? controller.getThreadCount() : 1;
+        ClassReaderSource namingClassSource = renderingThreadCount > 1
+                ? controller.getDependencyInfo().getClassSource()
+                : controller.getUnprocessedClassSource();
+        DefaultNamingStrategy defaultNaming = new DefaultNamingStrategy(aliasProvider, namingClassSource);
+        ReferenceRecordingNamingStrategy recordingNaming = splitting
+                ? new ReferenceRecordingNamingStrategy(defaultNaming)
+                : null;
+        NamingStrategy naming = splitting ? recordingNaming : defaultNaming;
         SourceWriterBuilder builder = new SourceWriterBuilder(naming);
         builder.setMinified(minifying);
-        SourceWriter sourceWriter = builder.build(writer);
+        StringBuilder mainBuffer = splitting ? new StringBuilder() : null;
+        SourceWriter sourceWriter = builder.build(splitting ? mainBuffer : writer);
 
         DebugInformationEmitter debugEmitterToUse = debugEmitter;
         if (debugEmitterToUse == null) {
@@ -356,11 +444,14 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
                 controller.getDependencyInfo(), m -> isVirtual(virtualMethodContributorContext, m),
                 controller.getClassInitializerInfo());
         renderingContext.setMinifying(minifying);
+        renderingContext.setLongAsBigInt(longAsBigInt);
         Renderer renderer = new Renderer(sourceWriter, asyncMethods, asyncFamilyMethods,
                 controller.getDiagnostics(), renderingContext);
         RuntimeRenderer runtimeRenderer = new RuntimeRenderer(classes, sourceWriter);
         renderer.setProperties(controller.getProperties());
         renderer.setMinifying(minifying);
+        renderer.setThreadCount(renderingThreadCount);
+        renderer.setFlatObjectLayout(flatObjectLayout);
         renderer.setProgressConsumer(controller::reportProgress);
         if (debugEmitter != null) {
             for (PreparedClass preparedClass : clsNodes) {
@@ -379,7 +470,11 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         for (Map.Entry<MethodReference, Injector> entry : methodInjectors.entrySet()) {
             renderingContext.addInjector(entry.getKey(), entry.getValue());
         }
+        Map<String, StringBuilder> classCode = new HashMap<>();
         try {
+            if (splitting) {
+                recordingNaming.setOwner(STARTUP_CODE);
+            }
             printWrapperStart(sourceWriter);
 
             for (RendererListener listener : rendererListeners) {
@@ -387,19 +482,46 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
             }
             int start = sourceWriter.getOffset();
 
-            renderer.prepare(clsNodes);
+            if (splitting) {
+                recordingNaming.setOwner(null);
+                renderer.prepare(clsNodes);
+                recordingNaming.setOwner(STARTUP_CODE);
+            } else {
+                renderer.prepare(clsNodes);
+            }
             runtimeRenderer.renderRuntime();
+            if (longAsBigInt) {
+                runtimeRenderer.renderHandWrittenRuntime("bigint.js");
+            }
             sourceWriter.append("var ").append(renderer.getNaming().getScopeName()).ws().append("=").ws()
                     .append("Object.create(null);").newLine();
-            if (!renderer.render(clsNodes)) {
+            int classesOffset = 0;
+            if (splitting) {
+                boolean completed = renderer.render(clsNodes, cls -> {
+                    recordingNaming.setOwner(cls.getName());
+                    StringBuilder buffer = new StringBuilder();
+                    classCode.put(cls.getName(), buffer);
+                    return sourceWriter.fork(naming, buffer);
+                });
+                if (!completed) {
+                    return;
+                }
+                recordingNaming.setOwner(STARTUP_CODE);
+                classesOffset = mainBuffer.length();
+            } else if (!renderer.render(clsNodes)) {
                 return;
             }
             runtimeRenderer.renderHandWrittenRuntime("array.js");
             renderer.renderStringPool();
-            renderer.renderStringConstants();
+            int stringConstantsOffset = 0;
+            if (splitting) {
+                stringConstantsOffset = mainBuffer.length();
+            } else {
+                renderer.renderStringConstants();
+            }
             renderer.renderCompatibilityStubs();
 
-            if (renderer.isLongLibraryUsed()) {
+            if (renderer.isLongLibraryUsed() && !longAsBigInt) {
                 runtimeRenderer.renderHandWrittenRuntime("long.js");
             }
             if (renderer.isThreadLibraryUsed()) {
@@ -408,9 +530,23 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
                 runtimeRenderer.renderHandWrittenRuntime("simpleThread.js");
             }
 
+            int runtimeEnd = 0;
+            if (splitting) {
+                runtimeEnd = mainBuffer.length();
+                renderChunkLoader(sourceWriter);
+            }
             for (Map.Entry<? extends String, ? extends TeaVMEntryPoint> entry
                     : controller.getEntryPoints().entrySet()) {
                 sourceWriter.append("").append(entry.getKey()).ws().append("=").ws();
+                int chunkIndex = lazyEntryPointNames.indexOf(entry.getKey());
+                if (chunkIndex >= 0) {
+                    String chunkName = getChunkName(outputName, chunkIndex + 1);
+                    String chunkFileName = chunkName.substring(chunkName.lastIndexOf('/') + 1);
+                    sourceWriter.append("$rt_loadChunk(function()").ws().append("{").ws()
+                            .append("return import(\"./").append(chunkFileName).append("\");").ws()
+                            .append("});").newLine();
+                    continue;
+                }
                 MethodReference ref = entry.getValue().getMethod();
                 sourceWriter.append("$rt_mainStarter(").appendMethodBody(ref);
                 sourceWriter.append(");").newLine();
@@ -420,25 +556,241 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
                 listener.complete();
             }
 
-            printWrapperEnd(sourceWriter);
-
-            int totalSize = sourceWriter.getOffset() - start;
+            int totalSize;
+            if (splitting) {
+                recordingNaming.setOwner(null);
+                totalSize = sourceWriter.getOffset() - start;
+                Set<String> exportedNames = new TreeSet<>();
+                totalSize += writeChunks(classes, clsNodes, recordingNaming, classCode, lazyEntryPointNames,
+                        renderer, sourceWriter, mainBuffer, classesOffset, stringConstantsOffset, runtimeEnd, target,
+                        outputName, exportedNames);
+                int end = sourceWriter.getOffset();
+                printWrapperEnd(sourceWriter, exportedNames);
+                totalSize += sourceWriter.getOffset() - end;
+                writer.append(mainBuffer);
+            } else {
+                printWrapperEnd(sourceWriter, Collections.emptySet());
+                totalSize = sourceWriter.getOffset() - start;
+            }
             printStats(renderer, totalSize);
         } catch (IOException e) {
             throw new RenderingException("IO Error occurred", e);
         }
     }
 
+    private List<String> getLazyEntryPoints() {
+        List<String> result = new ArrayList<>();
+        for (String name : controller.getEntryPoints().keySet()) {
+            if (lazyEntryPoints.contains(name)) {
+                result.add(name);
+            }
+        }
+        if (!result.isEmpty() && (!esModule || debugEmitter != null || longAsBigInt)) {
+            controller.getDiagnostics().warning(null, "Lazy entry points are only supported by ECMAScript "
+                    + "module without debug information and BigInt, loading " + String.join(", ", result)
+                    + " at startup");
+            result.clear();
+        }
+        return result;
+    }
+
+    private static String getChunkName(String outputName, int index) {
+        String baseName = outputName.endsWith(".js")
+                ? outputName.substring(0, outputName.length() - ".js".length())
+                : outputName;
+        return baseName + "-" + index + ".js";
+    }
+
+    private void renderChunkLoader(SourceWriter writer) throws IOException {
+        writer.append("function $rt_loadChunk($load)").ws().append("{").indent().softNewLine();
+        writer.append("var $starter").ws().append("=").ws().append("null;").softNewLine();
+        writer.append("return function(args,").ws().append("callback)").ws().append("{").indent().softNewLine();
+        writer.append("if").ws().append("($starter").ws().append("===").ws().append("null)").ws().append("{")
+                .indent().softNewLine();
+        writer.append("$starter").ws().append("=").ws().append("$load().then(function($module)").ws()
+                .append("{").indent().softNewLine();
+        writer.append("return $module.default;").softNewLine();
+        writer.outdent().append("});").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("return $starter.then(function($main)").ws().append("{").indent().softNewLine();
+        writer.append("$main(args,").ws().append("callback);").softNewLine();
+        writer.outdent().append("});").softNewLine();
+        writer.outdent().append("};").softNewLine();
+        writer.outdent().append("}").newLine();
+    }
+
+    /**
+     * Distributes rendered classes between main module and chunks of lazy entry points, inserts startup classes
+     * into main module and writes chunks.
+     *
+     * @param exportedNames receives names of main module that chunks import.
+     * @return total size of code inserted into main module and written to chunks.
+     */
+    private int writeChunks(ListableClassHolderSource classes, List<PreparedClass> clsNodes,
+            ReferenceRecordingNamingStrategy recordingNaming, Map<String, StringBuilder> classCode,
+            List<String> lazyEntryPointNames, Renderer renderer, SourceWriter sourceWriter,
+            StringBuilder mainBuffer, int classesOffset, int stringConstantsOffset, int runtimeEnd,
+            BuildTarget target, String outputName, Set<String> exportedNames) throws IOException {
+        LazyChunkPartition partition = new LazyChunkPartition(clsNodes, classes, recordingNaming::getReferences);
+        Map<String, String> lazyRoots = new LinkedHashMap<>();
+        for (String name : lazyEntryPointNames) {
+            lazyRoots.put(name, controller.getEntryPoints().get(name).getMethod().getClassName());
+        }
+        TopLevelNames runtimeNames = TopLevelNames.of(mainBuffer.subSequence(0, runtimeEnd));
+        if (runtimeNames == null) {
+            throw new RenderingException("Could not parse runtime to find names it declares");
+        }
+        Map<String, TopLevelNames> classNames = new HashMap<>();
+        Function<PreparedClass, TopLevelNames> namesOfClass = cls -> classNames.computeIfAbsent(cls.getName(),
+                k -> {
+                    TopLevelNames names = TopLevelNames.of(classCode.get(k));
+                    if (names == null) {
+                        throw new RenderingException("Could not parse code of class " + k
+                                + " to find names it declares");
+                    }
+                    return names;
+                });
+
+        // Chunk can't assign names imported from main module, so classes that do that are moved to startup code,
+        // until no such classes left in chunks
+        Set<String> startupRoots = new LinkedHashSet<>(recordingNaming.getReferences(STARTUP_CODE));
+        Set<String> mainNames;
+        while (true) {
+            partition.partition(startupRoots, lazyRoots);
+            mainNames = new HashSet<>(runtimeNames.getDeclared());
+            for (PreparedClass cls : partition.getStartupClasses()) {
+                mainNames.addAll(namesOfClass.apply(cls).getDeclared());
+            }
+            boolean changed = false;
+            for (String name : lazyEntryPointNames) {
+                for (PreparedClass cls : partition.getChunkClasses(name)) {
+                    if (!Collections.disjoint(namesOfClass.apply(cls).getAssigned(), mainNames)) {
+                        changed |= startupRoots.add(cls.getName());
+                    }
+                }
+            }
+            if (!changed) {
+                break;
+            }
+        }
+        int size = 0;
+
+        List<PreparedClass> startupClasses = partition.getStartupClasses();
+        Set<String> startupClassNames = new HashSet<>();
+        for (PreparedClass cls : startupClasses) {
+            startupClassNames.add(cls.getName());
+        }
+        StringBuilder startupConstants = new StringBuilder();
+        renderer.renderStringConstants(sourceWriter.fork(recordingNaming, startupConstants),
+                startupClassNames::contains);
+        mainBuffer.insert(stringConstantsOffset, startupConstants);
+        size += startupConstants.length();
+        StringBuilder startupCode = renderChunkClasses(startupClasses, classCode, renderer, sourceWriter,
+                recordingNaming);
+        mainBuffer.insert(classesOffset, startupCode);
+        size += startupCode.length();
+
+        String mainFileName = outputName.substring(outputName.lastIndexOf('/') + 1);
+        for (int i = 0; i < lazyEntryPointNames.size(); ++i) {
+            String name = lazyEntryPointNames.get(i);
+            List<PreparedClass> chunkClasses = partition.getChunkClasses(name);
+            Set<String> chunkClassNames = new HashSet<>();
+            for (PreparedClass cls : chunkClasses) {
+                chunkClassNames.add(cls.getName());
+            }
+            StringBuilder chunkCode = new StringBuilder();
+            for (PreparedClass cls : chunkClasses) {
+                chunkCode.append(classCode.get(cls.getName()));
+            }
+            StringBuilder chunkEpilogue = new StringBuilder();
+            SourceWriter epilogueWriter = sourceWriter.fork(recordingNaming, chunkEpilogue);
+            renderer.renderClassMetadata(chunkClasses, epilogueWriter);
+            renderer.renderStringConstants(epilogueWriter, chunkClassNames::contains);
+            TopLevelNames epilogueNames = TopLevelNames.of(chunkEpilogue);
+            if (epilogueNames == null) {
+                throw new RenderingException("Could not parse metadata of chunk " + name);
+            }
+            MethodReference entryMethod = controller.getEntryPoints().get(name).getMethod();
+            epilogueWriter.append("export default $rt_mainStarter(").appendMethodBody(entryMethod).append(");")
+                    .newLine();
+
+            Set<String> chunkNames = new HashSet<>();
+            Set<String> importedNames = new TreeSet<>(epilogueNames.getReferenced());
+            importedNames.add("$rt_mainStarter");
+            for (PreparedClass cls : chunkClasses) {
+                chunkNames.addAll(namesOfClass.apply(cls).getDeclared());
+                importedNames.addAll(namesOfClass.apply(cls).getReferenced());
+            }
+            importedNames.retainAll(mainNames);
+            importedNames.removeAll(chunkNames);
+            exportedNames.addAll(importedNames);
+
+            StringBuilder chunkPrologue = new StringBuilder();
+            SourceWriter prologueWriter = sourceWriter.fork(recordingNaming, chunkPrologue);
+            if (!importedNames.isEmpty()) {
+                prologueWriter.append("import").ws().append("{").ws();
+                boolean first = true;
+                for (String importedName : importedNames) {
+                    if (!first) {
+                        prologueWriter.append(",").ws();
+                    }
+                    first = false;
+                    prologueWriter.append(importedName);
+                }
+                prologueWriter.ws().append("}").ws().append("from").ws()
+                        .append("\"./").append(RenderingUtil.escapeString(mainFileName)).append("\";").newLine();
+            }
+            size += chunkPrologue.length() + chunkCode.length() + chunkEpilogue.length();
+
+            try (OutputStream output = target.createResource(getChunkName(outputName, i + 1));
+                    Writer chunkOutput = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+                chunkOutput.append(chunkPrologue).append(chunkCode).append(chunkEpilogue);
+            }
+        }
+        return size;
+    }
+
+    private StringBuilder renderChunkClasses(List<PreparedClass> chunkClasses, Map<String, StringBuilder> classCode,
+            Renderer renderer, SourceWriter sourceWriter, NamingStrategy naming) {
+        StringBuilder result = new StringBuilder();
+        for (PreparedClass cls : chunkClasses) {
+            result.append(classCode.get(cls.getName()));
+        }
+        renderer.renderClassMetadata(chunkClasses, sourceWriter.fork(naming, result));
+        return result;
+    }
+
     private void printWrapperStart(SourceWriter writer) throws IOException {
-        writer.append("\"use strict\";").newLine();
+        if (!esModule) {
+            writer.append("\"use strict\";").newLine();
+        }
         for (String key : controller.getEntryPoints().keySet()) {
             writer.append("var ").append(key).append(";").softNewLine();
         }
-        writer.append("(function()").ws().append("{").newLine();
+        if (!esModule) {
+            writer.append("(function()").ws().append("{").newLine();
+        }
     }
 
-    private void printWrapperEnd(SourceWriter writer) throws IOException {
-        writer.append("})();").newLine();
+    private void printWrapperEnd(SourceWriter writer, Set<String> chunkImports) throws IOException {
+        if (!esModule) {
+            writer.append("})();").newLine();
+            return;
+        }
+        Set<String> exportedNames = new LinkedHashSet<>(controller.getEntryPoints().keySet());
+        exportedNames.addAll(chunkImports);
+        if (!exportedNames.isEmpty()) {
+            writer.append("export").ws().append("{").ws();
+            boolean first = true;
+            for (String name : exportedNames) {
+                if (!first) {
+                    writer.append(",").ws();
+                }
+                first = false;
+                writer.append(name);
+            }
+            writer.ws().append("};").newLine();
+        }
     }
 
     private void printStats(Renderer renderer, int totalSize) {
@@ -478,6 +830,10 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         Set<MethodReference> splitMethods = new HashSet<>(asyncMethods);
         splitMethods.addAll(asyncFamilyMethods);
 
+        if (controller.getThreadCount() > 1) {
+            return modelToAstInParallel(classes, splitMethods);
+        }
+
         Decompiler decompiler = new Decompiler(classes, splitMethods, controller.isFriendlyToDebugger(), false);
 
         List<PreparedClass> classNodes = new ArrayList<>();
@@ -494,6 +850,77 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         return classNodes;
     }
 
+    /*
+     * Native methods are preprocessed, AST cache is queried and updated on the calling thread, in the
+     * order of classes. Only methods missing in the cache are decompiled (and optimized) on worker threads,
+     * each worker having its own decompiler.
+     */
+    private List<PreparedClass> modelToAstInParallel(ListableClassHolderSource classes,
+            Set<MethodReference> splitMethods) {
+        List<PreparedClass> classNodes = new ArrayList<>();
+        List<MethodHolder> methodsToDecompile = new ArrayList<>();
+        for (String className : getClassOrdering(classes)) {
+            ClassHolder cls = classes.get(className);
+            for (MethodHolder method : cls.getMethods()) {
+                preprocessNativeMethod(method);
+                if (controller.wasCancelled()) {
+                    return classNodes;
+                }
+            }
+
+            PreparedClass clsNode = new PreparedClass(cls);
+            for (MethodHolder method : getMethodsToDecompile(cls)) {
+                PreparedMethod preparedMethod = method.hasModifier(ElementModifier.NATIVE)
+                        ? decompileNative(method)
+                        : getCachedMethod(method);
+                if (preparedMethod == null) {
+                    // Programs may be supplied lazily by code that is not thread-safe
+                    method.getProgram();
+                    methodsToDecompile.add(method);
+                }
+                clsNode.getMethods().add(preparedMethod);
+            }
+            classNodes.add(clsNode);
+        }
+
+        int threadCount = controller.getThreadCount();
+        List<PreparedMethod> decompiledMethods = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            List<ForkJoinTask<List<PreparedMethod>>> tasks = new ArrayList<>();
+            for (List<MethodHolder> chunk : ParallelTasks.splitIntoChunks(methodsToDecompile, threadCount)) {
+                tasks.add(pool.submit(() -> {
+                    Decompiler decompiler = new Decompiler(classes, splitMethods, controller.isFriendlyToDebugger(),
+                            false);
+                    List<PreparedMethod> result = new ArrayList<>();
+                    for (MethodHolder method : chunk) {
+                        result.add(decompileCacheMiss(decompiler, method));
+                    }
+                    return result;
+                }));
+            }
+            for (ForkJoinTask<List<PreparedMethod>> task : tasks) {
+                for (PreparedMethod preparedMethod : task.join()) {
+                    storeMethod(preparedMethod);
+                    decompiledMethods.add(preparedMethod);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Iterator<PreparedMethod> decompiledIter = decompiledMethods.iterator();
+        for (PreparedClass clsNode : classNodes) {
+            List<PreparedMethod> methods = clsNode.getMethods();
+            for (int i = 0; i < methods.size(); ++i) {
+                if (methods.get(i) == null) {
+                    methods.set(i, decompiledIter.next());
+                }
+            }
+        }
+        return classNodes;
+    }
+
     private List<String> getClassOrdering(ListableClassHolderSource classes) {
         List<String> sequence = new ArrayList<>();
         Set<String> visited = new HashSet<>();
@@ -522,6 +949,17 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
 
     private PreparedClass decompile(Decompiler decompiler, ClassHolder cls) {
         PreparedClass clsNode = new PreparedClass(cls);
+        for (MethodHolder method : getMethodsToDecompile(cls)) {
+            PreparedMethod preparedMethod = method.hasModifier(ElementModifier.NATIVE)
+                    ? decompileNative(method)
+                    : decompile(decompiler, method);
+            clsNode.getMethods().add(preparedMethod);
+        }
+        return clsNode;
+    }
+
+    private List<MethodHolder> getMethodsToDecompile(ClassHolder cls) {
+        List<MethodHolder> methods = new ArrayList<>();
         for (MethodHolder method : cls.getMethods()) {
             if (method.getModifiers().contains(ElementModifier.ABSTRACT)) {
                 continue;
@@ -533,13 +971,9 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
             if (!method.hasModifier(ElementModifier.NATIVE) && !method.hasProgram()) {
                 continue;
             }
-
-            PreparedMethod preparedMethod = method.hasModifier(ElementModifier.NATIVE)
-                    ? decompileNative(method)
-                    : decompile(decompiler, method);
-            clsNode.getMethods().add(preparedMethod);
+            methods.add(method);
         }
-        return clsNode;
+        return methods;
     }
 
     private PreparedMethod decompileNative(MethodHolder method) {
@@ -566,55 +1000,58 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     }
 
     private PreparedMethod decompile(Decompiler decompiler, MethodHolder method) {
+        PreparedMethod preparedMethod = getCachedMethod(method);
+        if (preparedMethod == null) {
+            preparedMethod = decompileCacheMiss(decompiler, method);
+            storeMethod(preparedMethod);
+        }
+        return preparedMethod;
+    }
+
+    private PreparedMethod getCachedMethod(MethodHolder method) {
         MethodReference reference = method.getReference();
+        CacheStatus cacheStatus = controller.getCacheStatus();
+        if (astCache == null || cacheStatus.isStaleMethod(reference)) {
+            return null;
+        }
+
         if (asyncMethods.contains(reference)) {
-            AsyncMethodNode node = decompileAsync(decompiler, method);
+            AsyncMethodNode node = astCache.getAsync(reference, cacheStatus);
+            if (node == null) {
+                return null;
+            }
             ControlFlowEntry[] cfg = ProgramUtils.getLocationCFG(method.getProgram());
             return new PreparedMethod(method, node, null, false, cfg);
         } else {
-            AstCacheEntry entry = decompileRegular(decompiler, method);
-            return new PreparedMethod(method, entry.method, null, false, entry.cfg);
+            AstCacheEntry entry = astCache.get(reference, cacheStatus);
+            return entry != null ? new PreparedMethod(method, entry.method, null, false, entry.cfg) : null;
         }
     }
 
-    private AstCacheEntry decompileRegular(Decompiler decompiler, MethodHolder method) {
-        if (astCache == null) {
-            return decompileRegularCacheMiss(decompiler, method);
-        }
-
-        CacheStatus cacheStatus = controller.getCacheStatus();
-        AstCacheEntry entry = !cacheStatus.isStaleMethod(method.getReference())
-                ? astCache.get(method.getReference(), cacheStatus)
-                : null;
-        if (entry == null) {
-            entry = decompileRegularCacheMiss(decompiler, method);
-            RegularMethodNode finalNode = entry.method;
-            astCache.store(method.getReference(), entry, () -> dependencyExtractor.extract(finalNode));
+    private PreparedMethod decompileCacheMiss(Decompiler decompiler, MethodHolder method) {
+        if (asyncMethods.contains(method.getReference())) {
+            AsyncMethodNode node = decompiler.decompileAsync(method);
+            ControlFlowEntry[] cfg = ProgramUtils.getLocationCFG(method.getProgram());
+            return new PreparedMethod(method, node, null, false, cfg);
+        } else {
+            RegularMethodNode node = decompiler.decompileRegular(method);
+            ControlFlowEntry[] cfg = LocationGraphBuilder.build(node.getBody());
+            return new PreparedMethod(method, node, null, false, cfg);
         }
-        return entry;
     }
 
-    private AstCacheEntry decompileRegularCacheMiss(Decompiler decompiler, MethodHolder method) {
-        RegularMethodNode node = decompiler.decompileRegular(method);
-        ControlFlowEntry[] cfg = LocationGraphBuilder.build(node.getBody());
-        return new AstCacheEntry(node, cfg);
-    }
-
-    private AsyncMethodNode decompileAsync(Decompiler decompiler, MethodHolder method) {
+    private void storeMethod(PreparedMethod method) {
         if (astCache == null) {
-            return decompiler.decompileAsync(method);
+            return;
         }
-
-        CacheStatus cacheStatus = controller.getCacheStatus();
-        AsyncMethodNode node = !cacheStatus.isStaleMethod(method.getReference())
-                ? astCache.getAsync(method.getReference(), cacheStatus)
-                : null;
-        if (node == null) {
-            node = decompiler.decompileAsync(method);
-            AsyncMethodNode finalNode = node;
-            astCache.storeAsync(method.getReference(), node, () -> dependencyExtractor.extract(finalNode));
+        if (method.node instanceof AsyncMethodNode) {
+            AsyncMethodNode node = (AsyncMethodNode) method.node;
+            astCache.storeAsync(method.reference, node, () -> dependencyExtractor.extract(node));
+        } else {
+            RegularMethodNode node = (RegularMethodNode) method.node;
+            astCache.store(method.reference, new AstCacheEntry(node, method.cfg),
+                    () -> dependencyExtractor.extract(node));
         }
-        return node;
     }
 
     private void preprocessNativeMethod(MethodHolder method) {
@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Function;
+import org.teavm.backend.javascript.decompile.PreparedClass;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ClassReaderSource;
+
+/**
+ * <p>Splits classes between startup code and chunks of lazy entry points, using references between classes
+ * recorded while rendering their code.</p>
+ *
+ * <p>Startup code gets all classes that are reachable from code which runs at startup, i.e. runtime,
+ * non-lazy entry points and so on. Chunk of a lazy entry point gets classes that are reachable from
+ * the entry point and are not in startup code. Classes that would get into more than one chunk,
+ * as well as classes not reachable from anywhere, go to startup code, together with everything they
+ * reach. Therefore, code of startup classes only refers to startup classes, and code of a chunk only refers
+ * to classes of the chunk and to startup classes.</p>
+ */
+class LazyChunkPartition {
+    private final Map<String, PreparedClass> classes = new LinkedHashMap<>();
+    private final ClassReaderSource classSource;
+    private final Function<String, Collection<String>> references;
+    private Set<String> startup = new HashSet<>();
+    private final Map<String, Set<String>> chunks = new LinkedHashMap<>();
+
+    /**
+     * @param classes all rendered classes.
+     * @param classSource source to find parent and interfaces of a class.
+     * @param references classes referred to by code of the given class.
+     */
+    LazyChunkPartition(List<PreparedClass> classes, ClassReaderSource classSource,
+            Function<String, Collection<String>> references) {
+        for (PreparedClass cls : classes) {
+            this.classes.put(cls.getName(), cls);
+        }
+        this.classSource = classSource;
+        this.references = references;
+    }
+
+    /**
+     * @param startupRoots classes referred to by code that runs at startup.
+     * @param lazyRoots class of the method of each lazy entry point, by public name of the entry point.
+     */
+    void partition(Collection<String> startupRoots, Map<String, String> lazyRoots) {
+        startup = reach(startupRoots, Collections.emptySet());
+        while (true) {
+            chunks.clear();
+            Map<String, Integer> chunkCount = new HashMap<>();
+            for (Map.Entry<String, String> entry : lazyRoots.entrySet()) {
+                Set<String> chunk = reach(Collections.singletonList(entry.getValue()), startup);
+                chunks.put(entry.getKey(), chunk);
+                for (String className : chunk) {
+                    chunkCount.merge(className, 1, Integer::sum);
+                }
+            }
+
+            List<String> newRoots = new ArrayList<>();
+            for (String className : classes.keySet()) {
+                if (!startup.contains(className) && chunkCount.getOrDefault(className, 0) != 1) {
+                    newRoots.add(className);
+                }
+            }
+            if (newRoots.isEmpty()) {
+                break;
+            }
+            newRoots.addAll(startup);
+            startup = reach(newRoots, Collections.emptySet());
+        }
+    }
+
+    List<PreparedClass> getStartupClasses() {
+        List<PreparedClass> result = new ArrayList<>();
+        for (PreparedClass cls : classes.values()) {
+            if (startup.contains(cls.getName())) {
+                result.add(cls);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return classes of the chunk in the order they were rendered.
+     */
+    List<PreparedClass> getChunkClasses(String entryPoint) {
+        Set<String> chunk = chunks.get(entryPoint);
+        List<PreparedClass> result = new ArrayList<>();
+        for (PreparedClass cls : classes.values()) {
+            if (chunk.contains(cls.getName())) {
+                result.add(cls);
+            }
+        }
+        return result;
+    }
+
+    private Set<String> reach(Collection<String> roots, Set<String> excluded) {
+        Set<String> result = new HashSet<>();
+        Queue<String> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            String className = queue.remove();
+            if (!classes.containsKey(className) || excluded.contains(className) || !result.add(className)) {
+                continue;
+            }
+            queue.addAll(references.apply(className));
+            ClassReader cls = classSource.get(className);
+            if (cls != null) {
+                if (cls.getParent() != null) {
+                    queue.add(cls.getParent());
+                }
+                queue.addAll(cls.getInterfaces());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ErrorReporter;
+import org.mozilla.javascript.EvaluatorException;
+import org.mozilla.javascript.Token;
+import org.mozilla.javascript.ast.Assignment;
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.AstRoot;
+import org.mozilla.javascript.ast.ForInLoop;
+import org.mozilla.javascript.ast.InfixExpression;
+import org.mozilla.javascript.ast.Name;
+import org.mozilla.javascript.ast.ObjectProperty;
+import org.mozilla.javascript.ast.PropertyGet;
+import org.mozilla.javascript.ast.UnaryExpression;
+import org.teavm.backend.javascript.rendering.AstVisitor;
+import org.teavm.backend.javascript.rendering.JSParser;
+
+/**
+ * <p>Top-level names of a piece of generated code: names it declares, names it refers to without declaring
+ * them and names among the latter that it assigns.</p>
+ *
+ * <p>Chunks of lazy entry points are ECMAScript modules that import names of startup code from main module.
+ * Imported bindings can't be assigned, so this information is used to find which names main module should
+ * export, what each chunk should import and which classes can't be moved to a chunk.</p>
+ */
+class TopLevelNames {
+    private final Set<String> declared = new HashSet<>();
+    private final Set<String> referenced = new HashSet<>();
+    private final Set<String> assigned = new HashSet<>();
+
+    private TopLevelNames() {
+    }
+
+    /**
+     * @return names of the given code, or <code>null</code> if code could not be parsed.
+     */
+    static TopLevelNames of(CharSequence code) {
+        CompilerEnvirons env = new CompilerEnvirons();
+        env.setRecoverFromErrors(true);
+        env.setLanguageVersion(Context.VERSION_1_8);
+        SilentErrorReporter errorReporter = new SilentErrorReporter();
+        JSParser parser = new JSParser(env, errorReporter);
+        AstRoot root = parser.parse(code.toString(), null, 0);
+        if (errorReporter.hasErrors) {
+            return null;
+        }
+
+        TopLevelNames result = new TopLevelNames();
+        if (root.getSymbolTable() != null) {
+            result.declared.addAll(root.getSymbolTable().keySet());
+        }
+        result.new Collector().accept(root);
+        return result;
+    }
+
+    Set<String> getDeclared() {
+        return declared;
+    }
+
+    Set<String> getReferenced() {
+        return referenced;
+    }
+
+    Set<String> getAssigned() {
+        return assigned;
+    }
+
+    private class Collector extends AstVisitor {
+        @Override
+        protected void visitName(Name node) {
+            if (node.getDefiningScope() == null) {
+                referenced.add(node.getIdentifier());
+            }
+        }
+
+        @Override
+        protected void visitPropertyGet(PropertyGet node) {
+            accept(node.getTarget());
+        }
+
+        @Override
+        protected void visitObjectProperty(ObjectProperty node) {
+            if (!(node.getLeft() instanceof Name)) {
+                accept(node.getLeft());
+            }
+            accept(node.getRight());
+        }
+
+        @Override
+        protected void visitInfix(InfixExpression node) {
+            if (node instanceof Assignment) {
+                markAssigned(node.getLeft());
+            }
+            super.visitInfix(node);
+        }
+
+        @Override
+        protected void visitUnary(UnaryExpression node) {
+            if (node.getType() == Token.INC || node.getType() == Token.DEC) {
+                markAssigned(node.getOperand());
+            }
+            super.visitUnary(node);
+        }
+
+        @Override
+        protected void visitForIn(ForInLoop node) {
+            markAssigned(node.getIterator());
+            super.visitForIn(node);
+        }
+
+        private void markAssigned(AstNode target) {
+            if (target instanceof Name && ((Name) target).getDefiningScope() == null) {
+                assigned.add(((Name) target).getIdentifier());
+            }
+        }
+    }
+
+    private static class SilentErrorReporter implements ErrorReporter {
+        boolean hasErrors;
+
+        @Override
+        public void warning(String message, String sourceName, int line, String lineSource, int lineOffset) {
+        }
+
+        @Override
+        public void error(String message, String sourceName, int line, String lineSource, int lineOffset) {
+            hasErrors = true;
+        }
+
+        @Override
+        public EvaluatorException runtimeError(String message, String sourceName, int line, String lineSource,
+                int lineOffset) {
+            return null;
+        }
+    }
+}
@@ -40,6 +40,7 @@ public class DefaultNamingStrategy implements NamingStrategy {
     private final Map<String, String> functionAliases = new HashMap<>();
     private final Map<String, ScopedName> classInitAliases = new HashMap<>();
     private String scopeName;
+    private boolean frozen;
 
     public DefaultNamingStrategy(AliasProvider aliasProvider, ClassReaderSource classSource) {
         this.aliasProvider = aliasProvider;
@@ -48,13 +49,20 @@ public class DefaultNamingStrategy implements NamingStrategy {
 
     @Override
     public ScopedName getNameFor(String cls) {
-        return classAliases.computeIfAbsent(cls, key -> aliasProvider.getClassAlias(cls));
+        ScopedName alias = classAliases.get(cls);
+        if (alias == null) {
+            checkNotFrozen();
+            alias = aliasProvider.getClassAlias(cls);
+            classAliases.put(cls, alias);
+        }
+        return alias;
     }
 
     @Override
     public String getNameFor(MethodDescriptor method) {
         String alias = aliases.get(method);
         if (alias == null) {
+            checkNotFrozen();
             alias = aliasProvider.getMethodAlias(method);
             aliases.put(method, alias);
         }
@@ -78,14 +86,21 @@ public class DefaultNamingStrategy implements NamingStrategy {
             method = originalMethod;
         }
 
-        return privateAliases.computeIfAbsent(new Key(classifier, method),
-                key -> aliasProvider.getStaticMethodAlias(key.data));
+        Key key = new Key(classifier, method);
+        ScopedName alias = privateAliases.get(key);
+        if (alias == null) {
+            checkNotFrozen();
+            alias = aliasProvider.getStaticMethodAlias(method);
+            privateAliases.put(key, alias);
+        }
+        return alias;
     }
 
     @Override
     public String getNameFor(FieldReference field) {
         String alias = fieldAliases.get(field);
         if (alias == null) {
+            checkNotFrozen();
             FieldReference realField = getRealField(field);
             if (realField.equals(field)) {
                 alias = aliasProvider.getFieldAlias(realField);
@@ -101,6 +116,7 @@ public class DefaultNamingStrategy implements NamingStrategy {
     public ScopedName getFullNameFor(FieldReference field) {
         ScopedName alias = staticFieldAliases.get(field);
         if (alias == null) {
+            checkNotFrozen();
             FieldReference realField = getRealField(field);
             if (realField.equals(field)) {
                 alias = aliasProvider.getStaticFieldAlias(realField);
@@ -114,22 +130,53 @@ public class DefaultNamingStrategy implements NamingStrategy {
 
     @Override
     public String getNameForFunction(String name) {
-        return functionAliases.computeIfAbsent(name, key -> aliasProvider.getFunctionAlias(key));
+        String alias = functionAliases.get(name);
+        if (alias == null) {
+            checkNotFrozen();
+            alias = aliasProvider.getFunctionAlias(name);
+            functionAliases.put(name, alias);
+        }
+        return alias;
     }
 
     @Override
     public ScopedName getNameForClassInit(String className) {
-        return classInitAliases.computeIfAbsent(className, key -> aliasProvider.getClassInitAlias(key));
+        ScopedName alias = classInitAliases.get(className);
+        if (alias == null) {
+            checkNotFrozen();
+            alias = aliasProvider.getClassInitAlias(className);
+            classInitAliases.put(className, alias);
+        }
+        return alias;
     }
 
     @Override
     public String getScopeName() {
         if (scopeName == null) {
+            checkNotFrozen();
             scopeName = aliasProvider.getScopeAlias();
         }
         return scopeName;
     }
 
+    /**
+     * <p>Forbids or allows assigning new names. A frozen strategy returns names that were assigned before
+     * and throws {@link NameNotAssignedException} instead of assigning new ones. Since a frozen strategy
+     * only calls {@link Map#get(Object)} on its maps and never modifies them, it can be queried from several
+     * threads at once.</p>
+     *
+     * @param frozen whether new names are forbidden.
+     */
+    public void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new NameNotAssignedException();
+        }
+    }
+
     private MethodReference getRealMethod(MethodReference methodRef) {
         String className = methodRef.getClassName();
         while (className != null) {
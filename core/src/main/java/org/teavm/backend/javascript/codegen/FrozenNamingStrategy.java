@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.codegen;
+
+import java.util.function.Function;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>View of a frozen {@link DefaultNamingStrategy} which, instead of failing, remembers that some name
+ * was not assigned yet and returns a dummy value for it. Code rendered with such dummy names must be discarded
+ * and rendered again with a naming strategy that is allowed to assign new names.</p>
+ *
+ * <p>Each instance is expected to be used by a single thread, while the underlying strategy can be
+ * shared between several instances.</p>
+ */
+public class FrozenNamingStrategy implements NamingStrategy {
+    private static final ScopedName MISSING_SCOPED_NAME = new ScopedName(false, "$missing");
+    private static final String MISSING_NAME = "$missing";
+    private final DefaultNamingStrategy underlying;
+    private boolean hasMissingNames;
+
+    public FrozenNamingStrategy(DefaultNamingStrategy underlying) {
+        this.underlying = underlying;
+    }
+
+    public boolean hasMissingNames() {
+        return hasMissingNames;
+    }
+
+    public void clearMissingNames() {
+        hasMissingNames = false;
+    }
+
+    @Override
+    public ScopedName getNameFor(String cls) {
+        return get(naming -> naming.getNameFor(cls), MISSING_SCOPED_NAME);
+    }
+
+    @Override
+    public String getNameFor(MethodDescriptor method) {
+        return get(naming -> naming.getNameFor(method), MISSING_NAME);
+    }
+
+    @Override
+    public ScopedName getNameForInit(MethodReference method) {
+        return get(naming -> naming.getNameForInit(method), MISSING_SCOPED_NAME);
+    }
+
+    @Override
+    public ScopedName getFullNameFor(MethodReference method) {
+        return get(naming -> naming.getFullNameFor(method), MISSING_SCOPED_NAME);
+    }
+
+    @Override
+    public String getNameFor(FieldReference field) {
+        return get(naming -> naming.getNameFor(field), MISSING_NAME);
+    }
+
+    @Override
+    public ScopedName getFullNameFor(FieldReference field) {
+        return get(naming -> naming.getFullNameFor(field), MISSING_SCOPED_NAME);
+    }
+
+    @Override
+    public String getNameForFunction(String name) {
+        return get(naming -> naming.getNameForFunction(name), MISSING_NAME);
+    }
+
+    @Override
+    public ScopedName getNameForClassInit(String className) {
+        return get(naming -> naming.getNameForClassInit(className), MISSING_SCOPED_NAME);
+    }
+
+    @Override
+    public String getScopeName() {
+        return get(NamingStrategy::getScopeName, MISSING_NAME);
+    }
+
+    private <T> T get(Function<NamingStrategy, T> operation, T missingValue) {
+        try {
+            return operation.apply(underlying);
+        } catch (NameNotAssignedException e) {
+            hasMissingNames = true;
+            return missingValue;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.codegen;
+
+/**
+ * Thrown by a frozen {@link DefaultNamingStrategy} when it is asked for a name that was not assigned yet.
+ *
+ * @see DefaultNamingStrategy#setFrozen(boolean)
+ */
+public class NameNotAssignedException extends RuntimeException {
+    private static final long serialVersionUID = 6227014627323916426L;
+
+    public NameNotAssignedException() {
+        super("Name was not assigned before naming strategy was frozen", null, false, false);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.codegen;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Naming strategy that delegates to another strategy and records which classes are referred to by
+ * the code being rendered. Every name of a class, of its static member, constructor or initializer is
+ * attributed to the current owner, which is set by caller before it renders a piece of code. Names of
+ * virtual members don't refer to any class and are not recorded.</p>
+ *
+ * <p>While owner is <code>null</code>, nothing is recorded, so names can be assigned in advance without
+ * attributing them to any code.</p>
+ */
+public class ReferenceRecordingNamingStrategy implements NamingStrategy {
+    private final NamingStrategy underlying;
+    private final Map<String, Set<String>> references = new HashMap<>();
+    private Set<String> currentReferences;
+
+    public ReferenceRecordingNamingStrategy(NamingStrategy underlying) {
+        this.underlying = underlying;
+    }
+
+    public void setOwner(String owner) {
+        currentReferences = owner != null ? references.computeIfAbsent(owner, k -> new LinkedHashSet<>()) : null;
+    }
+
+    public Set<String> getReferences(String owner) {
+        Set<String> result = references.get(owner);
+        return result != null ? result : new LinkedHashSet<>();
+    }
+
+    @Override
+    public ScopedName getNameFor(String cls) {
+        record(cls);
+        return underlying.getNameFor(cls);
+    }
+
+    @Override
+    public String getNameFor(MethodDescriptor method) {
+        return underlying.getNameFor(method);
+    }
+
+    @Override
+    public ScopedName getNameForInit(MethodReference method) {
+        record(method.getClassName());
+        return underlying.getNameForInit(method);
+    }
+
+    @Override
+    public ScopedName getFullNameFor(MethodReference method) {
+        record(method.getClassName());
+        return underlying.getFullNameFor(method);
+    }
+
+    @Override
+    public String getNameFor(FieldReference field) {
+        return underlying.getNameFor(field);
+    }
+
+    @Override
+    public ScopedName getFullNameFor(FieldReference field) {
+        record(field.getClassName());
+        return underlying.getFullNameFor(field);
+    }
+
+    @Override
+    public String getNameForFunction(String name) {
+        return underlying.getNameForFunction(name);
+    }
+
+    @Override
+    public ScopedName getNameForClassInit(String className) {
+        record(className);
+        return underlying.getNameForClassInit(className);
+    }
+
+    @Override
+    public String getScopeName() {
+        return underlying.getScopeName();
+    }
+
+    private void record(String className) {
+        if (currentReferences != null) {
+            currentReferences.add(className);
+        }
+    }
+}
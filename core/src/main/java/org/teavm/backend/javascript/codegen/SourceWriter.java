@@ -42,6 +42,20 @@ public class SourceWriter implements Appendable, LocationProvider {
         this.minified = minified;
     }
 
+    /**
+     * Creates writer with the same formatting settings as this one, which writes to a separate buffer.
+     * The buffer can later be appended to this writer.
+     *
+     * @param naming naming strategy for the new writer.
+     * @param innerWriter buffer to write code to.
+     * @return new writer.
+     */
+    public SourceWriter fork(NamingStrategy naming, Appendable innerWriter) {
+        SourceWriter result = new SourceWriter(naming, innerWriter, lineWidth);
+        result.setMinified(minified);
+        return result;
+    }
+
     public SourceWriter append(String value) throws IOException {
         append((CharSequence) value);
         return this;
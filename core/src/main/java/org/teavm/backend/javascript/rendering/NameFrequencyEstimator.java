@@ -16,6 +16,7 @@
 package org.teavm.backend.javascript.rendering;
 
 import java.util.Set;
+import java.util.function.Consumer;
 import org.teavm.ast.AssignmentStatement;
 import org.teavm.ast.AsyncMethodNode;
 import org.teavm.ast.AsyncMethodPart;
@@ -66,6 +67,7 @@ class NameFrequencyEstimator extends RecursiveVisitor implements MethodNodeVisit
     private boolean async;
     private final Set<MethodReference> injectedMethods;
     private final Set<MethodReference> asyncFamilyMethods;
+    private Consumer<String> stringConsumer = string -> { };
 
     NameFrequencyEstimator(NameFrequencyConsumer consumer, ClassReaderSource classSource,
             Set<MethodReference> injectedMethods, Set<MethodReference> asyncFamilyMethods) {
@@ -75,6 +77,15 @@ class NameFrequencyEstimator extends RecursiveVisitor implements MethodNodeVisit
         this.asyncFamilyMethods = asyncFamilyMethods;
     }
 
+    /**
+     * Specifies consumer that receives string constants in the order they are met by this estimator.
+     *
+     * @param stringConsumer consumer of string constants.
+     */
+    void setStringConsumer(Consumer<String> stringConsumer) {
+        this.stringConsumer = stringConsumer;
+    }
+
     public void estimate(PreparedClass cls) {
         // Declaration
         consumer.consume(cls.getName());
@@ -85,6 +96,9 @@ class NameFrequencyEstimator extends RecursiveVisitor implements MethodNodeVisit
             consumer.consume(new FieldReference(cls.getName(), field.getName()));
             if (field.getModifiers().contains(ElementModifier.STATIC)) {
                 consumer.consume(cls.getName());
+                if (field.getInitialValue() instanceof String) {
+                    stringConsumer.accept((String) field.getInitialValue());
+                }
             }
         }
 
@@ -229,6 +243,7 @@ class NameFrequencyEstimator extends RecursiveVisitor implements MethodNodeVisit
             visitType((ValueType) expr.getValue());
         } else if (expr.getValue() instanceof String) {
             consumer.consumeFunction("$rt_s");
+            stringConsumer.accept((String) expr.getValue());
         }
     }
 
@@ -27,7 +27,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.teavm.ast.AsyncMethodNode;
 import org.teavm.ast.AsyncMethodPart;
@@ -35,6 +39,8 @@ import org.teavm.ast.MethodNode;
 import org.teavm.ast.MethodNodeVisitor;
 import org.teavm.ast.RegularMethodNode;
 import org.teavm.ast.VariableNode;
+import org.teavm.backend.javascript.codegen.DefaultNamingStrategy;
+import org.teavm.backend.javascript.codegen.FrozenNamingStrategy;
 import org.teavm.backend.javascript.codegen.NamingOrderer;
 import org.teavm.backend.javascript.codegen.NamingStrategy;
 import org.teavm.backend.javascript.codegen.ScopedName;
@@ -42,6 +48,7 @@ import org.teavm.backend.javascript.codegen.SourceWriter;
 import org.teavm.backend.javascript.decompile.PreparedClass;
 import org.teavm.backend.javascript.decompile.PreparedMethod;
 import org.teavm.backend.javascript.spi.GeneratorContext;
+import org.teavm.common.ParallelTasks;
 import org.teavm.common.ServiceRepository;
 import org.teavm.debugging.information.DebugInformationEmitter;
 import org.teavm.debugging.information.DummyDebugInformationEmitter;
@@ -52,6 +59,7 @@ import org.teavm.model.ClassReader;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.ElementModifier;
 import org.teavm.model.FieldHolder;
+import org.teavm.model.FieldReader;
 import org.teavm.model.FieldReference;
 import org.teavm.model.ListableClassReaderSource;
 import org.teavm.model.MethodDescriptor;
@@ -84,6 +92,9 @@ public class Renderer implements RenderingManager {
 
     private boolean longLibraryUsed;
     private boolean threadLibraryUsed;
+    private int threadCount = 1;
+    private boolean flatObjectLayout;
+    private final Map<PreparedMethod, String> renderedBodies = new HashMap<>();
 
     public Renderer(SourceWriter writer, Set<MethodReference> asyncMethods, Set<MethodReference> asyncFamilyMethods,
             Diagnostics diagnostics, RenderingContext context) {
@@ -98,6 +109,21 @@ public class Renderer implements RenderingManager {
         this.context = context;
     }
 
+    private Renderer(Renderer parent, SourceWriter writer, RenderingContext context) {
+        this.naming = context.getNaming();
+        this.writer = writer;
+        this.classSource = parent.classSource;
+        this.classLoader = parent.classLoader;
+        this.services = parent.services;
+        this.asyncMethods = parent.asyncMethods;
+        this.asyncFamilyMethods = parent.asyncFamilyMethods;
+        this.diagnostics = parent.diagnostics;
+        this.context = context;
+        minifying = parent.minifying;
+        flatObjectLayout = parent.flatObjectLayout;
+        properties.putAll(parent.properties);
+    }
+
     public boolean isLongLibraryUsed() {
         return longLibraryUsed;
     }
@@ -166,6 +192,42 @@ public class Renderer implements RenderingManager {
         this.debugEmitter = debugEmitter;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * <p>Specifies how many threads are used to render method bodies. When more than one thread is requested,
+     * bodies of non-native methods are rendered on worker threads into separate buffers, which are then
+     * written in the original order of classes and methods.</p>
+     *
+     * <p>Output does not depend on the number of threads. Workers can't assign new names and add strings
+     * to the string pool, since this would make output depend on thread scheduling. Instead, {@link #prepare(List)}
+     * assigns names and adds strings in advance, in the same way regardless of the number of threads.
+     * If a worker needs a name or a string that is not known yet, the body it rendered is discarded,
+     * and the method is rendered on the calling thread at the same point where it would be rendered in
+     * single-threaded mode.</p>
+     *
+     * <p>Debug information is not emitted for the method bodies rendered on worker threads,
+     * so this option should not be used together with {@link #setDebugEmitter(DebugInformationEmitter)}.</p>
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Specifies whether constructor of each class should initialize fields of all its superclasses by itself
+     * instead of calling constructor of its parent class.
+     *
+     * <p>Both ways produce objects with the same sequence of properties. However, JavaScript engines estimate
+     * in-object capacity of an instance by counting <code>this.x = ...</code> assignments in the constructor
+     * body, so when all fields are assigned directly, instances are allocated with enough room for all of them
+     * and reach their final hidden class without going through layouts of parent classes.</p>
+     */
+    public void setFlatObjectLayout(boolean flatObjectLayout) {
+        this.flatObjectLayout = flatObjectLayout;
+    }
+
     public void setProgressConsumer(IntFunction<TeaVMProgressFeedback> progressConsumer) {
         this.progressConsumer = progressConsumer;
     }
@@ -196,8 +258,24 @@ public class Renderer implements RenderingManager {
     }
 
     public void renderStringConstants() throws RenderingException {
+        renderStringConstants(className -> true);
+    }
+
+    /**
+     * Renders initializers of static string fields that belong to classes accepted by the filter,
+     * to the given writer instead of the writer of this renderer.
+     */
+    public void renderStringConstants(SourceWriter writer, Predicate<String> classFilter)
+            throws RenderingException {
+        forkSharingState(writer).renderStringConstants(classFilter);
+    }
+
+    private void renderStringConstants(Predicate<String> classFilter) throws RenderingException {
         try {
             for (PostponedFieldInitializer initializer : postponedFieldInitializers) {
+                if (!classFilter.test(initializer.field.getClassName())) {
+                    continue;
+                }
                 int start = writer.getOffset();
                 writer.appendStaticField(initializer.field).ws().append("=").ws();
                 context.constantToString(writer, initializer.value);
@@ -264,16 +342,15 @@ public class Renderer implements RenderingManager {
     }
 
     public void prepare(List<PreparedClass> classes) {
-        if (minifying) {
-            NamingOrderer orderer = new NamingOrderer();
-            NameFrequencyEstimator estimator = new NameFrequencyEstimator(orderer, classSource, asyncMethods,
-                    asyncFamilyMethods);
-            for (PreparedClass cls : classes) {
-                estimator.estimate(cls);
-            }
-            naming.getScopeName();
-            orderer.apply(naming);
+        NamingOrderer orderer = new NamingOrderer();
+        NameFrequencyEstimator estimator = new NameFrequencyEstimator(orderer, classSource, asyncMethods,
+                asyncFamilyMethods);
+        estimator.setStringConsumer(context::lookupString);
+        for (PreparedClass cls : classes) {
+            estimator.estimate(cls);
         }
+        naming.getScopeName();
+        orderer.apply(naming);
     }
 
     public boolean render(List<PreparedClass> classes) throws RenderingException {
@@ -284,6 +361,9 @@ public class Renderer implements RenderingManager {
                 throw new RenderingException(e);
             }
         }
+        if (threadCount > 1) {
+            renderMethodBodiesInParallel(classes);
+        }
         int index = 0;
         for (PreparedClass cls : classes) {
             int start = writer.getOffset();
@@ -298,6 +378,52 @@ public class Renderer implements RenderingManager {
         return true;
     }
 
+    /**
+     * <p>Renders declarations and method bodies of each class to the writer chosen by the selector, so that
+     * classes can be put into different output files. The selector is called right before a class is rendered,
+     * in the order of classes. Runtime aliases are rendered to the writer of this renderer.
+     * Unlike {@link #render(List)}, this method does not render class metadata, which should be rendered by
+     * {@link #renderClassMetadata(List, SourceWriter)} for every group of classes, and always renders method
+     * bodies on the calling thread.</p>
+     */
+    public boolean render(List<PreparedClass> classes, Function<PreparedClass, SourceWriter> writerSelector)
+            throws RenderingException {
+        if (minifying) {
+            try {
+                renderRuntimeAliases();
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        }
+        int index = 0;
+        for (PreparedClass cls : classes) {
+            Renderer classRenderer = forkSharingState(writerSelector.apply(cls));
+            int start = classRenderer.writer.getOffset();
+            classRenderer.renderDeclaration(cls);
+            classRenderer.renderMethodBodies(cls);
+            appendClassSize(cls.getName(), classRenderer.writer.getOffset() - start);
+            longLibraryUsed |= classRenderer.longLibraryUsed;
+            threadLibraryUsed |= classRenderer.threadLibraryUsed;
+            if (progressConsumer.apply(1000 * ++index / classes.size()) == TeaVMProgressFeedback.CANCEL) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void renderClassMetadata(List<PreparedClass> classes, SourceWriter writer) {
+        Renderer metadataRenderer = forkSharingState(writer);
+        metadataRenderer.renderClassMetadata(classes);
+        metadataSize += metadataRenderer.metadataSize;
+    }
+
+    private Renderer forkSharingState(SourceWriter writer) {
+        Renderer result = new Renderer(this, writer, context);
+        result.postponedFieldInitializers = postponedFieldInitializers;
+        result.sizeByClass = sizeByClass;
+        return result;
+    }
+
     private void renderDeclaration(PreparedClass cls) throws RenderingException {
         ScopedName jsName = naming.getNameFor(cls.getName());
         debugEmitter.addClass(jsName.value, cls.getName(), cls.getParentName());
@@ -305,7 +431,6 @@ public class Renderer implements RenderingManager {
             renderFunctionDeclaration(jsName);
             writer.append("()").ws().append("{")
                     .indent().softNewLine();
-            boolean thisAliased = false;
             List<FieldHolder> nonStaticFields = new ArrayList<>();
             List<FieldHolder> staticFields = new ArrayList<>();
             for (FieldHolder field : cls.getClassHolder().getFields()) {
@@ -315,30 +440,10 @@ public class Renderer implements RenderingManager {
                     nonStaticFields.add(field);
                 }
             }
-            if (nonStaticFields.size() > 1) {
-                thisAliased = true;
-                writer.append("var a").ws().append("=").ws().append("this;").ws();
-            }
-            if (!cls.getClassHolder().getModifiers().contains(ElementModifier.INTERFACE)
-                    && cls.getParentName() != null) {
-                writer.appendClass(cls.getParentName()).append(".call(").append(thisAliased ? "a" : "this")
-                        .append(");").softNewLine();
-            }
-            for (FieldHolder field : nonStaticFields) {
-                Object value = field.getInitialValue();
-                if (value == null) {
-                    value = getDefaultValue(field.getType());
-                }
-                FieldReference fieldRef = new FieldReference(cls.getName(), field.getName());
-                writer.append(thisAliased ? "a" : "this").append(".").appendField(fieldRef).ws()
-                        .append("=").ws();
-                context.constantToString(writer, value);
-                writer.append(";").softNewLine();
-                debugEmitter.addField(field.getName(), naming.getNameFor(fieldRef));
-            }
-
-            if (cls.getName().equals("java.lang.Object")) {
-                writer.append("this.$id$").ws().append('=').ws().append("0;").softNewLine();
+            if (flatObjectLayout && !cls.getClassHolder().getModifiers().contains(ElementModifier.INTERFACE)) {
+                renderFlatFields(cls.getName());
+            } else {
+                renderFields(cls, nonStaticFields);
             }
 
             writer.outdent().append("}");
@@ -374,6 +479,75 @@ public class Renderer implements RenderingManager {
         }
     }
 
+    private void renderFields(PreparedClass cls, List<FieldHolder> nonStaticFields) throws IOException {
+        boolean thisAliased = false;
+        if (nonStaticFields.size() > 1) {
+            thisAliased = true;
+            writer.append("var a").ws().append("=").ws().append("this;").ws();
+        }
+        if (!cls.getClassHolder().getModifiers().contains(ElementModifier.INTERFACE)
+                && cls.getParentName() != null) {
+            writer.appendClass(cls.getParentName()).append(".call(").append(thisAliased ? "a" : "this")
+                    .append(");").softNewLine();
+        }
+        for (FieldHolder field : nonStaticFields) {
+            FieldReference fieldRef = renderFieldInitializer(thisAliased ? "a" : "this", cls.getName(), field);
+            debugEmitter.addField(field.getName(), naming.getNameFor(fieldRef));
+        }
+
+        if (cls.getName().equals("java.lang.Object")) {
+            renderIdInitializer();
+        }
+    }
+
+    private void renderFlatFields(String className) throws IOException {
+        List<ClassReader> hierarchy = new ArrayList<>();
+        String ancestorName = className;
+        while (ancestorName != null) {
+            ClassReader ancestor = classSource.get(ancestorName);
+            if (ancestor == null) {
+                break;
+            }
+            hierarchy.add(ancestor);
+            ancestorName = ancestor.getParent();
+        }
+
+        // Assign properties in the same order as parent constructors would do, i.e. starting from the root,
+        // and always through `this`, since engines only count assignments to `this` when pre-sizing instances
+        for (int i = hierarchy.size() - 1; i >= 0; --i) {
+            ClassReader ancestor = hierarchy.get(i);
+            for (FieldReader field : ancestor.getFields()) {
+                if (field.hasModifier(ElementModifier.STATIC)) {
+                    continue;
+                }
+                FieldReference fieldRef = renderFieldInitializer("this", ancestor.getName(), field);
+                if (i == 0) {
+                    debugEmitter.addField(field.getName(), naming.getNameFor(fieldRef));
+                }
+            }
+            if (ancestor.getName().equals("java.lang.Object")) {
+                renderIdInitializer();
+            }
+        }
+    }
+
+    private FieldReference renderFieldInitializer(String target, String className, FieldReader field)
+            throws IOException {
+        Object value = field.getInitialValue();
+        if (value == null) {
+            value = getDefaultValue(field.getType());
+        }
+        FieldReference fieldRef = new FieldReference(className, field.getName());
+        writer.append(target).append(".").appendField(fieldRef).ws().append("=").ws();
+        context.constantToString(writer, value);
+        writer.append(";").softNewLine();
+        return fieldRef;
+    }
+
+    private void renderIdInitializer() throws IOException {
+        writer.append("this.$id$").ws().append('=').ws().append("0;").softNewLine();
+    }
+
     private void renderMethodBodies(PreparedClass cls) throws RenderingException {
         debugEmitter.emitClass(cls.getName());
         try {
@@ -392,8 +566,17 @@ public class Renderer implements RenderingManager {
                 }
             }
 
+            // Bodies rendered on worker threads start at the first column, so do the same in single-threaded mode
+            if (writer.getColumn() > 0) {
+                writer.newLine();
+            }
             for (PreparedMethod method : cls.getMethods()) {
-                renderBody(method);
+                String renderedBody = renderedBodies.remove(method);
+                if (renderedBody != null) {
+                    writer.append(renderedBody);
+                } else {
+                    renderBody(method);
+                }
             }
         } catch (IOException e) {
             throw new RenderingException("IO error occurred", e);
@@ -401,6 +584,92 @@ public class Renderer implements RenderingManager {
         debugEmitter.emitClass(null);
     }
 
+    private void renderMethodBodiesInParallel(List<PreparedClass> classes) {
+        if (!(naming instanceof DefaultNamingStrategy)) {
+            return;
+        }
+        DefaultNamingStrategy sharedNaming = (DefaultNamingStrategy) naming;
+
+        List<PreparedMethod> methods = new ArrayList<>();
+        for (PreparedClass cls : classes) {
+            for (PreparedMethod method : cls.getMethods()) {
+                if (method.node != null) {
+                    methods.add(method);
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        sharedNaming.setFrozen(true);
+        try {
+            List<ForkJoinTask<List<RenderedBody>>> tasks = new ArrayList<>();
+            for (List<PreparedMethod> chunk : ParallelTasks.splitIntoChunks(methods, threadCount)) {
+                tasks.add(pool.submit(() -> renderBodiesOnWorker(sharedNaming, chunk)));
+            }
+
+            RuntimeException error = null;
+            for (ForkJoinTask<List<RenderedBody>> task : tasks) {
+                try {
+                    for (RenderedBody body : task.join()) {
+                        renderedBodies.put(body.method, body.code);
+                        longLibraryUsed |= body.longLibraryUsed;
+                        threadLibraryUsed |= body.threadLibraryUsed;
+                    }
+                } catch (RuntimeException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            sharedNaming.setFrozen(false);
+            pool.shutdown();
+        }
+    }
+
+    private List<RenderedBody> renderBodiesOnWorker(DefaultNamingStrategy sharedNaming,
+            List<PreparedMethod> methods) {
+        FrozenNamingStrategy workerNaming = new FrozenNamingStrategy(sharedNaming);
+        RenderingContext workerContext = context.createWorkerContext(new DummyDebugInformationEmitter(),
+                workerNaming);
+        List<RenderedBody> result = new ArrayList<>();
+        for (PreparedMethod method : methods) {
+            StringBuilder buffer = new StringBuilder();
+            Renderer workerRenderer = new Renderer(this, writer.fork(workerNaming, buffer), workerContext);
+            try {
+                workerRenderer.renderBody(method);
+            } catch (IOException e) {
+                throw new RenderingException("IO error occurred", e);
+            }
+            if (workerNaming.hasMissingNames() || workerContext.hasMissingStrings()) {
+                // The body will be rendered by renderMethodBodies, exactly when it would be rendered
+                // in single-threaded mode, so new names and strings are added in the same order
+                workerNaming.clearMissingNames();
+                workerContext.clearMissingStrings();
+                continue;
+            }
+            result.add(new RenderedBody(method, buffer.toString(), workerRenderer));
+        }
+        return result;
+    }
+
+    static class RenderedBody {
+        final PreparedMethod method;
+        final String code;
+        final boolean longLibraryUsed;
+        final boolean threadLibraryUsed;
+
+        RenderedBody(PreparedMethod method, String code, Renderer renderer) {
+            this.method = method;
+            this.code = code;
+            longLibraryUsed = renderer.longLibraryUsed;
+            threadLibraryUsed = renderer.threadLibraryUsed;
+        }
+    }
+
     private void renderCallClinit(MethodReader clinit, PreparedClass cls)
             throws IOException {
         boolean isAsync = asyncMethods.contains(clinit.getReference());
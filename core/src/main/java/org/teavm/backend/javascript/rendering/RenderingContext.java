@@ -56,11 +56,14 @@ public class RenderingContext {
     private DependencyInfo dependencyInfo;
     private Predicate<MethodReference> virtualPredicate;
     private final Deque<LocationStackEntry> locationStack = new ArrayDeque<>();
-    private final Map<String, Integer> stringPoolMap = new HashMap<>();
-    private final List<String> stringPool = new ArrayList<>();
-    private final List<String> readonlyStringPool = Collections.unmodifiableList(stringPool);
-    private final Map<MethodReference, InjectorHolder> injectorMap = new HashMap<>();
+    private final Map<String, Integer> stringPoolMap;
+    private final List<String> stringPool;
+    private final List<String> readonlyStringPool;
+    private final Map<MethodReference, InjectorHolder> injectorMap;
+    private final boolean worker;
+    private boolean missingStrings;
     private boolean minifying;
+    private boolean longAsBigInt;
     private ClassInitializerInfo classInitializerInfo;
 
     public RenderingContext(DebugInformationEmitter debugEmitter,
@@ -78,6 +81,50 @@ public class RenderingContext {
         this.dependencyInfo = dependencyInfo;
         this.virtualPredicate = virtualPredicate;
         this.classInitializerInfo = classInitializerInfo;
+        stringPoolMap = new HashMap<>();
+        stringPool = new ArrayList<>();
+        readonlyStringPool = Collections.unmodifiableList(stringPool);
+        injectorMap = new HashMap<>();
+        worker = false;
+    }
+
+    private RenderingContext(RenderingContext parent, DebugInformationEmitter debugEmitter, NamingStrategy naming) {
+        this.debugEmitter = debugEmitter;
+        initialClassSource = parent.initialClassSource;
+        classSource = parent.classSource;
+        classLoader = parent.classLoader;
+        services = parent.services;
+        properties = parent.properties;
+        this.naming = naming;
+        dependencyInfo = parent.dependencyInfo;
+        virtualPredicate = parent.virtualPredicate;
+        classInitializerInfo = parent.classInitializerInfo;
+        minifying = parent.minifying;
+        longAsBigInt = parent.longAsBigInt;
+        stringPoolMap = parent.stringPoolMap;
+        stringPool = parent.stringPool;
+        readonlyStringPool = parent.readonlyStringPool;
+        injectorMap = new HashMap<>(parent.injectorMap);
+        worker = true;
+    }
+
+    /**
+     * Creates context for rendering code on a worker thread. The worker context has its own location stack and
+     * injector cache, and shares the string pool with this context. The string pool is never modified by the
+     * worker context: when a string is not in the pool, the worker context remembers this fact, and the code that
+     * refers to the string must be discarded and rendered again by this context.
+     * While worker contexts are in use, this context must not add new strings.
+     */
+    RenderingContext createWorkerContext(DebugInformationEmitter debugEmitter, NamingStrategy naming) {
+        return new RenderingContext(this, debugEmitter, naming);
+    }
+
+    boolean hasMissingStrings() {
+        return missingStrings;
+    }
+
+    void clearMissingStrings() {
+        missingStrings = false;
     }
 
     public ClassReaderSource getInitialClassSource() {
@@ -154,7 +201,27 @@ public class RenderingContext {
         return minifying;
     }
 
+    /**
+     * Tells whether Java <code>long</code> values are represented by JavaScript <code>BigInt</code> values
+     * rather than by <code>Long</code> objects.
+     */
+    public boolean isLongAsBigInt() {
+        return longAsBigInt;
+    }
+
+    public void setLongAsBigInt(boolean longAsBigInt) {
+        this.longAsBigInt = longAsBigInt;
+    }
+
     public int lookupString(String string) {
+        if (worker) {
+            Integer index = stringPoolMap.get(string);
+            if (index == null) {
+                missingStrings = true;
+                return 0;
+            }
+            return index;
+        }
         return stringPoolMap.computeIfAbsent(string, key -> {
             stringPool.add(key);
             return stringPool.size() - 1;
@@ -180,7 +247,13 @@ public class RenderingContext {
             writer.appendFunction("$rt_s").append("(" + index + ")");
         } else if (cst instanceof Long) {
             long value = (Long) cst;
-            if (value == 0) {
+            if (longAsBigInt) {
+                if (value < 0) {
+                    writer.append("(" + value + "n)");
+                } else {
+                    writer.append(value + "n");
+                }
+            } else if (value == 0) {
                 writer.append("Long_ZERO");
             } else if ((int) value == value) {
                 writer.append("Long_fromInt(" + value + ")");
@@ -103,6 +103,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
     private List<String> blockIds = new ArrayList<>();
     private IntIndexedContainer blockIndexMap = new IntArrayList();
     private boolean longLibraryUsed;
+    private final boolean longAsBigInt;
     private static final MethodDescriptor CLINIT_METHOD = new MethodDescriptor("<clinit>", ValueType.VOID);
 
     public StatementRenderer(RenderingContext context, SourceWriter writer) {
@@ -112,6 +113,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
         this.minifying = context.isMinifying();
         this.naming = context.getNaming();
         this.debugEmitter = context.getDebugEmitter();
+        this.longAsBigInt = context.isLongAsBigInt();
     }
 
     public boolean isLongLibraryUsed() {
@@ -653,9 +655,139 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
         }
     }
 
+    private void visitBigIntBinary(BinaryExpr expr) {
+        switch (expr.getOperation()) {
+            case ADD:
+                visitWrappedBigIntBinary(expr, "+");
+                break;
+            case SUBTRACT:
+                visitWrappedBigIntBinary(expr, "-");
+                break;
+            case MULTIPLY:
+                visitWrappedBigIntBinary(expr, "*");
+                break;
+            case DIVIDE:
+                visitWrappedBigIntBinary(expr, "/");
+                break;
+            case MODULO:
+                visitBinary(expr, "%", false);
+                break;
+            case BITWISE_OR:
+                visitBinary(expr, "|", false);
+                break;
+            case BITWISE_AND:
+                visitBinary(expr, "&", false);
+                break;
+            case BITWISE_XOR:
+                visitBinary(expr, "^", false);
+                break;
+            case LEFT_SHIFT:
+                visitBigIntShift(expr, "<<", true, false);
+                break;
+            case RIGHT_SHIFT:
+                visitBigIntShift(expr, ">>", false, false);
+                break;
+            case UNSIGNED_RIGHT_SHIFT:
+                visitBigIntShift(expr, ">>", true, true);
+                break;
+            case COMPARE:
+                visitBinaryFunction(expr, "Long_compare");
+                break;
+            case EQUALS:
+                visitBinary(expr, "===", false);
+                break;
+            case NOT_EQUALS:
+                visitBinary(expr, "!==", false);
+                break;
+            case LESS:
+                visitBinary(expr, "<", false);
+                break;
+            case LESS_OR_EQUALS:
+                visitBinary(expr, "<=", false);
+                break;
+            case GREATER:
+                visitBinary(expr, ">", false);
+                break;
+            case GREATER_OR_EQUALS:
+                visitBinary(expr, ">=", false);
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected operation: " + expr.getOperation());
+        }
+    }
+
+    private void visitWrappedBigIntBinary(BinaryExpr expr, String op) {
+        try {
+            writer.append("BigInt.asIntN(64,").ws();
+            precedence = Precedence.min();
+            visitBinary(expr, op, false);
+            writer.append(')');
+        } catch (IOException e) {
+            throw new RenderingException("IO error occurred", e);
+        }
+    }
+
+    private void visitBigIntShift(BinaryExpr expr, String op, boolean wrapped, boolean unsigned) {
+        try {
+            if (expr.getLocation() != null) {
+                pushLocation(expr.getLocation());
+            }
+            if (wrapped) {
+                writer.append("BigInt.asIntN(64,").ws();
+                precedence = Precedence.min();
+            }
+            visitBinary(expr.getOperation(), op, () -> {
+                if (unsigned) {
+                    try {
+                        writer.append("BigInt.asUintN(64,").ws();
+                        precedence = Precedence.min();
+                        expr.getFirstOperand().acceptVisitor(this);
+                        writer.append(')');
+                    } catch (IOException e) {
+                        throw new RenderingException("IO error occurred", e);
+                    }
+                } else {
+                    expr.getFirstOperand().acceptVisitor(this);
+                }
+            }, () -> renderBigIntShiftDistance(expr.getSecondOperand()));
+            if (wrapped) {
+                writer.append(')');
+            }
+            if (expr.getLocation() != null) {
+                popLocation();
+            }
+        } catch (IOException e) {
+            throw new RenderingException("IO error occurred", e);
+        }
+    }
+
+    private void renderBigIntShiftDistance(Expr distance) {
+        try {
+            if (distance instanceof ConstantExpr && ((ConstantExpr) distance).getValue() instanceof Integer) {
+                int value = (Integer) ((ConstantExpr) distance).getValue();
+                writer.append((value & 63) + "n");
+            } else {
+                writer.append("BigInt(");
+                precedence = Precedence.min();
+                visitBinary(BinaryOperation.BITWISE_AND, "&", () -> distance.acceptVisitor(this), () -> {
+                    try {
+                        writer.append("63");
+                    } catch (IOException e) {
+                        throw new RenderingException("IO error occurred", e);
+                    }
+                });
+                writer.append(')');
+            }
+        } catch (IOException e) {
+            throw new RenderingException("IO error occurred", e);
+        }
+    }
+
     @Override
     public void visit(BinaryExpr expr) {
-        if (expr.getType() == OperationType.LONG) {
+        if (expr.getType() == OperationType.LONG && longAsBigInt) {
+            visitBigIntBinary(expr);
+        } else if (expr.getType() == OperationType.LONG) {
             longLibraryUsed = true;
             switch (expr.getOperation()) {
                 case ADD:
@@ -803,7 +935,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             Precedence outerPrecedence = precedence;
             switch (expr.getOperation()) {
                 case NOT: {
-                    if (expr.getType() == OperationType.LONG) {
+                    if (expr.getType() == OperationType.LONG && !longAsBigInt) {
                         longLibraryUsed = true;
                         writer.append("Long_not(");
                         precedence = Precedence.min();
@@ -823,7 +955,12 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                     break;
                 }
                 case NEGATE:
-                    if (expr.getType() == OperationType.LONG) {
+                    if (expr.getType() == OperationType.LONG && longAsBigInt) {
+                        writer.append("BigInt.asIntN(64,").ws().append("-");
+                        precedence = Precedence.UNARY;
+                        expr.getOperand().acceptVisitor(this);
+                        writer.append(')');
+                    } else if (expr.getType() == OperationType.LONG) {
                         longLibraryUsed = true;
                         writer.append("Long_neg(");
                         precedence = Precedence.min();
@@ -908,7 +1045,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             switch (expr.getSource()) {
                 case INT:
                     if (expr.getTarget() == OperationType.LONG) {
-                        writer.append("Long_fromInt(");
+                        writer.append(longAsBigInt ? "BigInt(" : "Long_fromInt(");
                         precedence = Precedence.min();
                         expr.getValue().acceptVisitor(this);
                         writer.append(')');
@@ -917,6 +1054,10 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                     }
                     break;
                 case LONG:
+                    if (longAsBigInt) {
+                        renderBigIntCast(expr);
+                        break;
+                    }
                     switch (expr.getTarget()) {
                         case INT:
                             precedence = Precedence.MEMBER_ACCESS;
@@ -972,6 +1113,26 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
         }
     }
 
+    private void renderBigIntCast(PrimitiveCastExpr expr) throws IOException {
+        switch (expr.getTarget()) {
+            case INT:
+                writer.append("Number(BigInt.asIntN(32,").ws();
+                precedence = Precedence.min();
+                expr.getValue().acceptVisitor(this);
+                writer.append("))");
+                break;
+            case FLOAT:
+            case DOUBLE:
+                writer.append("Number(");
+                precedence = Precedence.min();
+                expr.getValue().acceptVisitor(this);
+                writer.append(')');
+                break;
+            default:
+                expr.getValue().acceptVisitor(this);
+        }
+    }
+
     private Expr extractLongRightShiftedBy32(Expr expr) {
         if (!(expr instanceof BinaryExpr)) {
             return null;
@@ -18,6 +18,12 @@ package org.teavm.backend.javascript.spi;
 import java.io.IOException;
 import org.teavm.model.MethodReference;
 
+/**
+ * <p>Generates JavaScript code in place of calls to a method.</p>
+ *
+ * <p>When JavaScript backend renders method bodies on several threads, the same injector may be called
+ * concurrently, so injectors should not keep mutable state, or should synchronize access to it.</p>
+ */
 public interface Injector {
     void generate(InjectorContext context, MethodReference methodRef) throws IOException;
 }
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import org.teavm.interop.Export;
 import org.teavm.interop.Import;
 import org.teavm.model.AnnotationReader;
@@ -33,6 +34,7 @@ import org.teavm.model.ValueType;
 
 public abstract class LowLevelNameProvider {
     private ClassReaderSource classSource;
+    private boolean frozen;
 
     protected Set<String> occupiedTopLevelNames = new HashSet<>();
     protected Set<String> occupiedVtableNames = new HashSet<>();
@@ -55,15 +57,27 @@ public abstract class LowLevelNameProvider {
         this.classSource = classSource;
     }
 
+    /**
+     * <p>Forbids or allows assigning new names. While frozen, name provider only returns names that were
+     * assigned earlier. Asking a frozen name provider for a new name is an error, since its result would depend
+     * on the order of requests. Since frozen name provider does not change its state, it can be safely queried
+     * from several threads.</p>
+     *
+     * @param frozen whether new names are forbidden.
+     */
+    public void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+
     public String forMethod(MethodReference method) {
-        return methodNames.computeIfAbsent(method, k -> {
+        return getOrAssign(methodNames, method, k -> {
             String specialName = getSpecialName(k);
             return specialName == null ? pickUnoccupied("meth_" + suggestForMethod(k)) : specialName;
         });
     }
 
     public String forVirtualMethod(MethodDescriptor method) {
-        return virtualMethodNames.computeIfAbsent(method, k -> {
+        return getOrAssign(virtualMethodNames, method, k -> {
             Set<String> occupied = occupiedVtableNames;
             return pickUnoccupied("virt_" + sanitize(k.getName()), occupied);
         });
@@ -89,11 +103,11 @@ public abstract class LowLevelNameProvider {
     }
 
     public String forStaticField(FieldReference field) {
-        return staticFieldNames.computeIfAbsent(field, k -> pickUnoccupied("sfld_" + suggestForStaticField(k)));
+        return getOrAssign(staticFieldNames, field, k -> pickUnoccupied("sfld_" + suggestForStaticField(k)));
     }
 
     public String forMemberField(FieldReference field) {
-        return memberFieldNames.computeIfAbsent(field, k -> {
+        return getOrAssign(memberFieldNames, field, k -> {
             Set<String> occupied = occupiedClassNames.computeIfAbsent(k.getClassName(),
                     c -> new HashSet<>(Arrays.asList("parent")));
             return pickUnoccupied("fld_" + sanitize(field.getFieldName()), occupied);
@@ -101,28 +115,40 @@ public abstract class LowLevelNameProvider {
     }
 
     public String forClass(String className) {
-        return classNames.computeIfAbsent(className, k -> pickUnoccupied("cls_" + suggestForClass(k)));
+        return getOrAssign(classNames, className, k -> pickUnoccupied("cls_" + suggestForClass(k)));
     }
 
     public String forClassInitializer(String className) {
-        return classInitializerNames.computeIfAbsent(className, k -> pickUnoccupied("initclass_" + suggestForClass(k)));
+        return getOrAssign(classInitializerNames, className, k -> pickUnoccupied("initclass_" + suggestForClass(k)));
     }
 
     public String forClassSystemInitializer(ValueType type) {
-        return classSystemInitializerNames.computeIfAbsent(type, k -> pickUnoccupied("sysinitclass_"
+        return getOrAssign(classSystemInitializerNames, type, k -> pickUnoccupied("sysinitclass_"
                 + suggestForType(k)));
     }
 
     public String forClassClass(String className) {
-        return classClassNames.computeIfAbsent(className, k -> pickUnoccupied(suggestForClass(k) + "_VT"));
+        return getOrAssign(classClassNames, className, k -> pickUnoccupied(suggestForClass(k) + "_VT"));
     }
 
     public String forClassInstance(ValueType type) {
-        return classInstanceNames.computeIfAbsent(type, k -> pickUnoccupied(suggestForType(k) + "_Cls"));
+        return getOrAssign(classInstanceNames, type, k -> pickUnoccupied(suggestForType(k) + "_Cls"));
     }
 
     public String forSupertypeFunction(ValueType type) {
-        return supertypeNames.computeIfAbsent(type, k -> pickUnoccupied("supertypeof_" + suggestForType(k)));
+        return getOrAssign(supertypeNames, type, k -> pickUnoccupied("supertypeof_" + suggestForType(k)));
+    }
+
+    private <T> String getOrAssign(Map<T, String> names, T key, Function<T, String> assign) {
+        String result = names.get(key);
+        if (result == null) {
+            if (frozen) {
+                throw new IllegalStateException("Name for " + key + " was not assigned before generation");
+            }
+            result = assign.apply(key);
+            names.put(key, result);
+        }
+        return result;
     }
 
     private String suggestForMethod(MethodReference method) {
@@ -19,11 +19,13 @@ import org.teavm.interop.Address;
 import org.teavm.interop.Import;
 import org.teavm.interop.StaticInit;
 import org.teavm.interop.Unmanaged;
+import org.teavm.interop.Vector128;
 import org.teavm.runtime.RuntimeObject;
 
 @StaticInit
 @Unmanaged
 public final class WasmRuntime {
+    private static final int PAGE_SIZE = 65536;
     public static Address stack = initStack();
 
     private WasmRuntime() {
@@ -92,6 +94,29 @@ public final class WasmRuntime {
     @Import(name = "logOutOfMemory", module = "teavm")
     public static native void printOutOfMemory();
 
+    private static native int growMemory(int pages);
+
+    /**
+     * Grows linear memory so that heap starting at given address gets at least given size. Memory can't
+     * be shrunk, so requests to make heap smaller than it is are refused.
+     *
+     * @param heapAddress start of heap.
+     * @param newSize requested heap size.
+     * @return whether heap was resized.
+     */
+    public static boolean resizeHeap(Address heapAddress, long newSize) {
+        long heapStart = heapAddress.toInt() & 0xFFFFFFFFL;
+        long currentPages = growMemory(0) & 0xFFFFFFFFL;
+        long requiredPages = (heapStart + newSize - 1) / PAGE_SIZE + 1;
+        if (requiredPages < currentPages) {
+            return false;
+        }
+        if (requiredPages == currentPages) {
+            return true;
+        }
+        return growMemory((int) (requiredPages - currentPages)) != -1;
+    }
+
     public static void fillZero(Address address, int count) {
         int start = address.toInt();
 
@@ -131,7 +156,14 @@ public final class WasmRuntime {
                 break;
         }
 
-        for (address = Address.fromInt(alignedStart + 4); address.toInt() < alignedEnd; address = address.add(4)) {
+        address = Address.fromInt(alignedStart + 4);
+        if (Vector128.isSupported()) {
+            while (address.toInt() + Vector128.SIZE <= alignedEnd) {
+                Vector128.fillInts(address, 0);
+                address = address.add(Vector128.SIZE);
+            }
+        }
+        for (; address.toInt() < alignedEnd; address = address.add(4)) {
             address.putInt(0);
         }
     }
@@ -176,6 +208,13 @@ public final class WasmRuntime {
             alignedSourceStart = alignedSourceStart.add(4);
             alignedTargetStart = alignedTargetStart.add(4);
 
+            if (Vector128.isSupported()) {
+                while (alignedSourceStart.toInt() + Vector128.SIZE <= alignedSourceEnd.toInt()) {
+                    Vector128.copy(alignedSourceStart, alignedTargetStart);
+                    alignedSourceStart = alignedSourceStart.add(Vector128.SIZE);
+                    alignedTargetStart = alignedTargetStart.add(Vector128.SIZE);
+                }
+            }
             while (alignedSourceStart.toInt() < alignedSourceEnd.toInt()) {
                 alignedTargetStart.putInt(alignedSourceStart.getInt());
                 alignedSourceStart = alignedSourceStart.add(4);
@@ -212,6 +251,13 @@ public final class WasmRuntime {
                     break;
             }
 
+            if (Vector128.isSupported()) {
+                while (alignedSourceEnd.toInt() - Vector128.SIZE >= alignedSourceStart.toInt()) {
+                    alignedSourceEnd = alignedSourceEnd.add(-Vector128.SIZE);
+                    alignedTargetEnd = alignedTargetEnd.add(-Vector128.SIZE);
+                    Vector128.copy(alignedSourceEnd, alignedTargetEnd);
+                }
+            }
             while (alignedSourceEnd.toInt() > alignedSourceStart.toInt()) {
                 alignedSourceEnd = alignedSourceEnd.add(-4);
                 alignedTargetEnd = alignedTargetEnd.add(-4);
@@ -42,6 +42,7 @@ import org.teavm.backend.wasm.generators.ArrayGenerator;
 import org.teavm.backend.wasm.generators.WasmMethodGenerator;
 import org.teavm.backend.wasm.generators.WasmMethodGeneratorContext;
 import org.teavm.backend.wasm.intrinsics.AddressIntrinsic;
+import org.teavm.backend.wasm.intrinsics.AllocationProfilerIntrinsic;
 import org.teavm.backend.wasm.intrinsics.AllocatorIntrinsic;
 import org.teavm.backend.wasm.intrinsics.ClassIntrinsic;
 import org.teavm.backend.wasm.intrinsics.ConsoleIntrinsic;
@@ -61,6 +62,7 @@ import org.teavm.backend.wasm.intrinsics.PlatformObjectIntrinsic;
 import org.teavm.backend.wasm.intrinsics.RuntimeClassIntrinsic;
 import org.teavm.backend.wasm.intrinsics.ShadowStackIntrinsic;
 import org.teavm.backend.wasm.intrinsics.StructureIntrinsic;
+import org.teavm.backend.wasm.intrinsics.VectorIntrinsic;
 import org.teavm.backend.wasm.intrinsics.WasmIntrinsicFactory;
 import org.teavm.backend.wasm.intrinsics.WasmIntrinsicFactoryContext;
 import org.teavm.backend.wasm.intrinsics.WasmRuntimeIntrinsic;
@@ -133,9 +135,11 @@ import org.teavm.model.lowlevel.Characteristics;
 import org.teavm.model.lowlevel.ClassInitializerEliminator;
 import org.teavm.model.lowlevel.ClassInitializerTransformer;
 import org.teavm.model.lowlevel.ShadowStackTransformer;
+import org.teavm.model.lowlevel.WriteBarrierInsertion;
 import org.teavm.model.transformation.ClassPatch;
 import org.teavm.runtime.Allocator;
 import org.teavm.runtime.ExceptionHandling;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
 import org.teavm.runtime.RuntimeObject;
@@ -146,6 +150,9 @@ import org.teavm.vm.TeaVMTargetController;
 import org.teavm.vm.spi.TeaVMHostExtension;
 
 public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
+    private static final int MAX_MEMORY_PAGES = 32767;
+    private static final int MIN_INITIAL_HEAP_SIZE = 1024 * 1024;
+
     private TeaVMTargetController controller;
     private boolean debugging;
     private boolean wastEmitted;
@@ -154,9 +161,16 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
     private ClassInitializerEliminator classInitializerEliminator;
     private ClassInitializerTransformer classInitializerTransformer;
     private ShadowStackTransformer shadowStackTransformer;
+    private WriteBarrierInsertion writeBarrierInsertion;
     private WasmBinaryVersion version = WasmBinaryVersion.V_0x1;
     private List<WasmIntrinsicFactory> additionalIntrinsics = new ArrayList<>();
     private int minHeapSize;
+    private int maxHeapSize;
+    private boolean generationalGC;
+    private boolean incrementalGC;
+    private int gcSliceTime = 5;
+    private boolean simdEnabled;
+    private boolean bulkMemoryEnabled;
 
     @Override
     public void setController(TeaVMTargetController controller) {
@@ -166,6 +180,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         classInitializerEliminator = new ClassInitializerEliminator(controller.getUnprocessedClassSource());
         classInitializerTransformer = new ClassInitializerTransformer();
         shadowStackTransformer = new ShadowStackTransformer(managedMethodRepository);
+        writeBarrierInsertion = new WriteBarrierInsertion(managedMethodRepository);
     }
 
     @Override
@@ -238,6 +253,73 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         this.minHeapSize = minHeapSize;
     }
 
+    /**
+     * Sets size linear memory is allowed to grow to. GC grows memory when there's not enough free space
+     * after collection. Zero (default) means that memory never grows beyond min heap size.
+     *
+     * @param maxHeapSize max size of memory in bytes.
+     */
+    public void setMaxHeapSize(int maxHeapSize) {
+        this.maxHeapSize = maxHeapSize;
+    }
+
+    /**
+     * Enables generational mode of GC. In this mode young objects are collected separately from old ones,
+     * at the cost of write barrier on each store of a reference into heap.
+     *
+     * @param generationalGC whether generational GC should be used.
+     */
+    public void setGenerationalGC(boolean generationalGC) {
+        this.generationalGC = generationalGC;
+    }
+
+    /**
+     * Enables incremental mode of GC. In this mode marking and sweeping are split into short slices
+     * interleaved with execution of program, at the cost of write barrier on each store of a reference into heap.
+     * Generational mode takes precedence when both are enabled.
+     *
+     * @param incrementalGC whether incremental GC should be used.
+     */
+    public void setIncrementalGC(boolean incrementalGC) {
+        this.incrementalGC = incrementalGC;
+    }
+
+    /**
+     * Sets time budget for a single slice of incremental GC. Default is 5 milliseconds.
+     *
+     * @param gcSliceTime max duration of slice in milliseconds.
+     */
+    public void setGCSliceTime(int gcSliceTime) {
+        this.gcSliceTime = gcSliceTime;
+    }
+
+    /**
+     * Enables 128-bit SIMD instructions. When enabled, {@link org.teavm.interop.Vector128} operations are compiled
+     * to SIMD instructions, which are used by runtime and class library to copy and fill memory and compare
+     * strings. Produced module can only be run by engines that support SIMD proposal.
+     *
+     * @param simdEnabled whether SIMD instructions should be generated.
+     */
+    public void setSimdEnabled(boolean simdEnabled) {
+        this.simdEnabled = simdEnabled;
+    }
+
+    /**
+     * Enables <code>memory.fill</code> and <code>memory.copy</code> instructions from bulk memory proposal.
+     * When enabled, {@link Allocator#fillZero(Address, int)} and
+     * {@link Allocator#moveMemoryBlock(Address, Address, int)} are compiled to these instructions
+     * instead of calls to loops implemented in {@link WasmRuntime}.
+     *
+     * @param bulkMemoryEnabled whether bulk memory instructions should be generated.
+     */
+    public void setBulkMemoryEnabled(boolean bulkMemoryEnabled) {
+        this.bulkMemoryEnabled = bulkMemoryEnabled;
+    }
+
+    private boolean isWriteBarrierRequired() {
+        return generationalGC || incrementalGC;
+    }
+
     @Override
     public void contributeDependencies(DependencyAnalyzer dependencyAnalyzer) {
         for (Class<?> type : Arrays.asList(int.class, long.class, float.class, double.class)) {
@@ -251,10 +333,12 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
 
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "align", Address.class, int.class,
                 Address.class)).use();
-        dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "fillZero", Address.class, int.class,
-                void.class)).use();
-        dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "moveMemoryBlock", Address.class,
-                Address.class, int.class, void.class)).use();
+        if (!bulkMemoryEnabled) {
+            dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "fillZero", Address.class,
+                    int.class, void.class)).use();
+            dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "moveMemoryBlock", Address.class,
+                    Address.class, int.class, void.class)).use();
+        }
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "allocStack",
                 int.class, Address.class)).use();
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "getStackTop", Address.class)).use();
@@ -278,6 +362,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
                 int.class, void.class)).use();
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "printOutOfMemory",
                 void.class)).use();
+        dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "resizeHeap", Address.class,
+                long.class, boolean.class)).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(Allocator.class, "allocate",
                 RuntimeClass.class, Address.class)).use();
@@ -294,6 +380,13 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         dependencyAnalyzer.linkMethod(new MethodReference(ExceptionHandling.class, "catchException",
                 Throwable.class)).use();
 
+        if (isWriteBarrierRequired()) {
+            dependencyAnalyzer.linkMethod(new MethodReference(GC.class, "writeBarrier", RuntimeObject.class,
+                    void.class)).use();
+            dependencyAnalyzer.linkMethod(new MethodReference(GC.class, "invalidateRememberedSet",
+                    void.class)).use();
+        }
+
         dependencyAnalyzer.linkField(new FieldReference("java.lang.Object", "monitor"));
 
         ClassDependency runtimeClassDep = dependencyAnalyzer.linkClass(RuntimeClass.class.getName());
@@ -314,6 +407,9 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
     public void afterOptimizations(Program program, MethodReader method) {
         classInitializerEliminator.apply(program);
         classInitializerTransformer.transform(program);
+        if (isWriteBarrierRequired()) {
+            writeBarrierInsertion.apply(program, method);
+        }
         shadowStackTransformer.apply(program, method);
     }
 
@@ -341,7 +437,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         context.addIntrinsic(new FunctionIntrinsic(classGenerator));
         WasmRuntimeIntrinsic wasmRuntimeIntrinsic = new WasmRuntimeIntrinsic();
         context.addIntrinsic(wasmRuntimeIntrinsic);
-        context.addIntrinsic(new AllocatorIntrinsic(classGenerator));
+        context.addIntrinsic(new AllocatorIntrinsic(classGenerator, bulkMemoryEnabled));
         context.addIntrinsic(new PlatformIntrinsic());
         context.addIntrinsic(new PlatformClassIntrinsic());
         context.addIntrinsic(new PlatformObjectIntrinsic(classGenerator));
@@ -363,6 +459,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
 
         GCIntrinsic gcIntrinsic = new GCIntrinsic();
         context.addIntrinsic(gcIntrinsic);
+        context.addIntrinsic(new AllocationProfilerIntrinsic());
+        context.addIntrinsic(new VectorIntrinsic(simdEnabled));
         MutatorIntrinsic mutatorIntrinsic = new MutatorIntrinsic();
         context.addIntrinsic(mutatorIntrinsic);
         context.addIntrinsic(new ShadowStackIntrinsic());
@@ -375,6 +473,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         int pageSize = 1 << 16;
         int pages = (minHeapSize + pageSize - 1) / pageSize;
         module.setMemorySize(pages);
+        module.setMaxMemorySize(Math.min(MAX_MEMORY_PAGES, (maxHeapSize + pageSize - 1) / pageSize));
         generateMethods(classes, context, generator, classGenerator, binaryWriter, module);
         exceptionHandlingIntrinsic.postProcess(CallSiteDescriptor.extract(classes, classes.getClassNames()));
         generateIsSupertypeFunctions(tagRegistry, module, classGenerator);
@@ -387,6 +486,9 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         module.getSegments().add(dataSegment);
 
         renderMemoryLayout(module, binaryWriter.getAddress(), gcIntrinsic, wasmRuntimeIntrinsic);
+        gcIntrinsic.setGenerational(generationalGC);
+        gcIntrinsic.setIncremental(incrementalGC && !generationalGC);
+        gcIntrinsic.setSliceTime(gcSliceTime);
         renderClinit(classes, classGenerator, module);
         if (controller.wasCancelled()) {
             return;
@@ -756,7 +858,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         runtimeIntrinsic.setStackAddress(address);
         address += 65536;
 
-        int gcMemory = module.getMemorySize() * 65536 - address;
+        // GC storage and regions are reserved for the largest heap memory can grow to
+        int gcMemory = module.getMaxMemorySize() * 65536 - address;
         int storageSize = (gcMemory >> 6) >> 2 << 2;
         gcIntrinsic.setGCStorageAddress(address);
         gcIntrinsic.setGCStorageSize(storageSize);
@@ -772,9 +875,13 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         address += regionCount * 2;
         address = (address + 4) >> 2 << 2;
 
-        gcMemory = module.getMemorySize() * 65536 - address;
+        int minPages = Math.min(module.getMaxMemorySize(), (address + MIN_INITIAL_HEAP_SIZE - 1) / 65536 + 1);
+        if (module.getMemorySize() < minPages) {
+            module.setMemorySize(minPages);
+        }
+
         gcIntrinsic.setHeapAddress(address);
-        gcIntrinsic.setAvailableBytes(gcMemory);
+        gcIntrinsic.setMaxAvailableBytes(module.getMaxMemorySize() * 65536 - address);
     }
 
     private VirtualTableProvider createVirtualTableProvider(ListableClassHolderSource classes) {
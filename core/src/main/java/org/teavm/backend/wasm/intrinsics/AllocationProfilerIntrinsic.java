@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.intrinsics;
+
+import org.teavm.ast.InvocationExpr;
+import org.teavm.backend.wasm.model.expression.WasmExpression;
+import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
+import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.model.MethodReference;
+import org.teavm.runtime.AllocationProfiler;
+
+/**
+ * Allocation profiler is not supported by WebAssembly target, since there is no way to write profile from
+ * generated code. Profiler reports that it's disabled, so that all other methods are never called.
+ */
+public class AllocationProfilerIntrinsic implements WasmIntrinsic {
+    @Override
+    public boolean isApplicable(MethodReference methodReference) {
+        if (!methodReference.getClassName().equals(AllocationProfiler.class.getName())) {
+            return false;
+        }
+
+        switch (methodReference.getName()) {
+            case "enabled":
+            case "storageAddress":
+            case "storageSize":
+            case "beginOutput":
+            case "writeString":
+            case "writeLong":
+            case "endOutput":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public WasmExpression apply(InvocationExpr invocation, WasmIntrinsicManager manager) {
+        switch (invocation.getMethod().getName()) {
+            case "enabled":
+                return new WasmInt32Constant(0);
+            default:
+                return new WasmUnreachable();
+        }
+    }
+}
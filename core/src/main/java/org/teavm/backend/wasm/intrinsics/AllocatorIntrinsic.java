@@ -20,7 +20,9 @@ import org.teavm.ast.InvocationExpr;
 import org.teavm.backend.wasm.WasmRuntime;
 import org.teavm.backend.wasm.generate.WasmClassGenerator;
 import org.teavm.backend.wasm.model.expression.WasmCall;
+import org.teavm.backend.wasm.model.expression.WasmCopy;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
+import org.teavm.backend.wasm.model.expression.WasmFill;
 import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
 import org.teavm.backend.wasm.model.expression.WasmInt32Subtype;
 import org.teavm.backend.wasm.model.expression.WasmIntBinary;
@@ -35,9 +37,11 @@ import org.teavm.runtime.RuntimeClass;
 public class AllocatorIntrinsic implements WasmIntrinsic {
     private static final FieldReference flagsField = new FieldReference(RuntimeClass.class.getName(), "flags");
     private int flagsFieldOffset;
+    private boolean bulkMemoryEnabled;
 
-    public AllocatorIntrinsic(WasmClassGenerator classGenerator) {
+    public AllocatorIntrinsic(WasmClassGenerator classGenerator, boolean bulkMemoryEnabled) {
         flagsFieldOffset = classGenerator.getFieldOffset(flagsField);
+        this.bulkMemoryEnabled = bulkMemoryEnabled;
     }
 
     @Override
@@ -59,15 +63,18 @@ public class AllocatorIntrinsic implements WasmIntrinsic {
     public WasmExpression apply(InvocationExpr invocation, WasmIntrinsicManager manager) {
         switch (invocation.getMethod().getName()) {
             case "fillZero":
-            case "moveMemoryBlock": {
-                MethodReference delegateMethod = new MethodReference(WasmRuntime.class.getName(),
-                        invocation.getMethod().getDescriptor());
-                WasmCall call = new WasmCall(manager.getNames().forMethod(delegateMethod));
-                call.getArguments().addAll(invocation.getArguments().stream()
-                        .map(manager::generate)
-                        .collect(Collectors.toList()));
-                return call;
-            }
+                if (bulkMemoryEnabled) {
+                    return new WasmFill(manager.generate(invocation.getArguments().get(0)),
+                            new WasmInt32Constant(0), manager.generate(invocation.getArguments().get(1)));
+                }
+                return callRuntime(invocation, manager);
+            case "moveMemoryBlock":
+                if (bulkMemoryEnabled) {
+                    return new WasmCopy(manager.generate(invocation.getArguments().get(1)),
+                            manager.generate(invocation.getArguments().get(0)),
+                            manager.generate(invocation.getArguments().get(2)));
+                }
+                return callRuntime(invocation, manager);
             case "isInitialized": {
                 WasmExpression pointer = manager.generate(invocation.getArguments().get(0));
                 if (pointer instanceof WasmInt32Constant) {
@@ -85,4 +92,14 @@ public class AllocatorIntrinsic implements WasmIntrinsic {
                 throw new IllegalArgumentException(invocation.getMethod().toString());
         }
     }
+
+    private WasmExpression callRuntime(InvocationExpr invocation, WasmIntrinsicManager manager) {
+        MethodReference delegateMethod = new MethodReference(WasmRuntime.class.getName(),
+                invocation.getMethod().getDescriptor());
+        WasmCall call = new WasmCall(manager.getNames().forMethod(delegateMethod));
+        call.getArguments().addAll(invocation.getArguments().stream()
+                .map(manager::generate)
+                .collect(Collectors.toList()));
+        return call;
+    }
 }
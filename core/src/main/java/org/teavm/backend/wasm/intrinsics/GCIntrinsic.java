@@ -19,25 +19,37 @@ import java.util.ArrayList;
 import java.util.List;
 import org.teavm.ast.InvocationExpr;
 import org.teavm.backend.wasm.WasmRuntime;
+import org.teavm.backend.wasm.model.WasmType;
 import org.teavm.backend.wasm.model.expression.WasmBlock;
 import org.teavm.backend.wasm.model.expression.WasmCall;
+import org.teavm.backend.wasm.model.expression.WasmConversion;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
 import org.teavm.backend.wasm.model.expression.WasmInt64Constant;
+import org.teavm.backend.wasm.model.expression.WasmIntBinary;
+import org.teavm.backend.wasm.model.expression.WasmIntBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmIntType;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
 import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.interop.Address;
 import org.teavm.model.MethodReference;
 import org.teavm.runtime.GC;
 
 public class GCIntrinsic implements WasmIntrinsic {
     private static final MethodReference PRINT_OUT_OF_MEMORY = new MethodReference(
             WasmRuntime.class, "printOutOfMemory", void.class);
+    private static final MethodReference RESIZE_HEAP = new MethodReference(
+            WasmRuntime.class, "resizeHeap", Address.class, long.class, boolean.class);
     private List<WasmInt32Constant> heapAddressExpressions = new ArrayList<>();
-    private List<WasmInt64Constant> availableBytesExpressions = new ArrayList<>();
+    private List<WasmInt64Constant> maxAvailableBytesExpressions = new ArrayList<>();
     private List<WasmInt32Constant> gcStorageAddressExpressions = new ArrayList<>();
     private List<WasmInt32Constant> gcStorageSizeExpressions = new ArrayList<>();
     private List<WasmInt32Constant> regionSizeExpressions = new ArrayList<>();
     private List<WasmInt32Constant> regionsAddressExpressions = new ArrayList<>();
     private List<WasmInt32Constant> regionMaxCountExpressions = new ArrayList<>();
+    private List<WasmInt32Constant> generationalExpressions = new ArrayList<>();
+    private List<WasmInt32Constant> incrementalExpressions = new ArrayList<>();
+    private List<WasmInt32Constant> sliceTimeExpressions = new ArrayList<>();
 
     public void setHeapAddress(int address) {
         for (WasmInt32Constant constant : heapAddressExpressions) {
@@ -45,9 +57,9 @@ public class GCIntrinsic implements WasmIntrinsic {
         }
     }
 
-    public void setAvailableBytes(long availableBytes) {
-        for (WasmInt64Constant constant : availableBytesExpressions) {
-            constant.setValue(availableBytes);
+    public void setMaxAvailableBytes(long maxAvailableBytes) {
+        for (WasmInt64Constant constant : maxAvailableBytesExpressions) {
+            constant.setValue(maxAvailableBytes);
         }
     }
 
@@ -81,6 +93,24 @@ public class GCIntrinsic implements WasmIntrinsic {
         }
     }
 
+    public void setGenerational(boolean generational) {
+        for (WasmInt32Constant constant : generationalExpressions) {
+            constant.setValue(generational ? 1 : 0);
+        }
+    }
+
+    public void setIncremental(boolean incremental) {
+        for (WasmInt32Constant constant : incrementalExpressions) {
+            constant.setValue(incremental ? 1 : 0);
+        }
+    }
+
+    public void setSliceTime(int sliceTime) {
+        for (WasmInt32Constant constant : sliceTimeExpressions) {
+            constant.setValue(sliceTime);
+        }
+    }
+
     @Override
     public boolean isApplicable(MethodReference methodReference) {
         if (!methodReference.getClassName().endsWith(GC.class.getName())) {
@@ -92,9 +122,21 @@ public class GCIntrinsic implements WasmIntrinsic {
             case "gcStorageSize":
             case "heapAddress":
             case "availableBytes":
+            case "maxAvailableBytes":
+            case "resizeHeap":
             case "regionsAddress":
             case "regionMaxCount":
             case "regionSize":
+            case "generational":
+            case "incremental":
+            case "sliceTime":
+            case "compacting":
+            case "sweepThreadCount":
+            case "runSweepTasks":
+            case "telemetry":
+            case "allocationSampleInterval":
+            case "reportCollection":
+            case "reportAllocationSample":
             case "outOfMemory":
                 return true;
             default:
@@ -124,11 +166,53 @@ public class GCIntrinsic implements WasmIntrinsic {
             case "regionSize":
                 list = regionSizeExpressions;
                 break;
+            case "generational":
+                list = generationalExpressions;
+                break;
+            case "incremental":
+                list = incrementalExpressions;
+                break;
+            case "sliceTime":
+                list = sliceTimeExpressions;
+                break;
             case "availableBytes": {
+                // Heap occupies all memory from heap address till the end, so it grows with memory
+                WasmExpression memoryEnd = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SHL,
+                        new WasmMemoryGrow(new WasmInt32Constant(0)), new WasmInt32Constant(16));
+                WasmInt32Constant heapAddress = new WasmInt32Constant(0);
+                heapAddressExpressions.add(heapAddress);
+                WasmExpression size = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SUB,
+                        memoryEnd, heapAddress);
+                return new WasmConversion(WasmType.INT32, WasmType.INT64, false, size);
+            }
+            case "maxAvailableBytes": {
                 WasmInt64Constant constant = new WasmInt64Constant(0);
-                availableBytesExpressions.add(constant);
+                maxAvailableBytesExpressions.add(constant);
                 return constant;
             }
+            case "resizeHeap": {
+                WasmCall call = new WasmCall(manager.getNames().forMethod(RESIZE_HEAP));
+                WasmInt32Constant heapAddress = new WasmInt32Constant(0);
+                heapAddressExpressions.add(heapAddress);
+                call.getArguments().add(heapAddress);
+                call.getArguments().add(manager.generate(invocation.getArguments().get(0)));
+                return call;
+            }
+            case "compacting":
+                // Compaction is only supported by C backend
+                return new WasmInt32Constant(0);
+            case "sweepThreadCount":
+                return new WasmInt32Constant(1);
+            case "runSweepTasks":
+                // Never called, since there's only one thread available to GC
+                return new WasmUnreachable();
+            case "telemetry":
+            case "allocationSampleInterval":
+                // Telemetry is only supported by C backend
+                return new WasmInt32Constant(0);
+            case "reportCollection":
+            case "reportAllocationSample":
+                return new WasmUnreachable();
             case "outOfMemory": {
                 WasmBlock block = new WasmBlock(false);
                 WasmCall call = new WasmCall(manager.getNames().forMethod(PRINT_OUT_OF_MEMORY), true);
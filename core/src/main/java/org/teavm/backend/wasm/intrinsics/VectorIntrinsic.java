@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.intrinsics;
+
+import org.teavm.ast.InvocationExpr;
+import org.teavm.backend.wasm.model.expression.WasmExpression;
+import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
+import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.backend.wasm.model.expression.WasmVectorAllTrue;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
+import org.teavm.interop.Vector128;
+import org.teavm.model.MethodReference;
+
+public class VectorIntrinsic implements WasmIntrinsic {
+    private boolean simdEnabled;
+
+    public VectorIntrinsic(boolean simdEnabled) {
+        this.simdEnabled = simdEnabled;
+    }
+
+    @Override
+    public boolean isApplicable(MethodReference methodReference) {
+        if (!methodReference.getClassName().equals(Vector128.class.getName())) {
+            return false;
+        }
+
+        switch (methodReference.getName()) {
+            case "isSupported":
+            case "fillBytes":
+            case "fillShorts":
+            case "fillInts":
+            case "fillLongs":
+            case "fillFloats":
+            case "fillDoubles":
+            case "copy":
+            case "equal":
+            case "and":
+            case "or":
+            case "xor":
+            case "addBytes":
+            case "addInts":
+            case "subInts":
+            case "mulInts":
+            case "addFloats":
+            case "mulFloats":
+            case "addDoubles":
+            case "mulDoubles":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public WasmExpression apply(InvocationExpr invocation, WasmIntrinsicManager manager) {
+        if (!simdEnabled) {
+            return invocation.getMethod().getName().equals("isSupported")
+                    ? new WasmInt32Constant(0)
+                    : new WasmUnreachable();
+        }
+        switch (invocation.getMethod().getName()) {
+            case "isSupported":
+                return new WasmInt32Constant(1);
+            case "fillBytes":
+                return fill(WasmVectorShape.I8X16, invocation, manager);
+            case "fillShorts":
+                return fill(WasmVectorShape.I16X8, invocation, manager);
+            case "fillInts":
+                return fill(WasmVectorShape.I32X4, invocation, manager);
+            case "fillLongs":
+                return fill(WasmVectorShape.I64X2, invocation, manager);
+            case "fillFloats":
+                return fill(WasmVectorShape.F32X4, invocation, manager);
+            case "fillDoubles":
+                return fill(WasmVectorShape.F64X2, invocation, manager);
+            case "copy": {
+                WasmExpression source = load(invocation, 0, manager);
+                WasmExpression target = manager.generate(invocation.getArguments().get(1));
+                return new WasmStoreVector(1, target, source);
+            }
+            case "equal": {
+                WasmExpression first = load(invocation, 0, manager);
+                WasmExpression second = load(invocation, 1, manager);
+                return new WasmVectorAllTrue(WasmVectorShape.I8X16, new WasmVectorBinary(WasmVectorShape.I8X16,
+                        WasmVectorBinaryOperation.EQ, first, second));
+            }
+            case "and":
+                return binary(WasmVectorShape.I8X16, WasmVectorBinaryOperation.AND, invocation, manager);
+            case "or":
+                return binary(WasmVectorShape.I8X16, WasmVectorBinaryOperation.OR, invocation, manager);
+            case "xor":
+                return binary(WasmVectorShape.I8X16, WasmVectorBinaryOperation.XOR, invocation, manager);
+            case "addBytes":
+                return binary(WasmVectorShape.I8X16, WasmVectorBinaryOperation.ADD, invocation, manager);
+            case "addInts":
+                return binary(WasmVectorShape.I32X4, WasmVectorBinaryOperation.ADD, invocation, manager);
+            case "subInts":
+                return binary(WasmVectorShape.I32X4, WasmVectorBinaryOperation.SUB, invocation, manager);
+            case "mulInts":
+                return binary(WasmVectorShape.I32X4, WasmVectorBinaryOperation.MUL, invocation, manager);
+            case "addFloats":
+                return binary(WasmVectorShape.F32X4, WasmVectorBinaryOperation.ADD, invocation, manager);
+            case "mulFloats":
+                return binary(WasmVectorShape.F32X4, WasmVectorBinaryOperation.MUL, invocation, manager);
+            case "addDoubles":
+                return binary(WasmVectorShape.F64X2, WasmVectorBinaryOperation.ADD, invocation, manager);
+            case "mulDoubles":
+                return binary(WasmVectorShape.F64X2, WasmVectorBinaryOperation.MUL, invocation, manager);
+            default:
+                throw new IllegalArgumentException(invocation.getMethod().toString());
+        }
+    }
+
+    private static WasmExpression fill(WasmVectorShape shape, InvocationExpr invocation,
+            WasmIntrinsicManager manager) {
+        WasmExpression target = manager.generate(invocation.getArguments().get(0));
+        WasmExpression value = manager.generate(invocation.getArguments().get(1));
+        return new WasmStoreVector(1, target, new WasmVectorSplat(shape, value));
+    }
+
+    private static WasmExpression binary(WasmVectorShape shape, WasmVectorBinaryOperation operation,
+            InvocationExpr invocation, WasmIntrinsicManager manager) {
+        WasmExpression first = load(invocation, 0, manager);
+        WasmExpression second = load(invocation, 1, manager);
+        WasmExpression result = manager.generate(invocation.getArguments().get(2));
+        return new WasmStoreVector(1, result, new WasmVectorBinary(shape, operation, first, second));
+    }
+
+    private static WasmExpression load(InvocationExpr invocation, int index, WasmIntrinsicManager manager) {
+        return new WasmLoadVector(1, manager.generate(invocation.getArguments().get(index)));
+    }
+}
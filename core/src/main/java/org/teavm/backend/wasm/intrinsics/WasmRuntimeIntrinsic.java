@@ -29,6 +29,7 @@ import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
 import org.teavm.backend.wasm.model.expression.WasmIntBinary;
 import org.teavm.backend.wasm.model.expression.WasmIntBinaryOperation;
 import org.teavm.backend.wasm.model.expression.WasmIntType;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
 import org.teavm.model.MethodReference;
 
 public class WasmRuntimeIntrinsic implements WasmIntrinsic {
@@ -43,6 +44,7 @@ public class WasmRuntimeIntrinsic implements WasmIntrinsic {
             case "gt":
             case "lt":
             case "initStack":
+            case "growMemory":
                 return true;
             default:
                 return false;
@@ -69,6 +71,8 @@ public class WasmRuntimeIntrinsic implements WasmIntrinsic {
                 stackExpressions.add(constant);
                 return constant;
             }
+            case "growMemory":
+                return new WasmMemoryGrow(manager.generate(invocation.getArguments().get(0)));
             default:
                 throw new IllegalArgumentException(invocation.getMethod().getName());
         }
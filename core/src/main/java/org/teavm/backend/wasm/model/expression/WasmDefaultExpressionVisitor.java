@@ -180,4 +180,50 @@ public class WasmDefaultExpressionVisitor implements WasmExpressionVisitor {
         expression.getIndex().acceptVisitor(this);
         expression.getValue().acceptVisitor(this);
     }
+
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        expression.getAmount().acceptVisitor(this);
+    }
+
+    @Override
+    public void visit(WasmLoadVector expression) {
+        expression.getIndex().acceptVisitor(this);
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.getValue().acceptVisitor(this);
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        expression.getValue().acceptVisitor(this);
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        expression.getFirst().acceptVisitor(this);
+        expression.getSecond().acceptVisitor(this);
+    }
+
+    @Override
+    public void visit(WasmVectorAllTrue expression) {
+        expression.getOperand().acceptVisitor(this);
+    }
+
+    @Override
+    public void visit(WasmFill expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.getValue().acceptVisitor(this);
+        expression.getCount().acceptVisitor(this);
+    }
+
+    @Override
+    public void visit(WasmCopy expression) {
+        expression.getDestinationIndex().acceptVisitor(this);
+        expression.getSourceIndex().acceptVisitor(this);
+        expression.getCount().acceptVisitor(this);
+    }
 }
@@ -73,4 +73,20 @@ public interface WasmExpressionVisitor {
     void visit(WasmStoreFloat32 expression);
 
     void visit(WasmStoreFloat64 expression);
+
+    void visit(WasmMemoryGrow expression);
+
+    void visit(WasmLoadVector expression);
+
+    void visit(WasmStoreVector expression);
+
+    void visit(WasmVectorSplat expression);
+
+    void visit(WasmVectorBinary expression);
+
+    void visit(WasmVectorAllTrue expression);
+
+    void visit(WasmFill expression);
+
+    void visit(WasmCopy expression);
 }
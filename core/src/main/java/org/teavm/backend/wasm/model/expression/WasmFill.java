@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.model.expression;
+
+import java.util.Objects;
+
+/**
+ * <p>Fills block of memory with given byte value, i.e. <code>memory.fill</code> instruction
+ * from bulk memory proposal.</p>
+ */
+public class WasmFill extends WasmExpression {
+    private WasmExpression index;
+    private WasmExpression value;
+    private WasmExpression count;
+
+    public WasmFill(WasmExpression index, WasmExpression value, WasmExpression count) {
+        Objects.requireNonNull(index);
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(count);
+        this.index = index;
+        this.value = value;
+        this.count = count;
+    }
+
+    public WasmExpression getIndex() {
+        return index;
+    }
+
+    public void setIndex(WasmExpression index) {
+        Objects.requireNonNull(index);
+        this.index = index;
+    }
+
+    public WasmExpression getValue() {
+        return value;
+    }
+
+    public void setValue(WasmExpression value) {
+        Objects.requireNonNull(value);
+        this.value = value;
+    }
+
+    public WasmExpression getCount() {
+        return count;
+    }
+
+    public void setCount(WasmExpression count) {
+        Objects.requireNonNull(count);
+        this.count = count;
+    }
+
+    @Override
+    public void acceptVisitor(WasmExpressionVisitor visitor) {
+        visitor.visit(this);
+    }
+}
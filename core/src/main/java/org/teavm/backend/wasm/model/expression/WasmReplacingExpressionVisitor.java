@@ -221,4 +221,64 @@ public class WasmReplacingExpressionVisitor implements WasmExpressionVisitor {
         expression.getValue().acceptVisitor(this);
         expression.setValue(mapper.apply(expression.getValue()));
     }
+
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        expression.getAmount().acceptVisitor(this);
+        expression.setAmount(mapper.apply(expression.getAmount()));
+    }
+
+    @Override
+    public void visit(WasmLoadVector expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.setIndex(mapper.apply(expression.getIndex()));
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.setIndex(mapper.apply(expression.getIndex()));
+        expression.getValue().acceptVisitor(this);
+        expression.setValue(mapper.apply(expression.getValue()));
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        expression.getValue().acceptVisitor(this);
+        expression.setValue(mapper.apply(expression.getValue()));
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        expression.getFirst().acceptVisitor(this);
+        expression.setFirst(mapper.apply(expression.getFirst()));
+        expression.getSecond().acceptVisitor(this);
+        expression.setSecond(mapper.apply(expression.getSecond()));
+    }
+
+    @Override
+    public void visit(WasmVectorAllTrue expression) {
+        expression.getOperand().acceptVisitor(this);
+        expression.setOperand(mapper.apply(expression.getOperand()));
+    }
+
+    @Override
+    public void visit(WasmFill expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.setIndex(mapper.apply(expression.getIndex()));
+        expression.getValue().acceptVisitor(this);
+        expression.setValue(mapper.apply(expression.getValue()));
+        expression.getCount().acceptVisitor(this);
+        expression.setCount(mapper.apply(expression.getCount()));
+    }
+
+    @Override
+    public void visit(WasmCopy expression) {
+        expression.getDestinationIndex().acceptVisitor(this);
+        expression.setDestinationIndex(mapper.apply(expression.getDestinationIndex()));
+        expression.getSourceIndex().acceptVisitor(this);
+        expression.setSourceIndex(mapper.apply(expression.getSourceIndex()));
+        expression.getCount().acceptVisitor(this);
+        expression.setCount(mapper.apply(expression.getCount()));
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.model.expression;
+
+import java.util.Objects;
+
+/**
+ * Returns 1 when all lanes of integer vector are non-zero, 0 otherwise.
+ */
+public class WasmVectorAllTrue extends WasmExpression {
+    private WasmVectorShape shape;
+    private WasmExpression operand;
+
+    public WasmVectorAllTrue(WasmVectorShape shape, WasmExpression operand) {
+        Objects.requireNonNull(shape);
+        Objects.requireNonNull(operand);
+        this.shape = shape;
+        this.operand = operand;
+    }
+
+    public WasmVectorShape getShape() {
+        return shape;
+    }
+
+    public void setShape(WasmVectorShape shape) {
+        Objects.requireNonNull(shape);
+        this.shape = shape;
+    }
+
+    public WasmExpression getOperand() {
+        return operand;
+    }
+
+    public void setOperand(WasmExpression operand) {
+        Objects.requireNonNull(operand);
+        this.operand = operand;
+    }
+
+    @Override
+    public void acceptVisitor(WasmExpressionVisitor visitor) {
+        visitor.visit(this);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.model.expression;
+
+import java.util.Objects;
+
+/**
+ * Creates vector with all lanes equal to given scalar value. The value should have type of a lane, except for
+ * <code>i8x16</code> and <code>i16x8</code> shapes, which take <code>i32</code> and ignore high bits.
+ */
+public class WasmVectorSplat extends WasmExpression {
+    private WasmVectorShape shape;
+    private WasmExpression value;
+
+    public WasmVectorSplat(WasmVectorShape shape, WasmExpression value) {
+        Objects.requireNonNull(shape);
+        Objects.requireNonNull(value);
+        this.shape = shape;
+        this.value = value;
+    }
+
+    public WasmVectorShape getShape() {
+        return shape;
+    }
+
+    public void setShape(WasmVectorShape shape) {
+        Objects.requireNonNull(shape);
+        this.shape = shape;
+    }
+
+    public WasmExpression getValue() {
+        return value;
+    }
+
+    public void setValue(WasmExpression value) {
+        Objects.requireNonNull(value);
+        this.value = value;
+    }
+
+    @Override
+    public void acceptVisitor(WasmExpressionVisitor visitor) {
+        visitor.visit(this);
+    }
+}
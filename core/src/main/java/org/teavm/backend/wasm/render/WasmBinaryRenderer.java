@@ -180,7 +180,7 @@ public class WasmBinaryRenderer {
         section.writeByte(1);
         section.writeByte(1);
         section.writeLEB(module.getMemorySize());
-        section.writeLEB(module.getMemorySize());
+        section.writeLEB(module.getMaxMemorySize());
 
         writeSection(SECTION_MEMORY, "memory", section.getData());
     }
@@ -24,9 +24,11 @@ import org.teavm.backend.wasm.model.expression.WasmBreak;
 import org.teavm.backend.wasm.model.expression.WasmCall;
 import org.teavm.backend.wasm.model.expression.WasmConditional;
 import org.teavm.backend.wasm.model.expression.WasmConversion;
+import org.teavm.backend.wasm.model.expression.WasmCopy;
 import org.teavm.backend.wasm.model.expression.WasmDrop;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmExpressionVisitor;
+import org.teavm.backend.wasm.model.expression.WasmFill;
 import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
@@ -41,14 +43,22 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat64;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt32;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
 import org.teavm.backend.wasm.model.expression.WasmSwitch;
 import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.backend.wasm.model.expression.WasmVectorAllTrue;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
 
 class WasmBinaryRenderingVisitor implements WasmExpressionVisitor {
     private WasmBinaryWriter writer;
@@ -824,6 +834,185 @@ class WasmBinaryRenderingVisitor implements WasmExpressionVisitor {
         writer.writeLEB(expression.getOffset());
     }
 
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        expression.getAmount().acceptVisitor(this);
+        writer.writeByte(0x40);
+        writer.writeByte(0);
+    }
+
+    @Override
+    public void visit(WasmLoadVector expression) {
+        expression.getIndex().acceptVisitor(this);
+        writeVectorOpcode(0x00);
+        writer.writeByte(alignment(expression.getAlignment()));
+        writer.writeLEB(expression.getOffset());
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.getValue().acceptVisitor(this);
+        writeVectorOpcode(0x0B);
+        writer.writeByte(alignment(expression.getAlignment()));
+        writer.writeLEB(expression.getOffset());
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        expression.getValue().acceptVisitor(this);
+        switch (expression.getShape()) {
+            case I8X16:
+                writeVectorOpcode(0x0F);
+                break;
+            case I16X8:
+                writeVectorOpcode(0x10);
+                break;
+            case I32X4:
+                writeVectorOpcode(0x11);
+                break;
+            case I64X2:
+                writeVectorOpcode(0x12);
+                break;
+            case F32X4:
+                writeVectorOpcode(0x13);
+                break;
+            case F64X2:
+                writeVectorOpcode(0x14);
+                break;
+        }
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        expression.getFirst().acceptVisitor(this);
+        expression.getSecond().acceptVisitor(this);
+        writeVectorOpcode(vectorOpcode(expression.getShape(), expression.getOperation()));
+    }
+
+    private static int vectorOpcode(WasmVectorShape shape, WasmVectorBinaryOperation operation) {
+        switch (operation) {
+            case AND:
+                return 0x4E;
+            case OR:
+                return 0x50;
+            case XOR:
+                return 0x51;
+            case ADD:
+                switch (shape) {
+                    case I8X16:
+                        return 0x6E;
+                    case I16X8:
+                        return 0x8E;
+                    case I32X4:
+                        return 0xAE;
+                    case I64X2:
+                        return 0xCE;
+                    case F32X4:
+                        return 0xE4;
+                    case F64X2:
+                        return 0xF0;
+                }
+                break;
+            case SUB:
+                switch (shape) {
+                    case I8X16:
+                        return 0x71;
+                    case I16X8:
+                        return 0x91;
+                    case I32X4:
+                        return 0xB1;
+                    case I64X2:
+                        return 0xD1;
+                    case F32X4:
+                        return 0xE5;
+                    case F64X2:
+                        return 0xF1;
+                }
+                break;
+            case MUL:
+                switch (shape) {
+                    case I16X8:
+                        return 0x95;
+                    case I32X4:
+                        return 0xB5;
+                    case I64X2:
+                        return 0xD5;
+                    case F32X4:
+                        return 0xE6;
+                    case F64X2:
+                        return 0xF2;
+                    default:
+                        break;
+                }
+                break;
+            case EQ:
+                switch (shape) {
+                    case I8X16:
+                        return 0x23;
+                    case I16X8:
+                        return 0x2D;
+                    case I32X4:
+                        return 0x37;
+                    case I64X2:
+                        return 0xD6;
+                    case F32X4:
+                        return 0x41;
+                    case F64X2:
+                        return 0x47;
+                }
+                break;
+        }
+        throw new IllegalArgumentException(shape + "." + operation);
+    }
+
+    @Override
+    public void visit(WasmVectorAllTrue expression) {
+        expression.getOperand().acceptVisitor(this);
+        switch (expression.getShape()) {
+            case I8X16:
+                writeVectorOpcode(0x63);
+                break;
+            case I16X8:
+                writeVectorOpcode(0x83);
+                break;
+            case I32X4:
+                writeVectorOpcode(0xA3);
+                break;
+            case I64X2:
+                writeVectorOpcode(0xC3);
+                break;
+            default:
+                throw new IllegalArgumentException(expression.getShape().toString());
+        }
+    }
+
+    @Override
+    public void visit(WasmFill expression) {
+        expression.getIndex().acceptVisitor(this);
+        expression.getValue().acceptVisitor(this);
+        expression.getCount().acceptVisitor(this);
+        writer.writeByte(0xFC);
+        writer.writeLEB(11);
+        writer.writeByte(0);
+    }
+
+    @Override
+    public void visit(WasmCopy expression) {
+        expression.getDestinationIndex().acceptVisitor(this);
+        expression.getSourceIndex().acceptVisitor(this);
+        expression.getCount().acceptVisitor(this);
+        writer.writeByte(0xFC);
+        writer.writeLEB(10);
+        writer.writeByte(0);
+        writer.writeByte(0);
+    }
+
+    private void writeVectorOpcode(int opcode) {
+        writer.writeByte(0xFD);
+        writer.writeLEB(opcode);
+    }
+
     private int alignment(int value) {
         return 31 - Integer.numberOfLeadingZeros(Math.max(1, value));
     }
@@ -74,6 +74,7 @@ public class WasmCRenderer {
         renderFunctionDeclarations(module);
         line("static int8_t *wasm_heap;");
         line("static int32_t wasm_heap_size;");
+        renderMemoryGrow(module);
         renderFunctionTable(module);
 
         for (WasmFunction function : module.getFunctions().values()) {
@@ -116,6 +117,35 @@ public class WasmCRenderer {
         }
     }
 
+    private void renderMemoryGrow(WasmModule module) {
+        line("static int64_t wasm_heap_max_size = INT64_C(" + 65536L * module.getMaxMemorySize() + ");");
+        line("static int32_t wasm_memory_grow(int32_t pages) {");
+        indent();
+        line("int32_t result = wasm_heap_size / 65536;");
+        line("int64_t newSize = (int64_t) wasm_heap_size + (int64_t) pages * 65536;");
+        line("if (pages < 0 || newSize > wasm_heap_max_size) {");
+        indent();
+        line("return -1;");
+        outdent();
+        line("}");
+        line("if (pages > 0) {");
+        indent();
+        line("int8_t *newHeap = realloc(wasm_heap, (size_t) newSize);");
+        line("if (newHeap == NULL) {");
+        indent();
+        line("return -1;");
+        outdent();
+        line("}");
+        line("memset(newHeap + wasm_heap_size, 0, (size_t) (newSize - wasm_heap_size));");
+        line("wasm_heap = newHeap;");
+        line("wasm_heap_size = (int32_t) newSize;");
+        outdent();
+        line("}");
+        line("return result;");
+        outdent();
+        line("}");
+    }
+
     private void renderHeap(WasmModule module) {
         line("wasm_heap_size = " + 65536 * module.getMemorySize() + ";");
         line("wasm_heap = malloc(" + 65536 * module.getMemorySize() + ");");
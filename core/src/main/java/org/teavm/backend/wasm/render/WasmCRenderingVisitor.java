@@ -32,9 +32,11 @@ import org.teavm.backend.wasm.model.expression.WasmBreak;
 import org.teavm.backend.wasm.model.expression.WasmCall;
 import org.teavm.backend.wasm.model.expression.WasmConditional;
 import org.teavm.backend.wasm.model.expression.WasmConversion;
+import org.teavm.backend.wasm.model.expression.WasmCopy;
 import org.teavm.backend.wasm.model.expression.WasmDrop;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmExpressionVisitor;
+import org.teavm.backend.wasm.model.expression.WasmFill;
 import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
@@ -51,14 +53,21 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat64;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt32;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
 import org.teavm.backend.wasm.model.expression.WasmSwitch;
 import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.backend.wasm.model.expression.WasmVectorAllTrue;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
 import org.teavm.model.TextLocation;
 
 class WasmCRenderingVisitor implements WasmExpressionVisitor {
@@ -1030,6 +1039,194 @@ class WasmCRenderingVisitor implements WasmExpressionVisitor {
         value = result;
     }
 
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        CExpression result = new CExpression();
+        WasmType type = requiredType;
+
+        requiredType = WasmType.INT32;
+        expression.getAmount().acceptVisitor(this);
+        result.getLines().addAll(value.getLines());
+        result.setText("wasm_memory_grow(" + value.getText() + ")");
+
+        if (type == null) {
+            result.addLine(result.getText() + ";", expression.getLocation());
+            result.setText(null);
+        }
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmLoadVector expression) {
+        CExpression result = new CExpression();
+        WasmType type = requiredType;
+
+        requiredType = WasmType.INT32;
+        expression.getIndex().acceptVisitor(this);
+        CExpression index = checkAddress(value);
+        if (type == null) {
+            value = index;
+            return;
+        }
+
+        result.getLines().addAll(index.getLines());
+        result.setText("wasm_v128_load(&wasm_heap[" + index.getText() + " + " + expression.getOffset() + "])");
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        CExpression result = new CExpression();
+
+        requiredType = WasmType.INT32;
+        expression.getIndex().acceptVisitor(this);
+        CExpression index = checkAddress(value);
+
+        requiredType = WasmType.V128;
+        expression.getValue().acceptVisitor(this);
+        CExpression valueToStore = value;
+
+        result.getLines().addAll(index.getLines());
+        result.getLines().addAll(valueToStore.getLines());
+        result.addLine("wasm_v128_store(&wasm_heap[" + index.getText() + " + " + expression.getOffset() + "], "
+                + valueToStore.getText() + ");", expression.getLocation());
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        WasmType type = requiredType;
+        CExpression result = new CExpression();
+
+        requiredType = laneType(expression.getShape());
+        expression.getValue().acceptVisitor(this);
+        CExpression operand = value;
+
+        result.getLines().addAll(operand.getLines());
+        if (type != null) {
+            result.setText("wasm_" + WasmRenderingVisitor.shape(expression.getShape()) + "_splat("
+                    + operand.getText() + ")");
+            result.setRelocatable(operand.isRelocatable());
+        }
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        WasmType type = requiredType;
+        CExpression result = new CExpression();
+
+        requiredType = WasmType.V128;
+        expression.getFirst().acceptVisitor(this);
+        CExpression first = value;
+
+        requiredType = WasmType.V128;
+        expression.getSecond().acceptVisitor(this);
+        CExpression second = value;
+
+        result.getLines().addAll(first.getLines());
+        if (type != null && !second.getLines().isEmpty()) {
+            first = cacheIfNeeded(WasmType.V128, first, result);
+        }
+        result.getLines().addAll(second.getLines());
+        if (type != null) {
+            String function = "wasm_" + WasmRenderingVisitor.vectorOperation(expression.getShape(),
+                    expression.getOperation()).replace('.', '_');
+            result.setText(function + "(" + first.getText() + ", " + second.getText() + ")");
+            result.setRelocatable(first.isRelocatable() && second.isRelocatable());
+        }
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmVectorAllTrue expression) {
+        WasmType type = requiredType;
+        CExpression result = new CExpression();
+
+        requiredType = WasmType.V128;
+        expression.getOperand().acceptVisitor(this);
+        CExpression operand = value;
+
+        result.getLines().addAll(operand.getLines());
+        if (type != null) {
+            result.setText("wasm_" + WasmRenderingVisitor.shape(expression.getShape()) + "_all_true("
+                    + operand.getText() + ")");
+            result.setRelocatable(operand.isRelocatable());
+        }
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmFill expression) {
+        CExpression result = new CExpression();
+
+        requiredType = WasmType.INT32;
+        expression.getIndex().acceptVisitor(this);
+        CExpression index = checkAddress(value);
+
+        requiredType = WasmType.INT32;
+        expression.getValue().acceptVisitor(this);
+        CExpression fillValue = value;
+
+        requiredType = WasmType.INT32;
+        expression.getCount().acceptVisitor(this);
+        CExpression count = value;
+
+        result.getLines().addAll(index.getLines());
+        result.getLines().addAll(fillValue.getLines());
+        result.getLines().addAll(count.getLines());
+        result.addLine("memset(&wasm_heap[" + index.getText() + "], " + fillValue.getText() + ", "
+                + count.getText() + ");", expression.getLocation());
+
+        value = result;
+    }
+
+    @Override
+    public void visit(WasmCopy expression) {
+        CExpression result = new CExpression();
+
+        requiredType = WasmType.INT32;
+        expression.getDestinationIndex().acceptVisitor(this);
+        CExpression destination = checkAddress(value);
+
+        requiredType = WasmType.INT32;
+        expression.getSourceIndex().acceptVisitor(this);
+        CExpression source = checkAddress(value);
+
+        requiredType = WasmType.INT32;
+        expression.getCount().acceptVisitor(this);
+        CExpression count = value;
+
+        result.getLines().addAll(destination.getLines());
+        result.getLines().addAll(source.getLines());
+        result.getLines().addAll(count.getLines());
+        result.addLine("memmove(&wasm_heap[" + destination.getText() + "], &wasm_heap[" + source.getText() + "], "
+                + count.getText() + ");", expression.getLocation());
+
+        value = result;
+    }
+
+    private static WasmType laneType(WasmVectorShape shape) {
+        switch (shape) {
+            case I8X16:
+            case I16X8:
+            case I32X4:
+                return WasmType.INT32;
+            case I64X2:
+                return WasmType.INT64;
+            case F32X4:
+                return WasmType.FLOAT32;
+            case F64X2:
+                return WasmType.FLOAT64;
+        }
+        throw new AssertionError(shape.toString());
+    }
+
     private CExpression checkAddress(CExpression index) {
         if (!memoryAccessChecked) {
             return index;
@@ -1044,7 +1241,7 @@ class WasmCRenderingVisitor implements WasmExpressionVisitor {
         } else {
             var = index.getText();
         }
-        checked.addLine("assert(" + var + " < " + module.getMemorySize() * 65536 + ");");
+        checked.addLine("assert(" + var + " < wasm_heap_size);");
         checked.setText(var);
         checked.setRelocatable(index.isRelocatable());
 
@@ -1068,6 +1265,8 @@ class WasmCRenderingVisitor implements WasmExpressionVisitor {
                 return "float";
             case FLOAT64:
                 return "double";
+            case V128:
+                return "wasm_v128";
         }
         throw new AssertionError(type.toString());
     }
@@ -82,7 +82,8 @@ public class WasmRenderer {
 
     public void renderMemory(WasmModule module) {
         visitor.lf();
-        visitor.open().append("memory (export \"memory\") " + module.getMemorySize()).close().lf();
+        visitor.open().append("memory (export \"memory\") " + module.getMemorySize() + " "
+                + module.getMaxMemorySize()).close().lf();
     }
 
     public void renderData(WasmModule module) {
@@ -27,10 +27,12 @@ import org.teavm.backend.wasm.model.expression.WasmBreak;
 import org.teavm.backend.wasm.model.expression.WasmCall;
 import org.teavm.backend.wasm.model.expression.WasmConditional;
 import org.teavm.backend.wasm.model.expression.WasmConversion;
+import org.teavm.backend.wasm.model.expression.WasmCopy;
 import org.teavm.backend.wasm.model.expression.WasmDefaultExpressionVisitor;
 import org.teavm.backend.wasm.model.expression.WasmDrop;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmExpressionVisitor;
+import org.teavm.backend.wasm.model.expression.WasmFill;
 import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
 import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
@@ -51,14 +53,22 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmLoadVector;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat64;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt32;
 import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
+import org.teavm.backend.wasm.model.expression.WasmStoreVector;
 import org.teavm.backend.wasm.model.expression.WasmSwitch;
 import org.teavm.backend.wasm.model.expression.WasmUnreachable;
+import org.teavm.backend.wasm.model.expression.WasmVectorAllTrue;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinary;
+import org.teavm.backend.wasm.model.expression.WasmVectorBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmVectorShape;
+import org.teavm.backend.wasm.model.expression.WasmVectorSplat;
 
 class WasmRenderingVisitor implements WasmExpressionVisitor {
     StringBuilder sb = new StringBuilder();
@@ -594,6 +604,114 @@ class WasmRenderingVisitor implements WasmExpressionVisitor {
         close();
     }
 
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        open().append("memory.grow");
+        line(expression.getAmount());
+        close();
+    }
+
+    @Override
+    public void visit(WasmLoadVector expression) {
+        open().append("v128.load");
+        if (expression.getOffset() > 0) {
+            append(" offset=" + expression.getOffset());
+        }
+        append(" align=" + expression.getAlignment());
+        line(expression.getIndex());
+        close();
+    }
+
+    @Override
+    public void visit(WasmStoreVector expression) {
+        open().append("v128.store");
+        if (expression.getOffset() > 0) {
+            append(" offset=" + expression.getOffset());
+        }
+        append(" align=" + expression.getAlignment());
+        line(expression.getIndex());
+        line(expression.getValue());
+        close();
+    }
+
+    @Override
+    public void visit(WasmVectorSplat expression) {
+        open().append(shape(expression.getShape()) + ".splat");
+        line(expression.getValue());
+        close();
+    }
+
+    @Override
+    public void visit(WasmVectorBinary expression) {
+        open().append(vectorOperation(expression.getShape(), expression.getOperation()));
+        line(expression.getFirst());
+        line(expression.getSecond());
+        close();
+    }
+
+    @Override
+    public void visit(WasmVectorAllTrue expression) {
+        open().append(shape(expression.getShape()) + ".all_true");
+        line(expression.getOperand());
+        close();
+    }
+
+    @Override
+    public void visit(WasmFill expression) {
+        open().append("memory.fill");
+        line(expression.getIndex());
+        line(expression.getValue());
+        line(expression.getCount());
+        close();
+    }
+
+    @Override
+    public void visit(WasmCopy expression) {
+        open().append("memory.copy");
+        line(expression.getDestinationIndex());
+        line(expression.getSourceIndex());
+        line(expression.getCount());
+        close();
+    }
+
+    static String shape(WasmVectorShape shape) {
+        switch (shape) {
+            case I8X16:
+                return "i8x16";
+            case I16X8:
+                return "i16x8";
+            case I32X4:
+                return "i32x4";
+            case I64X2:
+                return "i64x2";
+            case F32X4:
+                return "f32x4";
+            case F64X2:
+                return "f64x2";
+        }
+        throw new AssertionError(shape.toString());
+    }
+
+    static String vectorOperation(WasmVectorShape shape, WasmVectorBinaryOperation operation) {
+        switch (operation) {
+            case AND:
+                return "v128.and";
+            case OR:
+                return "v128.or";
+            case XOR:
+                return "v128.xor";
+            case ADD:
+                return shape(shape) + ".add";
+            case SUB:
+                return shape(shape) + ".sub";
+            case MUL:
+                return shape(shape) + ".mul";
+            case EQ:
+                return shape(shape) + ".eq";
+        }
+        throw new AssertionError(operation.toString());
+    }
+
     private String type(WasmType type) {
         switch (type) {
             case INT32:
@@ -604,6 +722,8 @@ class WasmRenderingVisitor implements WasmExpressionVisitor {
                 return "f32";
             case FLOAT64:
                 return "f64";
+            case V128:
+                return "v128";
         }
         throw new AssertionError(type.toString());
     }
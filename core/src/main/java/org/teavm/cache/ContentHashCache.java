@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.teavm.common.HashUtils;
+
+/**
+ * <p>Directory that stores build cache entries in files named after hashes of entry keys. Keys include hashes
+ * of class files, so entries do not depend on machine or time where they were produced, and caches produced
+ * by different builds can be merged by simply copying files. This allows to seed developer builds with a cache
+ * produced on CI, or to share optimized programs between several parallel CI jobs.</p>
+ *
+ * <p>Entries are self-contained: they don't refer to symbol tables stored elsewhere in the cache.</p>
+ *
+ * <p>Besides content of classes, cached programs and ASTs depend on the compiler and its settings. Therefore,
+ * keys also include a <em>configuration</em> string, which should describe version of the compiler, target,
+ * optimization level and compiler properties. Entries produced with different configurations can coexist
+ * in the same directory, but never match each other.</p>
+ *
+ * <p>Since keys change with every change of a class, stale entries are never overwritten. To keep the directory
+ * from growing forever, modification time of an entry is updated each time a build reads it, and
+ * {@link #prune(long)} deletes least recently used entries. Import and export keep modification times,
+ * so recency of entries survives transfer between machines.</p>
+ *
+ * @see ContentHashClassReaderSource
+ * @see ContentHashProgramCache
+ * @see ContentHashMethodNodeCache
+ */
+public class ContentHashCache {
+    private static final String ENTRY_SUFFIX = ".entry";
+    private final File directory;
+    private final String configuration;
+
+    /**
+     * Creates cache in the given directory.
+     *
+     * @param directory directory to store entries in.
+     * @param configuration description of compiler configuration that affects content of entries.
+     */
+    public ContentHashCache(File directory, String configuration) {
+        this.directory = directory;
+        this.configuration = configuration;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    InputStream read(String kind, String key) throws IOException {
+        File file = entryFile(kind, key);
+        if (!file.exists()) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return new BufferedInputStream(new FileInputStream(file));
+    }
+
+    void write(String kind, String key, byte[] data) throws IOException {
+        File file = entryFile(kind, key);
+        file.getParentFile().mkdirs();
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(tmpFile.toPath(), data);
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Copies all entries of this cache to another directory, replacing entries that already exist there.
+     *
+     * @param targetDirectory directory to copy entries to.
+     */
+    public void exportTo(File targetDirectory) throws IOException {
+        copyEntries(directory, targetDirectory, true);
+    }
+
+    /**
+     * Copies entries from another directory, previously populated by {@link #exportTo(File)},
+     * to this cache. Entries that already exist in this cache are kept.
+     *
+     * @param sourceDirectory directory to copy entries from.
+     */
+    public void importFrom(File sourceDirectory) throws IOException {
+        copyEntries(sourceDirectory, directory, false);
+    }
+
+    /**
+     * Deletes least recently used entries, so that total size of remaining entries does not exceed
+     * the given limit. Entries are used when they are written or read by any build, including builds
+     * with other configurations that share this directory.
+     *
+     * @param maxSize max total size of entries in bytes.
+     */
+    public void prune(long maxSize) throws IOException {
+        List<File> entries = listEntries(directory);
+        Map<File, Long> lastUsed = new HashMap<>();
+        for (File entry : entries) {
+            lastUsed.put(entry, entry.lastModified());
+        }
+        entries.sort(Comparator.comparing((File entry) -> -lastUsed.get(entry)).thenComparing(File::getName));
+        long size = 0;
+        for (File entry : entries) {
+            size += entry.length();
+            if (size > maxSize) {
+                Files.deleteIfExists(entry.toPath());
+            }
+        }
+    }
+
+    private static void copyEntries(File from, File to, boolean replace) throws IOException {
+        for (File entry : listEntries(from)) {
+            File bucketDirectory = entry.getParentFile();
+            File kindDirectory = bucketDirectory.getParentFile();
+            File targetBucket = new File(new File(to, kindDirectory.getName()), bucketDirectory.getName());
+            File target = new File(targetBucket, entry.getName());
+            if (!replace && target.exists()) {
+                continue;
+            }
+            targetBucket.mkdirs();
+            File tmpFile = new File(targetBucket, entry.getName() + ".tmp");
+            Files.copy(entry.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.COPY_ATTRIBUTES);
+            Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static List<File> listEntries(File directory) {
+        List<File> result = new ArrayList<>();
+        File[] kindDirectories = directory.listFiles(File::isDirectory);
+        if (kindDirectories == null) {
+            return result;
+        }
+        for (File kindDirectory : kindDirectories) {
+            File[] bucketDirectories = kindDirectory.listFiles(File::isDirectory);
+            if (bucketDirectories == null) {
+                continue;
+            }
+            for (File bucketDirectory : bucketDirectories) {
+                File[] entries = bucketDirectory.listFiles(f -> f.getName().endsWith(ENTRY_SUFFIX));
+                if (entries != null) {
+                    for (File entry : entries) {
+                        result.add(entry);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    File entryFile(String kind, String key) {
+        String hash = HashUtils.sha256(configuration + "\n" + key);
+        File bucket = new File(new File(directory, kind), hash.substring(0, 2));
+        return new File(bucket, hash + ENTRY_SUFFIX);
+    }
+}
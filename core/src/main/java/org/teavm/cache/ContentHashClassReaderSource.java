@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.model.ClassHolderSource;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ReferenceCache;
+import org.teavm.parsing.ClassHashProvider;
+
+/**
+ * <p>Class source which caches parsed classes in {@link ContentHashCache}. Works like
+ * {@link DiskCachedClassReaderSource}, but identifies cached classes by hashes of class files rather than
+ * by modification dates, so the cache can be shared between machines.</p>
+ */
+public class ContentHashClassReaderSource implements ClassReaderSource, CacheStatus {
+    private static final String KIND = "classes";
+    private final ContentHashCache cache;
+    private final ReferenceCache referenceCache;
+    private final ClassHolderSource innerSource;
+    private final ContentHashEntryIO entryIO;
+    private final Map<String, Item> items = new LinkedHashMap<>();
+    private final Set<String> newClasses = new LinkedHashSet<>();
+
+    public ContentHashClassReaderSource(ContentHashCache cache, ReferenceCache referenceCache,
+            ClassHolderSource innerSource, ClassHashProvider hashProvider) {
+        this.cache = cache;
+        this.referenceCache = referenceCache;
+        this.innerSource = innerSource;
+        entryIO = new ContentHashEntryIO(hashProvider);
+    }
+
+    @Override
+    public ClassReader get(String name) {
+        return getItem(name).cls;
+    }
+
+    @Override
+    public boolean isStaleClass(String className) {
+        return getItem(className).dirty;
+    }
+
+    @Override
+    public boolean isStaleMethod(MethodReference method) {
+        return isStaleClass(method.getClassName());
+    }
+
+    private Item getItem(String name) {
+        Item item = items.get(name);
+        if (item == null) {
+            item = new Item();
+            items.put(name, item);
+            item.key = entryIO.getKey(name);
+            if (item.key != null) {
+                try (InputStream input = cache.read(KIND, item.key)) {
+                    if (input != null) {
+                        item.cls = entryIO.read(input, c -> false,
+                                (symbols, files, variables, payload) -> new ClassIO(referenceCache, symbols,
+                                        files, variables).readClass(payload, name));
+                    }
+                } catch (IOException e) {
+                    // We could not access cache file, so let's parse class file
+                    item.cls = null;
+                }
+            }
+            if (item.cls == null) {
+                item.dirty = true;
+                item.cls = innerSource.get(name);
+                newClasses.add(name);
+            }
+        }
+        return item;
+    }
+
+    public void flush() throws IOException {
+        for (String className : newClasses) {
+            Item item = items.get(className);
+            if (item.cls != null && item.key != null) {
+                byte[] data = entryIO.write(new LinkedHashMap<>(), (symbols, files, variables, output) ->
+                        new ClassIO(referenceCache, symbols, files, variables).writeClass(output, item.cls));
+                cache.write(KIND, item.key, data);
+            }
+        }
+        newClasses.clear();
+    }
+
+    static class Item {
+        String key;
+        ClassReader cls;
+        boolean dirty;
+    }
+}
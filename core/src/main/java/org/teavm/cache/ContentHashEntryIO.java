@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.teavm.model.MethodReference;
+import org.teavm.parsing.ClassHashProvider;
+
+/**
+ * <p>Writes and reads self-contained entries of {@link ContentHashCache}. Entry consists of hashes of classes
+ * it depends on, symbol tables used by payload and payload itself.</p>
+ *
+ * <p>When hash of a class is unknown (for example, the class was generated during build rather than loaded
+ * from a class file), entries of this class and entries that depend on it are never stored or read.</p>
+ */
+class ContentHashEntryIO {
+    private final ClassHashProvider hashProvider;
+
+    ContentHashEntryIO(ClassHashProvider hashProvider) {
+        this.hashProvider = hashProvider;
+    }
+
+    String getKey(MethodReference method) {
+        String classHash = hashProvider.getClassHash(method.getClassName());
+        return classHash != null ? method + "@" + classHash : null;
+    }
+
+    String getKey(String className) {
+        String classHash = hashProvider.getClassHash(className);
+        return classHash != null ? className + "@" + classHash : null;
+    }
+
+    /**
+     * Tells whether an entry with given dependencies can be validated in later builds,
+     * i.e. whether hashes of all dependencies are known.
+     */
+    boolean canStore(Map<String, String> dependencies) {
+        return !dependencies.containsValue(null);
+    }
+
+    Map<String, String> hashDependencies(String[] dependencies) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String dependency : dependencies) {
+            result.put(dependency, hashProvider.getClassHash(dependency));
+        }
+        return result;
+    }
+
+    byte[] write(Map<String, String> dependencies, PayloadWriter payloadWriter) throws IOException {
+        InMemorySymbolTable symbolTable = new InMemorySymbolTable();
+        InMemorySymbolTable fileTable = new InMemorySymbolTable();
+        InMemorySymbolTable variableTable = new InMemorySymbolTable();
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payloadWriter.write(symbolTable, fileTable, variableTable, payload);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VarDataOutput output = new VarDataOutput(bytes);
+        output.writeUnsigned(dependencies.size());
+        for (Map.Entry<String, String> dependency : dependencies.entrySet()) {
+            output.write(dependency.getKey());
+            output.write(dependency.getValue());
+        }
+        writeSymbols(output, symbolTable);
+        writeSymbols(output, fileTable);
+        writeSymbols(output, variableTable);
+        payload.writeTo(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static void writeSymbols(VarDataOutput output, InMemorySymbolTable table) throws IOException {
+        output.writeUnsigned(table.size());
+        for (int i = 0; i < table.size(); ++i) {
+            output.write(table.at(i));
+        }
+    }
+
+    /**
+     * Reads entry, if it is still valid.
+     *
+     * @param staleClasses tells which classes changed since previous build, in addition to changes of class files.
+     * @return payload, or {@code null} if a class that entry depends on has changed.
+     */
+    <T> T read(InputStream input, Predicate<String> staleClasses, PayloadReader<T> payloadReader)
+            throws IOException {
+        VarDataInput data = new VarDataInput(input);
+        int dependencyCount = data.readUnsigned();
+        for (int i = 0; i < dependencyCount; ++i) {
+            String className = data.read();
+            String hash = data.read();
+            if (hash == null || staleClasses.test(className)
+                    || !hash.equals(hashProvider.getClassHash(className))) {
+                return null;
+            }
+        }
+
+        InMemorySymbolTable symbolTable = readSymbols(data);
+        InMemorySymbolTable fileTable = readSymbols(data);
+        InMemorySymbolTable variableTable = readSymbols(data);
+        return payloadReader.read(symbolTable, fileTable, variableTable, input);
+    }
+
+    private static InMemorySymbolTable readSymbols(VarDataInput input) throws IOException {
+        InMemorySymbolTable table = new InMemorySymbolTable();
+        int size = input.readUnsigned();
+        for (int i = 0; i < size; ++i) {
+            table.lookup(input.read());
+        }
+        return table;
+    }
+
+    interface PayloadWriter {
+        void write(SymbolTable symbolTable, SymbolTable fileTable, SymbolTable variableTable, OutputStream output)
+                throws IOException;
+    }
+
+    interface PayloadReader<T> {
+        T read(SymbolTable symbolTable, SymbolTable fileTable, SymbolTable variableTable, InputStream input)
+                throws IOException;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.teavm.ast.AsyncMethodNode;
+import org.teavm.ast.ControlFlowEntry;
+import org.teavm.ast.RegularMethodNode;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ReferenceCache;
+import org.teavm.parsing.ClassHashProvider;
+
+/**
+ * <p>AST cache which stores method nodes in {@link ContentHashCache}. Works like {@link DiskMethodNodeCache},
+ * but every node is identified by hash of its class file and keeps hashes of class files it depends on,
+ * so the cache can be shared between machines.</p>
+ */
+public class ContentHashMethodNodeCache implements MethodNodeCache {
+    private static final String KIND = "ast";
+    private static final String ASYNC_KIND = "ast-async";
+    private final ContentHashCache cache;
+    private final ReferenceCache referenceCache;
+    private final ContentHashEntryIO entryIO;
+    private final Map<MethodReference, Item> items = new HashMap<>();
+    private final Map<MethodReference, AsyncItem> asyncItems = new HashMap<>();
+    private final Set<MethodReference> newMethods = new LinkedHashSet<>();
+    private final Set<MethodReference> newAsyncMethods = new LinkedHashSet<>();
+
+    public ContentHashMethodNodeCache(ContentHashCache cache, ReferenceCache referenceCache,
+            ClassHashProvider hashProvider) {
+        this.cache = cache;
+        this.referenceCache = referenceCache;
+        entryIO = new ContentHashEntryIO(hashProvider);
+    }
+
+    @Override
+    public AstCacheEntry get(MethodReference methodReference, CacheStatus cacheStatus) {
+        Item item = items.get(methodReference);
+        if (item == null) {
+            item = new Item();
+            items.put(methodReference, item);
+            item.entry = read(KIND, methodReference, cacheStatus, (astIO, input) -> {
+                RegularMethodNode node = astIO.read(input, methodReference);
+                ControlFlowEntry[] cfg = astIO.readControlFlow(input);
+                return new AstCacheEntry(node, cfg);
+            });
+        }
+        return item.entry;
+    }
+
+    @Override
+    public void store(MethodReference methodReference, AstCacheEntry entry, Supplier<String[]> dependencies) {
+        Item item = new Item();
+        item.entry = entry;
+        item.dependencies = entryIO.hashDependencies(dependencies.get());
+        items.put(methodReference, item);
+        newMethods.add(methodReference);
+    }
+
+    @Override
+    public AsyncMethodNode getAsync(MethodReference methodReference, CacheStatus cacheStatus) {
+        AsyncItem item = asyncItems.get(methodReference);
+        if (item == null) {
+            item = new AsyncItem();
+            asyncItems.put(methodReference, item);
+            item.node = read(ASYNC_KIND, methodReference, cacheStatus,
+                    (astIO, input) -> astIO.readAsync(input, methodReference));
+        }
+        return item.node;
+    }
+
+    @Override
+    public void storeAsync(MethodReference methodReference, AsyncMethodNode node, Supplier<String[]> dependencies) {
+        AsyncItem item = new AsyncItem();
+        item.node = node;
+        item.dependencies = entryIO.hashDependencies(dependencies.get());
+        asyncItems.put(methodReference, item);
+        newAsyncMethods.add(methodReference);
+    }
+
+    private <T> T read(String kind, MethodReference methodReference, CacheStatus cacheStatus, NodeReader<T> reader) {
+        String key = entryIO.getKey(methodReference);
+        if (key == null) {
+            return null;
+        }
+        try (InputStream input = cache.read(kind, key)) {
+            if (input == null) {
+                return null;
+            }
+            return entryIO.read(input, cacheStatus::isStaleClass, (symbols, files, variables, payload) ->
+                    reader.read(new AstIO(referenceCache, symbols, files, variables), new VarDataInput(payload)));
+        } catch (IOException e) {
+            // we could not read program, just leave it empty
+            return null;
+        }
+    }
+
+    public void flush() throws IOException {
+        for (MethodReference method : newMethods) {
+            Item item = items.get(method);
+            write(KIND, method, item.dependencies, (astIO, output) -> {
+                astIO.write(output, item.entry.method);
+                astIO.write(output, item.entry.cfg);
+            });
+        }
+        for (MethodReference method : newAsyncMethods) {
+            AsyncItem item = asyncItems.get(method);
+            write(ASYNC_KIND, method, item.dependencies, (astIO, output) -> astIO.writeAsync(output, item.node));
+        }
+        newMethods.clear();
+        newAsyncMethods.clear();
+    }
+
+    private void write(String kind, MethodReference method, Map<String, String> dependencies, NodeWriter writer)
+            throws IOException {
+        String key = entryIO.getKey(method);
+        if (key == null || !entryIO.canStore(dependencies)) {
+            return;
+        }
+        byte[] data = entryIO.write(dependencies, (symbols, files, variables, output) ->
+                writer.write(new AstIO(referenceCache, symbols, files, variables), new VarDataOutput(output)));
+        cache.write(kind, key, data);
+    }
+
+    interface NodeReader<T> {
+        T read(AstIO astIO, VarDataInput input) throws IOException;
+    }
+
+    interface NodeWriter {
+        void write(AstIO astIO, VarDataOutput output) throws IOException;
+    }
+
+    private static class Item {
+        AstCacheEntry entry;
+        Map<String, String> dependencies;
+    }
+
+    private static class AsyncItem {
+        AsyncMethodNode node;
+        Map<String, String> dependencies;
+    }
+}
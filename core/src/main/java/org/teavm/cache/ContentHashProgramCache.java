@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ProgramCache;
+import org.teavm.model.ReferenceCache;
+import org.teavm.parsing.ClassHashProvider;
+
+/**
+ * <p>Program cache which stores optimized programs in {@link ContentHashCache}. Works like
+ * {@link DiskProgramCache}, but every program is identified by hash of its class file and keeps hashes
+ * of class files it depends on, so the cache can be shared between machines.</p>
+ */
+public class ContentHashProgramCache implements ProgramCache {
+    private static final String KIND = "programs";
+    private final ContentHashCache cache;
+    private final ReferenceCache referenceCache;
+    private final ContentHashEntryIO entryIO;
+    private final Map<MethodReference, Item> items = new HashMap<>();
+    private final Set<MethodReference> newMethods = new LinkedHashSet<>();
+
+    public ContentHashProgramCache(ContentHashCache cache, ReferenceCache referenceCache,
+            ClassHashProvider hashProvider) {
+        this.cache = cache;
+        this.referenceCache = referenceCache;
+        entryIO = new ContentHashEntryIO(hashProvider);
+    }
+
+    @Override
+    public Program get(MethodReference method, CacheStatus cacheStatus) {
+        Item item = items.get(method);
+        if (item == null) {
+            item = new Item();
+            items.put(method, item);
+            String key = entryIO.getKey(method);
+            if (key != null) {
+                try (InputStream input = cache.read(KIND, key)) {
+                    if (input != null) {
+                        item.program = entryIO.read(input, cacheStatus::isStaleClass,
+                                (symbols, files, variables, payload) -> new ProgramIO(referenceCache, symbols,
+                                        files, variables).read(payload));
+                    }
+                } catch (IOException e) {
+                    // we could not read program, just leave it empty
+                }
+            }
+        }
+        return item.program;
+    }
+
+    @Override
+    public void store(MethodReference method, Program program, Supplier<String[]> dependencies) {
+        Item item = new Item();
+        items.put(method, item);
+        item.program = program;
+        item.dependencies = entryIO.hashDependencies(dependencies.get());
+        newMethods.add(method);
+    }
+
+    public void flush() throws IOException {
+        for (MethodReference method : newMethods) {
+            String key = entryIO.getKey(method);
+            Item item = items.get(method);
+            if (key == null || !entryIO.canStore(item.dependencies)) {
+                continue;
+            }
+            byte[] data = entryIO.write(item.dependencies, (symbols, files, variables, output) ->
+                    new ProgramIO(referenceCache, symbols, files, variables).write(item.program, output));
+            cache.write(KIND, key, data);
+        }
+        newMethods.clear();
+    }
+
+    static class Item {
+        Program program;
+        Map<String, String> dependencies;
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Stores binary entries identified by string keys in a few append-only segment files, described by
+ * a single index file. Compared to storing every entry in a separate file, this requires only a few file opens
+ * per build, no matter how many entries are read or written.</p>
+ *
+ * <p>Segments are memory-mapped on first access, and entries are read directly from mapped memory.
+ * New entries are kept in memory until {@link #flush()}, which appends them as a new segment. When overwritten
+ * entries occupy more space than live ones, or there are too many segments, flush instead rewrites all live
+ * entries into a single segment and removes the old ones.</p>
+ *
+ * <p>Since entries are addressed within a mapped buffer, a segment never grows beyond {@link Integer#MAX_VALUE}
+ * bytes: when the next entry does not fit, flush continues writing to a new segment. Segments that are no longer
+ * used are unmapped before they are deleted, so streams returned by {@link #read(String)} must not be used
+ * after {@link #flush()}. If a segment can't be deleted (for example, when the platform does not allow to unmap
+ * it explicitly), it is deleted the next time the store is opened.</p>
+ *
+ * <p>Index is replaced atomically where file system supports it, so a build interrupted during flush leaves
+ * the previous state of the store intact. Broken or missing files are treated as missing entries.</p>
+ */
+class SegmentedCacheStore {
+    private static final int VERSION = 1;
+    private static final int MAX_SEGMENTS = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final File directory;
+    private final String name;
+    private Map<String, Entry> entries;
+    private Map<Integer, Segment> segments;
+    private int nextSegmentId;
+    private final Map<String, byte[]> pendingEntries = new LinkedHashMap<>();
+    private long maxSegmentSize = MAX_SEGMENT_SIZE;
+
+    SegmentedCacheStore(File directory, String name) {
+        this.directory = directory;
+        this.name = name;
+    }
+
+    void setMaxSegmentSize(long maxSegmentSize) {
+        this.maxSegmentSize = Math.min(maxSegmentSize, MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens stream to read entry. The stream reads directly from mapped memory, so it must not be used
+     * after {@link #flush()}.
+     *
+     * @param key key of entry.
+     * @return stream positioned at the beginning of entry's data, or {@code null} if there is no such entry.
+     */
+    InputStream read(String key) throws IOException {
+        byte[] pendingData = pendingEntries.get(key);
+        if (pendingData != null) {
+            return new ByteArrayInputStream(pendingData);
+        }
+
+        load();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return new ByteBufferInputStream(slice(entry));
+    }
+
+    void write(String key, byte[] data) {
+        pendingEntries.put(key, data);
+    }
+
+    void flush() throws IOException {
+        if (pendingEntries.isEmpty()) {
+            return;
+        }
+        load();
+        directory.mkdirs();
+
+        long liveSize = 0;
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            if (!pendingEntries.containsKey(mapEntry.getKey())) {
+                liveSize += mapEntry.getValue().length;
+            }
+        }
+        long totalSize = 0;
+        for (Segment segment : segments.values()) {
+            totalSize += segment.size;
+        }
+        boolean compacting = segments.size() >= MAX_SEGMENTS || totalSize - liveSize > liveSize;
+
+        Map<String, Entry> newEntries = new LinkedHashMap<>();
+        SegmentWriter writer = new SegmentWriter();
+        try {
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                if (pendingEntries.containsKey(mapEntry.getKey())) {
+                    continue;
+                }
+                newEntries.put(mapEntry.getKey(), compacting ? writer.write(slice(entry)) : entry);
+            }
+            for (Map.Entry<String, byte[]> mapEntry : pendingEntries.entrySet()) {
+                newEntries.put(mapEntry.getKey(), writer.write(ByteBuffer.wrap(mapEntry.getValue())));
+            }
+        } finally {
+            writer.close();
+        }
+
+        Map<Integer, Segment> obsoleteSegments = new LinkedHashMap<>();
+        if (compacting) {
+            obsoleteSegments.putAll(segments);
+            segments.clear();
+        }
+        segments.putAll(writer.writtenSegments);
+        entries = newEntries;
+        pendingEntries.clear();
+
+        writeIndex();
+        for (Map.Entry<Integer, Segment> mapEntry : obsoleteSegments.entrySet()) {
+            mapEntry.getValue().close();
+            segmentFile(mapEntry.getKey()).delete();
+        }
+    }
+
+    private void load() {
+        if (entries != null) {
+            return;
+        }
+        entries = new LinkedHashMap<>();
+        segments = new LinkedHashMap<>();
+
+        File indexFile = indexFile();
+        if (indexFile.exists()) {
+            try {
+                readIndex(indexFile);
+            } catch (IOException e) {
+                // index is broken, just start from scratch
+                entries.clear();
+                segments.clear();
+            }
+        }
+
+        nextSegmentId = 0;
+        for (int segmentId : segments.keySet()) {
+            nextSegmentId = Math.max(nextSegmentId, segmentId + 1);
+        }
+        deleteUnusedSegments();
+    }
+
+    private void readIndex(File indexFile) throws IOException {
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(indexFile))) {
+            VarDataInput input = new VarDataInput(stream);
+            if (input.readUnsigned() != VERSION) {
+                return;
+            }
+
+            int segmentCount = input.readUnsigned();
+            for (int i = 0; i < segmentCount; ++i) {
+                int segmentId = input.readUnsigned();
+                long size = input.readUnsignedLong();
+                if (segmentFile(segmentId).length() >= size) {
+                    segments.put(segmentId, new Segment(size));
+                }
+            }
+
+            int entryCount = input.readUnsigned();
+            for (int i = 0; i < entryCount; ++i) {
+                String key = input.read();
+                Entry entry = new Entry(input.readUnsigned(), input.readUnsigned(), input.readUnsigned());
+                Segment segment = segments.get(entry.segment);
+                if (segment != null && (long) entry.offset + entry.length <= segment.size) {
+                    entries.put(key, entry);
+                }
+            }
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        File indexFile = indexFile();
+        File tmpFile = new File(directory, name + ".index.tmp");
+        try (VarDataOutput output = new VarDataOutput(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            output.writeUnsigned(VERSION);
+            output.writeUnsigned(segments.size());
+            for (Map.Entry<Integer, Segment> mapEntry : segments.entrySet()) {
+                output.writeUnsigned(mapEntry.getKey());
+                output.writeUnsigned(mapEntry.getValue().size);
+            }
+            output.writeUnsigned(entries.size());
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                output.write(mapEntry.getKey());
+                output.writeUnsigned(entry.segment);
+                output.writeUnsigned(entry.offset);
+                output.writeUnsigned(entry.length);
+            }
+        }
+        try {
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // A build interrupted here may leave no index or a truncated one, which makes all entries missing,
+            // but never makes them point to wrong data
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteUnusedSegments() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        String prefix = name + ".";
+        for (File file : files) {
+            String fileName = file.getName();
+            if (!fileName.startsWith(prefix) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            String id = fileName.substring(prefix.length(), fileName.length() - SEGMENT_SUFFIX.length());
+            try {
+                if (!segments.containsKey(Integer.parseInt(id))) {
+                    file.delete();
+                }
+            } catch (NumberFormatException e) {
+                // not a segment of this store
+            }
+        }
+    }
+
+    private ByteBuffer slice(Entry entry) throws IOException {
+        ByteBuffer buffer = map(entry.segment).duplicate();
+        buffer.position(entry.offset);
+        buffer.limit(entry.offset + entry.length);
+        return buffer.slice();
+    }
+
+    private MappedByteBuffer map(int segmentId) throws IOException {
+        Segment segment = segments.get(segmentId);
+        if (segment.buffer == null) {
+            try (FileChannel channel = FileChannel.open(segmentFile(segmentId).toPath(), StandardOpenOption.READ)) {
+                segment.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            }
+        }
+        return segment.buffer;
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            invokeCleaner.invoke(unsafeField.get(null), buffer);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // fall back to Java 8 API
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // buffer will be unmapped when garbage collected
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private File indexFile() {
+        return new File(directory, name + ".index");
+    }
+
+    private File segmentFile(int id) {
+        return new File(directory, name + "." + id + SEGMENT_SUFFIX);
+    }
+
+    static class Entry {
+        final int segment;
+        final int offset;
+        final int length;
+
+        Entry(int segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    static class Segment {
+        final long size;
+        MappedByteBuffer buffer;
+
+        Segment(long size) {
+            this.size = size;
+        }
+
+        void close() {
+            if (buffer != null) {
+                unmap(buffer);
+                buffer = null;
+            }
+        }
+    }
+
+    class SegmentWriter implements Closeable {
+        final Map<Integer, Segment> writtenSegments = new LinkedHashMap<>();
+        private FileChannel channel;
+        private int segmentId;
+        private long offset;
+
+        Entry write(ByteBuffer data) throws IOException {
+            int length = data.remaining();
+            if (channel == null || (offset > 0 && offset + length > maxSegmentSize)) {
+                finishSegment();
+                segmentId = nextSegmentId++;
+                channel = FileChannel.open(segmentFile(segmentId).toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                offset = 0;
+            }
+            Entry entry = new Entry(segmentId, (int) offset, length);
+            writeFully(channel, data);
+            offset += length;
+            return entry;
+        }
+
+        private void finishSegment() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+                writtenSegments.put(segmentId, new Segment(offset));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finishSegment();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.teavm.ast.AsyncMethodNode;
+import org.teavm.ast.ControlFlowEntry;
+import org.teavm.ast.RegularMethodNode;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ReferenceCache;
+
+/**
+ * <p>AST cache which stores the same data as {@link DiskMethodNodeCache}, but keeps all method nodes in a few
+ * segment files instead of a file per method. See {@link SegmentedCacheStore} for details.</p>
+ */
+public class SegmentedMethodNodeCache implements MethodNodeCache {
+    private final SegmentedCacheStore store;
+    private final SegmentedCacheStore asyncStore;
+    private final AstIO astIO;
+    private final Map<MethodReference, Item> cache = new HashMap<>();
+    private final Map<MethodReference, AsyncItem> asyncCache = new HashMap<>();
+    private final Set<MethodReference> newMethods = new LinkedHashSet<>();
+    private final Set<MethodReference> newAsyncMethods = new LinkedHashSet<>();
+
+    public SegmentedMethodNodeCache(File directory, ReferenceCache referenceCache, SymbolTable symbolTable,
+            SymbolTable fileTable, SymbolTable variableTable) {
+        store = new SegmentedCacheStore(directory, "ast");
+        asyncStore = new SegmentedCacheStore(directory, "ast-async");
+        astIO = new AstIO(referenceCache, symbolTable, fileTable, variableTable);
+    }
+
+    @Override
+    public AstCacheEntry get(MethodReference methodReference, CacheStatus cacheStatus) {
+        Item item = cache.get(methodReference);
+        if (item == null) {
+            item = new Item();
+            cache.put(methodReference, item);
+            try (InputStream stream = store.read(methodReference.toString())) {
+                if (stream != null) {
+                    VarDataInput input = new VarDataInput(stream);
+                    if (!checkIfDependenciesChanged(input, cacheStatus)) {
+                        RegularMethodNode node = astIO.read(input, methodReference);
+                        ControlFlowEntry[] cfg = astIO.readControlFlow(input);
+                        item.entry = new AstCacheEntry(node, cfg);
+                    }
+                }
+            } catch (IOException e) {
+                // we could not read program, just leave it empty
+            }
+        }
+        return item.entry;
+    }
+
+    @Override
+    public void store(MethodReference methodReference, AstCacheEntry entry, Supplier<String[]> dependencies) {
+        Item item = new Item();
+        item.entry = entry;
+        item.dependencies = dependencies.get().clone();
+        cache.put(methodReference, item);
+        newMethods.add(methodReference);
+    }
+
+    @Override
+    public AsyncMethodNode getAsync(MethodReference methodReference, CacheStatus cacheStatus) {
+        AsyncItem item = asyncCache.get(methodReference);
+        if (item == null) {
+            item = new AsyncItem();
+            asyncCache.put(methodReference, item);
+            try (InputStream stream = asyncStore.read(methodReference.toString())) {
+                if (stream != null) {
+                    VarDataInput input = new VarDataInput(stream);
+                    if (!checkIfDependenciesChanged(input, cacheStatus)) {
+                        item.node = astIO.readAsync(input, methodReference);
+                    }
+                }
+            } catch (IOException e) {
+                // we could not read program, just leave it empty
+            }
+        }
+        return item.node;
+    }
+
+    private boolean checkIfDependenciesChanged(VarDataInput input, CacheStatus cacheStatus) throws IOException {
+        int depCount = input.readUnsigned();
+        for (int i = 0; i < depCount; ++i) {
+            String depClass = input.read();
+            if (cacheStatus.isStaleClass(depClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void storeAsync(MethodReference methodReference, AsyncMethodNode node, Supplier<String[]> dependencies) {
+        AsyncItem item = new AsyncItem();
+        item.node = node;
+        item.dependencies = dependencies.get().clone();
+        asyncCache.put(methodReference, item);
+        newAsyncMethods.add(methodReference);
+    }
+
+    public void flush() throws IOException {
+        for (MethodReference method : newMethods) {
+            Item item = cache.get(method);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            VarDataOutput output = writeDependencies(bytes, item.dependencies);
+            astIO.write(output, item.entry.method);
+            astIO.write(output, item.entry.cfg);
+            store.write(method.toString(), bytes.toByteArray());
+        }
+        for (MethodReference method : newAsyncMethods) {
+            AsyncItem item = asyncCache.get(method);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            VarDataOutput output = writeDependencies(bytes, item.dependencies);
+            astIO.writeAsync(output, item.node);
+            asyncStore.write(method.toString(), bytes.toByteArray());
+        }
+        newMethods.clear();
+        newAsyncMethods.clear();
+        store.flush();
+        asyncStore.flush();
+    }
+
+    private static VarDataOutput writeDependencies(ByteArrayOutputStream bytes, String[] dependencies)
+            throws IOException {
+        VarDataOutput output = new VarDataOutput(bytes);
+        output.writeUnsigned(dependencies.length);
+        for (String dependency : dependencies) {
+            output.write(dependency);
+        }
+        return output;
+    }
+
+    private static class Item {
+        AstCacheEntry entry;
+        String[] dependencies;
+    }
+
+    private static class AsyncItem {
+        AsyncMethodNode node;
+        String[] dependencies;
+    }
+}
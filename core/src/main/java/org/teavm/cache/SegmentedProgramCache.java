@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ProgramCache;
+import org.teavm.model.ReferenceCache;
+
+/**
+ * <p>Program cache which stores the same data as {@link DiskProgramCache}, but keeps all programs in a few
+ * segment files instead of a file per method. See {@link SegmentedCacheStore} for details.</p>
+ */
+public class SegmentedProgramCache implements ProgramCache {
+    private final SegmentedCacheStore store;
+    private final ProgramIO programIO;
+    private final Map<MethodReference, Item> cache = new HashMap<>();
+    private final Set<MethodReference> newMethods = new LinkedHashSet<>();
+
+    public SegmentedProgramCache(File directory, ReferenceCache referenceCache, SymbolTable symbolTable,
+            SymbolTable fileTable, SymbolTable variableTable) {
+        store = new SegmentedCacheStore(directory, "programs");
+        programIO = new ProgramIO(referenceCache, symbolTable, fileTable, variableTable);
+    }
+
+    @Override
+    public Program get(MethodReference method, CacheStatus cacheStatus) {
+        Item item = cache.get(method);
+        if (item == null) {
+            item = new Item();
+            cache.put(method, item);
+            try (InputStream stream = store.read(method.toString())) {
+                if (stream != null) {
+                    VarDataInput input = new VarDataInput(stream);
+                    if (!checkIfDependenciesChanged(input, cacheStatus)) {
+                        item.program = programIO.read(input);
+                    }
+                }
+            } catch (IOException e) {
+                // we could not read program, just leave it empty
+            }
+        }
+        return item.program;
+    }
+
+    private boolean checkIfDependenciesChanged(VarDataInput input, CacheStatus cacheStatus) throws IOException {
+        int depCount = input.readUnsigned();
+        for (int i = 0; i < depCount; ++i) {
+            String depClass = input.read();
+            if (cacheStatus.isStaleClass(depClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void store(MethodReference method, Program program, Supplier<String[]> dependencies) {
+        Item item = new Item();
+        cache.put(method, item);
+        item.program = program;
+        item.dependencies = dependencies.get().clone();
+        newMethods.add(method);
+    }
+
+    public void flush() throws IOException {
+        for (MethodReference method : newMethods) {
+            Item item = cache.get(method);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            VarDataOutput output = new VarDataOutput(bytes);
+            output.writeUnsigned(item.dependencies.length);
+            for (String dependency : item.dependencies) {
+                output.write(dependency);
+            }
+            programIO.write(item.program, output);
+            store.write(method.toString(), bytes.toByteArray());
+        }
+        newMethods.clear();
+        store.flush();
+    }
+
+    static class Item {
+        Program program;
+        String[] dependencies;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class ParallelTasks {
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Splits items into consecutive chunks, several chunks per thread, so that threads that finish their
+     * work early can pick up remaining chunks.
+     *
+     * @param items items to split. Order of items is preserved, i.e. concatenation of chunks gives items
+     * in the order of iteration of the original collection.
+     * @param threadCount number of threads that are going to process chunks.
+     * @return list of chunks.
+     */
+    public static <T> List<List<T>> splitIntoChunks(Collection<? extends T> items, int threadCount) {
+        List<T> itemList = new ArrayList<>(items);
+        int chunkCount = Math.max(1, threadCount) * CHUNKS_PER_THREAD;
+        int chunkSize = Math.max(1, (itemList.size() + chunkCount - 1) / chunkCount);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < itemList.size(); i += chunkSize) {
+            chunks.add(itemList.subList(i, Math.min(itemList.size(), i + chunkSize)));
+        }
+        return chunks;
+    }
+}
@@ -883,7 +883,7 @@ public abstract class DependencyAnalyzer implements DependencyInfo {
         return result;
     }
 
-    private void processInvokeDynamic(MethodDependency methodDep) {
+    void processInvokeDynamic(MethodDependency methodDep) {
         if (methodDep.method == null) {
             return;
         }
@@ -31,9 +31,11 @@ import org.teavm.model.ElementModifier;
 import org.teavm.model.IncomingReader;
 import org.teavm.model.MethodDescriptor;
 import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReader;
 import org.teavm.model.MethodReference;
 import org.teavm.model.PhiReader;
 import org.teavm.model.Program;
+import org.teavm.model.ProgramReader;
 import org.teavm.model.TryCatchBlockReader;
 import org.teavm.model.ValueType;
 import org.teavm.model.VariableReader;
@@ -54,25 +56,36 @@ class DependencyGraphBuilder {
     }
 
     public void buildGraph(MethodDependency dep) {
-        caller = dependencyAnalyzer.callGraph.getNode(dep.getReference());
         MethodHolder method = dep.method;
         if (method.getProgram() == null || method.getProgram().basicBlockCount() == 0) {
             return;
         }
-        program = method.getProgram();
-        resultNode = dep.getResult();
+        buildGraph(dep, buildNodeMapping(method, method.getProgram()));
+    }
 
+    /**
+     * Computes mapping of program variables to dependency nodes. This method does not touch any state
+     * of dependency analyzer, so it can be safely called for different methods concurrently.
+     */
+    static int[] buildNodeMapping(MethodReader method, ProgramReader program) {
         DataFlowGraphBuilder dfgBuilder = new DataFlowGraphBuilder();
-        boolean[] significantParams = new boolean[dep.getParameterCount()];
+        boolean[] significantParams = new boolean[method.parameterCount() + 1];
         significantParams[0] = true;
-        for (int i = 1; i < dep.getParameterCount(); ++i) {
+        for (int i = 1; i < significantParams.length; ++i) {
             ValueType arg = method.parameterType(i - 1);
             if (!(arg instanceof ValueType.Primitive)) {
                 significantParams[i] = true;
             }
         }
-        int[] nodeMapping = dfgBuilder.buildMapping(program, significantParams,
+        return dfgBuilder.buildMapping(program, significantParams,
                 !(method.getResultType() instanceof ValueType.Primitive) && method.getResultType() != ValueType.VOID);
+    }
+
+    void buildGraph(MethodDependency dep, int[] nodeMapping) {
+        caller = dependencyAnalyzer.callGraph.getNode(dep.getReference());
+        MethodHolder method = dep.method;
+        program = method.getProgram();
+        resultNode = dep.getResult();
 
         if (DependencyAnalyzer.shouldLog) {
             System.out.println("Method reached: " + method.getReference());
@@ -33,9 +33,11 @@ import org.teavm.model.ValueType;
 
 public class DependencyNode implements ValueDependencyInfo {
     private static final int DEGREE_THRESHOLD = 2;
+    private static final int TRANSITION_MAP_THRESHOLD = 8;
     DependencyAnalyzer dependencyAnalyzer;
     List<DependencyConsumer> followers;
     TypeSet typeSet;
+    // Most nodes have a few outgoing transitions, so lookup map is only built for nodes with many of them
     ObjectObjectHashMap<DependencyNode, Transition> transitions;
     ObjectArrayList<Transition> transitionList;
     String tag;
@@ -284,17 +286,23 @@ public class DependencyNode implements ValueDependencyInfo {
         if (node == null) {
             throw new IllegalArgumentException("Node must not be null");
         }
-        if (transitions == null) {
-            transitions = new ObjectObjectHashMap<>();
-            transitionList = new ObjectArrayList<>();
+        if (transitionList == null) {
+            transitionList = new ObjectArrayList<>(2);
         }
-        if (transitions.containsKey(node)) {
+        if (hasTransitionTo(node)) {
             return false;
         }
 
         Transition transition = new Transition(this, node, filter);
-        transitions.put(node, transition);
         transitionList.add(transition);
+        if (transitions != null) {
+            transitions.put(node, transition);
+        } else if (transitionList.size() > TRANSITION_MAP_THRESHOLD) {
+            transitions = new ObjectObjectHashMap<>(transitionList.size() * 2);
+            for (ObjectCursor<Transition> cursor : transitionList) {
+                transitions.put(cursor.value.destination, cursor.value);
+            }
+        }
         if (DependencyAnalyzer.shouldLog) {
             System.out.println("Connecting " + tag + " to " + node.tag);
         }
@@ -322,6 +330,18 @@ public class DependencyNode implements ValueDependencyInfo {
         return true;
     }
 
+    private boolean hasTransitionTo(DependencyNode node) {
+        if (transitions != null) {
+            return transitions.containsKey(node);
+        }
+        for (int i = 0; i < transitionList.size(); ++i) {
+            if (transitionList.get(i).destination == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void connectArrayItemNodes(DependencyNode node) {
         if (degree > DEGREE_THRESHOLD || node.degree > DEGREE_THRESHOLD) {
             return;
@@ -369,7 +389,7 @@ public class DependencyNode implements ValueDependencyInfo {
         }
         classNodeComplete = true;
 
-        if (classNodeParent == null || classNodeParent.transitions == null) {
+        if (classNodeParent == null || classNodeParent.transitionList == null) {
             return;
         }
 
@@ -472,7 +492,7 @@ public class DependencyNode implements ValueDependencyInfo {
         if (typeSet == null) {
             Collection<DependencyNode> domain = findDomain();
             typeSet = new TypeSet(dependencyAnalyzer, this);
-            typeSet.domain.addAll(domain);
+            typeSet.setDomain(domain);
             for (DependencyNode node : domain) {
                 node.typeSet = typeSet;
             }
@@ -493,7 +513,7 @@ public class DependencyNode implements ValueDependencyInfo {
         typeSet.invalidate();
 
         typeSet = typeSet.copy(this);
-        typeSet.domain.addAll(domain);
+        typeSet.setDomain(domain);
 
         for (DependencyNode node : domain) {
             node.typeSet = typeSet;
@@ -519,7 +539,7 @@ public class DependencyNode implements ValueDependencyInfo {
                 break;
             }
 
-            if (node.transitions != null) {
+            if (node.transitionList != null) {
                 for (ObjectCursor<Transition> cursor : node.transitionList) {
                     Transition transition = cursor.value;
                     if (transition.filter == null && transition.destination.typeSet == typeSet
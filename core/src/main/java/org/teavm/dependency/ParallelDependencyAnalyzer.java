@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.teavm.common.ServiceRepository;
+import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.Instruction;
+import org.teavm.model.InvokeDynamicInstruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.Program;
+import org.teavm.model.ReferenceCache;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Dependency analyzer which works like {@link PreciseDependencyAnalyzer}, but computes mapping of variables
+ * of reached methods to dependency nodes (see {@code DependencyGraphBuilder.buildNodeMapping}) on a fork-join
+ * pool. This is the only part of dependency analysis that runs in parallel. Building dependency graphs
+ * of methods and propagating types through them, which is where most of the analysis time goes, remain
+ * on the calling thread, so dependency analysis does not scale with number of threads.</p>
+ *
+ * <p>Computation of a mapping starts as soon as a method is reached, while dependency nodes are created
+ * and connected on the calling thread in exactly the same order as {@link PreciseDependencyAnalyzer} does it.
+ * Since the mapping neither reads nor writes the state of the analyzer, the order of all events, and therefore
+ * the result of the analysis, is the same as with {@link PreciseDependencyAnalyzer}. Workers map a copy
+ * of the program made on the calling thread, so they never read a program that can be changed meanwhile.
+ * The copy keeps indexes of variables, so its mapping applies to the original program.</p>
+ *
+ * <p>Methods that contain <code>invokedynamic</code> instructions are not computed ahead, since their bodies
+ * are rewritten by bootstrap method substitutors right before analysis.</p>
+ *
+ * <p>Type propagation is not parallelized, since it triggers dependency listeners and plugins
+ * which are not required to be thread-safe. Use {@code DependencyAnalysisBenchmark} from benchmark module
+ * with <code>analyzer=parallel</code> to compare this analyzer with {@link PreciseDependencyAnalyzer}
+ * on a particular machine. Since copying programs adds work to the calling thread, build tools don't choose
+ * this analyzer automatically.</p>
+ */
+public class ParallelDependencyAnalyzer extends PreciseDependencyAnalyzer {
+    private final int threadCount;
+    private ForkJoinPool pool;
+
+    public ParallelDependencyAnalyzer(ClassReaderSource classSource, ClassLoader classLoader,
+            ServiceRepository services, Diagnostics diagnostics, ReferenceCache referenceCache, int threadCount) {
+        super(classSource, classLoader, services, diagnostics, referenceCache);
+        this.threadCount = threadCount;
+    }
+
+    public static DependencyAnalyzerFactory factory(int threadCount) {
+        return (classSource, classLoader, services, diagnostics, referenceCache) -> new ParallelDependencyAnalyzer(
+                classSource, classLoader, services, diagnostics, referenceCache, threadCount);
+    }
+
+    @Override
+    void scheduleMethodAnalysis(MethodDependency dep) {
+        MethodHolder method = dep.method;
+        Program program = method != null ? method.getProgram() : null;
+        if (threadCount <= 1 || program == null || program.basicBlockCount() == 0
+                || hasInvokeDynamic(program)) {
+            super.scheduleMethodAnalysis(dep);
+            return;
+        }
+
+        Program snapshot = ProgramUtils.copy(program);
+        ForkJoinTask<int[]> mapping = getPool().submit(() -> DependencyGraphBuilder.buildNodeMapping(method,
+                snapshot));
+        defer(() -> {
+            int[] nodeMapping = mapping.join();
+            // Analyzer only rewrites programs with invokedynamic in place, and such programs are not mapped ahead,
+            // so any other change of the program means that it was replaced
+            if (method.getProgram() == program && program.variableCount() == nodeMapping.length) {
+                new DependencyGraphBuilder(this).buildGraph(dep, nodeMapping);
+            } else {
+                processInvokeDynamic(dep);
+                processMethod(dep);
+            }
+        });
+    }
+
+    private static boolean hasInvokeDynamic(Program program) {
+        for (BasicBlock block : program.getBasicBlocks()) {
+            for (Instruction insn : block) {
+                if (insn instanceof InvokeDynamicInstruction) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(threadCount);
+        }
+        return pool;
+    }
+
+    @Override
+    public void processDependencies() {
+        try {
+            super.processDependencies();
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.teavm.callgraph.CallGraph;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Wraps results of dependency analysis so that they can be queried from several threads.</p>
+ *
+ * <p>After dependency analysis is complete, most of its results are plain lookups into data structures that
+ * no longer change, so they are read without synchronization. The only exceptions are the paths where
+ * {@link DependencyAnalyzer} lazily fills its caches: resolution of method implementations, the class source,
+ * creation of array item and class value nodes, and type filters used to compute sets of types. These
+ * paths are performed under a single lock. Types of a value are computed once, under the lock, and
+ * then kept as an immutable snapshot, so that {@link ValueDependencyInfo#getTypes()} and
+ * {@link ValueDependencyInfo#hasType(String)} do not need synchronization afterwards. Wrappers of methods,
+ * fields and values are cached, so snapshots are shared between all threads.</p>
+ *
+ * <p>Since the analyzer is not expected to change after dependency analysis is complete,
+ * objects like {@link ClassReader} obtained through this wrapper can be read without synchronization.</p>
+ */
+public class SynchronizedDependencyInfo implements DependencyInfo {
+    private final DependencyInfo dependencyInfo;
+    private final Object lock = new Object();
+    private final ClassReaderSource classSource;
+    private final Map<MethodReference, MethodWrapper> methods = new ConcurrentHashMap<>();
+    private final Map<MethodReference, MethodWrapper> implementations = new ConcurrentHashMap<>();
+    private final Map<FieldReference, FieldWrapper> fields = new ConcurrentHashMap<>();
+    private final Map<ValueDependencyInfo, ValueWrapper> values = new ConcurrentHashMap<>();
+
+    public SynchronizedDependencyInfo(DependencyInfo dependencyInfo) {
+        this.dependencyInfo = dependencyInfo;
+        ClassReaderSource innerClassSource = dependencyInfo.getClassSource();
+        classSource = name -> {
+            synchronized (lock) {
+                return innerClassSource.get(name);
+            }
+        };
+    }
+
+    @Override
+    public ClassReaderSource getClassSource() {
+        return classSource;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return dependencyInfo.getClassLoader();
+    }
+
+    @Override
+    public Collection<MethodReference> getReachableMethods() {
+        return dependencyInfo.getReachableMethods();
+    }
+
+    @Override
+    public Collection<FieldReference> getReachableFields() {
+        return dependencyInfo.getReachableFields();
+    }
+
+    @Override
+    public Collection<String> getReachableClasses() {
+        return dependencyInfo.getReachableClasses();
+    }
+
+    @Override
+    public FieldDependencyInfo getField(FieldReference fieldRef) {
+        FieldWrapper wrapper = fields.get(fieldRef);
+        if (wrapper == null) {
+            FieldDependencyInfo field = dependencyInfo.getField(fieldRef);
+            if (field == null) {
+                return null;
+            }
+            wrapper = fields.computeIfAbsent(fieldRef, k -> new FieldWrapper(field));
+        }
+        return wrapper;
+    }
+
+    @Override
+    public MethodDependencyInfo getMethod(MethodReference methodRef) {
+        MethodWrapper wrapper = methods.get(methodRef);
+        if (wrapper == null) {
+            MethodDependencyInfo method = dependencyInfo.getMethod(methodRef);
+            if (method == null) {
+                return null;
+            }
+            wrapper = methods.computeIfAbsent(methodRef, k -> new MethodWrapper(method));
+        }
+        return wrapper;
+    }
+
+    @Override
+    public MethodDependencyInfo getMethodImplementation(MethodReference methodRef) {
+        MethodWrapper wrapper = implementations.get(methodRef);
+        if (wrapper == null) {
+            MethodDependencyInfo method;
+            synchronized (lock) {
+                method = dependencyInfo.getMethodImplementation(methodRef);
+            }
+            if (method == null) {
+                return null;
+            }
+            wrapper = implementations.computeIfAbsent(methodRef, k -> new MethodWrapper(method));
+        }
+        return wrapper;
+    }
+
+    @Override
+    public ClassDependencyInfo getClass(String className) {
+        return dependencyInfo.getClass(className);
+    }
+
+    @Override
+    public CallGraph getCallGraph() {
+        return dependencyInfo.getCallGraph();
+    }
+
+    private ValueDependencyInfo wrap(ValueDependencyInfo value) {
+        return value != null ? values.computeIfAbsent(value, ValueWrapper::new) : null;
+    }
+
+    class MethodWrapper implements MethodDependencyInfo {
+        private final MethodDependencyInfo method;
+        private final ValueDependencyInfo[] variables;
+        private final ValueDependencyInfo result;
+        private final ValueDependencyInfo thrown;
+
+        MethodWrapper(MethodDependencyInfo method) {
+            this.method = method;
+            variables = method.getVariables().clone();
+            for (int i = 0; i < variables.length; ++i) {
+                variables[i] = wrap(variables[i]);
+            }
+            result = wrap(method.getResult());
+            thrown = wrap(method.getThrown());
+        }
+
+        @Override
+        public ValueDependencyInfo[] getVariables() {
+            return variables.clone();
+        }
+
+        @Override
+        public int getVariableCount() {
+            return method.getVariableCount();
+        }
+
+        @Override
+        public ValueDependencyInfo getVariable(int index) {
+            return variables[index];
+        }
+
+        @Override
+        public int getParameterCount() {
+            return method.getParameterCount();
+        }
+
+        @Override
+        public ValueDependencyInfo getResult() {
+            return result;
+        }
+
+        @Override
+        public ValueDependencyInfo getThrown() {
+            return thrown;
+        }
+
+        @Override
+        public MethodReference getReference() {
+            return method.getReference();
+        }
+
+        @Override
+        public boolean isUsed() {
+            return method.isUsed();
+        }
+
+        @Override
+        public boolean isCalled() {
+            return method.isCalled();
+        }
+
+        @Override
+        public boolean isMissing() {
+            return method.isMissing();
+        }
+    }
+
+    class FieldWrapper implements FieldDependencyInfo {
+        private final FieldDependencyInfo field;
+        private final ValueDependencyInfo value;
+
+        FieldWrapper(FieldDependencyInfo field) {
+            this.field = field;
+            value = wrap(field.getValue());
+        }
+
+        @Override
+        public ValueDependencyInfo getValue() {
+            return value;
+        }
+
+        @Override
+        public FieldReference getReference() {
+            return field.getReference();
+        }
+
+        @Override
+        public boolean isMissing() {
+            return field.isMissing();
+        }
+    }
+
+    class ValueWrapper implements ValueDependencyInfo {
+        private final ValueDependencyInfo value;
+        private volatile TypeSnapshot snapshot;
+        private volatile ValueDependencyInfo arrayItem;
+        private volatile ValueDependencyInfo classValueNode;
+
+        ValueWrapper(ValueDependencyInfo value) {
+            this.value = value;
+        }
+
+        private TypeSnapshot getSnapshot() {
+            TypeSnapshot result = snapshot;
+            if (result == null) {
+                synchronized (lock) {
+                    result = snapshot;
+                    if (result == null) {
+                        result = new TypeSnapshot(value);
+                        snapshot = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String[] getTypes() {
+            return getSnapshot().types.clone();
+        }
+
+        @Override
+        public boolean hasType(String type) {
+            return getSnapshot().allTypes.contains(type);
+        }
+
+        @Override
+        public boolean hasArrayType() {
+            return getSnapshot().hasArrayType;
+        }
+
+        @Override
+        public ValueDependencyInfo getArrayItem() {
+            ValueDependencyInfo result = arrayItem;
+            if (result == null) {
+                synchronized (lock) {
+                    result = value.getArrayItem();
+                }
+                result = wrap(result);
+                arrayItem = result;
+            }
+            return result;
+        }
+
+        @Override
+        public ValueDependencyInfo getClassValueNode() {
+            ValueDependencyInfo result = classValueNode;
+            if (result == null) {
+                synchronized (lock) {
+                    result = value.getClassValueNode();
+                }
+                result = wrap(result);
+                classValueNode = result;
+            }
+            return result;
+        }
+    }
+
+    static class TypeSnapshot {
+        final String[] types;
+        final Set<String> allTypes;
+        final boolean hasArrayType;
+
+        TypeSnapshot(ValueDependencyInfo value) {
+            types = value.getTypes();
+            allTypes = new HashSet<>();
+            TypeSet typeSet = value instanceof DependencyNode ? ((DependencyNode) value).typeSet : null;
+            if (typeSet != null) {
+                for (DependencyType type : typeSet.getTypes()) {
+                    allTypes.add(type.getName());
+                }
+            } else {
+                allTypes.addAll(Arrays.asList(types));
+            }
+            hasArrayType = value.hasArrayType();
+        }
+    }
+}
@@ -67,12 +67,19 @@ class Transition {
     void mergeDomains(DependencyType[] types) {
         destination.moveToSeparateDomain();
         destination.scheduleMultipleTypes(types, () -> {
+            TypeSet targetSet = source.typeSet;
+            if (destination.typeSet == targetSet) {
+                // Domain was already merged, e.g. by another transition from the same domain
+                return;
+            }
             Collection<DependencyNode> domainToMerge = destination.typeSet.domain;
             for (DependencyNode node : domainToMerge) {
-                node.typeSet = source.typeSet;
-                source.typeSet.domain.add(node);
+                if (node.typeSet != targetSet) {
+                    node.typeSet = targetSet;
+                    targetSet.domain.add(node);
+                }
             }
-            source.typeSet.invalidate();
+            targetSet.invalidate();
         });
     }
 
@@ -20,12 +20,17 @@ import com.carrotsearch.hppc.cursors.ObjectCursor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.LinkedHashSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
+/**
+ * <p>Set of types shared by a domain of dependency nodes.</p>
+ *
+ * <p>Types are stored like in roaring bitmaps: while the set is small, it's kept as sorted array of type indexes,
+ * once array becomes larger than bitmap of all known types would be, the set switches to bitmap.</p>
+ */
 class TypeSet {
-    private static final int SMALL_TYPES_THRESHOLD = 3;
+    private static final int MIN_ARRAY_LIMIT = 16;
     static final DependencyType[] EMPTY_TYPES = new DependencyType[0];
     private DependencyAnalyzer dependencyAnalyzer;
     DependencyNode origin;
@@ -33,38 +38,59 @@ class TypeSet {
     private BitSet types;
     private int typesCount;
 
-    Set<DependencyNode> domain = new LinkedHashSet<>();
+    List<DependencyNode> domain;
     ObjectArrayList<Transition> transitions;
     ArrayList<ConsumerWithNode> consumers;
 
     TypeSet(DependencyAnalyzer dependencyAnalyzer, DependencyNode origin) {
         this.dependencyAnalyzer = dependencyAnalyzer;
         this.origin = origin;
+        domain = new ArrayList<>(1);
         domain.add(origin);
     }
 
+    /**
+     * Replaces domain of this type set.
+     *
+     * @param nodes new domain. Should contain origin node and should not contain duplicates.
+     */
+    void setDomain(Collection<DependencyNode> nodes) {
+        domain = new ArrayList<>(nodes);
+    }
+
     void addType(DependencyType type) {
-        if (types == null) {
-            if (smallTypes == null) {
-                smallTypes = new int[] { type.index };
-                return;
-            }
+        if (types != null) {
+            types.set(type.index);
+            typesCount++;
+            return;
         }
-        if (smallTypes != null) {
-            if (smallTypes.length == SMALL_TYPES_THRESHOLD) {
-                types = new BitSet(dependencyAnalyzer.types.size() * 2);
-                for (int existingType : smallTypes) {
-                    types.set(existingType);
-                }
-                typesCount = smallTypes.length;
-                smallTypes = null;
-            } else {
-                smallTypes = Arrays.copyOf(smallTypes, smallTypes.length + 1);
-                smallTypes[smallTypes.length - 1] = type.index;
-                return;
+        if (smallTypes == null) {
+            smallTypes = new int[] { type.index };
+            typesCount = 1;
+            return;
+        }
+
+        int position = Arrays.binarySearch(smallTypes, 0, typesCount, type.index);
+        if (position >= 0) {
+            return;
+        }
+        if (typesCount >= Math.max(MIN_ARRAY_LIMIT, dependencyAnalyzer.types.size() / 32)) {
+            types = new BitSet(dependencyAnalyzer.types.size());
+            for (int i = 0; i < typesCount; ++i) {
+                types.set(smallTypes[i]);
             }
+            smallTypes = null;
+            types.set(type.index);
+            typesCount++;
+            return;
+        }
+
+        position = -position - 1;
+        if (typesCount == smallTypes.length) {
+            smallTypes = Arrays.copyOf(smallTypes, typesCount + Math.max(1, typesCount / 2));
         }
-        types.set(type.index);
+        System.arraycopy(smallTypes, position, smallTypes, position + 1, typesCount - position);
+        smallTypes[position] = type.index;
         typesCount++;
     }
 
@@ -78,7 +104,7 @@ class TypeSet {
             }
             return types;
         } else if (this.smallTypes != null) {
-            DependencyType[] types = new DependencyType[smallTypes.length];
+            DependencyType[] types = new DependencyType[typesCount];
             for (int i = 0; i < types.length; ++i) {
                 DependencyType type = dependencyAnalyzer.types.get(smallTypes[i]);
                 types[i] = type;
@@ -124,8 +150,8 @@ class TypeSet {
                 }
             }
         } else if (this.smallTypes != null) {
-            types = new DependencyType[smallTypes.length];
-            for (int i = 0; i < types.length; ++i) {
+            types = new DependencyType[typesCount];
+            for (int i = 0; i < typesCount; ++i) {
                 DependencyType type = dependencyAnalyzer.types.get(smallTypes[i]);
                 if (sourceNode.filter(type) && !targetNode.hasType(type) && targetNode.filter(type)
                         && (filter == null || filter.match(type))) {
@@ -147,12 +173,7 @@ class TypeSet {
 
     boolean hasType(DependencyType type) {
         if (smallTypes != null) {
-            for (int i = 0; i < smallTypes.length; ++i) {
-                if (smallTypes[i] == type.index) {
-                    return true;
-                }
-            }
-            return false;
+            return Arrays.binarySearch(smallTypes, 0, typesCount, type.index) >= 0;
         }
         return types != null && types.get(type.index);
     }
@@ -164,7 +185,7 @@ class TypeSet {
     TypeSet copy(DependencyNode origin) {
         TypeSet result = new TypeSet(dependencyAnalyzer, origin);
         result.types = types != null ? (BitSet) types.clone() : null;
-        result.smallTypes = smallTypes;
+        result.smallTypes = smallTypes != null ? Arrays.copyOf(smallTypes, typesCount) : null;
         result.typesCount = typesCount;
         return result;
     }
@@ -178,7 +199,7 @@ class TypeSet {
         if (transitions == null) {
             transitions = new ObjectArrayList<>(domain.size() * 2);
             for (DependencyNode node : domain) {
-                if (node.transitions != null) {
+                if (node.transitionList != null) {
                     for (ObjectCursor<Transition> cursor : node.transitionList) {
                         Transition transition = cursor.value;
                         if (transition.filter != null || transition.destination.typeSet != this) {
@@ -205,7 +226,7 @@ class TypeSet {
     }
 
     int typeCount() {
-        return smallTypes != null ? smallTypes.length : types != null ? typesCount : 0;
+        return typesCount;
     }
 
     void cleanup() {
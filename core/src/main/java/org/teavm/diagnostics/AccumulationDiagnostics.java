@@ -39,6 +39,21 @@ public class AccumulationDiagnostics implements Diagnostics, ProblemProvider {
         problems.add(problem);
     }
 
+    public void addAll(AccumulationDiagnostics other) {
+        problems.addAll(other.problems);
+        severeProblems.addAll(other.severeProblems);
+    }
+
+    public void forwardTo(Diagnostics diagnostics) {
+        for (Problem problem : problems) {
+            if (problem.getSeverity() == ProblemSeverity.ERROR) {
+                diagnostics.error(problem.getLocation(), problem.getText(), problem.getParams());
+            } else {
+                diagnostics.warning(problem.getLocation(), problem.getText(), problem.getParams());
+            }
+        }
+    }
+
     @Override
     public List<Problem> getProblems() {
         return readonlyProblems;
@@ -35,6 +35,7 @@ import org.teavm.common.DominatorTree;
 import org.teavm.common.Graph;
 import org.teavm.common.GraphBuilder;
 import org.teavm.common.GraphUtils;
+import org.teavm.interop.Address;
 import org.teavm.model.BasicBlock;
 import org.teavm.model.Incoming;
 import org.teavm.model.Instruction;
@@ -43,6 +44,7 @@ import org.teavm.model.MethodReference;
 import org.teavm.model.Phi;
 import org.teavm.model.Program;
 import org.teavm.model.Variable;
+import org.teavm.model.instructions.AssignInstruction;
 import org.teavm.model.instructions.CloneArrayInstruction;
 import org.teavm.model.instructions.ConstructArrayInstruction;
 import org.teavm.model.instructions.ConstructInstruction;
@@ -153,6 +155,7 @@ public class GCShadowStackContributor {
 
     private List<Map<Instruction, BitSet>> findCallSiteLiveIns(Program program, MethodReader method) {
         boolean[] nativePointers = nativePointerFinder.findNativePointers(method.getReference(), program);
+        int[] pointerOwners = findPointerOwners(program);
 
         TypeInferer typeInferer = new TypeInferer();
         typeInferer.inferTypes(program, method.getReference());
@@ -194,6 +197,11 @@ public class GCShadowStackContributor {
                             csLiveIn.clear(v);
                         }
                     }
+                    for (int v = currentLiveOut.nextSetBit(0); v >= 0; v = currentLiveOut.nextSetBit(v + 1)) {
+                        if (pointerOwners[v] >= 0) {
+                            csLiveIn.set(pointerOwners[v]);
+                        }
+                    }
                     csLiveIn.clear(0, method.parameterCount() + 1);
                     blockLiveIn.put(insn, csLiveIn);
                 }
@@ -206,6 +214,70 @@ public class GCShadowStackContributor {
         return liveInInformation;
     }
 
+    /**
+     * <p>Finds objects which raw pointers point into. Such pointers are obtained by {@link Address#ofData}
+     * or {@link Address#ofObject} and by address arithmetic on them. Whenever a pointer is live at a call site,
+     * the object it points into is put into shadow stack as well, even if there are no further usages
+     * of the object. This keeps object alive and prevents compacting GC from moving it.</p>
+     *
+     * @return for each variable, either index of variable that holds the object, or -1.
+     */
+    private int[] findPointerOwners(Program program) {
+        int[] owners = new int[program.variableCount()];
+        Arrays.fill(owners, -1);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : program.getBasicBlocks()) {
+                for (Phi phi : block.getPhis()) {
+                    int owner = -1;
+                    for (Incoming incoming : phi.getIncomings()) {
+                        int incomingOwner = owners[incoming.getValue().getIndex()];
+                        if (incomingOwner < 0 || (owner >= 0 && owner != incomingOwner)) {
+                            owner = -1;
+                            break;
+                        }
+                        owner = incomingOwner;
+                    }
+                    changed |= setPointerOwner(owners, phi.getReceiver(), owner);
+                }
+                for (Instruction instruction : block) {
+                    if (instruction instanceof AssignInstruction) {
+                        AssignInstruction assign = (AssignInstruction) instruction;
+                        changed |= setPointerOwner(owners, assign.getReceiver(),
+                                owners[assign.getAssignee().getIndex()]);
+                    } else if (instruction instanceof InvokeInstruction) {
+                        InvokeInstruction invoke = (InvokeInstruction) instruction;
+                        MethodReference method = invoke.getMethod();
+                        if (invoke.getReceiver() == null || !method.getClassName().equals(Address.class.getName())
+                                || !method.getReturnType().isObject(Address.class)) {
+                            continue;
+                        }
+                        if (method.getName().equals("ofData") || method.getName().equals("ofObject")) {
+                            changed |= setPointerOwner(owners, invoke.getReceiver(),
+                                    invoke.getArguments().get(0).getIndex());
+                        } else if (invoke.getInstance() != null) {
+                            changed |= setPointerOwner(owners, invoke.getReceiver(),
+                                    owners[invoke.getInstance().getIndex()]);
+                        } else if (!invoke.getArguments().isEmpty()) {
+                            changed |= setPointerOwner(owners, invoke.getReceiver(),
+                                    owners[invoke.getArguments().get(0).getIndex()]);
+                        }
+                    }
+                }
+            }
+        }
+        return owners;
+    }
+
+    private static boolean setPointerOwner(int[] owners, Variable pointer, int owner) {
+        if (owner < 0 || owners[pointer.getIndex()] == owner) {
+            return false;
+        }
+        owners[pointer.getIndex()] = owner;
+        return true;
+    }
+
     private Graph buildInterferenceGraph(List<Map<Instruction, BitSet>> liveInInformation, Program program,
             boolean[] spilled, int[] variableClasses) {
         GraphBuilder builder = new GraphBuilder(program.variableCount());
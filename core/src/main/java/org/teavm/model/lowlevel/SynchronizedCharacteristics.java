@@ -0,0 +1,49 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.lowlevel;
+
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.MethodReference;
+
+/**
+ * {@link Characteristics} that can be queried from several threads. Used only when code is generated
+ * in parallel, so that sequential generation does not pay for locking.
+ */
+public class SynchronizedCharacteristics extends Characteristics {
+    public SynchronizedCharacteristics(ClassReaderSource classSource) {
+        super(classSource);
+    }
+
+    @Override
+    public synchronized boolean isStructure(String className) {
+        return super.isStructure(className);
+    }
+
+    @Override
+    public synchronized boolean isStaticInit(String className) {
+        return super.isStaticInit(className);
+    }
+
+    @Override
+    public synchronized boolean isFunction(String className) {
+        return super.isFunction(className);
+    }
+
+    @Override
+    public synchronized boolean isManaged(MethodReference methodReference) {
+        return super.isManaged(methodReference);
+    }
+}
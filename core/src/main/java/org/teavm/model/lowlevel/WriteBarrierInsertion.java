@@ -0,0 +1,152 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.lowlevel;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.teavm.interop.Address;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.AbstractInstructionVisitor;
+import org.teavm.model.instructions.ArrayElementType;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.PutElementInstruction;
+import org.teavm.model.instructions.PutFieldInstruction;
+import org.teavm.model.instructions.UnwrapArrayInstruction;
+import org.teavm.runtime.GC;
+import org.teavm.runtime.RuntimeObject;
+
+/**
+ * <p>Inserts write barrier before each store of a reference into a field of an object or into an element
+ * of an array. Barrier is required by generational GC, which needs to know about old objects that may
+ * point to young ones, see {@link GC#writeBarrier(RuntimeObject)}.</p>
+ *
+ * <p>Unmanaged methods don't get barriers. They are part of runtime and either don't store references into heap
+ * objects, or are responsible for calling the barrier themselves (like reference queues in C). The only exception
+ * is <code>System.arraycopy</code>, which copies references in unmanaged code, so barrier on destination array is
+ * inserted before managed call to the copying method.</p>
+ *
+ * <p>Should be applied after optimizations and null check transformation, so that barrier neither
+ * prevents optimizations nor is called for null objects.</p>
+ */
+public class WriteBarrierInsertion {
+    private static final MethodReference WRITE_BARRIER = new MethodReference(GC.class, "writeBarrier",
+            RuntimeObject.class, void.class);
+    private static final MethodReference ARRAY_COPY = new MethodReference(System.class, "doArrayCopy",
+            Object.class, int.class, Object.class, int.class, int.class, void.class);
+    private static final MethodReference INVALIDATE_REMEMBERED_SET = new MethodReference(GC.class,
+            "invalidateRememberedSet", void.class);
+    private Characteristics characteristics;
+
+    public WriteBarrierInsertion(Characteristics characteristics) {
+        this.characteristics = characteristics;
+    }
+
+    public void apply(Program program, MethodReader method) {
+        if (!characteristics.isManaged(method.getReference())) {
+            return;
+        }
+
+        InsertionVisitor visitor = new InsertionVisitor(program);
+        for (BasicBlock block : program.getBasicBlocks()) {
+            for (Instruction instruction : block) {
+                instruction.acceptVisitor(visitor);
+            }
+        }
+    }
+
+    class InsertionVisitor extends AbstractInstructionVisitor {
+        private Program program;
+        private Map<Variable, Variable> unwrappedArrays;
+
+        InsertionVisitor(Program program) {
+            this.program = program;
+        }
+
+        @Override
+        public void visit(PutFieldInstruction insn) {
+            if (insn.getInstance() == null || characteristics.isStructure(insn.getField().getClassName())
+                    || !isReference(insn.getFieldType())) {
+                return;
+            }
+            insertBarrier(insn, insn.getInstance());
+        }
+
+        @Override
+        public void visit(InvokeInstruction insn) {
+            if (insn.getMethod().equals(ARRAY_COPY)) {
+                insertBarrier(insn, insn.getArguments().get(2));
+            }
+        }
+
+        @Override
+        public void visit(PutElementInstruction insn) {
+            if (insn.getType() != ArrayElementType.OBJECT) {
+                return;
+            }
+            insertBarrier(insn, getUnwrappedArrays().get(insn.getArray()));
+        }
+
+        private boolean isReference(ValueType type) {
+            if (type instanceof ValueType.Array) {
+                return true;
+            }
+            if (!(type instanceof ValueType.Object)) {
+                return false;
+            }
+            String className = ((ValueType.Object) type).getClassName();
+            return !className.equals(Address.class.getName()) && !characteristics.isStructure(className);
+        }
+
+        private void insertBarrier(Instruction instruction, Variable object) {
+            InvokeInstruction invocation = new InvokeInstruction();
+            invocation.setType(InvocationType.SPECIAL);
+            if (object != null) {
+                invocation.setMethod(WRITE_BARRIER);
+                invocation.setArguments(object);
+            } else {
+                // Can't find out which array is being modified, so let GC rescan entire heap
+                invocation.setMethod(INVALIDATE_REMEMBERED_SET);
+            }
+            invocation.setLocation(instruction.getLocation());
+            instruction.insertPrevious(invocation);
+        }
+
+        private Map<Variable, Variable> getUnwrappedArrays() {
+            if (unwrappedArrays == null) {
+                unwrappedArrays = new HashMap<>();
+                AbstractInstructionVisitor unwrapVisitor = new AbstractInstructionVisitor() {
+                    @Override
+                    public void visit(UnwrapArrayInstruction insn) {
+                        unwrappedArrays.put(insn.getReceiver(), insn.getArray());
+                    }
+                };
+                for (BasicBlock block : program.getBasicBlocks()) {
+                    for (Instruction instruction : block) {
+                        instruction.acceptVisitor(unwrapVisitor);
+                    }
+                }
+            }
+            return unwrappedArrays;
+        }
+    }
+}
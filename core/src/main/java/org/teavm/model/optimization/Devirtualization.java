@@ -15,9 +15,13 @@
  */
 package org.teavm.model.optimization;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.teavm.common.OptionalPredicate;
 import org.teavm.dependency.DependencyInfo;
@@ -26,30 +30,59 @@ import org.teavm.dependency.ValueDependencyInfo;
 import org.teavm.model.BasicBlock;
 import org.teavm.model.ClassHierarchy;
 import org.teavm.model.ClassReader;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.Incoming;
 import org.teavm.model.Instruction;
 import org.teavm.model.MethodHolder;
 import org.teavm.model.MethodReference;
+import org.teavm.model.Phi;
 import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
 import org.teavm.model.instructions.InvocationType;
 import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.IsInstanceInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.util.TransitionExtractor;
 
 public class Devirtualization {
     private DependencyInfo dependency;
     private ClassHierarchy hierarchy;
     private Set<MethodReference> virtualMethods = new HashSet<>();
     private Set<? extends MethodReference> readonlyVirtualMethods = Collections.unmodifiableSet(virtualMethods);
+    private int guardedDispatchLimit;
 
     public Devirtualization(DependencyInfo dependency, ClassHierarchy hierarchy) {
         this.dependency = dependency;
         this.hierarchy = hierarchy;
     }
 
+    /**
+     * <p>Specifies maximum number of implementations a call site may have to be replaced by a sequence of
+     * type checks, each followed by a direct call of an implementation. Such call sites do not go through
+     * virtual dispatch and calls can later be inlined.</p>
+     *
+     * <p>Implementations are checked starting from the most derived class, the least derived one is called
+     * without a check. Call sites with implementations declared in interfaces, call sites that receive arrays
+     * and call sites within <code>try</code> blocks are left as is.</p>
+     *
+     * @param guardedDispatchLimit maximum number of implementations. Values less than 2 disable guarded
+     * dispatch, which is the default.
+     */
+    public void setGuardedDispatchLimit(int guardedDispatchLimit) {
+        this.guardedDispatchLimit = guardedDispatchLimit;
+    }
+
     public void apply(MethodHolder method) {
         MethodDependencyInfo methodDep = dependency.getMethod(method.getReference());
         if (methodDep == null) {
             return;
         }
         Program program = method.getProgram();
+        List<InvokeInstruction> guardedInvocations = new ArrayList<>();
+        List<List<MethodReference>> guardedImplementations = new ArrayList<>();
         for (int i = 0; i < program.basicBlockCount(); ++i) {
             BasicBlock block = program.basicBlockAt(i);
             for (Instruction insn : block) {
@@ -66,11 +99,136 @@ public class Devirtualization {
                 if (implementations.size() == 1) {
                     invoke.setType(InvocationType.SPECIAL);
                     invoke.setMethod(implementations.iterator().next());
+                } else if (canGuard(block, var.getTypes(), implementations)) {
+                    guardedInvocations.add(invoke);
+                    guardedImplementations.add(sortByDepth(implementations));
                 } else {
                     virtualMethods.addAll(implementations);
                 }
             }
         }
+
+        for (int i = 0; i < guardedInvocations.size(); ++i) {
+            insertGuards(program, guardedInvocations.get(i), guardedImplementations.get(i));
+        }
+    }
+
+    private boolean canGuard(BasicBlock block, String[] classNames, Set<MethodReference> implementations) {
+        if (implementations.size() < 2 || implementations.size() > guardedDispatchLimit
+                || !block.getTryCatchBlocks().isEmpty()) {
+            return false;
+        }
+        for (String className : classNames) {
+            if (className.startsWith("[")) {
+                return false;
+            }
+        }
+        for (MethodReference implementation : implementations) {
+            ClassReader cls = hierarchy.getClassSource().get(implementation.getClassName());
+            if (cls == null || cls.hasModifier(ElementModifier.INTERFACE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<MethodReference> sortByDepth(Set<MethodReference> implementations) {
+        // Implementation found in a class always overrides implementations found in its superclasses,
+        // so checking deeper classes first guarantees that the first matching check selects the right method
+        Map<MethodReference, Integer> depths = new HashMap<>();
+        for (MethodReference implementation : implementations) {
+            int depth = 0;
+            ClassReader cls = hierarchy.getClassSource().get(implementation.getClassName());
+            while (cls != null && cls.getParent() != null) {
+                ++depth;
+                cls = hierarchy.getClassSource().get(cls.getParent());
+            }
+            depths.put(implementation, depth);
+        }
+        List<MethodReference> result = new ArrayList<>(implementations);
+        result.sort((a, b) -> Integer.compare(depths.get(b), depths.get(a)));
+        return result;
+    }
+
+    private void insertGuards(Program program, InvokeInstruction invoke, List<MethodReference> implementations) {
+        BasicBlock block = invoke.getBasicBlock();
+        BasicBlock continueBlock = program.createBasicBlock();
+        while (invoke.getNext() != null) {
+            Instruction nextInstruction = invoke.getNext();
+            nextInstruction.delete();
+            continueBlock.add(nextInstruction);
+        }
+        Instruction lastInstruction = continueBlock.getLastInstruction();
+        if (lastInstruction != null) {
+            TransitionExtractor transitionExtractor = new TransitionExtractor();
+            lastInstruction.acceptVisitor(transitionExtractor);
+            if (transitionExtractor.getTargets() != null) {
+                for (BasicBlock successor : transitionExtractor.getTargets()) {
+                    for (Phi phi : successor.getPhis()) {
+                        for (Incoming incoming : phi.getIncomings()) {
+                            if (incoming.getSource() == block) {
+                                incoming.setSource(continueBlock);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        Phi resultPhi = null;
+        if (invoke.getReceiver() != null) {
+            resultPhi = new Phi();
+            resultPhi.setReceiver(invoke.getReceiver());
+            continueBlock.getPhis().add(resultPhi);
+        }
+        invoke.delete();
+
+        BasicBlock guardBlock = block;
+        for (int i = 0; i < implementations.size(); ++i) {
+            MethodReference implementation = implementations.get(i);
+            boolean last = i == implementations.size() - 1;
+            BasicBlock callBlock = last ? guardBlock : program.createBasicBlock();
+
+            InvokeInstruction call = new InvokeInstruction();
+            call.setType(InvocationType.SPECIAL);
+            call.setMethod(implementation);
+            call.setInstance(invoke.getInstance());
+            call.setArguments(invoke.getArguments().toArray(new Variable[0]));
+            call.setLocation(invoke.getLocation());
+            if (resultPhi != null) {
+                Variable result = program.createVariable();
+                call.setReceiver(result);
+                Incoming incoming = new Incoming();
+                incoming.setSource(callBlock);
+                incoming.setValue(result);
+                resultPhi.getIncomings().add(incoming);
+            }
+            callBlock.add(call);
+
+            JumpInstruction jump = new JumpInstruction();
+            jump.setTarget(continueBlock);
+            jump.setLocation(invoke.getLocation());
+            callBlock.add(jump);
+
+            if (!last) {
+                Variable condition = program.createVariable();
+                IsInstanceInstruction isInstance = new IsInstanceInstruction();
+                isInstance.setValue(invoke.getInstance());
+                isInstance.setType(ValueType.object(implementation.getClassName()));
+                isInstance.setReceiver(condition);
+                isInstance.setLocation(invoke.getLocation());
+                guardBlock.add(isInstance);
+
+                BasicBlock nextGuardBlock = program.createBasicBlock();
+                BranchingInstruction branch = new BranchingInstruction(BranchingCondition.NOT_EQUAL);
+                branch.setOperand(condition);
+                branch.setConsequent(callBlock);
+                branch.setAlternative(nextGuardBlock);
+                branch.setLocation(invoke.getLocation());
+                guardBlock.add(branch);
+                guardBlock = nextGuardBlock;
+            }
+        }
     }
 
     private Set<MethodReference> getImplementations(String[] classNames, MethodReference ref) {
@@ -0,0 +1,30 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.parsing;
+
+/**
+ * Provides hashes of class files contents. Unlike {@link ClassDateProvider}, hashes do not depend on file system
+ * or time when classes were compiled, so they can be used to identify cache entries across different machines.
+ */
+public interface ClassHashProvider {
+    /**
+     * Computes hash of class file.
+     *
+     * @param className name of class.
+     * @return hash of class file contents, or {@code null} if class file is not available.
+     */
+    String getClassHash(String className);
+}
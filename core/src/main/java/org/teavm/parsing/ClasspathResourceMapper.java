@@ -23,13 +23,15 @@ import java.net.URL;
 import java.util.*;
 import java.util.function.Function;
 import org.teavm.common.CachedFunction;
+import org.teavm.common.HashUtils;
 import org.teavm.model.ClassHolder;
 import org.teavm.model.FieldHolder;
 import org.teavm.model.MethodHolder;
 import org.teavm.model.ReferenceCache;
 import org.teavm.vm.spi.ElementFilter;
 
-public class ClasspathResourceMapper implements Function<String, ClassHolder>, ClassDateProvider {
+public class ClasspathResourceMapper implements Function<String, ClassHolder>, ClassDateProvider,
+        ClassHashProvider {
     private static final String PACKAGE_PREFIX = "packagePrefix.";
     private static final String CLASS_PREFIX = "classPrefix.";
     private Function<String, ClassHolder> innerMapper;
@@ -37,6 +39,7 @@ public class ClasspathResourceMapper implements Function<String, ClassHolder>, C
     private ClassRefsRenamer renamer;
     private ClassLoader classLoader;
     private Map<String, ModificationDate> modificationDates = new HashMap<>();
+    private Map<String, ClassHash> classHashes = new HashMap<>();
     private ReferenceCache referenceCache;
     private List<ElementFilter> elementFilters = new ArrayList<>();
 
@@ -185,12 +188,35 @@ public class ClasspathResourceMapper implements Function<String, ClassHolder>, C
         if (mdate == null) {
             mdate = new ModificationDate();
             modificationDates.put(className, mdate);
-            mdate.date = calculateModificationDate(className);
+            mdate.date = findOriginalClass(className, this::getOriginalModificationDate);
         }
         return mdate.date;
     }
 
-    private Date calculateModificationDate(String className) {
+    @Override
+    public String getClassHash(String className) {
+        ClassHash hash = classHashes.get(className);
+        if (hash == null) {
+            hash = new ClassHash();
+            classHashes.put(className, hash);
+            hash.hash = findOriginalClass(className, this::getOriginalClassHash);
+        }
+        return hash.hash;
+    }
+
+    private String getOriginalClassHash(String className) {
+        if (classLoader == null) {
+            return null;
+        }
+        try (InputStream input = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            return input != null ? HashUtils.sha256(input) : null;
+        } catch (IOException e) {
+            // If class file can't be read, we just report that class should be reparsed
+            return null;
+        }
+    }
+
+    private <T> T findOriginalClass(String className, Function<String, T> lookup) {
         int dotIndex = className.lastIndexOf('.');
         String packageName;
         String simpleName;
@@ -204,13 +230,13 @@ public class ClasspathResourceMapper implements Function<String, ClassHolder>, C
         for (Transformation transformation : transformations) {
             if (packageName.startsWith(transformation.packageName)) {
                 String fullName = transformation.packagePrefix + packageName + transformation.classPrefix + simpleName;
-                Date date = getOriginalModificationDate(fullName);
-                if (date != null) {
-                    return date;
+                T result = lookup.apply(fullName);
+                if (result != null) {
+                    return result;
                 }
             }
         }
-        return getOriginalModificationDate(className);
+        return lookup.apply(className);
     }
 
     private Date getOriginalModificationDate(String className) {
@@ -242,4 +268,8 @@ public class ClasspathResourceMapper implements Function<String, ClassHolder>, C
     static class ModificationDate {
         Date date;
     }
+
+    static class ClassHash {
+        String hash;
+    }
 }
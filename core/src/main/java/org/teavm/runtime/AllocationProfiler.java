@@ -0,0 +1,215 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.runtime;
+
+import org.teavm.interop.Address;
+import org.teavm.interop.StaticInit;
+import org.teavm.interop.Structure;
+import org.teavm.interop.Unmanaged;
+
+/**
+ * <p>Records call stacks of sampled allocations. GC samples an allocation every
+ * {@link GC#allocationSampleInterval()} bytes, and the profiler attributes these bytes to the stack of call
+ * sites that led to the allocation. Identical stacks are accumulated in a hash table that lives outside of
+ * heap, since profiler is called by allocator and can't allocate itself.</p>
+ *
+ * <p>Stacks are stored as pointers to {@link CallSite} structures and are resolved to method names only when
+ * profile is written, in collapsed stacks format (one line per stack, frames separated by semicolons, followed
+ * by number of bytes), which is understood by flame graph tools.</p>
+ */
+@Unmanaged
+@StaticInit
+public final class AllocationProfiler {
+    private static final int MAX_DEPTH = 64;
+    private static Address storage;
+    private static int entrySize;
+    private static int capacity;
+    private static int entryCount;
+    private static long unattributedBytes;
+    private static int sampleCount;
+    private static long sampledBytes;
+
+    private AllocationProfiler() {
+    }
+
+    static native boolean enabled();
+
+    private static native Address storageAddress();
+
+    private static native int storageSize();
+
+    private static native void beginOutput();
+
+    private static native void writeString(String s);
+
+    private static native void writeLong(long value);
+
+    private static native void endOutput();
+
+    static {
+        if (enabled()) {
+            storage = storageAddress();
+            entrySize = Structure.sizeOf(Entry.class) + MAX_DEPTH * Address.sizeOf();
+            capacity = storageSize() / entrySize;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled();
+    }
+
+    public static int getSampleInterval() {
+        return GC.allocationSampleInterval();
+    }
+
+    /**
+     * Gets number of allocation samples recorded so far, including ones that could not be attributed to a stack.
+     *
+     * @return number of samples.
+     */
+    public static int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Gets total number of bytes that recorded samples stand for. Since every sample stands for a multiple of
+     * {@link #getSampleInterval()} bytes, this differs from number of actually allocated bytes by less than
+     * one interval.
+     *
+     * @return size in bytes.
+     */
+    public static long getSampledBytes() {
+        return sampledBytes;
+    }
+
+    static void sample(int size) {
+        sampleCount++;
+        sampledBytes += size;
+
+        // First entry is not a part of hash table, it's used to collect current stack
+        Entry current = storage.toStructure();
+        Address frames = framesOf(current);
+        int depth = 0;
+        int hash = 0;
+        Address stackFrame = ShadowStack.getStackTop();
+        while (stackFrame != null && depth < MAX_DEPTH) {
+            int callSiteId = ShadowStack.getCallSiteId(stackFrame);
+            Address callSite = ExceptionHandling.findCallSiteById(callSiteId, stackFrame).toAddress();
+            frames.add(depth * Address.sizeOf()).putAddress(callSite);
+            hash = hash * 31 + callSite.toInt();
+            depth++;
+            stackFrame = ShadowStack.getNextStackFrame(stackFrame);
+        }
+
+        int tableSize = capacity - 1;
+        if (depth == 0 || tableSize <= 0) {
+            unattributedBytes += size;
+            return;
+        }
+
+        int index = (hash & Integer.MAX_VALUE) % tableSize;
+        while (true) {
+            Entry entry = entryAt(index + 1);
+            if (entry.depth == 0) {
+                if (entryCount * 4 >= tableSize * 3) {
+                    unattributedBytes += size;
+                    return;
+                }
+                entry.hash = hash;
+                entry.depth = depth;
+                entry.bytes = size;
+                Address entryFrames = framesOf(entry);
+                for (int i = 0; i < depth; ++i) {
+                    int offset = i * Address.sizeOf();
+                    entryFrames.add(offset).putAddress(frames.add(offset).getAddress());
+                }
+                entryCount++;
+                return;
+            }
+            if (entry.hash == hash && entry.depth == depth && sameFrames(framesOf(entry), frames, depth)) {
+                entry.bytes += size;
+                return;
+            }
+            index = (index + 1) % tableSize;
+        }
+    }
+
+    private static boolean sameFrames(Address first, Address second, int depth) {
+        for (int i = 0; i < depth; ++i) {
+            int offset = i * Address.sizeOf();
+            if (first.add(offset).getAddress() != second.add(offset).getAddress()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Entry entryAt(int index) {
+        return storage.add(index * entrySize).toStructure();
+    }
+
+    private static Address framesOf(Entry entry) {
+        return entry.toAddress().add(Structure.sizeOf(Entry.class));
+    }
+
+    public static void dump() {
+        if (!enabled()) {
+            return;
+        }
+        beginOutput();
+        for (int i = 1; i < capacity; ++i) {
+            Entry entry = entryAt(i);
+            if (entry.depth == 0) {
+                continue;
+            }
+            Address frames = framesOf(entry);
+            for (int j = entry.depth - 1; j >= 0; --j) {
+                CallSite callSite = frames.add(j * Address.sizeOf()).getAddress().toStructure();
+                writeFrame(callSite);
+                if (j > 0) {
+                    writeString(";");
+                }
+            }
+            writeString(" ");
+            writeLong(entry.bytes);
+            writeString("\n");
+        }
+        if (unattributedBytes > 0) {
+            writeString("(unknown) ");
+            writeLong(unattributedBytes);
+            writeString("\n");
+        }
+        endOutput();
+    }
+
+    private static void writeFrame(CallSite callSite) {
+        CallSiteLocation location = callSite.location;
+        MethodLocation method = location != null ? location.method : null;
+        if (method == null || method.className == null || method.methodName == null) {
+            writeString("(Unknown method)");
+        } else {
+            writeString(method.className.value);
+            writeString(".");
+            writeString(method.methodName.value);
+        }
+    }
+
+    static class Entry extends Structure {
+        int hash;
+        int depth;
+        long bytes;
+    }
+}
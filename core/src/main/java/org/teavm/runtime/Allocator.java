@@ -28,7 +28,10 @@ public final class Allocator {
     public static Address allocate(RuntimeClass tag) {
         RuntimeObject object = GC.alloc(tag.size);
         fillZero(object.toAddress(), tag.size);
-        object.classReference = tag.pack();
+        object.classReference = tag.pack() | GC.allocationFlags;
+        if (GC.allocationSampleInterval() > 0) {
+            GC.sampleAllocation(tag, tag.size);
+        }
         return object.toAddress();
     }
 
@@ -41,8 +44,11 @@ public final class Allocator {
         fillZero(result, sizeInBytes);
 
         RuntimeArray array = result.toStructure();
-        array.classReference = tag.pack();
+        array.classReference = tag.pack() | GC.allocationFlags;
         array.size = size;
+        if (GC.allocationSampleInterval() > 0) {
+            GC.sampleAllocation(tag, sizeInBytes);
+        }
 
         return result;
     }
@@ -33,6 +33,66 @@ public final class GC {
     static int freeChunks;
     static int freeMemory = (int) availableBytes();
     static RuntimeReference firstWeakReference;
+    static int chunkCount;
+    static long initialHeapSize = availableBytes();
+
+    private static final int MIN_FREE_PERCENT = 30;
+    private static final int MAX_FREE_PERCENT = 70;
+    private static final int TARGET_FREE_PERCENT = 50;
+
+    // Young generation does not move objects. Surviving young objects are promoted in place, and minor
+    // collection sweeps chunks allocated since the previous collection. A copying nursery would have to pin
+    // objects referenced from shadow stack, like compaction does, since generated code keeps references in local
+    // variables after spilling them. Right after allocation most young survivors are exactly such objects,
+    // so they would be promoted in place anyway. Fragmentation left by promotion in place is handled by
+    // compaction of the whole heap.
+    private static final int NURSERY_FRACTION = 8;
+    static boolean minorCollection;
+    static boolean majorCollectionRequested;
+    static int nurseryRemaining;
+    static Address allocationMark;
+    static Address rememberedSetTop;
+    static Address rememberedSetLimit;
+    static boolean rememberedSetValid;
+    static FreeChunkHolder youngChunks;
+    static int youngChunkCount;
+
+    private static final int GC_IDLE = 0;
+    private static final int GC_MARKING = 1;
+    private static final int GC_SWEEPING = 2;
+    private static final int INCREMENTAL_START_FRACTION = 4;
+    private static final int INCREMENTAL_SLICE_FRACTION = 64;
+    static int gcPhase;
+    static int allocationFlags;
+    static int incrementalRemaining;
+    static boolean rescanRequired;
+    static Address sweepCursor;
+    static FreeChunk sweepFreeSpace;
+    static FreeChunkHolder sweepChunkPointer;
+    static RuntimeReference lastWeakReference;
+
+    private static final int MIN_REGIONS_PER_SWEEP_TASK = 64;
+    static SweepTask sweepTasks;
+
+    // Mark bit is not used after sweep, so compaction reuses it to flag objects that can't be moved
+    private static final int GC_PINNED = RuntimeObject.GC_MARKED;
+    private static final int FRAGMENTATION_THRESHOLD_PERCENT = 75;
+    private static final int MAX_FREE_CHUNK_SIZE = 1 << 30;
+    static Address forwardingTable;
+    static int forwardingCount;
+
+    static int collectionCount;
+    static long lastPauseTime;
+    static long maxPauseTime;
+    static long totalPauseTime;
+    static int minorCollectionCount;
+    static int compactionCount;
+    static long allocatedBytes;
+    static int allocationSampleRemaining = allocationSampleInterval();
+
+    private static final int PAUSE_MINOR = 0;
+    private static final int PAUSE_MAJOR = 1;
+    private static final int PAUSE_INCREMENTAL = 2;
 
     static native Address gcStorageAddress();
 
@@ -46,8 +106,33 @@ public final class GC {
 
     public static native long availableBytes();
 
+    public static native long maxAvailableBytes();
+
+    private static native boolean resizeHeap(long size);
+
     private static native int regionSize();
 
+    private static native boolean generational();
+
+    private static native boolean incremental();
+
+    private static native int sliceTime();
+
+    private static native boolean compacting();
+
+    private static native int sweepThreadCount();
+
+    private static native boolean telemetry();
+
+    static native int allocationSampleInterval();
+
+    private static native void reportCollection(int kind, long pauseTime, long heapSize, long freeMemory,
+            long largestFreeChunk, long allocatedBytes);
+
+    private static native void reportAllocationSample(RuntimeClass cls, int size);
+
+    private static native void runSweepTasks(int count);
+
     @Import(name = "teavm_outOfMemory")
     private static native void outOfMemory();
 
@@ -55,6 +140,172 @@ public final class GC {
         return freeMemory;
     }
 
+    /**
+     * Tells whether incremental marking is in progress, i.e. whether mutator runs between marking slices
+     * and write barrier has to preserve marking invariant.
+     *
+     * @return {@code true} if incremental cycle is in its marking phase.
+     */
+    public static boolean isMarkingInProgress() {
+        return gcPhase == GC_MARKING;
+    }
+
+    /**
+     * Gets number of garbage collection cycles completed so far, including minor and incremental ones.
+     *
+     * @return number of collections.
+     */
+    public static int getCollectionCount() {
+        return collectionCount;
+    }
+
+    /**
+     * Gets duration of the last GC pause. In incremental mode a pause is a single slice of work, so this
+     * is normally bounded by configured slice time.
+     *
+     * @return pause time in milliseconds.
+     */
+    public static long getLastPauseTime() {
+        return lastPauseTime;
+    }
+
+    /**
+     * Gets duration of the longest GC pause so far.
+     *
+     * @return pause time in milliseconds.
+     */
+    public static long getMaxPauseTime() {
+        return maxPauseTime;
+    }
+
+    /**
+     * Gets total time spent in GC pauses so far.
+     *
+     * @return time in milliseconds.
+     */
+    public static long getTotalPauseTime() {
+        return totalPauseTime;
+    }
+
+    /**
+     * Gets number of minor collections performed by generational GC so far.
+     *
+     * @return number of minor collections.
+     */
+    public static int getMinorCollectionCount() {
+        return minorCollectionCount;
+    }
+
+    /**
+     * Gets number of times heap was compacted so far.
+     *
+     * @return number of compactions.
+     */
+    public static int getCompactionCount() {
+        return compactionCount;
+    }
+
+    /**
+     * Gets total size of objects allocated since program start.
+     *
+     * @return size in bytes.
+     */
+    public static long getAllocatedBytes() {
+        return allocatedBytes + (currentChunk.toAddress().toLong() - allocationMark.toLong());
+    }
+
+    /**
+     * Gets size of the free chunk objects are currently allocated from. An object of exactly this size
+     * takes the whole chunk.
+     *
+     * @return size in bytes.
+     */
+    public static int getCurrentChunkSize() {
+        return currentChunk.size;
+    }
+
+    /**
+     * Gets size of the largest free chunk, i.e. the largest object that can be allocated without collection.
+     * Together with {@link #getFreeMemory()} this shows how fragmented heap is.
+     *
+     * @return size in bytes.
+     */
+    public static int getLargestFreeChunk() {
+        int result = 0;
+        FreeChunkHolder freeChunkPtr = currentChunkPointer;
+        for (int i = 0; i < freeChunks; ++i) {
+            FreeChunk chunk = i == 0 ? currentChunk : freeChunkPtr.value;
+            if (chunk.size > result) {
+                result = chunk.size;
+            }
+            freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+        }
+        return result;
+    }
+
+    public static int getRegionSize() {
+        return regionSize();
+    }
+
+    public static int getRegionCount() {
+        return (int) ((availableBytes() - 1) / regionSize()) + 1;
+    }
+
+    /**
+     * Computes how many bytes are occupied by objects in each region of heap. Objects that were not reclaimed
+     * yet are counted as well.
+     *
+     * @param target array of ints to write result to.
+     * @param count number of regions to compute, extra regions are ignored.
+     */
+    public static void computeRegionOccupancy(Address target, int count) {
+        Allocator.fillZero(target, count * 4);
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            Address next = object.toAddress().add(objectSize(object));
+            if (object.classReference != 0) {
+                Address position = object.toAddress();
+                while (position.isLessThan(next)) {
+                    long offset = position.toLong() - heapAddress().toLong();
+                    int region = (int) (offset / regionSize());
+                    if (region >= count) {
+                        return;
+                    }
+                    Address regionEnd = heapAddress().add((long) (region + 1) * regionSize());
+                    Address end = next.isLessThan(regionEnd) ? next : regionEnd;
+                    Address counter = target.add(region * 4);
+                    counter.putInt(counter.getInt() + (int) (end.toLong() - position.toLong()));
+                    position = end;
+                }
+            }
+            object = next.toStructure();
+        }
+    }
+
+    /**
+     * Accounts allocation of an object for telemetry. Every time about {@link #allocationSampleInterval()} bytes
+     * get allocated, the class of allocated object is reported together with the number of bytes the sample
+     * stands for.
+     *
+     * @param cls class of allocated object.
+     * @param size size of allocated object.
+     */
+    static void sampleAllocation(RuntimeClass cls, int size) {
+        allocationSampleRemaining -= size;
+        if (allocationSampleRemaining <= 0) {
+            int interval = allocationSampleInterval();
+            int sampledSize = (-allocationSampleRemaining / interval + 1) * interval;
+            allocationSampleRemaining += sampledSize;
+            if (telemetry()) {
+                reportAllocationSample(cls, sampledSize);
+            }
+            if (AllocationProfiler.enabled()) {
+                AllocationProfiler.sample(sampledSize);
+            }
+        }
+    }
+
     static {
         currentChunk = heapAddress().toStructure();
         currentChunk.classReference = 0;
@@ -63,6 +314,9 @@ public final class GC {
         currentChunkPointer = gcStorageAddress().toStructure();
         currentChunkPointer.value = currentChunk;
         freeChunks = 1;
+        chunkCount = 1;
+        resetNursery();
+        resetIncrementalThreshold();
         getAvailableChunkIfPossible(0);
     }
 
@@ -80,6 +334,9 @@ public final class GC {
             currentChunk = next.toStructure();
             currentChunk.size = freeSize;
         } else {
+            // Object fills the whole chunk, so bump pointer does not move past it and allocation mark
+            // can't account it when allocator switches to the next chunk
+            countAllocation(size);
             freeMemory -= size;
             getAvailableChunkIfPossible(currentChunk.size + 1);
         }
@@ -89,14 +346,60 @@ public final class GC {
     }
 
     private static void getAvailableChunk(int size) {
+        boolean major = false;
+        if (incremental()) {
+            if (getAvailableChunkIncrementally(size)) {
+                return;
+            }
+        } else if (generational()) {
+            updateAllocationCounters();
+            if (nurseryRemaining >= size && getAvailableChunkIfPossible(size)) {
+                return;
+            }
+            major = collectYoungGarbage();
+        }
         if (getAvailableChunkIfPossible(size)) {
             return;
         }
-        collectGarbage(size);
-        if (!getAvailableChunkIfPossible(size)) {
-            ExceptionHandling.printStack();
-            outOfMemory();
+        if (!major) {
+            collectGarbage(size);
+            if (getAvailableChunkIfPossible(size)) {
+                return;
+            }
+        } else if (availableBytes() < maxAvailableBytes()) {
+            // Major collection started by minor one did not know size of requested object, so could not grow heap
+            collectGarbage(size);
+            if (getAvailableChunkIfPossible(size)) {
+                return;
+            }
         }
+        ExceptionHandling.printStack();
+        outOfMemory();
+    }
+
+    private static boolean getAvailableChunkIncrementally(int size) {
+        updateAllocationCounters();
+        if (incrementalRemaining <= 0) {
+            incrementalStep();
+        }
+        while (true) {
+            if (getAvailableChunkIfPossible(size)) {
+                return true;
+            }
+            if (gcPhase != GC_SWEEPING) {
+                break;
+            }
+            // Free chunks are produced by lazy sweeping, so sweep more
+            incrementalStep();
+        }
+        if (gcPhase == GC_MARKING) {
+            // Mutator got ahead of GC, so finish current cycle in one pause
+            long start = System.currentTimeMillis();
+            completeIncrementalCycle();
+            recordPause(start, PAUSE_INCREMENTAL);
+            return getAvailableChunkIfPossible(size);
+        }
+        return false;
     }
 
     private static boolean getAvailableChunkIfPossible(int size) {
@@ -104,35 +407,390 @@ public final class GC {
             return false;
         }
         while (true) {
-            if (currentChunk.toAddress().add(size) == currentChunkLimit) {
+            Address chunkEnd = currentChunk.toAddress().add(currentChunk.size);
+            if (currentChunk.toAddress().add(size) == chunkEnd) {
                 break;
             }
-            if (currentChunk.toAddress().add(size + Structure.sizeOf(FreeChunk.class)).isLessThan(currentChunkLimit)) {
+            if (currentChunk.toAddress().add(size + Structure.sizeOf(FreeChunk.class)).isLessThan(chunkEnd)) {
                 break;
             }
             if (--freeChunks == 0) {
                 return false;
             }
+            updateAllocationCounters();
             freeMemory -= currentChunk.size;
             currentChunkPointer = Structure.add(FreeChunkHolder.class, currentChunkPointer, 1);
             currentChunk = currentChunkPointer.value;
-            currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+            allocationMark = currentChunk.toAddress();
         }
+        updateChunkLimit();
         return true;
     }
 
+    private static void updateAllocationCounters() {
+        countAllocation((int) (currentChunk.toAddress().toLong() - allocationMark.toLong()));
+        allocationMark = currentChunk.toAddress();
+    }
+
+    private static void countAllocation(int size) {
+        allocatedBytes += size;
+        nurseryRemaining -= size;
+        incrementalRemaining -= size;
+    }
+
+    private static void updateChunkLimit() {
+        currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        int remaining;
+        if (generational()) {
+            remaining = nurseryRemaining;
+        } else if (incremental()) {
+            remaining = incrementalRemaining;
+        } else {
+            return;
+        }
+
+        // Stop bump pointer allocation when nursery is exhausted or when it's time for the next incremental
+        // step, so that slow path can trigger collection in time.
+        if (remaining < 0) {
+            remaining = 0;
+        }
+        Address limit = currentChunk.toAddress().add(remaining + Structure.sizeOf(FreeChunk.class));
+        if (limit.isLessThan(currentChunkLimit)) {
+            currentChunkLimit = limit;
+        }
+    }
+
+    private static void resetIncrementalThreshold() {
+        incrementalRemaining = freeMemory - (int) (availableBytes() / INCREMENTAL_START_FRACTION);
+    }
+
+    private static int nurserySize() {
+        return (int) (availableBytes() / NURSERY_FRACTION);
+    }
+
+    private static void resetNursery() {
+        nurseryRemaining = nurserySize();
+        allocationMark = currentChunk.toAddress();
+
+        int storageSize = gcStorageSize() / Address.sizeOf() * Address.sizeOf();
+        rememberedSetTop = gcStorageAddress().add(storageSize);
+        rememberedSetLimit = gcStorageAddress().add(storageSize - storageSize / 4);
+        Address chunksEnd = gcStorageAddress().add(chunkCount * Address.sizeOf());
+        if (rememberedSetLimit.isLessThan(chunksEnd)) {
+            rememberedSetLimit = chunksEnd;
+        }
+        rememberedSetValid = true;
+        majorCollectionRequested = false;
+    }
+
+    /**
+     * <p>Notifies GC that a reference is going to be written to a field of the given object or to an element
+     * of the given array. Compiler inserts calls to this method when generational or incremental GC is
+     * enabled.</p>
+     *
+     * <p>Old objects that got a reference to possibly young object are put into remembered set, which
+     * is used as an additional set of roots by minor collection. Each old object is remembered only once
+     * between collections.</p>
+     *
+     * <p>While incremental marking is in progress, already marked objects are put back into mark queue,
+     * so that references written into them get marked as well.</p>
+     *
+     * @param object object which is being modified.
+     */
+    public static void writeBarrier(RuntimeObject object) {
+        if (object == null) {
+            return;
+        }
+        int tag = object.classReference;
+        if (gcPhase == GC_MARKING) {
+            if ((tag & RuntimeObject.GC_MARKED) != 0) {
+                markAgain(object);
+            }
+        } else if ((tag & (RuntimeObject.GC_OLD | RuntimeObject.GC_REMEMBERED)) == RuntimeObject.GC_OLD) {
+            remember(object);
+        }
+    }
+
+    /**
+     * Notifies GC that some object was modified, but it's not known which one, so the next collection
+     * should be major, and incremental marking in progress should rescan all marked objects.
+     */
+    public static void invalidateRememberedSet() {
+        rememberedSetValid = false;
+        if (gcPhase == GC_MARKING) {
+            rescanRequired = true;
+        }
+    }
+
+    private static void markAgain(RuntimeObject object) {
+        if (MarkQueue.isFull()) {
+            rescanRequired = true;
+            return;
+        }
+        object.classReference &= ~RuntimeObject.GC_MARKED;
+        MarkQueue.enqueue(object);
+    }
+
+    private static void remember(RuntimeObject object) {
+        object.classReference |= RuntimeObject.GC_REMEMBERED;
+        Address top = rememberedSetTop.add(-Address.sizeOf());
+        if (top.isLessThan(rememberedSetLimit)) {
+            rememberedSetValid = false;
+            return;
+        }
+        top.putAddress(object.toAddress());
+        rememberedSetTop = top;
+    }
+
     public static boolean collectGarbage(int size) {
+        long start = System.currentTimeMillis();
+        updateAllocationCounters();
+        if (gcPhase != GC_IDLE) {
+            completeIncrementalCycle();
+        }
         mark();
         processReferences();
         sweep();
+        if (compacting()) {
+            compactIfFragmented(size);
+        }
         updateFreeMemory();
+        adjustHeapSize(size);
+        resetNursery();
+        resetIncrementalThreshold();
+        updateChunkLimit();
+        collectionCount++;
+        recordPause(start, PAUSE_MAJOR);
         return true;
     }
 
+    private static boolean collectYoungGarbage() {
+        if (!rememberedSetValid || majorCollectionRequested || !prepareMinorCollection()) {
+            collectGarbage(0);
+            return true;
+        }
+
+        long start = System.currentTimeMillis();
+        minorCollection = true;
+        markYoung();
+        processReferences();
+        sweepYoung();
+        minorCollection = false;
+
+        updateFreeMemory();
+        resetNursery();
+        updateChunkLimit();
+        if (freeMemory < nurserySize()) {
+            majorCollectionRequested = true;
+        }
+        collectionCount++;
+        minorCollectionCount++;
+        recordPause(start, PAUSE_MINOR);
+        return false;
+    }
+
+    private static boolean prepareMinorCollection() {
+        int storageCapacity = gcStorageSize() / Address.sizeOf();
+        Address chunksCopy = rememberedSetTop.add(-chunkCount * Address.sizeOf());
+        int queueCapacity = (int) ((chunksCopy.toLong() - gcStorageAddress().toLong()) / Address.sizeOf());
+        if (queueCapacity < storageCapacity / 2) {
+            return false;
+        }
+
+        // Free chunks that were used for allocation since the last collection contain all young objects.
+        // Move list of chunks out of the way of mark queue, since sweep needs it.
+        youngChunkCount = (int) ((currentChunkPointer.toAddress().toLong() - gcStorageAddress().toLong())
+                / Address.sizeOf()) + 1;
+        Allocator.moveMemoryBlock(gcStorageAddress(), chunksCopy, chunkCount * Address.sizeOf());
+        youngChunks = chunksCopy.toStructure();
+        MarkQueue.init(queueCapacity);
+        return true;
+    }
+
+    private static void markYoung() {
+        firstWeakReference = null;
+        lastWeakReference = null;
+        markRoots();
+        drainMarkQueue();
+
+        Address rememberedSetEnd = gcStorageAddress().add(gcStorageSize() / Address.sizeOf() * Address.sizeOf());
+        Address entry = rememberedSetTop;
+        while (entry.isLessThan(rememberedSetEnd)) {
+            RuntimeObject object = entry.getAddress().toStructure();
+            object.classReference &= ~RuntimeObject.GC_REMEMBERED;
+            markReferences(object);
+            drainMarkQueue();
+            entry = entry.add(Address.sizeOf());
+        }
+    }
+
+    private static void incrementalStep() {
+        long start = System.currentTimeMillis();
+        long deadline = start + sliceTime();
+        switch (gcPhase) {
+            case GC_IDLE:
+                startMarking();
+                break;
+            case GC_MARKING:
+                if (drainMarkQueue(deadline)) {
+                    finishMarking();
+                }
+                break;
+            case GC_SWEEPING:
+                sweepStep(deadline);
+                break;
+        }
+        if (gcPhase != GC_IDLE) {
+            incrementalRemaining = (int) (availableBytes() / INCREMENTAL_SLICE_FRACTION);
+        }
+        recordPause(start, PAUSE_INCREMENTAL);
+    }
+
+    private static void completeIncrementalCycle() {
+        if (gcPhase == GC_MARKING) {
+            drainMarkQueue();
+            finishMarking();
+        }
+        if (gcPhase == GC_SWEEPING) {
+            sweepStep(Long.MAX_VALUE);
+        }
+    }
+
+    private static void startMarking() {
+        // Mutator keeps allocating during marking, so move list of free chunks out of the way of mark queue
+        int storageSize = gcStorageSize() / Address.sizeOf() * Address.sizeOf();
+        Address chunksCopy = gcStorageAddress().add(storageSize - freeChunks * Address.sizeOf());
+        if (freeChunks > 0) {
+            currentChunkPointer.value = currentChunk;
+            Allocator.moveMemoryBlock(currentChunkPointer.toAddress(), chunksCopy, freeChunks * Address.sizeOf());
+        }
+        currentChunkPointer = chunksCopy.toStructure();
+        MarkQueue.init((int) ((chunksCopy.toLong() - gcStorageAddress().toLong()) / Address.sizeOf()));
+
+        firstWeakReference = null;
+        lastWeakReference = null;
+        rescanRequired = false;
+        gcPhase = GC_MARKING;
+        allocationFlags = RuntimeObject.GC_MARKED;
+        markRoots();
+    }
+
+    private static void finishMarking() {
+        // Write barrier does not track stores into static fields and into stack, so rescan roots
+        markRoots();
+        drainMarkQueue();
+        if (rescanRequired) {
+            rescanMarkedObjects();
+        }
+        processReferences();
+        allocationFlags = 0;
+
+        gcPhase = GC_SWEEPING;
+        sweepCursor = heapAddress();
+        sweepFreeSpace = null;
+        sweepChunkPointer = gcStorageAddress().toStructure();
+        freeChunks = 0;
+        freeMemory = 0;
+        // Current chunk is going to be swept, so it can't be used for allocation anymore
+        currentChunkLimit = currentChunk.toAddress();
+    }
+
+    private static void rescanMarkedObjects() {
+        rescanRequired = false;
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            if ((object.classReference & RuntimeObject.GC_MARKED) != 0) {
+                markReferences(object.toAddress().toStructure());
+                drainMarkQueue();
+            }
+            object = object.toAddress().add(objectSize(object)).toStructure();
+        }
+    }
+
+    private static void sweepStep(long deadline) {
+        Address limit = heapAddress().add(availableBytes());
+        FreeChunk object = sweepCursor.toStructure();
+        int count = 0;
+        while (object.toAddress().isLessThan(limit)) {
+            int tag = object.classReference;
+            int size = objectSize(object);
+            if ((tag & RuntimeObject.GC_MARKED) != 0) {
+                object.classReference = tag & ~RuntimeObject.GC_MARKED;
+                if (sweepFreeSpace != null) {
+                    addSweptChunk(sweepFreeSpace, object.toAddress());
+                    sweepFreeSpace = null;
+                }
+            } else if (sweepFreeSpace == null) {
+                sweepFreeSpace = object;
+            }
+            object = object.toAddress().add(size).toStructure();
+            if ((++count & 255) == 0 && System.currentTimeMillis() >= deadline) {
+                sweepCursor = object.toAddress();
+                return;
+            }
+        }
+
+        if (sweepFreeSpace != null) {
+            addSweptChunk(sweepFreeSpace, limit);
+        }
+        finishSweeping();
+    }
+
+    private static void addSweptChunk(FreeChunk chunk, Address end) {
+        chunk.classReference = 0;
+        chunk.size = (int) (end.toLong() - chunk.toAddress().toLong());
+        sweepChunkPointer.value = chunk;
+        if (freeChunks == 0) {
+            currentChunkPointer = sweepChunkPointer;
+            currentChunk = chunk;
+            allocationMark = chunk.toAddress();
+        }
+        sweepChunkPointer = Structure.add(FreeChunkHolder.class, sweepChunkPointer, 1);
+        freeChunks++;
+        freeMemory += chunk.size;
+    }
+
+    private static void finishSweeping() {
+        gcPhase = GC_IDLE;
+        chunkCount = freeChunks;
+        if (freeChunks > 0) {
+            // Chunks are consumed by allocator from the beginning of the list, so list can be adjusted
+            currentChunkPointer.value = currentChunk;
+        } else {
+            currentChunkPointer = gcStorageAddress().toStructure();
+        }
+        updateFreeMemory();
+        adjustHeapSize(0);
+        allocationMark = currentChunk.toAddress();
+        resetIncrementalThreshold();
+        updateChunkLimit();
+        collectionCount++;
+    }
+
+    private static void recordPause(long start, int kind) {
+        lastPauseTime = System.currentTimeMillis() - start;
+        totalPauseTime += lastPauseTime;
+        if (maxPauseTime < lastPauseTime) {
+            maxPauseTime = lastPauseTime;
+        }
+        if (telemetry()) {
+            reportCollection(kind, lastPauseTime, availableBytes(), freeMemory, getLargestFreeChunk(),
+                    getAllocatedBytes());
+        }
+    }
+
     private static void mark() {
         firstWeakReference = null;
-        Allocator.fillZero(regionsAddress().toAddress(), regionMaxCount() * Structure.sizeOf(Region.class));
+        lastWeakReference = null;
+        int regionCount = (int) ((availableBytes() - 1) / regionSize()) + 1;
+        Allocator.fillZero(regionsAddress().toAddress(), regionCount * Structure.sizeOf(Region.class));
+        MarkQueue.init();
+        markRoots();
+        drainMarkQueue();
+    }
 
+    private static void markRoots() {
         Address staticRoots = Mutator.getStaticGCRoots();
         int staticCount = staticRoots.getInt();
         staticRoots = staticRoots.add(Address.sizeOf());
@@ -157,32 +815,53 @@ public final class GC {
     }
 
     private static void mark(RuntimeObject object) {
-        if (object == null || isMarked(object)) {
+        if (object == null || isLive(object)) {
             return;
         }
 
-        MarkQueue.init();
         MarkQueue.enqueue(object);
+    }
+
+    private static void drainMarkQueue() {
+        while (!MarkQueue.isEmpty()) {
+            markQueued(MarkQueue.dequeue());
+        }
+    }
+
+    private static boolean drainMarkQueue(long deadline) {
+        int count = 0;
         while (!MarkQueue.isEmpty()) {
-            object = MarkQueue.dequeue();
-            if (isMarked(object)) {
-                continue;
+            markQueued(MarkQueue.dequeue());
+            if ((++count & 63) == 0 && System.currentTimeMillis() >= deadline) {
+                break;
             }
+        }
+        return MarkQueue.isEmpty();
+    }
+
+    private static void markQueued(RuntimeObject object) {
+        if (!isLive(object)) {
             object.classReference |= RuntimeObject.GC_MARKED;
 
-            long offset = object.toAddress().toLong() - heapAddress().toLong();
-            Region region = Structure.add(Region.class, regionsAddress(), (int) (offset /  regionSize()));
-            short relativeOffset = (short) (offset % regionSize() + 1);
-            if (region.start == 0 || region.start > relativeOffset) {
-                region.start = relativeOffset;
+            if (!minorCollection) {
+                long offset = object.toAddress().toLong() - heapAddress().toLong();
+                Region region = Structure.add(Region.class, regionsAddress(), (int) (offset /  regionSize()));
+                short relativeOffset = (short) (offset % regionSize() + 1);
+                if (region.start == 0 || region.start > relativeOffset) {
+                    region.start = relativeOffset;
+                }
             }
 
-            RuntimeClass cls = RuntimeClass.getClass(object);
-            if (cls.itemType == null) {
-                markObject(cls, object);
-            } else {
-                markArray(cls, (RuntimeArray) object);
-            }
+            markReferences(object);
+        }
+    }
+
+    private static void markReferences(RuntimeObject object) {
+        RuntimeClass cls = RuntimeClass.getClass(object);
+        if (cls.itemType == null) {
+            markObject(cls, object);
+        } else {
+            markArray(cls, (RuntimeArray) object);
         }
     }
 
@@ -213,7 +892,11 @@ public final class GC {
                 mark(object.object);
             }
         }
-        if (object.next == null && object.object != null) {
+        // Incremental marking may scan the same reference more than once, last one in list also has no next
+        if (object.next == null && object.object != null && object != lastWeakReference) {
+            if (firstWeakReference == null) {
+                lastWeakReference = object;
+            }
             object.next = firstWeakReference;
             firstWeakReference = object;
         }
@@ -235,7 +918,7 @@ public final class GC {
                 layout = layout.add(2);
                 int fieldOffset = layout.getShort();
                 RuntimeObject reference = object.toAddress().add(fieldOffset).getAddress().toStructure();
-                if (reference != null && !isMarked(reference)) {
+                if (reference != null && !isLive(reference)) {
                     MarkQueue.enqueue(reference);
                 }
             }
@@ -249,7 +932,7 @@ public final class GC {
         Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
         for (int i = 0; i < array.size; ++i) {
             RuntimeObject reference = base.getAddress().toStructure();
-            if (reference != null && !isMarked(reference)) {
+            if (reference != null && !isLive(reference)) {
                 MarkQueue.enqueue(reference);
             }
             base = base.add(Address.sizeOf());
@@ -258,10 +941,12 @@ public final class GC {
 
     private static void processReferences() {
         RuntimeReference reference = firstWeakReference;
+        firstWeakReference = null;
+        lastWeakReference = null;
         while (reference != null) {
             RuntimeReference next = reference.next;
             reference.next = null;
-            if ((reference.object.classReference & RuntimeObject.GC_MARKED) == 0) {
+            if (!isLive(reference.object)) {
                 reference.object = null;
                 RuntimeReferenceQueue queue = reference.queue;
                 if (queue != null) {
@@ -278,18 +963,161 @@ public final class GC {
     }
 
     private static void sweep() {
+        long heapSize = availableBytes();
+        int regionsCount = (int) ((heapSize - 1) / regionSize()) + 1;
+        int taskCount = Math.min(sweepThreadCount(), regionsCount / MIN_REGIONS_PER_SWEEP_TASK);
+        if (taskCount > 1) {
+            sweepInParallel(taskCount);
+        } else {
+            FreeChunkHolder freeChunkPtr = gcStorageAddress().toStructure();
+            FreeChunkHolder freeChunkLimit = gcStorageAddress().add(gcStorageSize()).toStructure();
+            FreeChunkHolder freeChunkEnd = sweepRange(heapAddress().toStructure(), heapAddress().add(heapSize),
+                    freeChunkPtr, freeChunkLimit);
+            freeChunks = holderCount(freeChunkPtr, freeChunkEnd);
+        }
+        useSweptChunks();
+    }
+
+    private static void useSweptChunks() {
+        chunkCount = freeChunks;
+        currentChunkPointer = gcStorageAddress().toStructure();
+        sortFreeChunks(0, freeChunks - 1);
+        currentChunk = currentChunkPointer.value;
+        currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+    }
+
+    /**
+     * <p>Sweeps heap on several threads. Heap is split into ranges of roughly equal number of regions. Every range
+     * except for the first one starts at the first live object of a region, which is known from
+     * {@link Region#start}, so that tasks never need to parse objects that lay on range boundaries.</p>
+     *
+     * <p>Every task writes free chunks into its own part of GC storage, proportional to the size of its range.
+     * Parts are concatenated afterwards. When a part turns out to be too small, the task keeps sweeping and
+     * remembers where unlisted chunks start; these chunks are collected into the shared list after all tasks
+     * finish, so they are not lost until the next collection.</p>
+     *
+     * <p>Only sweeping is parallel, marking always runs on the calling thread.</p>
+     *
+     * @param taskCount number of tasks to split sweeping into.
+     */
+    private static void sweepInParallel(int taskCount) {
+        long heapSize = availableBytes();
+        Address limit = heapAddress().add(heapSize);
+        int regionsCount = (int) ((heapSize - 1) / regionSize()) + 1;
+
+        int tasksSize = taskCount * Structure.sizeOf(SweepTask.class);
+        Address tasksAddress = gcStorageAddress().add(gcStorageSize() - tasksSize);
+        sweepTasks = Address.align(tasksAddress.add(1 - Address.sizeOf()), Address.sizeOf()).toStructure();
+        long storageSize = sweepTasks.toAddress().toLong() - gcStorageAddress().toLong();
+
+        Address rangeStart = heapAddress();
+        int regionIndex = 0;
+        for (int i = 0; i < taskCount; ++i) {
+            Address rangeEnd = limit;
+            if (i < taskCount - 1) {
+                regionIndex = Math.max(regionIndex + 1, (int) ((long) regionsCount * (i + 1) / taskCount));
+                while (regionIndex < regionsCount) {
+                    Region region = Structure.add(Region.class, regionsAddress(), regionIndex);
+                    if (region.start != 0) {
+                        rangeEnd = heapAddress().add((long) regionIndex * regionSize() + region.start - 1);
+                        break;
+                    }
+                    regionIndex++;
+                }
+            }
+
+            SweepTask task = Structure.add(SweepTask.class, sweepTasks, i);
+            task.start = rangeStart.toStructure();
+            task.limit = rangeEnd.toStructure();
+            task.output = storageAddress(rangeStart, heapSize, storageSize).toStructure();
+            task.outputLimit = storageAddress(rangeEnd, heapSize, storageSize).toStructure();
+            rangeStart = rangeEnd;
+        }
+
+        runSweepTasks(taskCount);
+
         FreeChunkHolder freeChunkPtr = gcStorageAddress().toStructure();
-        freeChunks = 0;
+        for (int i = 0; i < taskCount; ++i) {
+            SweepTask task = Structure.add(SweepTask.class, sweepTasks, i);
+            FreeChunkHolder taskChunkPtr = task.output;
+            for (int j = 0; j < task.count; ++j) {
+                freeChunkPtr.value = taskChunkPtr.value;
+                freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+                taskChunkPtr = Structure.add(FreeChunkHolder.class, taskChunkPtr, 1);
+            }
+        }
 
-        FreeChunk object = heapAddress().toStructure();
+        FreeChunkHolder freeChunkLimit = sweepTasks.toAddress().toStructure();
+        for (int i = 0; i < taskCount; ++i) {
+            SweepTask task = Structure.add(SweepTask.class, sweepTasks, i);
+            if (task.overflow != null) {
+                freeChunkPtr = collectFreeChunks(task.overflow, task.limit.toAddress(), freeChunkPtr,
+                        freeChunkLimit);
+            }
+        }
+        freeChunks = holderCount(gcStorageAddress().toStructure(), freeChunkPtr);
+    }
+
+    /**
+     * <p>Lists free chunks from already swept range. After sweep free chunks are the only objects with zero
+     * header and every run of free space is a single chunk, so range can be walked without any marks.</p>
+     *
+     * @return pointer past the last written free chunk.
+     */
+    private static FreeChunkHolder collectFreeChunks(FreeChunk object, Address limit, FreeChunkHolder freeChunkPtr,
+            FreeChunkHolder freeChunkLimit) {
+        while (object.toAddress().isLessThan(limit)
+                && freeChunkPtr.toAddress().isLessThan(freeChunkLimit.toAddress())) {
+            if (object.classReference == 0) {
+                freeChunkPtr.value = object;
+                freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+            }
+            object = object.toAddress().add(objectSize(object)).toStructure();
+        }
+        return freeChunkPtr;
+    }
+
+    private static Address storageAddress(Address heapPosition, long heapSize, long storageSize) {
+        long offset = (heapPosition.toLong() - heapAddress().toLong()) * storageSize / heapSize;
+        return Address.align(gcStorageAddress().add(offset + 1 - Address.sizeOf()), Address.sizeOf());
+    }
+
+    private static void sweepTask(int index) {
+        SweepTask task = Structure.add(SweepTask.class, sweepTasks, index);
+        FreeChunkHolder end = sweepRange(task.start, task.limit.toAddress(), task.output, task.outputLimit);
+        task.count = holderCount(task.output, end);
+        task.overflow = null;
+        if (!end.toAddress().isLessThan(task.outputLimit.toAddress())) {
+            // Part of storage is full, so chunks after the last listed one may have been left unlisted
+            if (task.count > 0) {
+                FreeChunk last = Structure.add(FreeChunkHolder.class, end, -1).value;
+                task.overflow = last.toAddress().add(last.size).toStructure();
+            } else {
+                task.overflow = task.start;
+            }
+        }
+    }
+
+    private static int holderCount(FreeChunkHolder start, FreeChunkHolder end) {
+        return (int) ((end.toAddress().toLong() - start.toAddress().toLong())
+                / Structure.sizeOf(FreeChunkHolder.class));
+    }
+
+    /**
+     * <p>Sweeps objects from given range, which must start at the beginning of an object or a free chunk.
+     * Does not touch any global state except for headers of objects in the range, so can run concurrently
+     * with sweeping of other ranges.</p>
+     *
+     * @return pointer past the last written free chunk.
+     */
+    private static FreeChunkHolder sweepRange(FreeChunk object, Address limit, FreeChunkHolder freeChunkPtr,
+            FreeChunkHolder freeChunkLimit) {
         FreeChunk lastFreeSpace = null;
         long heapSize = availableBytes();
-        long reclaimedSpace = 0;
-        long maxFreeChunk = 0;
-        int currentRegionIndex = 0;
+        int currentRegionIndex;
         int regionsCount = (int) ((heapSize - 1) / regionSize()) + 1;
-        Address currentRegionEnd = object.toAddress().add(regionSize());
-        Address limit = heapAddress().add(heapSize);
+        Address currentRegionEnd = heapAddress().add(
+                ((object.toAddress().toLong() - heapAddress().toLong()) / regionSize() + 1) * regionSize());
 
         loop: while (object.toAddress().isLessThan(limit)) {
             int tag = object.classReference;
@@ -300,6 +1128,9 @@ public final class GC {
                 free = (tag & RuntimeObject.GC_MARKED) == 0;
                 if (!free) {
                     tag &= ~RuntimeObject.GC_MARKED;
+                    if (generational()) {
+                        tag = (tag & ~RuntimeObject.GC_REMEMBERED) | RuntimeObject.GC_OLD;
+                    }
                 }
                 object.classReference = tag;
             }
@@ -325,15 +1156,7 @@ public final class GC {
                 }
             } else {
                 if (lastFreeSpace != null) {
-                    lastFreeSpace.classReference = 0;
-                    lastFreeSpace.size = (int) (object.toAddress().toLong() - lastFreeSpace.toAddress().toLong());
-                    freeChunkPtr.value = lastFreeSpace;
-                    freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
-                    freeChunks++;
-                    reclaimedSpace += lastFreeSpace.size;
-                    if (maxFreeChunk < lastFreeSpace.size) {
-                        maxFreeChunk = lastFreeSpace.size;
-                    }
+                    freeChunkPtr = addFreeChunk(freeChunkPtr, freeChunkLimit, lastFreeSpace, object.toAddress());
                     lastFreeSpace = null;
                 }
             }
@@ -343,22 +1166,354 @@ public final class GC {
         }
 
         if (lastFreeSpace != null) {
-            int freeSize = (int) (object.toAddress().toLong() - lastFreeSpace.toAddress().toLong());
-            lastFreeSpace.classReference = 0;
-            lastFreeSpace.size = freeSize;
-            freeChunkPtr.value = lastFreeSpace;
+            freeChunkPtr = addFreeChunk(freeChunkPtr, freeChunkLimit, lastFreeSpace, object.toAddress());
+        }
+        return freeChunkPtr;
+    }
+
+    private static FreeChunkHolder addFreeChunk(FreeChunkHolder freeChunkPtr, FreeChunkHolder freeChunkLimit,
+            FreeChunk chunk, Address end) {
+        chunk.classReference = 0;
+        chunk.size = (int) (end.toLong() - chunk.toAddress().toLong());
+
+        // When there's no room, chunk stays unlisted. Parallel sweep collects such chunks afterwards,
+        // otherwise their space is reclaimed by the next major collection.
+        if (!freeChunkPtr.toAddress().isLessThan(freeChunkLimit.toAddress())) {
+            return freeChunkPtr;
+        }
+        freeChunkPtr.value = chunk;
+        return Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+    }
+
+    private static void compactIfFragmented(int size) {
+        updateFreeMemory();
+        if (isFragmented(size)) {
+            compact();
+        }
+    }
+
+    /**
+     * <p>Checks whether free memory is split into too many small chunks, i.e. the largest free chunk is less than
+     * {@code 100 - FRAGMENTATION_THRESHOLD_PERCENT} percent of free memory, or there's enough free memory for
+     * the object that caused collection, but no chunk is large enough to hold it.</p>
+     *
+     * <p>Must be called right after sweep, when chunks are sorted by size in descending order.</p>
+     */
+    private static boolean isFragmented(int size) {
+        if (freeChunks < 2) {
+            return false;
+        }
+        long largestChunk = currentChunk.size;
+        int requiredSize = size + Structure.sizeOf(FreeChunk.class);
+        if (size > 0 && largestChunk < requiredSize && freeMemory >= requiredSize) {
+            return true;
+        }
+        return largestChunk * 100 < (long) freeMemory * (100 - FRAGMENTATION_THRESHOLD_PERCENT);
+    }
+
+    /**
+     * <p>Slides live objects towards the beginning of heap, so that free memory forms few large chunks.
+     * Objects are moved in address order, so relative order of objects is preserved and every object
+     * can be moved with a single memory move.</p>
+     *
+     * <p>Generated code keeps references in local variables after they were put into shadow stack,
+     * so objects referenced from shadow stack are pinned, and objects after them slide up to their ends.
+     * References from static fields and from heap are rewritten using forwarding table, which is kept in
+     * GC storage and sorted by the old address. When table runs out of space, the rest of heap stays
+     * where it is.</p>
+     *
+     * <p>Raw pointers into objects, obtained by {@link Address#ofData} or {@link Address#ofObject}, are not
+     * updated. Compiler keeps them valid by putting the object into shadow stack at every call site where
+     * a pointer derived from it is live, which pins the object. This only works when the object the pointer
+     * came from can be found statically, so code must not merge pointers into different objects in one
+     * variable across a call.</p>
+     */
+    private static void compact() {
+        compactionCount++;
+        pinStackRoots();
+        planCompaction();
+        if (forwardingCount > 0) {
+            updateStaticReferences();
+            updateHeapReferences();
+        }
+        moveObjects();
+
+        FreeChunkHolder freeChunkPtr = gcStorageAddress().toStructure();
+        FreeChunkHolder freeChunkEnd = listFreeChunks(freeChunkPtr,
+                gcStorageAddress().add(gcStorageSize()).toStructure());
+        freeChunks = holderCount(freeChunkPtr, freeChunkEnd);
+        useSweptChunks();
+        updateFreeMemory();
+    }
+
+    private static void pinStackRoots() {
+        for (Address stackRoots = ShadowStack.getStackTop(); stackRoots != null;
+             stackRoots = ShadowStack.getNextStackFrame(stackRoots)) {
+            int count = ShadowStack.getStackRootCount(stackRoots);
+            Address stackRootsPtr = ShadowStack.getStackRootPointer(stackRoots);
+            while (count-- > 0) {
+                RuntimeObject obj = stackRootsPtr.getAddress().toStructure();
+                if (obj != null) {
+                    obj.classReference |= GC_PINNED;
+                }
+                stackRootsPtr = stackRootsPtr.add(Address.sizeOf());
+            }
+        }
+    }
+
+    private static void planCompaction() {
+        int entrySize = 2 * Address.sizeOf();
+        forwardingTable = gcStorageAddress();
+        forwardingCount = 0;
+        Address entry = forwardingTable;
+        Address entriesLimit = forwardingTable.add(gcStorageSize() / entrySize * entrySize);
+
+        Address target = heapAddress();
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            int size = objectSize(object);
+            if (object.classReference != 0) {
+                if ((object.classReference & GC_PINNED) != 0 || target == object.toAddress()) {
+                    target = object.toAddress().add(size);
+                } else {
+                    if (!entry.isLessThan(entriesLimit)) {
+                        break;
+                    }
+                    entry.putAddress(object.toAddress());
+                    entry.add(Address.sizeOf()).putAddress(target);
+                    entry = entry.add(entrySize);
+                    forwardingCount++;
+                    target = target.add(size);
+                }
+            }
+            object = object.toAddress().add(size).toStructure();
+        }
+    }
+
+    private static Address forward(Address address) {
+        if (address == null || forwardingCount == 0 || address.isLessThan(forwardingTable.getAddress())) {
+            return address;
+        }
+        int entrySize = 2 * Address.sizeOf();
+        int lower = 0;
+        int upper = forwardingCount - 1;
+        while (lower <= upper) {
+            int middle = (lower + upper) >>> 1;
+            Address entry = forwardingTable.add(middle * entrySize);
+            Address source = entry.getAddress();
+            if (source == address) {
+                return entry.add(Address.sizeOf()).getAddress();
+            } else if (source.isLessThan(address)) {
+                lower = middle + 1;
+            } else {
+                upper = middle - 1;
+            }
+        }
+        return address;
+    }
+
+    private static void updateStaticReferences() {
+        Address staticRoots = Mutator.getStaticGCRoots();
+        int staticCount = staticRoots.getInt();
+        staticRoots = staticRoots.add(Address.sizeOf());
+        while (staticCount-- > 0) {
+            Address field = staticRoots.getAddress();
+            field.putAddress(forward(field.getAddress()));
+            staticRoots = staticRoots.add(Address.sizeOf());
+        }
+    }
+
+    private static void updateHeapReferences() {
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            if (object.classReference != 0) {
+                updateReferences(object.toAddress().toStructure());
+            }
+            object = object.toAddress().add(objectSize(object)).toStructure();
+        }
+    }
+
+    private static void updateReferences(RuntimeObject object) {
+        RuntimeClass cls = RuntimeClass.getClass(object);
+        if (cls.itemType == null) {
+            updateObjectReferences(cls, object);
+        } else if ((cls.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
+            RuntimeArray array = (RuntimeArray) object;
+            Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
+            for (int i = 0; i < array.size; ++i) {
+                base.putAddress(forward(base.getAddress()));
+                base = base.add(Address.sizeOf());
+            }
+        }
+
+        // Monitor is stored in place of hash code as offset from the beginning of heap in 4-byte words
+        int hashCode = object.hashCode;
+        if ((hashCode & 0x80000000) != 0) {
+            Address monitor = heapAddress().add((long) (hashCode & 0x7FFFFFFF) * 4);
+            long offset = forward(monitor).toLong() - heapAddress().toLong();
+            object.hashCode = (int) (offset / 4) | 0x80000000;
+        }
+    }
+
+    private static void updateObjectReferences(RuntimeClass cls, RuntimeObject object) {
+        while (cls != null) {
+            int type = (cls.flags >> RuntimeClass.VM_TYPE_SHIFT) & RuntimeClass.VM_TYPE_MASK;
+            switch (type) {
+                case RuntimeClass.VM_TYPE_WEAKREFERENCE: {
+                    RuntimeReference reference = (RuntimeReference) object;
+                    reference.queue = forward(reference.queue.toAddress()).toStructure();
+                    reference.object = forward(reference.object.toAddress()).toStructure();
+                    reference.next = forward(reference.next.toAddress()).toStructure();
+                    break;
+                }
+
+                case RuntimeClass.VM_TYPE_REFERENCEQUEUE: {
+                    RuntimeReferenceQueue queue = (RuntimeReferenceQueue) object;
+                    queue.first = forward(queue.first.toAddress()).toStructure();
+                    queue.last = forward(queue.last.toAddress()).toStructure();
+                    break;
+                }
+
+                default: {
+                    Address layout = cls.layout;
+                    if (layout != null) {
+                        short fieldCount = layout.getShort();
+                        while (fieldCount-- > 0) {
+                            layout = layout.add(2);
+                            Address field = object.toAddress().add(layout.getShort());
+                            field.putAddress(forward(field.getAddress()));
+                        }
+                    }
+                    break;
+                }
+            }
+            cls = cls.parent;
+        }
+    }
+
+    /**
+     * Moves objects according to forwarding table and turns space between objects into free chunks. Objects are
+     * only moved towards lower addresses and in address order, so walking heap never reads memory that has been
+     * overwritten already.
+     */
+    private static void moveObjects() {
+        int entrySize = 2 * Address.sizeOf();
+        int index = 0;
+        Address end = heapAddress();
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            int size = objectSize(object);
+            Address next = object.toAddress().add(size);
+            if (index < forwardingCount && forwardingTable.add(index * entrySize).getAddress() == object.toAddress()) {
+                Address target = forwardingTable.add(index * entrySize + Address.sizeOf()).getAddress();
+                Allocator.moveMemoryBlock(object.toAddress(), target, size);
+                end = target.add(size);
+                index++;
+            } else if (object.classReference != 0) {
+                object.classReference &= ~GC_PINNED;
+                if (end.isLessThan(object.toAddress())) {
+                    formatFreeSpace(end, object.toAddress());
+                }
+                end = next;
+            }
+            object = next.toStructure();
+        }
+        if (end.isLessThan(limit)) {
+            formatFreeSpace(end, limit);
+        }
+    }
+
+    private static void formatFreeSpace(Address start, Address end) {
+        while (start.isLessThan(end)) {
+            int size = (int) Math.min(MAX_FREE_CHUNK_SIZE, end.toLong() - start.toLong());
+            FreeChunk chunk = start.toStructure();
+            chunk.classReference = 0;
+            chunk.size = size;
+            start = start.add(size);
+        }
+    }
+
+    private static FreeChunkHolder listFreeChunks(FreeChunkHolder freeChunkPtr, FreeChunkHolder freeChunkLimit) {
+        FreeChunk object = heapAddress().toStructure();
+        Address limit = heapAddress().add(availableBytes());
+        while (object.toAddress().isLessThan(limit)) {
+            Address next = object.toAddress().add(objectSize(object));
+            if (object.classReference == 0) {
+                freeChunkPtr = addFreeChunk(freeChunkPtr, freeChunkLimit, object, next);
+            }
+            object = next.toStructure();
+        }
+        return freeChunkPtr;
+    }
+
+    private static void sweepYoung() {
+        FreeChunkHolder freeChunkPtr = gcStorageAddress().toStructure();
+        freeChunks = 0;
+        Address limit = heapAddress().add(availableBytes());
+
+        for (int i = 0; i < youngChunkCount; ++i) {
+            // All objects from the start of a chunk till the first free space or the first old object are young
+            FreeChunk object = Structure.add(FreeChunkHolder.class, youngChunks, i).value;
+            FreeChunk lastFreeSpace = null;
+            while (object.toAddress().isLessThan(limit)) {
+                int tag = object.classReference;
+                if (tag == 0) {
+                    if (lastFreeSpace == null) {
+                        lastFreeSpace = object;
+                    }
+                    object = object.toAddress().add(object.size).toStructure();
+                    break;
+                }
+                if ((tag & RuntimeObject.GC_OLD) != 0) {
+                    break;
+                }
+
+                int size = objectSize(object);
+                if ((tag & RuntimeObject.GC_MARKED) != 0) {
+                    object.classReference = (tag & ~RuntimeObject.GC_MARKED) | RuntimeObject.GC_OLD;
+                    if (lastFreeSpace != null) {
+                        freeChunkPtr = addYoungFreeChunk(freeChunkPtr, lastFreeSpace, object.toAddress());
+                        lastFreeSpace = null;
+                    }
+                } else if (lastFreeSpace == null) {
+                    lastFreeSpace = object;
+                }
+                object = object.toAddress().add(size).toStructure();
+            }
+            if (lastFreeSpace != null) {
+                freeChunkPtr = addYoungFreeChunk(freeChunkPtr, lastFreeSpace, object.toAddress());
+            }
+        }
+
+        for (int i = youngChunkCount; i < chunkCount; ++i) {
+            freeChunkPtr.value = Structure.add(FreeChunkHolder.class, youngChunks, i).value;
             freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
             freeChunks++;
-            reclaimedSpace += freeSize;
-            if (maxFreeChunk < freeSize) {
-                maxFreeChunk = freeSize;
-            }
         }
 
+        chunkCount = freeChunks;
         currentChunkPointer = gcStorageAddress().toStructure();
-        sortFreeChunks(0, freeChunks - 1);
-        currentChunk = currentChunkPointer.value;
-        currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        if (freeChunks > 0) {
+            sortFreeChunks(0, freeChunks - 1);
+            currentChunk = currentChunkPointer.value;
+        }
+    }
+
+    private static FreeChunkHolder addYoungFreeChunk(FreeChunkHolder freeChunkPtr, FreeChunk chunk, Address end) {
+        chunk.classReference = 0;
+        chunk.size = (int) (end.toLong() - chunk.toAddress().toLong());
+
+        // New list of chunks is written over mark queue and must not overwrite list of chunks being swept.
+        // When there's no room, chunk stays unlisted, so its space is reclaimed by the next major collection.
+        if (!freeChunkPtr.toAddress().isLessThan(youngChunks.toAddress())) {
+            return freeChunkPtr;
+        }
+        freeChunkPtr.value = chunk;
+        freeChunks++;
+        return Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
     }
 
     private static void updateFreeMemory() {
@@ -370,6 +1525,106 @@ public final class GC {
         }
     }
 
+    /**
+     * <p>Grows or shrinks heap after full collection, so that free space stays between
+     * {@link #MIN_FREE_PERCENT} and {@link #MAX_FREE_PERCENT} of heap size. Amount of free space right after
+     * collection determines how soon next collection is going to happen, so this bounds time spent in GC
+     * relative to time spent in mutator.</p>
+     *
+     * <p>Heap never shrinks below its initial size and never grows beyond {@link #maxAvailableBytes()}.</p>
+     *
+     * @param size size of object, which allocation caused collection.
+     */
+    private static void adjustHeapSize(int size) {
+        long heapSize = availableBytes();
+        long liveSize = heapSize - freeMemory;
+        int requiredChunkSize = size + Structure.sizeOf(FreeChunk.class);
+        boolean fits = size == 0 || (freeChunks > 0 && currentChunk.size >= requiredChunkSize);
+
+        long targetSize = heapSize;
+        if (!fits || freeMemory * 100L < heapSize * MIN_FREE_PERCENT) {
+            targetSize = liveSize * 100 / (100 - TARGET_FREE_PERCENT);
+            if (!fits && targetSize < heapSize + requiredChunkSize) {
+                targetSize = heapSize + requiredChunkSize;
+            }
+        } else if (freeMemory * 100L > heapSize * MAX_FREE_PERCENT) {
+            targetSize = liveSize * 100 / (100 - TARGET_FREE_PERCENT);
+            if (targetSize < initialHeapSize) {
+                targetSize = initialHeapSize;
+            }
+        }
+
+        targetSize = (targetSize + regionSize() - 1) / regionSize() * regionSize();
+        if (targetSize > maxAvailableBytes()) {
+            targetSize = maxAvailableBytes();
+        }
+
+        if (targetSize > heapSize) {
+            growHeap(heapSize, targetSize);
+        } else if (targetSize < heapSize) {
+            shrinkHeap(heapSize, targetSize);
+        }
+    }
+
+    private static void growHeap(long oldSize, long newSize) {
+        if (!resizeHeap(newSize)) {
+            return;
+        }
+        newSize = availableBytes();
+        if (newSize <= oldSize) {
+            return;
+        }
+
+        Address oldEnd = heapAddress().add(oldSize);
+        int growth = (int) (newSize - oldSize);
+        FreeChunkHolder tail = findChunkEndingAt(oldEnd);
+        if (tail != null) {
+            tail.value.size += growth;
+        } else {
+            FreeChunk chunk = oldEnd.toStructure();
+            chunk.classReference = 0;
+            chunk.size = growth;
+            getFreeChunk(freeChunks).value = chunk;
+            freeChunks++;
+            chunkCount = freeChunks;
+        }
+
+        sortFreeChunks(0, freeChunks - 1);
+        currentChunk = currentChunkPointer.value;
+        updateFreeMemory();
+    }
+
+    private static void shrinkHeap(long oldSize, long newSize) {
+        // Non-moving GC can only give back free space at the end of heap
+        FreeChunkHolder tail = findChunkEndingAt(heapAddress().add(oldSize));
+        if (tail == null) {
+            return;
+        }
+        FreeChunk chunk = tail.value;
+        long minSize = chunk.toAddress().toLong() - heapAddress().toLong() + Structure.sizeOf(FreeChunk.class);
+        if (newSize < minSize) {
+            newSize = minSize;
+        }
+        if (newSize >= oldSize || !resizeHeap(newSize)) {
+            return;
+        }
+
+        chunk.size -= (int) (oldSize - newSize);
+        sortFreeChunks(0, freeChunks - 1);
+        currentChunk = currentChunkPointer.value;
+        updateFreeMemory();
+    }
+
+    private static FreeChunkHolder findChunkEndingAt(Address end) {
+        for (int i = 0; i < freeChunks; ++i) {
+            FreeChunkHolder holder = getFreeChunk(i);
+            if (holder.value.toAddress().add(holder.value.size) == end) {
+                return holder;
+            }
+        }
+        return null;
+    }
+
     private static void sortFreeChunks(int lower, int upper) {
         int start = lower;
         int end = upper;
@@ -450,11 +1705,24 @@ public final class GC {
         }
     }
 
-    private static boolean isMarked(RuntimeObject object) {
-        return (object.classReference & RuntimeObject.GC_MARKED) != 0;
+    private static boolean isLive(RuntimeObject object) {
+        int tag = object.classReference;
+        if ((tag & RuntimeObject.GC_MARKED) != 0) {
+            return true;
+        }
+        return minorCollection && (tag & RuntimeObject.GC_OLD) != 0;
     }
 
     static class Region extends Structure {
         short start;
     }
+
+    static class SweepTask extends Structure {
+        FreeChunk start;
+        FreeChunk limit;
+        FreeChunkHolder output;
+        FreeChunkHolder outputLimit;
+        int count;
+        FreeChunk overflow;
+    }
 }
@@ -26,9 +26,13 @@ final class MarkQueue {
     private static int limit;
 
     static void init() {
+        init(GC.gcStorageSize() / Address.sizeOf());
+    }
+
+    static void init(int capacity) {
         head = 0;
         tail = 0;
-        limit = GC.gcStorageSize() / Address.sizeOf();
+        limit = capacity;
     }
 
     static void enqueue(RuntimeObject object) {
@@ -49,4 +53,12 @@ final class MarkQueue {
     static boolean isEmpty() {
         return head == tail;
     }
+
+    static boolean isFull() {
+        int next = tail + 1;
+        if (next >= limit) {
+            next = 0;
+        }
+        return next == head;
+    }
 }
@@ -30,6 +30,8 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -38,6 +40,7 @@ import org.teavm.cache.AnnotationAwareCacheStatus;
 import org.teavm.cache.CacheStatus;
 import org.teavm.cache.EmptyProgramCache;
 import org.teavm.cache.ProgramDependencyExtractor;
+import org.teavm.common.ParallelTasks;
 import org.teavm.common.ServiceRepository;
 import org.teavm.dependency.BootstrapMethodSubstitutor;
 import org.teavm.dependency.ClassSourcePacker;
@@ -48,6 +51,7 @@ import org.teavm.dependency.DependencyPlugin;
 import org.teavm.dependency.Linker;
 import org.teavm.dependency.MethodDependency;
 import org.teavm.dependency.MethodDependencyInfo;
+import org.teavm.dependency.SynchronizedDependencyInfo;
 import org.teavm.diagnostics.AccumulationDiagnostics;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.diagnostics.ProblemProvider;
@@ -136,6 +140,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             ValueType.arrayOf(ValueType.object("java.lang.String")), ValueType.VOID);
 
     private final DependencyAnalyzer dependencyAnalyzer;
+    private DependencyInfo sharedDependencyInfo;
     private final AccumulationDiagnostics diagnostics = new AccumulationDiagnostics();
     private final ClassLoader classLoader;
     private final Map<String, TeaVMEntryPoint> entryPoints = new LinkedHashMap<>();
@@ -147,8 +152,11 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     private ProgramCache programCache = EmptyProgramCache.INSTANCE;
     private CacheStatus rawCacheStatus = AlwaysStaleCacheStatus.INSTANCE;
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.SIMPLE;
+    private int threadCount = 1;
+    private int guardedDispatchLimit;
     private TeaVMProgressListener progressListener;
-    private boolean cancelled;
+    private TeaVMBuildStageListener buildStageListener;
+    private volatile boolean cancelled;
     private ListableClassHolderSource writtenClasses;
     private TeaVMTarget target;
     private Map<Class<?>, TeaVMHostExtension> extensions = new HashMap<>();
@@ -261,6 +269,39 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         this.optimizationLevel = optimizationLevel;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Specifies how many worker threads TeaVM may use for phases that process classes and methods independently
+     * (currently, linking, devirtualization, method optimization and register allocation; targets may use
+     * it as well, see {@link TeaVMTargetController#getThreadCount()}).
+     * The output does not depend on this value.
+     *
+     * @param threadCount number of worker threads. Values less than 2 mean that everything runs
+     * on the calling thread.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getGuardedDispatchLimit() {
+        return guardedDispatchLimit;
+    }
+
+    /**
+     * Specifies how many implementations a virtual call site may have to be replaced by type checks
+     * followed by direct calls, see {@link Devirtualization#setGuardedDispatchLimit(int)}. Has no effect
+     * with {@link TeaVMOptimizationLevel#SIMPLE}.
+     *
+     * @param guardedDispatchLimit maximum number of implementations. Values less than 2 mean that call sites
+     * with more than one implementation always remain virtual.
+     */
+    public void setGuardedDispatchLimit(int guardedDispatchLimit) {
+        this.guardedDispatchLimit = guardedDispatchLimit;
+    }
+
     public TeaVMProgressListener getProgressListener() {
         return progressListener;
     }
@@ -269,6 +310,19 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         this.progressListener = progressListener;
     }
 
+    public TeaVMBuildStageListener getBuildStageListener() {
+        return buildStageListener;
+    }
+
+    /**
+     * Sets listener that is notified when build enters and leaves particular stages. May be null.
+     *
+     * @param buildStageListener listener to notify.
+     */
+    public void setBuildStageListener(TeaVMBuildStageListener buildStageListener) {
+        this.buildStageListener = buildStageListener;
+    }
+
     public boolean wasCancelled() {
         return cancelled;
     }
@@ -336,8 +390,19 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         return dependencyAnalyzer.getReachableMethods();
     }
 
+    /**
+     * Gets results of dependency analysis. After analysis is complete and several threads are used,
+     * results are wrapped so that they can be queried from several threads.
+     */
     public DependencyInfo getDependencyInfo() {
-        return dependencyAnalyzer;
+        return sharedDependencyInfo != null ? sharedDependencyInfo : dependencyAnalyzer;
+    }
+
+    /*
+     * Should be called each time analyzer's results change, since thread-safe wrapper keeps snapshots of them.
+     */
+    private void updateSharedDependencyInfo() {
+        sharedDependencyInfo = threadCount > 1 ? new SynchronizedDependencyInfo(dependencyAnalyzer) : null;
     }
 
     public ListableClassReaderSource getWrittenClasses() {
@@ -372,14 +437,20 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             cancelled |= progressListener.progressReached(progress) != TeaVMProgressFeedback.CONTINUE;
             return !cancelled;
         });
-        target.contributeDependencies(dependencyAnalyzer);
-        dependencyAnalyzer.processDependencies();
+        stageStarted(TeaVMBuildStage.DEPENDENCY_ANALYSIS);
+        try {
+            target.contributeDependencies(dependencyAnalyzer);
+            dependencyAnalyzer.processDependencies();
+        } finally {
+            stageFinished(TeaVMBuildStage.DEPENDENCY_ANALYSIS);
+        }
         if (wasCancelled() || !diagnostics.getSevereProblems().isEmpty()) {
             return;
         }
 
         dependencyAnalyzer.setInterruptor(null);
         dependencyAnalyzer.cleanup(classSourcePacker);
+        updateSharedDependencyInfo();
         cacheStatus = new AnnotationAwareCacheStatus(rawCacheStatus, dependencyAnalyzer.getIncrementalDependencies(),
                 dependencyAnalyzer.getClassSource());
         cacheStatus.addSynthesizedClasses(dependencyAnalyzer::isSynthesizedClass);
@@ -416,7 +487,12 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                 compileProgressReportStart = 500;
                 compileProgressReportLimit = 1000;
             }
-            target.emit(classSet, buildTarget, outputName);
+            stageStarted(TeaVMBuildStage.RENDERING);
+            try {
+                target.emit(classSet, buildTarget, outputName);
+            } finally {
+                stageFinished(TeaVMBuildStage.RENDERING);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Error generating output files", e);
         }
@@ -437,14 +513,25 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             compileProgressLimit *= 2;
         }
 
-        ListableClassHolderSource classSet = link(dependencyAnalyzer);
+        stageStarted(TeaVMBuildStage.LINKING);
+        ListableClassHolderSource classSet;
+        try {
+            classSet = link(dependencyAnalyzer);
+        } finally {
+            stageFinished(TeaVMBuildStage.LINKING);
+        }
         writtenClasses = classSet;
         if (wasCancelled()) {
             return null;
         }
 
         if (optimizationLevel != TeaVMOptimizationLevel.SIMPLE) {
-            devirtualize(classSet);
+            stageStarted(TeaVMBuildStage.DEVIRTUALIZATION);
+            try {
+                devirtualize(classSet);
+            } finally {
+                stageFinished(TeaVMBuildStage.DEVIRTUALIZATION);
+            }
             if (wasCancelled()) {
                 return null;
             }
@@ -461,8 +548,14 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         }
 
         dependencyAnalyzer.cleanupTypes();
+        updateSharedDependencyInfo();
 
-        inline(classSet);
+        stageStarted(TeaVMBuildStage.INLINING);
+        try {
+            inline(classSet);
+        } finally {
+            stageFinished(TeaVMBuildStage.INLINING);
+        }
         if (wasCancelled()) {
             return null;
         }
@@ -473,7 +566,12 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                 new LinkedHashSet<>(dependencyAnalyzer.getReachableClasses())));
 
         // Optimize and allocate registers
-        optimize(classSet);
+        stageStarted(TeaVMBuildStage.OPTIMIZATION);
+        try {
+            optimize(classSet);
+        } finally {
+            stageFinished(TeaVMBuildStage.OPTIMIZATION);
+        }
         if (wasCancelled()) {
             return null;
         }
@@ -548,6 +646,9 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     }
 
     public ListableClassHolderSource link(DependencyAnalyzer dependency) {
+        if (threadCount > 1) {
+            return linkInParallel(dependency);
+        }
         Linker linker = new Linker(dependency);
         MutableClassHolderSource cutClasses = new MutableClassHolderSource();
         MissingItemsProcessor missingItemsProcessor = new MissingItemsProcessor(dependency,
@@ -576,6 +677,75 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         return cutClasses;
     }
 
+    private ListableClassHolderSource linkInParallel(DependencyAnalyzer dependency) {
+        MutableClassHolderSource cutClasses = new MutableClassHolderSource();
+        DependencyInfo synchronizedDependency = dependency == dependencyAnalyzer && sharedDependencyInfo != null
+                ? sharedDependencyInfo
+                : new SynchronizedDependencyInfo(dependency);
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            List<List<String>> chunks = ParallelTasks.splitIntoChunks(dependency.getReachableClasses(),
+                    threadCount);
+            List<ForkJoinTask<LinkedChunk>> tasks = new ArrayList<>();
+            for (List<String> chunk : chunks) {
+                tasks.add(pool.submit(() -> linkChunk(synchronizedDependency, chunk)));
+            }
+
+            for (int i = 0; i < tasks.size(); ++i) {
+                LinkedChunk linkedChunk = tasks.get(i).join();
+                for (ClassHolder cls : linkedChunk.classes) {
+                    cutClasses.putClassHolder(cls);
+                }
+                diagnostics.addAll(linkedChunk.diagnostics);
+                compileProgressValue += chunks.get(i).size();
+                reportCompileProgress(compileProgressValue);
+                if (wasCancelled()) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return cutClasses;
+    }
+
+    private LinkedChunk linkChunk(DependencyInfo dependency, List<String> classNames) {
+        LinkedChunk result = new LinkedChunk();
+        Linker linker = new Linker(dependency);
+        MissingItemsProcessor missingItemsProcessor = new MissingItemsProcessor(dependency,
+                new ClassHierarchy(dependency.getClassSource()), result.diagnostics, target.getPlatformTags());
+        for (String className : classNames) {
+            if (wasCancelled()) {
+                break;
+            }
+            ClassReader clsReader = dependency.getClassSource().get(className);
+            if (clsReader != null) {
+                ClassHolder cls = ModelUtils.copyClass(clsReader);
+                result.classes.add(cls);
+                missingItemsProcessor.processClass(cls);
+                linker.link(cls);
+            }
+        }
+        return result;
+    }
+
+    static class LinkedChunk {
+        final List<ClassHolder> classes = new ArrayList<>();
+        final AccumulationDiagnostics diagnostics = new AccumulationDiagnostics();
+    }
+
+    private void stageStarted(TeaVMBuildStage stage) {
+        if (buildStageListener != null) {
+            buildStageListener.stageStarted(stage);
+        }
+    }
+
+    private void stageFinished(TeaVMBuildStage stage) {
+        if (buildStageListener != null) {
+            buildStageListener.stageFinished(stage);
+        }
+    }
+
     private void reportPhase(TeaVMPhase phase, int progressLimit) {
         if (progressListener.phaseStarted(phase, progressLimit) == TeaVMProgressFeedback.CANCEL) {
             cancelled = true;
@@ -597,8 +767,13 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         if (wasCancelled()) {
             return;
         }
+        if (threadCount > 1) {
+            devirtualizeInParallel(classes);
+            return;
+        }
         Devirtualization devirtualization = new Devirtualization(dependencyAnalyzer,
                 dependencyAnalyzer.getClassHierarchy());
+        devirtualization.setGuardedDispatchLimit(guardedDispatchLimit);
         for (String className : classes.getClassNames()) {
             ClassHolder cls = classes.get(className);
             for (MethodHolder method : cls.getMethods()) {
@@ -614,6 +789,43 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         virtualMethods = devirtualization.getVirtualMethods();
     }
 
+    private void devirtualizeInParallel(ListableClassHolderSource classes) {
+        DependencyInfo synchronizedDependency = getDependencyInfo();
+        Set<MethodReference> allVirtualMethods = new HashSet<>();
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            List<List<String>> chunks = ParallelTasks.splitIntoChunks(classes.getClassNames(), threadCount);
+            List<ForkJoinTask<Set<? extends MethodReference>>> tasks = new ArrayList<>();
+            for (List<String> chunk : chunks) {
+                tasks.add(pool.submit(() -> {
+                    Devirtualization devirtualization = new Devirtualization(synchronizedDependency,
+                            new ClassHierarchy(synchronizedDependency.getClassSource()));
+                    devirtualization.setGuardedDispatchLimit(guardedDispatchLimit);
+                    for (String className : chunk) {
+                        for (MethodHolder method : classes.get(className).getMethods()) {
+                            if (method.getProgram() != null) {
+                                devirtualization.apply(method);
+                            }
+                        }
+                    }
+                    return devirtualization.getVirtualMethods();
+                }));
+            }
+
+            for (int i = 0; i < tasks.size(); ++i) {
+                allVirtualMethods.addAll(tasks.get(i).join());
+                compileProgressValue += chunks.get(i).size();
+                reportCompileProgress(compileProgressValue);
+                if (wasCancelled()) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        virtualMethods = allVirtualMethods;
+    }
+
     private void inline(ListableClassHolderSource classes) {
         if (optimizationLevel == TeaVMOptimizationLevel.SIMPLE) {
             return;
@@ -666,6 +878,10 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     }
 
     private void optimize(ListableClassHolderSource classSource) {
+        if (threadCount > 1) {
+            optimizeInParallel(classSource);
+            return;
+        }
         for (String className : classSource.getClassNames()) {
             ClassHolder cls = classSource.get(className);
             for (MethodHolder method : cls.getMethods()) {
@@ -678,58 +894,146 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         }
     }
 
+    /*
+     * Splits optimization of each class into two tasks which run in the pool: the optimization loop and
+     * register allocation. Everything that may touch shared state (program cache, target's transformations,
+     * progress listener) runs on the calling thread in the original class order, so the result does
+     * not depend on the number of threads and on scheduling.
+     */
+    private void optimizeInParallel(ListableClassHolderSource classSource) {
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            List<OptimizationBatch> batches = new ArrayList<>();
+            for (String className : classSource.getClassNames()) {
+                ClassHolder cls = classSource.get(className);
+                OptimizationBatch batch = new OptimizationBatch();
+                for (MethodHolder method : cls.getMethods()) {
+                    if (method.getProgram() == null) {
+                        continue;
+                    }
+                    Program cachedProgram = getCachedProgram(method);
+                    if (cachedProgram != null) {
+                        method.setProgram(cachedProgram);
+                        continue;
+                    }
+                    Program program = ProgramUtils.copy(method.getProgram());
+                    target.beforeOptimizations(program, method);
+                    if (program.basicBlockCount() > 0) {
+                        batch.methods.add(method);
+                        batch.programs.add(program);
+                    } else {
+                        storeOptimizedProgram(method, program);
+                    }
+                }
+                batch.task = pool.submit(() -> {
+                    for (int i = 0; i < batch.methods.size(); ++i) {
+                        applyOptimizations(batch.methods.get(i), batch.programs.get(i));
+                    }
+                });
+                batches.add(batch);
+            }
+
+            for (OptimizationBatch batch : batches) {
+                batch.task.join();
+                for (int i = 0; i < batch.methods.size(); ++i) {
+                    target.afterOptimizations(batch.programs.get(i), batch.methods.get(i));
+                }
+                batch.task = pool.submit(() -> {
+                    for (int i = 0; i < batch.methods.size(); ++i) {
+                        allocateRegisters(batch.methods.get(i), batch.programs.get(i));
+                    }
+                });
+                reportCompileProgress(++compileProgressValue);
+                if (wasCancelled()) {
+                    return;
+                }
+            }
+
+            for (OptimizationBatch batch : batches) {
+                batch.task.join();
+                for (int i = 0; i < batch.methods.size(); ++i) {
+                    storeOptimizedProgram(batch.methods.get(i), batch.programs.get(i));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    static class OptimizationBatch {
+        final List<MethodHolder> methods = new ArrayList<>();
+        final List<Program> programs = new ArrayList<>();
+        ForkJoinTask<?> task;
+    }
+
     private void optimizeMethod(MethodHolder method) {
         if (method.getProgram() == null) {
             return;
         }
 
-        Program optimizedProgram = !cacheStatus.isStaleMethod(method.getReference())
-                ? programCache.get(method.getReference(), cacheStatus)
-                : null;
+        Program optimizedProgram = getCachedProgram(method);
         if (optimizedProgram == null) {
             optimizedProgram = optimizeMethodCacheMiss(method, ProgramUtils.copy(method.getProgram()));
-            Program finalProgram = optimizedProgram;
-            programCache.store(method.getReference(), finalProgram,
-                    () -> programDependencyExtractor.extractDependencies(finalProgram));
+            storeOptimizedProgram(method, optimizedProgram);
+        } else {
+            method.setProgram(optimizedProgram);
         }
-        method.setProgram(optimizedProgram);
+    }
+
+    private Program getCachedProgram(MethodHolder method) {
+        return !cacheStatus.isStaleMethod(method.getReference())
+                ? programCache.get(method.getReference(), cacheStatus)
+                : null;
+    }
+
+    private void storeOptimizedProgram(MethodHolder method, Program program) {
+        programCache.store(method.getReference(), program,
+                () -> programDependencyExtractor.extractDependencies(program));
+        method.setProgram(program);
     }
 
     private Program optimizeMethodCacheMiss(MethodHolder method, Program optimizedProgram) {
         target.beforeOptimizations(optimizedProgram, method);
 
         if (optimizedProgram.basicBlockCount() > 0) {
-            MethodOptimizationContextImpl context = new MethodOptimizationContextImpl(method);
-            boolean changed;
-            do {
-                changed = false;
-                for (MethodOptimization optimization : getOptimizations()) {
+            applyOptimizations(method, optimizedProgram);
+            target.afterOptimizations(optimizedProgram, method);
+            allocateRegisters(method, optimizedProgram);
+        }
+
+        return optimizedProgram;
+    }
+
+    private void applyOptimizations(MethodHolder method, Program optimizedProgram) {
+        MethodOptimizationContextImpl context = new MethodOptimizationContextImpl(method);
+        boolean changed;
+        do {
+            changed = false;
+            for (MethodOptimization optimization : getOptimizations()) {
+                try {
+                    changed |= optimization.optimize(context, optimizedProgram);
+                } catch (Exception | AssertionError e) {
+                    ListingBuilder listingBuilder = new ListingBuilder();
                     try {
-                        changed |= optimization.optimize(context, optimizedProgram);
-                    } catch (Exception | AssertionError e) {
-                        ListingBuilder listingBuilder = new ListingBuilder();
-                        try {
-                            String listing = listingBuilder.buildListing(optimizedProgram, "");
-                            System.err.println("Error optimizing program for method " + method.getReference()
-                                    + ":\n" + listing);
-                        } catch (RuntimeException e2) {
-                            System.err.println("Error optimizing program for method " + method.getReference());
-                            // do nothing
-                        }
-                        throw new RuntimeException(e);
+                        String listing = listingBuilder.buildListing(optimizedProgram, "");
+                        System.err.println("Error optimizing program for method " + method.getReference()
+                                + ":\n" + listing);
+                    } catch (RuntimeException e2) {
+                        System.err.println("Error optimizing program for method " + method.getReference());
+                        // do nothing
                     }
+                    throw new RuntimeException(e);
                 }
-            } while (changed);
-
-            target.afterOptimizations(optimizedProgram, method);
-            if (target.requiresRegisterAllocation()) {
-                RegisterAllocator allocator = new RegisterAllocator();
-                allocator.allocateRegisters(method.getReference(), optimizedProgram,
-                        optimizationLevel == TeaVMOptimizationLevel.SIMPLE);
             }
-        }
+        } while (changed);
+    }
 
-        return optimizedProgram;
+    private void allocateRegisters(MethodHolder method, Program optimizedProgram) {
+        if (target.requiresRegisterAllocation()) {
+            RegisterAllocator allocator = new RegisterAllocator();
+            allocator.allocateRegisters(method.getReference(), optimizedProgram,
+                    optimizationLevel == TeaVMOptimizationLevel.SIMPLE);
+        }
     }
 
     class MethodOptimizationContextImpl implements MethodOptimizationContext {
@@ -746,7 +1050,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
 
         @Override
         public DependencyInfo getDependencyInfo() {
-            return dependencyAnalyzer;
+            return TeaVM.this.getDependencyInfo();
         }
     }
 
@@ -854,7 +1158,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
 
         @Override
         public DependencyInfo getDependencyInfo() {
-            return dependencyAnalyzer;
+            return TeaVM.this.getDependencyInfo();
         }
 
         @Override
@@ -909,6 +1213,11 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             return classInitializerInfo;
         }
 
+        @Override
+        public int getThreadCount() {
+            return threadCount;
+        }
+
         @Override
         public TeaVMOptimizationLevel getOptimizationLevel() {
             return optimizationLevel;
@@ -0,0 +1,32 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+/**
+ * Stages of the build performed by {@link TeaVM#build(BuildTarget, String)}. Unlike {@link TeaVMPhase},
+ * which is intended for progress reporting, stages describe what compiler actually does, so they are useful
+ * for profiling.
+ *
+ * @see TeaVMBuildStageListener
+ */
+public enum TeaVMBuildStage {
+    DEPENDENCY_ANALYSIS,
+    LINKING,
+    DEVIRTUALIZATION,
+    INLINING,
+    OPTIMIZATION,
+    RENDERING
+}
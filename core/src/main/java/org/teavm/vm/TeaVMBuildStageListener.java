@@ -0,0 +1,33 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+/**
+ * <p>Receives notifications about {@link TeaVMBuildStage stages} of the build.</p>
+ *
+ * <p>Some stages may be skipped, depending on optimization level. In {@link TeaVMOptimizationLevel#SIMPLE} mode
+ * classes are linked and optimized lazily while rendering, so only {@link TeaVMBuildStage#DEPENDENCY_ANALYSIS}
+ * and {@link TeaVMBuildStage#RENDERING} are reported, and time spent on linking and optimization is included
+ * into rendering.</p>
+ *
+ * <p>Every {@link #stageStarted(TeaVMBuildStage)} is followed by {@link #stageFinished(TeaVMBuildStage)} for
+ * the same stage, even if the stage fails with an exception or the build is cancelled.</p>
+ */
+public interface TeaVMBuildStageListener {
+    void stageStarted(TeaVMBuildStage stage);
+
+    void stageFinished(TeaVMBuildStage stage);
+}
@@ -36,6 +36,10 @@ public interface TeaVMTargetController {
 
     CacheStatus getCacheStatus();
 
+    /**
+     * Results of dependency analysis. When {@link #getThreadCount()} is greater than 1,
+     * they can be queried from several threads.
+     */
     DependencyInfo getDependencyInfo();
 
     Diagnostics getDiagnostics();
@@ -59,4 +63,11 @@ public interface TeaVMTargetController {
     void addVirtualMethods(Predicate<MethodReference> methods);
 
     ClassInitializerInfo getClassInitializerInfo();
+
+    /**
+     * Number of worker threads the target may use to generate code.
+     * Values less than 2 mean that code should be generated on the calling thread.
+     * Targets must produce the same output regardless of this value.
+     */
+    int getThreadCount();
 }
@@ -6,9 +6,11 @@ int32_t teavm_reference_enqueue(TeaVM_Reference* reference) {
         return INT32_C(0);
     }
 
+    teavm_gc_writeBarrier(queue);
     if (queue->last == NULL) {
         queue->first = reference;
     } else {
+        teavm_gc_writeBarrier(queue->last);
         queue->last->next = reference;
     }
     queue->last = reference;
@@ -34,6 +36,7 @@ TeaVM_Reference* teavm_reference_poll(TeaVM_ReferenceQueue* queue) {
     }
 
     TeaVM_Reference* reference = queue->first;
+    teavm_gc_writeBarrier(queue);
     queue->first = reference->next;
     if (queue->first == NULL) {
         queue->last = NULL;
@@ -42,6 +45,7 @@ TeaVM_Reference* teavm_reference_poll(TeaVM_ReferenceQueue* queue) {
 }
 
 void teavm_reference_init(TeaVM_Reference* reference, TeaVM_Object* object, TeaVM_ReferenceQueue* queue) {
+    teavm_gc_writeBarrier(reference);
     reference->object = object;
     reference->queue = queue;
 }
\ No newline at end of file
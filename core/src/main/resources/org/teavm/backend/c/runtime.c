@@ -32,6 +32,7 @@ void* teavm_gc_regionsAddress = NULL;
 int32_t teavm_gc_regionSize = INT32_C(32768);
 int32_t teavm_gc_regionMaxCount = INT32_C(0);
 int64_t teavm_gc_availableBytes = INT64_C(0);
+int64_t teavm_gc_maxAvailableBytes = INT64_C(0);
 
 char *teavm_beforeClasses;
 
@@ -89,37 +90,67 @@ void teavm_beforeInit() {
 }
 
 #ifdef __GNUC__
-void teavm_initHeap(int64_t heapSize) {
-    long workSize = heapSize / 16;
-    long regionsSize = (long) (heapSize / teavm_gc_regionSize);
+static long teavm_pageSize;
 
-    long pageSize = sysconf(_SC_PAGE_SIZE);
-    int heapPages = (int) ((heapSize + pageSize + 1) / pageSize * pageSize);
-    int workPages = (int) ((workSize + pageSize + 1) / pageSize * pageSize);
-    int regionsPages = (int) ((regionsSize * 2 + pageSize + 1) / pageSize * pageSize);
+static int64_t teavm_roundToPages(int64_t size) {
+    return (size + teavm_pageSize - 1) / teavm_pageSize * teavm_pageSize;
+}
+
+void teavm_initHeap(int64_t minHeapSize, int64_t maxHeapSize) {
+    if (maxHeapSize < minHeapSize) {
+        maxHeapSize = minHeapSize;
+    }
+    long workSize = maxHeapSize / 16;
+    long regionsSize = (long) (maxHeapSize / teavm_gc_regionSize);
+
+    teavm_pageSize = sysconf(_SC_PAGE_SIZE);
+    int64_t heapPages = teavm_roundToPages(maxHeapSize);
+    int64_t workPages = teavm_roundToPages(workSize);
+    int64_t regionsPages = teavm_roundToPages(regionsSize * 2);
 
     teavm_gc_heapAddress = mmap(
             NULL,
             heapPages,
-            PROT_READ | PROT_WRITE,
-            MAP_PRIVATE | MAP_ANONYMOUS,
+            PROT_NONE,
+            MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE,
             0, 0);
+    mprotect(teavm_gc_heapAddress, teavm_roundToPages(minHeapSize), PROT_READ | PROT_WRITE);
     teavm_gc_gcStorageAddress = mmap(
             NULL,
             workPages,
             PROT_READ | PROT_WRITE,
-            MAP_PRIVATE | MAP_ANONYMOUS,
+            MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE,
             0, 0);
     teavm_gc_regionsAddress = mmap(
             NULL,
             regionsPages,
             PROT_READ | PROT_WRITE,
-            MAP_PRIVATE | MAP_ANONYMOUS,
+            MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE,
             0, 0);
 
     teavm_gc_gcStorageSize = (int) workSize;
     teavm_gc_regionMaxCount = regionsSize;
-    teavm_gc_availableBytes = heapSize;
+    teavm_gc_availableBytes = minHeapSize;
+    teavm_gc_maxAvailableBytes = maxHeapSize;
+}
+
+int32_t teavm_gc_resizeHeap(int64_t newSize) {
+    if (newSize > teavm_gc_maxAvailableBytes) {
+        return 0;
+    }
+    char* base = (char*) teavm_gc_heapAddress;
+    int64_t oldPages = teavm_roundToPages(teavm_gc_availableBytes);
+    int64_t newPages = teavm_roundToPages(newSize);
+    if (newPages > oldPages) {
+        if (mprotect(base + oldPages, newPages - oldPages, PROT_READ | PROT_WRITE) != 0) {
+            return 0;
+        }
+    } else if (newPages < oldPages) {
+        madvise(base + newPages, oldPages - newPages, MADV_DONTNEED);
+        mprotect(base + newPages, oldPages - newPages, PROT_NONE);
+    }
+    teavm_gc_availableBytes = newSize;
+    return 1;
 }
 
 int64_t teavm_currentTimeMillis() {
@@ -137,23 +168,33 @@ int64_t teavm_currentTimeNano() {
 #endif
 
 #ifdef _MSC_VER
-void teavm_initHeap(int64_t heapSize) {
-    long workSize = heapSize / 16;
-    long regionsSize = (long) (heapSize / teavm_gc_regionSize);
+static long teavm_pageSize;
+
+static int64_t teavm_roundToPages(int64_t size) {
+    return (size + teavm_pageSize - 1) / teavm_pageSize * teavm_pageSize;
+}
+
+void teavm_initHeap(int64_t minHeapSize, int64_t maxHeapSize) {
+    if (maxHeapSize < minHeapSize) {
+        maxHeapSize = minHeapSize;
+    }
+    long workSize = maxHeapSize / 16;
+    long regionsSize = (long) (maxHeapSize / teavm_gc_regionSize);
 
     SYSTEM_INFO systemInfo;
     GetSystemInfo(&systemInfo);
-    long pageSize = systemInfo.dwPageSize;
-    int heapPages = (int) ((heapSize + pageSize + 1) / pageSize * pageSize);
-    int workPages = (int) ((workSize + pageSize + 1) / pageSize * pageSize);
-    int regionsPages = (int) ((regionsSize * 2 + pageSize + 1) / pageSize * pageSize);
+    teavm_pageSize = systemInfo.dwPageSize;
+    int64_t heapPages = teavm_roundToPages(maxHeapSize);
+    int64_t workPages = teavm_roundToPages(workSize);
+    int64_t regionsPages = teavm_roundToPages(regionsSize * 2);
 
     teavm_gc_heapAddress = VirtualAlloc(
             NULL,
             heapPages,
-            MEM_RESERVE | MEM_COMMIT,
-            PAGE_READWRITE
+            MEM_RESERVE,
+            PAGE_NOACCESS
     );
+    VirtualAlloc(teavm_gc_heapAddress, teavm_roundToPages(minHeapSize), MEM_COMMIT, PAGE_READWRITE);
     teavm_gc_gcStorageAddress = VirtualAlloc(
             NULL,
             workPages,
@@ -169,7 +210,26 @@ void teavm_initHeap(int64_t heapSize) {
 
     teavm_gc_gcStorageSize = (int) workSize;
     teavm_gc_regionMaxCount = regionsSize;
-    teavm_gc_availableBytes = heapSize;
+    teavm_gc_availableBytes = minHeapSize;
+    teavm_gc_maxAvailableBytes = maxHeapSize;
+}
+
+int32_t teavm_gc_resizeHeap(int64_t newSize) {
+    if (newSize > teavm_gc_maxAvailableBytes) {
+        return 0;
+    }
+    char* base = (char*) teavm_gc_heapAddress;
+    int64_t oldPages = teavm_roundToPages(teavm_gc_availableBytes);
+    int64_t newPages = teavm_roundToPages(newSize);
+    if (newPages > oldPages) {
+        if (VirtualAlloc(base + oldPages, newPages - oldPages, MEM_COMMIT, PAGE_READWRITE) == NULL) {
+            return 0;
+        }
+    } else if (newPages < oldPages) {
+        VirtualFree(base + newPages, oldPages - newPages, MEM_DECOMMIT);
+    }
+    teavm_gc_availableBytes = newSize;
+    return 1;
 }
 
 static SYSTEMTIME teavm_unixEpochStart = {
@@ -199,6 +259,312 @@ int64_t teavm_currentTimeMillis() {
 }
 #endif
 
+#ifdef TEAVM_GC_THREADS
+// GC worker threads are started by the first collection and then wait for subsequent collections,
+// so that a collection does not pay for creating and joining threads. Worker with index i runs
+// task i; if a worker could not be started, its task runs on the calling thread.
+static void (*teavm_gc_poolTask)(int32_t) = NULL;
+static int32_t teavm_gc_poolTaskCount = 0;
+static int64_t teavm_gc_poolGeneration = 0;
+static int32_t teavm_gc_poolPending = 0;
+static int32_t teavm_gc_poolInitialized = 0;
+static int32_t teavm_gc_poolWorkerCount = 0;
+static int32_t teavm_gc_poolIndexes[TEAVM_GC_THREADS];
+static int32_t teavm_gc_poolStarted[TEAVM_GC_THREADS];
+
+#ifdef __GNUC__
+#include <pthread.h>
+
+static pthread_mutex_t teavm_gc_poolLock = PTHREAD_MUTEX_INITIALIZER;
+static pthread_cond_t teavm_gc_poolStartCondition = PTHREAD_COND_INITIALIZER;
+static pthread_cond_t teavm_gc_poolDoneCondition = PTHREAD_COND_INITIALIZER;
+
+static void* teavm_gc_poolWorker(void* data) {
+    int32_t index = *(int32_t*) data;
+    int64_t generation = 0;
+    pthread_mutex_lock(&teavm_gc_poolLock);
+    while (1) {
+        while (teavm_gc_poolGeneration == generation) {
+            pthread_cond_wait(&teavm_gc_poolStartCondition, &teavm_gc_poolLock);
+        }
+        generation = teavm_gc_poolGeneration;
+        void (*task)(int32_t) = teavm_gc_poolTask;
+        int32_t shouldRun = index < teavm_gc_poolTaskCount;
+        pthread_mutex_unlock(&teavm_gc_poolLock);
+
+        if (shouldRun) {
+            task(index);
+        }
+
+        pthread_mutex_lock(&teavm_gc_poolLock);
+        if (--teavm_gc_poolPending == 0) {
+            pthread_cond_signal(&teavm_gc_poolDoneCondition);
+        }
+    }
+    return NULL;
+}
+
+static void teavm_gc_initPool() {
+    pthread_attr_t attributes;
+    pthread_attr_init(&attributes);
+    pthread_attr_setdetachstate(&attributes, PTHREAD_CREATE_DETACHED);
+    for (int32_t i = 1; i < TEAVM_GC_THREADS; ++i) {
+        pthread_t thread;
+        teavm_gc_poolIndexes[i] = i;
+        teavm_gc_poolStarted[i] = pthread_create(&thread, &attributes, teavm_gc_poolWorker,
+                &teavm_gc_poolIndexes[i]) == 0;
+        if (teavm_gc_poolStarted[i]) {
+            teavm_gc_poolWorkerCount++;
+        }
+    }
+    pthread_attr_destroy(&attributes);
+}
+
+void teavm_gc_runSweepTasks(void (*task)(int32_t), int32_t count) {
+    if (!teavm_gc_poolInitialized) {
+        teavm_gc_poolInitialized = 1;
+        teavm_gc_initPool();
+    }
+
+    pthread_mutex_lock(&teavm_gc_poolLock);
+    teavm_gc_poolTask = task;
+    teavm_gc_poolTaskCount = count;
+    teavm_gc_poolPending = teavm_gc_poolWorkerCount;
+    teavm_gc_poolGeneration++;
+    pthread_cond_broadcast(&teavm_gc_poolStartCondition);
+    pthread_mutex_unlock(&teavm_gc_poolLock);
+
+    task(0);
+    for (int32_t i = 1; i < count; ++i) {
+        if (!teavm_gc_poolStarted[i]) {
+            task(i);
+        }
+    }
+
+    pthread_mutex_lock(&teavm_gc_poolLock);
+    while (teavm_gc_poolPending > 0) {
+        pthread_cond_wait(&teavm_gc_poolDoneCondition, &teavm_gc_poolLock);
+    }
+    pthread_mutex_unlock(&teavm_gc_poolLock);
+}
+#endif
+
+#ifdef _MSC_VER
+static CRITICAL_SECTION teavm_gc_poolLock;
+static CONDITION_VARIABLE teavm_gc_poolStartCondition;
+static CONDITION_VARIABLE teavm_gc_poolDoneCondition;
+
+static DWORD WINAPI teavm_gc_poolWorker(LPVOID data) {
+    int32_t index = *(int32_t*) data;
+    int64_t generation = 0;
+    EnterCriticalSection(&teavm_gc_poolLock);
+    while (1) {
+        while (teavm_gc_poolGeneration == generation) {
+            SleepConditionVariableCS(&teavm_gc_poolStartCondition, &teavm_gc_poolLock, INFINITE);
+        }
+        generation = teavm_gc_poolGeneration;
+        void (*task)(int32_t) = teavm_gc_poolTask;
+        int32_t shouldRun = index < teavm_gc_poolTaskCount;
+        LeaveCriticalSection(&teavm_gc_poolLock);
+
+        if (shouldRun) {
+            task(index);
+        }
+
+        EnterCriticalSection(&teavm_gc_poolLock);
+        if (--teavm_gc_poolPending == 0) {
+            WakeConditionVariable(&teavm_gc_poolDoneCondition);
+        }
+    }
+    return 0;
+}
+
+static void teavm_gc_initPool() {
+    InitializeCriticalSection(&teavm_gc_poolLock);
+    InitializeConditionVariable(&teavm_gc_poolStartCondition);
+    InitializeConditionVariable(&teavm_gc_poolDoneCondition);
+    for (int32_t i = 1; i < TEAVM_GC_THREADS; ++i) {
+        teavm_gc_poolIndexes[i] = i;
+        HANDLE thread = CreateThread(NULL, 0, teavm_gc_poolWorker, &teavm_gc_poolIndexes[i], 0, NULL);
+        teavm_gc_poolStarted[i] = thread != NULL;
+        if (thread != NULL) {
+            CloseHandle(thread);
+            teavm_gc_poolWorkerCount++;
+        }
+    }
+}
+
+void teavm_gc_runSweepTasks(void (*task)(int32_t), int32_t count) {
+    if (!teavm_gc_poolInitialized) {
+        teavm_gc_poolInitialized = 1;
+        teavm_gc_initPool();
+    }
+
+    EnterCriticalSection(&teavm_gc_poolLock);
+    teavm_gc_poolTask = task;
+    teavm_gc_poolTaskCount = count;
+    teavm_gc_poolPending = teavm_gc_poolWorkerCount;
+    teavm_gc_poolGeneration++;
+    WakeAllConditionVariable(&teavm_gc_poolStartCondition);
+    LeaveCriticalSection(&teavm_gc_poolLock);
+
+    task(0);
+    for (int32_t i = 1; i < count; ++i) {
+        if (!teavm_gc_poolStarted[i]) {
+            task(i);
+        }
+    }
+
+    EnterCriticalSection(&teavm_gc_poolLock);
+    while (teavm_gc_poolPending > 0) {
+        SleepConditionVariableCS(&teavm_gc_poolDoneCondition, &teavm_gc_poolLock, INFINITE);
+    }
+    LeaveCriticalSection(&teavm_gc_poolLock);
+}
+#endif
+#endif
+
+#ifdef TEAVM_GC_TELEMETRY
+typedef struct {
+    TeaVM_Class* cls;
+    int64_t size;
+    int64_t samples;
+} TeaVM_AllocationSample;
+
+static FILE* teavm_gc_log = NULL;
+static int64_t teavm_gc_startTime = 0;
+static TeaVM_AllocationSample* teavm_gc_samples = NULL;
+static int32_t teavm_gc_sampleCount = 0;
+static int32_t teavm_gc_sampleCapacity = 0;
+
+static FILE* teavm_gc_logFile() {
+    if (teavm_gc_log == NULL) {
+        char* path = getenv("TEAVM_GC_LOG");
+        if (path != NULL && path[0] != '\0') {
+            teavm_gc_log = fopen(path, "a");
+        }
+        if (teavm_gc_log == NULL) {
+            teavm_gc_log = stderr;
+        }
+        teavm_gc_startTime = teavm_currentTimeMillis();
+    }
+    return teavm_gc_log;
+}
+
+void teavm_gc_reportCollection(int32_t kind, int64_t pauseTime, int64_t heapSize, int64_t freeMemory,
+        int64_t largestFreeChunk, int64_t allocatedBytes) {
+    static const char* kinds[] = { "minor", "major", "incremental" };
+    FILE* log = teavm_gc_logFile();
+    fprintf(log, "{\"event\":\"gc\",\"time\":%" PRId64 ",\"kind\":\"%s\",\"pause\":%" PRId64
+            ",\"heapSize\":%" PRId64 ",\"freeMemory\":%" PRId64 ",\"largestFreeChunk\":%" PRId64
+            ",\"allocatedBytes\":%" PRId64 "}\n",
+            teavm_currentTimeMillis() - teavm_gc_startTime, kinds[kind], pauseTime, heapSize, freeMemory,
+            largestFreeChunk, allocatedBytes);
+    fflush(log);
+}
+
+static int teavm_gc_compareSamples(const void* first, const void* second) {
+    int64_t a = ((TeaVM_AllocationSample*) first)->size;
+    int64_t b = ((TeaVM_AllocationSample*) second)->size;
+    return a > b ? -1 : a < b ? 1 : 0;
+}
+
+static void teavm_gc_writeAllocationSamples() {
+    FILE* log = teavm_gc_logFile();
+    TeaVM_AllocationSample* samples = malloc(sizeof(TeaVM_AllocationSample) * teavm_gc_sampleCount);
+    int32_t count = 0;
+    for (int32_t i = 0; i < teavm_gc_sampleCapacity; ++i) {
+        if (teavm_gc_samples[i].cls != NULL) {
+            samples[count++] = teavm_gc_samples[i];
+        }
+    }
+    qsort(samples, count, sizeof(TeaVM_AllocationSample), teavm_gc_compareSamples);
+    for (int32_t i = 0; i < count; ++i) {
+        char* name = teavm_stringToC(*samples[i].cls->name);
+        fprintf(log, "{\"event\":\"allocations\",\"class\":\"%s\",\"bytes\":%" PRId64 ",\"samples\":%" PRId64 "}\n",
+                name, samples[i].size, samples[i].samples);
+        free(name);
+    }
+    fflush(log);
+    free(samples);
+}
+
+static void teavm_gc_putSample(TeaVM_Class* cls, int64_t size, int64_t samples) {
+    int32_t index = (int32_t) (((uintptr_t) cls >> 3) % (uintptr_t) teavm_gc_sampleCapacity);
+    while (teavm_gc_samples[index].cls != NULL && teavm_gc_samples[index].cls != cls) {
+        index = (index + 1) % teavm_gc_sampleCapacity;
+    }
+    if (teavm_gc_samples[index].cls == NULL) {
+        teavm_gc_samples[index].cls = cls;
+        teavm_gc_sampleCount++;
+    }
+    teavm_gc_samples[index].size += size;
+    teavm_gc_samples[index].samples += samples;
+}
+
+void teavm_gc_reportAllocationSample(TeaVM_Class* cls, int32_t size) {
+    if (teavm_gc_samples == NULL) {
+        atexit(teavm_gc_writeAllocationSamples);
+    }
+    if ((teavm_gc_sampleCount + 1) * 2 > teavm_gc_sampleCapacity) {
+        TeaVM_AllocationSample* oldSamples = teavm_gc_samples;
+        int32_t oldCapacity = teavm_gc_sampleCapacity;
+        teavm_gc_sampleCapacity = oldCapacity == 0 ? 64 : oldCapacity * 2;
+        teavm_gc_samples = calloc(teavm_gc_sampleCapacity, sizeof(TeaVM_AllocationSample));
+        teavm_gc_sampleCount = 0;
+        for (int32_t i = 0; i < oldCapacity; ++i) {
+            if (oldSamples[i].cls != NULL) {
+                teavm_gc_putSample(oldSamples[i].cls, oldSamples[i].size, oldSamples[i].samples);
+            }
+        }
+        free(oldSamples);
+    }
+    teavm_gc_putSample(cls, size, 1);
+}
+#endif
+
+#ifdef TEAVM_ALLOCATION_PROFILER
+static FILE* teavm_profiler_output = NULL;
+
+void* teavm_profiler_allocateStorage() {
+    void* storage = calloc(1, TEAVM_ALLOCATION_PROFILER_STORAGE);
+    if (storage == NULL) {
+        fprintf(stderr, "Could not allocate memory for allocation profiler\n");
+        exit(1);
+    }
+    return storage;
+}
+
+void teavm_profiler_beginOutput() {
+    char* path = getenv("TEAVM_ALLOCATION_PROFILE");
+    if (path != NULL && path[0] != '\0') {
+        teavm_profiler_output = fopen(path, "w");
+    }
+    if (teavm_profiler_output == NULL) {
+        teavm_profiler_output = stderr;
+    }
+}
+
+void teavm_profiler_writeString(void* s) {
+    char* cstr = teavm_stringToC(s);
+    fputs(cstr, teavm_profiler_output);
+    free(cstr);
+}
+
+void teavm_profiler_writeLong(int64_t value) {
+    fprintf(teavm_profiler_output, "%" PRId64, value);
+}
+
+void teavm_profiler_endOutput() {
+    if (teavm_profiler_output != stderr) {
+        fclose(teavm_profiler_output);
+    } else {
+        fflush(teavm_profiler_output);
+    }
+    teavm_profiler_output = NULL;
+}
+#endif
+
 int32_t teavm_timeZoneOffset() {
     time_t t = time(NULL);
     time_t local = mktime(localtime(&t));
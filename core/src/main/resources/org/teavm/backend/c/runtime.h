@@ -2,6 +2,7 @@
 #include <uchar.h>
 #include <stdlib.h>
 #include <stddef.h>
+#include <string.h>
 #include <math.h>
 
 #ifdef __GNUC__
@@ -159,8 +160,114 @@ extern void* teavm_gc_regionsAddress;
 extern int32_t teavm_gc_regionSize;
 extern int32_t teavm_gc_regionMaxCount;
 extern int64_t teavm_gc_availableBytes;
+extern int64_t teavm_gc_maxAvailableBytes;
+extern int32_t teavm_gc_resizeHeap(int64_t);
+#ifdef TEAVM_GENERATIONAL_GC
+    #define teavm_gc_generational INT32_C(1)
+#else
+    #define teavm_gc_generational INT32_C(0)
+#endif
+#define teavm_gc_incremental INT32_C(0)
+#ifdef TEAVM_COMPACTING_GC
+    #define teavm_gc_compacting INT32_C(1)
+#else
+    #define teavm_gc_compacting INT32_C(0)
+#endif
+#define teavm_gc_sliceTime INT32_C(0)
+#if defined(TEAVM_GC_TELEMETRY) || defined(TEAVM_ALLOCATION_PROFILER)
+    #ifndef TEAVM_ALLOCATION_SAMPLE_INTERVAL
+        #define TEAVM_ALLOCATION_SAMPLE_INTERVAL 524288
+    #endif
+    #define teavm_gc_allocationSampleInterval INT32_C(TEAVM_ALLOCATION_SAMPLE_INTERVAL)
+#else
+    #define teavm_gc_allocationSampleInterval INT32_C(0)
+#endif
+#ifdef TEAVM_GC_TELEMETRY
+    #define teavm_gc_telemetry INT32_C(1)
+    extern void teavm_gc_reportCollection(int32_t kind, int64_t pauseTime, int64_t heapSize, int64_t freeMemory,
+            int64_t largestFreeChunk, int64_t allocatedBytes);
+    extern void teavm_gc_reportAllocationSample(TeaVM_Class* cls, int32_t size);
+#else
+    #define teavm_gc_telemetry INT32_C(0)
+    #define teavm_gc_reportCollection(kind, pauseTime, heapSize, freeMemory, largestFreeChunk, allocatedBytes)
+    #define teavm_gc_reportAllocationSample(cls, size)
+#endif
+#ifdef TEAVM_ALLOCATION_PROFILER
+    #ifndef TEAVM_ALLOCATION_PROFILER_STORAGE
+        #define TEAVM_ALLOCATION_PROFILER_STORAGE 4194304
+    #endif
+    #define teavm_profiler_enabled INT32_C(1)
+    #define teavm_profiler_storageAddress teavm_profiler_allocateStorage()
+    #define teavm_profiler_storageSize INT32_C(TEAVM_ALLOCATION_PROFILER_STORAGE)
+    extern void* teavm_profiler_allocateStorage();
+    extern void teavm_profiler_beginOutput();
+    extern void teavm_profiler_writeString(void* s);
+    extern void teavm_profiler_writeLong(int64_t value);
+    extern void teavm_profiler_endOutput();
+#else
+    #define teavm_profiler_enabled INT32_C(0)
+    #define teavm_profiler_storageAddress NULL
+    #define teavm_profiler_storageSize INT32_C(0)
+    #define teavm_profiler_beginOutput()
+    #define teavm_profiler_writeString(s)
+    #define teavm_profiler_writeLong(value)
+    #define teavm_profiler_endOutput()
+#endif
+#ifdef TEAVM_GC_THREADS
+    #define teavm_gc_sweepThreadCount INT32_C(TEAVM_GC_THREADS)
+    extern void teavm_gc_runSweepTasks(void (*)(int32_t), int32_t);
+#else
+    #define teavm_gc_sweepThreadCount INT32_C(1)
+    #define teavm_gc_runSweepTasks(task, count)
+#endif
+#ifdef TEAVM_GENERATIONAL_GC
+    extern void teavm_gc_writeBarrier(void*);
+#else
+    #define teavm_gc_writeBarrier(object) ((void) (object))
+#endif
 extern void*** teavm_gc_staticRoots;
 
+#define teavm_vector_isSupported INT32_C(0)
+#define TEAVM_VECTOR_FILL(name, type) \
+    static inline void teavm_vector_##name(void* target, type value) { \
+        type data[16 / sizeof(type)]; \
+        for (int i = 0; i < (int) (16 / sizeof(type)); ++i) { \
+            data[i] = value; \
+        } \
+        memcpy(target, data, 16); \
+    }
+#define TEAVM_VECTOR_BINARY(name, type, op) \
+    static inline void teavm_vector_##name(void* first, void* second, void* result) { \
+        type a[16 / sizeof(type)], b[16 / sizeof(type)]; \
+        memcpy(a, first, 16); \
+        memcpy(b, second, 16); \
+        for (int i = 0; i < (int) (16 / sizeof(type)); ++i) { \
+            a[i] = (type) (a[i] op b[i]); \
+        } \
+        memcpy(result, a, 16); \
+    }
+TEAVM_VECTOR_FILL(fillBytes, int8_t)
+TEAVM_VECTOR_FILL(fillShorts, int16_t)
+TEAVM_VECTOR_FILL(fillInts, int32_t)
+TEAVM_VECTOR_FILL(fillLongs, int64_t)
+TEAVM_VECTOR_FILL(fillFloats, float)
+TEAVM_VECTOR_FILL(fillDoubles, double)
+TEAVM_VECTOR_BINARY(and, uint64_t, &)
+TEAVM_VECTOR_BINARY(or, uint64_t, |)
+TEAVM_VECTOR_BINARY(xor, uint64_t, ^)
+TEAVM_VECTOR_BINARY(addBytes, uint8_t, +)
+TEAVM_VECTOR_BINARY(addInts, uint32_t, +)
+TEAVM_VECTOR_BINARY(subInts, uint32_t, -)
+TEAVM_VECTOR_BINARY(mulInts, uint32_t, *)
+TEAVM_VECTOR_BINARY(addFloats, float, +)
+TEAVM_VECTOR_BINARY(mulFloats, float, *)
+TEAVM_VECTOR_BINARY(addDoubles, double, +)
+TEAVM_VECTOR_BINARY(mulDoubles, double, *)
+#undef TEAVM_VECTOR_FILL
+#undef TEAVM_VECTOR_BINARY
+#define teavm_vector_copy(source, target) memmove(target, source, 16)
+#define teavm_vector_equal(first, second) (memcmp(first, second, 16) == 0)
+
 extern double teavm_rand();
 
 static inline float teavm_getNaN() {
@@ -198,7 +305,7 @@ static inline void* teavm_lookupResourceValue(TeaVM_ResourceMap *map, TeaVM_Stri
 extern TeaVM_Array* teavm_resourceMapKeys(TeaVM_ResourceMap *);
 
 extern void teavm_beforeInit();
-extern void teavm_initHeap(int64_t heapSize);
+extern void teavm_initHeap(int64_t minHeapSize, int64_t maxHeapSize);
 extern void teavm_afterInitClasses();
 
 extern int64_t teavm_currentTimeMillis();
@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+"use strict";
+// Replaces functions from runtime.js and long.js when long values are represented by BigInt.
+// Generated code uses BigInt operators directly, these functions are only called from runtime and natives.
+var Long_ZERO = BigInt(0);
+var Long_MIN_VALUE = -BigInt("9223372036854775808");
+var Long_MAX_VALUE = BigInt("9223372036854775807");
+function Long_fromInt(val) {
+    return BigInt(val);
+}
+function Long_fromNumber(val) {
+    if (val !== val) {
+        return Long_ZERO;
+    }
+    if (val >= 9223372036854775807) {
+        return Long_MAX_VALUE;
+    }
+    if (val <= -9223372036854775808) {
+        return Long_MIN_VALUE;
+    }
+    return BigInt(Math.trunc(val));
+}
+function Long_toNumber(val) {
+    return Number(val);
+}
+function Long_eq(a, b) {
+    return a === b;
+}
+function Long_ne(a, b) {
+    return a !== b;
+}
+function Long_gt(a, b) {
+    return a > b;
+}
+function Long_ge(a, b) {
+    return a >= b;
+}
+function Long_lt(a, b) {
+    return a < b;
+}
+function Long_le(a, b) {
+    return a <= b;
+}
+function Long_compare(a, b) {
+    return a < b ? -1 : a > b ? 1 : 0;
+}
+function Long_add(a, b) {
+    return BigInt.asIntN(64, a + b);
+}
+function Long_sub(a, b) {
+    return BigInt.asIntN(64, a - b);
+}
+function Long_mul(a, b) {
+    return BigInt.asIntN(64, a * b);
+}
+function Long_div(a, b) {
+    return BigInt.asIntN(64, a / b);
+}
+function Long_rem(a, b) {
+    return a % b;
+}
+function Long_udiv(a, b) {
+    return BigInt.asIntN(64, BigInt.asUintN(64, a) / BigInt.asUintN(64, b));
+}
+function Long_urem(a, b) {
+    return BigInt.asIntN(64, BigInt.asUintN(64, a) % BigInt.asUintN(64, b));
+}
+function Long_neg(a) {
+    return BigInt.asIntN(64, -a);
+}
+function Long_not(a) {
+    return ~a;
+}
+function Long_and(a, b) {
+    return a & b;
+}
+function Long_or(a, b) {
+    return a | b;
+}
+function Long_xor(a, b) {
+    return a ^ b;
+}
+function Long_shl(a, b) {
+    return BigInt.asIntN(64, a << BigInt(b & 63));
+}
+function Long_shr(a, b) {
+    return a >> BigInt(b & 63);
+}
+function Long_shru(a, b) {
+    return BigInt.asIntN(64, BigInt.asUintN(64, a) >> BigInt(b & 63));
+}
+function $rt_doubleToLongBits(n) {
+    $rt_numberConversionView.setFloat64(0, n, true);
+    return $rt_numberConversionView.getBigInt64(0, true);
+}
+function $rt_longBitsToDouble(n) {
+    $rt_numberConversionView.setBigInt64(0, n, true);
+    return $rt_numberConversionView.getFloat64(0, true);
+}
@@ -42,6 +42,198 @@ inline static float reinterpret_int32(int32_t v) {
     return reinterpret_union_32.f;
 }
 
+typedef int8_t wasm_i8x16 __attribute__((vector_size(16)));
+typedef int16_t wasm_i16x8 __attribute__((vector_size(16)));
+typedef int32_t wasm_i32x4 __attribute__((vector_size(16)));
+typedef int64_t wasm_i64x2 __attribute__((vector_size(16)));
+typedef float wasm_f32x4 __attribute__((vector_size(16)));
+typedef double wasm_f64x2 __attribute__((vector_size(16)));
+typedef wasm_i32x4 wasm_v128;
+
+static inline wasm_v128 wasm_v128_load(int8_t* address) {
+    wasm_v128 result;
+    memcpy(&result, address, sizeof(result));
+    return result;
+}
+
+static inline void wasm_v128_store(int8_t* address, wasm_v128 value) {
+    memcpy(address, &value, sizeof(value));
+}
+
+static inline wasm_v128 wasm_i8x16_splat(int32_t value) {
+    wasm_i8x16 result = { 0 };
+    return (wasm_v128) (result + (int8_t) value);
+}
+
+static inline wasm_v128 wasm_i16x8_splat(int32_t value) {
+    wasm_i16x8 result = { 0 };
+    return (wasm_v128) (result + (int16_t) value);
+}
+
+static inline wasm_v128 wasm_i32x4_splat(int32_t value) {
+    wasm_i32x4 result = { 0 };
+    return (wasm_v128) (result + (int32_t) value);
+}
+
+static inline wasm_v128 wasm_i64x2_splat(int64_t value) {
+    wasm_i64x2 result = { 0 };
+    return (wasm_v128) (result + (int64_t) value);
+}
+
+static inline wasm_v128 wasm_f32x4_splat(float value) {
+    wasm_f32x4 result = { 0 };
+    return (wasm_v128) (result + (float) value);
+}
+
+static inline wasm_v128 wasm_f64x2_splat(double value) {
+    wasm_f64x2 result = { 0 };
+    return (wasm_v128) (result + (double) value);
+}
+
+static inline wasm_v128 wasm_v128_and(wasm_v128 a, wasm_v128 b) {
+    return a & b;
+}
+
+static inline wasm_v128 wasm_v128_or(wasm_v128 a, wasm_v128 b) {
+    return a | b;
+}
+
+static inline wasm_v128 wasm_v128_xor(wasm_v128 a, wasm_v128 b) {
+    return a ^ b;
+}
+
+static inline wasm_v128 wasm_i8x16_add(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i8x16) a + (wasm_i8x16) b);
+}
+
+static inline wasm_v128 wasm_i8x16_sub(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i8x16) a - (wasm_i8x16) b);
+}
+
+static inline wasm_v128 wasm_i8x16_eq(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i8x16) a == (wasm_i8x16) b);
+}
+
+static inline wasm_v128 wasm_i16x8_add(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i16x8) a + (wasm_i16x8) b);
+}
+
+static inline wasm_v128 wasm_i16x8_sub(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i16x8) a - (wasm_i16x8) b);
+}
+
+static inline wasm_v128 wasm_i16x8_mul(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i16x8) a * (wasm_i16x8) b);
+}
+
+static inline wasm_v128 wasm_i16x8_eq(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i16x8) a == (wasm_i16x8) b);
+}
+
+static inline wasm_v128 wasm_i32x4_add(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i32x4) a + (wasm_i32x4) b);
+}
+
+static inline wasm_v128 wasm_i32x4_sub(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i32x4) a - (wasm_i32x4) b);
+}
+
+static inline wasm_v128 wasm_i32x4_mul(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i32x4) a * (wasm_i32x4) b);
+}
+
+static inline wasm_v128 wasm_i32x4_eq(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i32x4) a == (wasm_i32x4) b);
+}
+
+static inline wasm_v128 wasm_i64x2_add(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i64x2) a + (wasm_i64x2) b);
+}
+
+static inline wasm_v128 wasm_i64x2_sub(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i64x2) a - (wasm_i64x2) b);
+}
+
+static inline wasm_v128 wasm_i64x2_mul(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i64x2) a * (wasm_i64x2) b);
+}
+
+static inline wasm_v128 wasm_i64x2_eq(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_i64x2) a == (wasm_i64x2) b);
+}
+
+static inline wasm_v128 wasm_f32x4_add(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_f32x4) a + (wasm_f32x4) b);
+}
+
+static inline wasm_v128 wasm_f32x4_sub(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_f32x4) a - (wasm_f32x4) b);
+}
+
+static inline wasm_v128 wasm_f32x4_mul(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_f32x4) a * (wasm_f32x4) b);
+}
+
+static inline wasm_v128 wasm_f32x4_eq(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_f32x4) a == (wasm_f32x4) b);
+}
+
+static inline wasm_v128 wasm_f64x2_add(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_f64x2) a + (wasm_f64x2) b);
+}
+
+static inline wasm_v128 wasm_f64x2_sub(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_f64x2) a - (wasm_f64x2) b);
+}
+
+static inline wasm_v128 wasm_f64x2_mul(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_f64x2) a * (wasm_f64x2) b);
+}
+
+static inline wasm_v128 wasm_f64x2_eq(wasm_v128 a, wasm_v128 b) {
+    return (wasm_v128) ((wasm_f64x2) a == (wasm_f64x2) b);
+}
+
+static inline int32_t wasm_i8x16_all_true(wasm_v128 value) {
+    wasm_i8x16 lanes = (wasm_i8x16) value;
+    for (int i = 0; i < 16; ++i) {
+        if (lanes[i] == 0) {
+            return 0;
+        }
+    }
+    return 1;
+}
+
+static inline int32_t wasm_i16x8_all_true(wasm_v128 value) {
+    wasm_i16x8 lanes = (wasm_i16x8) value;
+    for (int i = 0; i < 8; ++i) {
+        if (lanes[i] == 0) {
+            return 0;
+        }
+    }
+    return 1;
+}
+
+static inline int32_t wasm_i32x4_all_true(wasm_v128 value) {
+    wasm_i32x4 lanes = (wasm_i32x4) value;
+    for (int i = 0; i < 4; ++i) {
+        if (lanes[i] == 0) {
+            return 0;
+        }
+    }
+    return 1;
+}
+
+static inline int32_t wasm_i64x2_all_true(wasm_v128 value) {
+    wasm_i64x2 lanes = (wasm_i64x2) value;
+    for (int i = 0; i < 2; ++i) {
+        if (lanes[i] == 0) {
+            return 0;
+        }
+    }
+    return 1;
+}
+
 static void logOutOfMemory() {
     abort();
 }
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.codegen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+
+public class FrozenNamingStrategyTest {
+    private DefaultNamingStrategy naming = new DefaultNamingStrategy(new DefaultAliasProvider(10000), name -> null);
+
+    @Test
+    public void returnsAssignedNames() {
+        ScopedName className = naming.getNameFor("foo.Bar");
+        String functionName = naming.getNameForFunction("$rt_s");
+        naming.setFrozen(true);
+
+        FrozenNamingStrategy frozen = new FrozenNamingStrategy(naming);
+        assertEquals(className.value, frozen.getNameFor("foo.Bar").value);
+        assertEquals(functionName, frozen.getNameForFunction("$rt_s"));
+        assertFalse(frozen.hasMissingNames());
+    }
+
+    @Test
+    public void remembersMissingNames() {
+        naming.getNameFor("foo.Bar");
+        naming.setFrozen(true);
+
+        FrozenNamingStrategy frozen = new FrozenNamingStrategy(naming);
+        frozen.getNameFor("foo.Baz");
+        assertTrue(frozen.hasMissingNames());
+
+        frozen.clearMissingNames();
+        assertFalse(frozen.hasMissingNames());
+        frozen.getNameFor("foo.Bar");
+        assertFalse(frozen.hasMissingNames());
+    }
+
+    @Test
+    public void frozenStrategyDoesNotAssignNames() {
+        naming.setFrozen(true);
+        new FrozenNamingStrategy(naming).getNameForFunction("$rt_s");
+        try {
+            naming.getNameForFunction("$rt_s");
+            fail("Name should not be assigned by frozen strategy");
+        } catch (NameNotAssignedException e) {
+            // expected
+        }
+
+        naming.setFrozen(false);
+        String name = naming.getNameForFunction("$rt_s");
+        naming.setFrozen(true);
+        assertEquals(name, new FrozenNamingStrategy(naming).getNameForFunction("$rt_s"));
+    }
+
+    @Test
+    public void frozenStrategyOnlyLooksUpNames() {
+        MethodReference method = new MethodReference("foo.Bar", "baz", ValueType.VOID);
+        ScopedName methodName = naming.getFullNameFor(method);
+        ScopedName initName = naming.getNameForClassInit("foo.Bar");
+        naming.setFrozen(true);
+
+        assertEquals(methodName.value, naming.getFullNameFor(method).value);
+        assertEquals(initName.value, naming.getNameForClassInit("foo.Bar").value);
+        try {
+            naming.getNameForInit(method);
+            fail("Name should not be assigned by frozen strategy");
+        } catch (NameNotAssignedException e) {
+            // expected
+        }
+        try {
+            naming.getNameForClassInit("foo.Baz");
+            fail("Name should not be assigned by frozen strategy");
+        } catch (NameNotAssignedException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ReferenceCache;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+
+public class ContentHashCacheTest {
+    private static final MethodReference METHOD = new MethodReference("foo.A", "bar", ValueType.INTEGER);
+    private static final String CONFIGURATION = "teavm-1.0:JAVASCRIPT:ADVANCED";
+    private static final CacheStatus FRESH = new CacheStatus() {
+        @Override
+        public boolean isStaleClass(String className) {
+            return false;
+        }
+
+        @Override
+        public boolean isStaleMethod(MethodReference method) {
+            return false;
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Map<String, String> hashes = new HashMap<>();
+
+    @Test
+    public void programSurvivesExportAndImport() throws IOException {
+        hashes.put("foo.A", "a1");
+        hashes.put("foo.B", "b1");
+        storeProgram(folder.newFolder("first"));
+
+        File exported = folder.newFolder("exported");
+        new ContentHashCache(new File(folder.getRoot(), "first"), CONFIGURATION).exportTo(exported);
+        ContentHashCache imported = new ContentHashCache(folder.newFolder("second"), CONFIGURATION);
+        imported.importFrom(exported);
+
+        Program program = createCache(imported).get(METHOD, FRESH);
+        assertThat(program, notNullValue());
+        IntegerConstantInstruction insn = (IntegerConstantInstruction) program.basicBlockAt(0).getFirstInstruction();
+        assertThat(insn.getConstant(), is(23));
+    }
+
+    @Test
+    public void changedDependencyInvalidatesProgram() throws IOException {
+        hashes.put("foo.A", "a1");
+        hashes.put("foo.B", "b1");
+        File directory = folder.newFolder("cache");
+        storeProgram(directory);
+
+        hashes.put("foo.B", "b2");
+        assertThat(createCache(new ContentHashCache(directory, CONFIGURATION)).get(METHOD, FRESH), nullValue());
+    }
+
+    @Test
+    public void programFromOtherConfigurationIsMiss() throws IOException {
+        hashes.put("foo.A", "a1");
+        hashes.put("foo.B", "b1");
+        File directory = folder.newFolder("cache");
+        storeProgram(directory);
+
+        assertThat(createCache(new ContentHashCache(directory, CONFIGURATION)).get(METHOD, FRESH), notNullValue());
+        ContentHashCache otherCache = new ContentHashCache(directory, "teavm-1.0:JAVASCRIPT:SIMPLE");
+        assertThat(createCache(otherCache).get(METHOD, FRESH), nullValue());
+    }
+
+    @Test
+    public void unknownDependencyHashIsMiss() throws IOException {
+        hashes.put("foo.A", "a1");
+        File directory = folder.newFolder("cache");
+        storeProgram(directory);
+
+        assertThat(createCache(new ContentHashCache(directory, CONFIGURATION)).get(METHOD, FRESH), nullValue());
+        assertThat(directory.list().length, is(0));
+    }
+
+    @Test
+    public void pruneDeletesLeastRecentlyUsedEntries() throws IOException {
+        ContentHashCache cache = new ContentHashCache(folder.newFolder("cache"), CONFIGURATION);
+        long now = System.currentTimeMillis();
+        writeEntry(cache, "old", now - 30000);
+        writeEntry(cache, "middle", now - 20000);
+        writeEntry(cache, "new", now - 10000);
+
+        cache.prune(200);
+
+        assertThat(hasEntry(cache, "old"), is(false));
+        assertThat(hasEntry(cache, "middle"), is(true));
+        assertThat(hasEntry(cache, "new"), is(true));
+    }
+
+    @Test
+    public void readMakesEntryRecentlyUsed() throws IOException {
+        ContentHashCache cache = new ContentHashCache(folder.newFolder("cache"), CONFIGURATION);
+        long now = System.currentTimeMillis();
+        writeEntry(cache, "old", now - 30000);
+        writeEntry(cache, "new", now - 10000);
+
+        hasEntry(cache, "old");
+        cache.prune(100);
+
+        assertThat(hasEntry(cache, "old"), is(true));
+        assertThat(hasEntry(cache, "new"), is(false));
+    }
+
+    @Test
+    public void exportAndImportKeepUsageTime() throws IOException {
+        ContentHashCache cache = new ContentHashCache(folder.newFolder("first"), CONFIGURATION);
+        long now = System.currentTimeMillis();
+        writeEntry(cache, "old", now - 30000);
+        writeEntry(cache, "new", now - 10000);
+
+        File exported = folder.newFolder("exported");
+        cache.exportTo(exported);
+        ContentHashCache imported = new ContentHashCache(folder.newFolder("second"), CONFIGURATION);
+        imported.importFrom(exported);
+        imported.prune(100);
+
+        assertThat(hasEntry(imported, "old"), is(false));
+        assertThat(hasEntry(imported, "new"), is(true));
+    }
+
+    private void writeEntry(ContentHashCache cache, String key, long lastModified) throws IOException {
+        cache.write("test", key, new byte[100]);
+        cache.entryFile("test", key).setLastModified(lastModified);
+    }
+
+    private boolean hasEntry(ContentHashCache cache, String key) throws IOException {
+        try (InputStream input = cache.read("test", key)) {
+            return input != null;
+        }
+    }
+
+    private void storeProgram(File directory) throws IOException {
+        Program program = new Program();
+        BasicBlock block = program.createBasicBlock();
+        IntegerConstantInstruction insn = new IntegerConstantInstruction();
+        insn.setConstant(23);
+        insn.setReceiver(program.createVariable());
+        block.add(insn);
+
+        ContentHashProgramCache cache = createCache(new ContentHashCache(directory, CONFIGURATION));
+        cache.store(METHOD, program, () -> new String[] { "foo.A", "foo.B" });
+        cache.flush();
+    }
+
+    private ContentHashProgramCache createCache(ContentHashCache contentCache) {
+        return new ContentHashProgramCache(contentCache, new ReferenceCache(), hashes::get);
+    }
+}
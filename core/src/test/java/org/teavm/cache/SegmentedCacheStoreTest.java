@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentedCacheStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entriesSurviveReopening() throws IOException {
+        File directory = folder.newFolder();
+        SegmentedCacheStore store = new SegmentedCacheStore(directory, "test");
+        store.write("a", bytes("first"));
+        store.write("b", bytes("second"));
+        store.flush();
+
+        SegmentedCacheStore reopened = new SegmentedCacheStore(directory, "test");
+        assertThat(read(reopened, "a"), is("first"));
+        assertThat(read(reopened, "b"), is("second"));
+        assertThat(reopened.read("c"), nullValue());
+    }
+
+    @Test
+    public void startsNewSegmentWhenLimitReached() throws IOException {
+        File directory = folder.newFolder();
+        SegmentedCacheStore store = new SegmentedCacheStore(directory, "test");
+        store.setMaxSegmentSize(10);
+        store.write("a", bytes("aaaaaa"));
+        store.write("b", bytes("bbbbbb"));
+        store.write("c", bytes("cccccccccccccccc"));
+        store.flush();
+        assertThat(countSegments(directory), is(3));
+
+        SegmentedCacheStore reopened = new SegmentedCacheStore(directory, "test");
+        assertThat(read(reopened, "a"), is("aaaaaa"));
+        assertThat(read(reopened, "b"), is("bbbbbb"));
+        assertThat(read(reopened, "c"), is("cccccccccccccccc"));
+    }
+
+    @Test
+    public void compactionDeletesObsoleteSegments() throws IOException {
+        File directory = folder.newFolder();
+        SegmentedCacheStore store = new SegmentedCacheStore(directory, "test");
+        store.write("a", bytes("old value"));
+        store.flush();
+        assertThat(read(store, "a"), is("old value"));
+
+        store.write("a", bytes("new value"));
+        store.write("b", bytes("another value"));
+        store.flush();
+        assertThat(read(store, "a"), is("new value"));
+        assertThat(countSegments(directory), is(1));
+
+        SegmentedCacheStore reopened = new SegmentedCacheStore(directory, "test");
+        assertThat(read(reopened, "a"), is("new value"));
+        assertThat(read(reopened, "b"), is("another value"));
+    }
+
+    @Test
+    public void brokenIndexMeansMissingEntries() throws IOException {
+        File directory = folder.newFolder();
+        SegmentedCacheStore store = new SegmentedCacheStore(directory, "test");
+        store.write("a", bytes("value"));
+        store.flush();
+
+        try (OutputStream output = new FileOutputStream(new File(directory, "test.index"))) {
+            output.write(new byte[] { 1, 5, (byte) 0xFF });
+        }
+        SegmentedCacheStore reopened = new SegmentedCacheStore(directory, "test");
+        assertThat(reopened.read("a"), nullValue());
+        assertThat(countSegments(directory), is(0));
+    }
+
+    private static int countSegments(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        return files != null ? files.length : 0;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(SegmentedCacheStore store, String key) throws IOException {
+        try (InputStream input = store.read(key)) {
+            if (input == null) {
+                return null;
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            while (true) {
+                int bytesRead = input.read(buffer);
+                if (bytesRead < 0) {
+                    break;
+                }
+                output.write(buffer, 0, bytesRead);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
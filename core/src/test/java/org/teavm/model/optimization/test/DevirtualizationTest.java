@@ -0,0 +1,334 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization.test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.teavm.callgraph.CallGraph;
+import org.teavm.dependency.ClassDependencyInfo;
+import org.teavm.dependency.DependencyInfo;
+import org.teavm.dependency.FieldDependencyInfo;
+import org.teavm.dependency.MethodDependencyInfo;
+import org.teavm.dependency.ValueDependencyInfo;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHierarchy;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldReference;
+import org.teavm.model.Instruction;
+import org.teavm.model.ListingParseUtils;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.optimization.Devirtualization;
+import org.teavm.model.text.ListingBuilder;
+import org.teavm.model.util.BasicBlockMapper;
+import org.teavm.model.util.ProgramUtils;
+import org.teavm.model.util.TransitionExtractor;
+
+public class DevirtualizationTest {
+    private static final String PREFIX = "model/optimization/devirtualization/";
+    private static final MethodReference TEST_METHOD = new MethodReference("TestClass", "testMethod", ValueType.VOID);
+    @Rule
+    public TestName name = new TestName();
+
+    @Test
+    public void twoImplementations() {
+        doTest(3, "A", "B");
+    }
+
+    @Test
+    public void threeImplementations() {
+        doTest(3, "A", "B", "C");
+    }
+
+    @Test
+    public void voidCall() {
+        doTest(3, "A", "B");
+    }
+
+    @Test
+    public void successorPhi() {
+        doTest(3, "A", "B");
+    }
+
+    @Test
+    public void overrideOrder() {
+        doTest(3, "D", "A", "C");
+    }
+
+    @Test
+    public void limitExceeded() {
+        doTest(2, "A", "B", "C");
+    }
+
+    private void doTest(int limit, String... receiverTypes) {
+        String originalPath = PREFIX + name.getMethodName() + ".original.txt";
+        String expectedPath = PREFIX + name.getMethodName() + ".expected.txt";
+        Program original = ListingParseUtils.parseFromResource(originalPath);
+        Program expected = ListingParseUtils.parseFromResource(expectedPath);
+
+        performDevirtualization(original, limit, receiverTypes);
+
+        String originalText = new ListingBuilder().buildListing(normalize(original), "");
+        String expectedText = new ListingBuilder().buildListing(normalize(expected), "");
+        Assert.assertEquals(expectedText, originalText);
+    }
+
+    private void performDevirtualization(Program program, int limit, String[] receiverTypes) {
+        MutableClassHolderSource classSource = new MutableClassHolderSource();
+        classSource.putClassHolder(createClass("java.lang.Object", null));
+        classSource.putClassHolder(createClass("Base", "java.lang.Object", "foo", "run"));
+        classSource.putClassHolder(createClass("A", "Base", "foo", "run"));
+        classSource.putClassHolder(createClass("B", "Base", "foo", "run"));
+        classSource.putClassHolder(createClass("C", "A", "foo"));
+        classSource.putClassHolder(createClass("D", "A"));
+
+        ClassHolder testClass = createClass("TestClass", "java.lang.Object");
+        MethodHolder testMethod = new MethodHolder(TEST_METHOD.getDescriptor());
+        testMethod.setProgram(program);
+        testClass.addMethod(testMethod);
+        classSource.putClassHolder(testClass);
+
+        ClassHierarchy hierarchy = new ClassHierarchy(classSource);
+        Devirtualization devirtualization = new Devirtualization(
+                new TestDependencyInfo(hierarchy, receiverTypes), hierarchy);
+        devirtualization.setGuardedDispatchLimit(limit);
+        devirtualization.apply(testMethod);
+    }
+
+    private static ClassHolder createClass(String name, String parent, String... methods) {
+        ClassHolder cls = new ClassHolder(name);
+        cls.setParent(parent);
+        for (String methodName : methods) {
+            ValueType returnType = methodName.equals("foo") ? ValueType.INTEGER : ValueType.VOID;
+            MethodHolder method = new MethodHolder(methodName, returnType);
+            method.getModifiers().add(ElementModifier.NATIVE);
+            cls.addMethod(method);
+        }
+        return cls;
+    }
+
+    // Blocks created by transformation are appended to the end of program, while parser numbers blocks
+    // in the order of first mention, so compare programs with blocks numbered in depth-first order
+    private static Program normalize(Program program) {
+        int[] order = new int[program.basicBlockCount()];
+        int[] newIndexes = new int[program.basicBlockCount()];
+        Arrays.fill(newIndexes, -1);
+        int count = visit(program.basicBlockAt(0), order, newIndexes, 0);
+
+        Program result = new Program();
+        for (int i = 0; i < program.variableCount(); ++i) {
+            Variable var = result.createVariable();
+            var.setDebugName(program.variableAt(i).getDebugName());
+            var.setLabel(program.variableAt(i).getLabel());
+        }
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            result.createBasicBlock();
+        }
+        for (int i = 0; i < count; ++i) {
+            ProgramUtils.copyBasicBlock(program.basicBlockAt(order[i]), result.basicBlockAt(i));
+        }
+        new BasicBlockMapper((int index) -> newIndexes[index]).transform(result);
+        for (int i = count; i < program.basicBlockCount(); ++i) {
+            result.deleteBasicBlock(i);
+        }
+        result.pack();
+        return result;
+    }
+
+    private static int visit(BasicBlock block, int[] order, int[] newIndexes, int count) {
+        if (newIndexes[block.getIndex()] >= 0) {
+            return count;
+        }
+        newIndexes[block.getIndex()] = count;
+        order[count++] = block.getIndex();
+        Instruction last = block.getLastInstruction();
+        if (last != null) {
+            TransitionExtractor transitionExtractor = new TransitionExtractor();
+            last.acceptVisitor(transitionExtractor);
+            if (transitionExtractor.getTargets() != null) {
+                for (BasicBlock target : transitionExtractor.getTargets()) {
+                    count = visit(target, order, newIndexes, count);
+                }
+            }
+        }
+        return count;
+    }
+
+    static class TestDependencyInfo implements DependencyInfo {
+        private ClassHierarchy hierarchy;
+        private ValueDependencyInfo receiver;
+
+        TestDependencyInfo(ClassHierarchy hierarchy, String[] receiverTypes) {
+            this.hierarchy = hierarchy;
+            receiver = new TestValueDependencyInfo(receiverTypes);
+        }
+
+        @Override
+        public ClassReaderSource getClassSource() {
+            return hierarchy.getClassSource();
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return DevirtualizationTest.class.getClassLoader();
+        }
+
+        @Override
+        public Collection<MethodReference> getReachableMethods() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<FieldReference> getReachableFields() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<String> getReachableClasses() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FieldDependencyInfo getField(FieldReference fieldRef) {
+            return null;
+        }
+
+        @Override
+        public MethodDependencyInfo getMethod(MethodReference methodRef) {
+            return methodRef.equals(TEST_METHOD) ? new TestMethodDependencyInfo(methodRef, receiver) : null;
+        }
+
+        @Override
+        public MethodDependencyInfo getMethodImplementation(MethodReference methodRef) {
+            MethodReader method = hierarchy.resolve(methodRef);
+            return method != null ? new TestMethodDependencyInfo(method.getReference(), receiver) : null;
+        }
+
+        @Override
+        public ClassDependencyInfo getClass(String className) {
+            return null;
+        }
+
+        @Override
+        public CallGraph getCallGraph() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    static class TestMethodDependencyInfo implements MethodDependencyInfo {
+        private MethodReference reference;
+        private ValueDependencyInfo value;
+
+        TestMethodDependencyInfo(MethodReference reference, ValueDependencyInfo value) {
+            this.reference = reference;
+            this.value = value;
+        }
+
+        @Override
+        public ValueDependencyInfo[] getVariables() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getVariableCount() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ValueDependencyInfo getVariable(int index) {
+            return value;
+        }
+
+        @Override
+        public int getParameterCount() {
+            return reference.parameterCount();
+        }
+
+        @Override
+        public ValueDependencyInfo getResult() {
+            return value;
+        }
+
+        @Override
+        public ValueDependencyInfo getThrown() {
+            return value;
+        }
+
+        @Override
+        public MethodReference getReference() {
+            return reference;
+        }
+
+        @Override
+        public boolean isUsed() {
+            return true;
+        }
+
+        @Override
+        public boolean isCalled() {
+            return true;
+        }
+
+        @Override
+        public boolean isMissing() {
+            return false;
+        }
+    }
+
+    static class TestValueDependencyInfo implements ValueDependencyInfo {
+        private String[] types;
+
+        TestValueDependencyInfo(String[] types) {
+            this.types = types;
+        }
+
+        @Override
+        public String[] getTypes() {
+            return types.clone();
+        }
+
+        @Override
+        public boolean hasType(String type) {
+            return Arrays.asList(types).contains(type);
+        }
+
+        @Override
+        public boolean hasArrayType() {
+            return false;
+        }
+
+        @Override
+        public ValueDependencyInfo getArrayItem() {
+            return null;
+        }
+
+        @Override
+        public ValueDependencyInfo getClassValueNode() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.interop;
+
+/**
+ * <p>Operations on 128-bit vectors stored in memory. Each method reads its operands from and writes its result
+ * to {@link #SIZE} bytes at given addresses. Addresses don't have to be aligned.</p>
+ *
+ * <p>When WebAssembly target is built with SIMD enabled, these methods are compiled to SIMD instructions.
+ * Without SIMD, {@link #isSupported()} returns <code>false</code> and other methods must not be called,
+ * since they can't be compiled to anything efficient. In C target {@link #isSupported()} returns
+ * <code>false</code> as well, since C compiler vectorizes plain loops on its own, however all methods are
+ * available there.</p>
+ */
+@StaticInit
+@Unmanaged
+public final class Vector128 {
+    public static final int SIZE = 16;
+
+    private Vector128() {
+    }
+
+    public static native boolean isSupported();
+
+    public static native void fillBytes(Address target, byte value);
+
+    public static native void fillShorts(Address target, short value);
+
+    public static native void fillInts(Address target, int value);
+
+    public static native void fillLongs(Address target, long value);
+
+    public static native void fillFloats(Address target, float value);
+
+    public static native void fillDoubles(Address target, double value);
+
+    public static native void copy(Address source, Address target);
+
+    /**
+     * Compares two vectors byte by byte.
+     *
+     * @return <code>true</code> if all bytes of the vectors are equal.
+     */
+    public static native boolean equal(Address first, Address second);
+
+    public static native void and(Address first, Address second, Address result);
+
+    public static native void or(Address first, Address second, Address result);
+
+    public static native void xor(Address first, Address second, Address result);
+
+    /**
+     * Adds sixteen pairs of bytes, wrapping on overflow.
+     */
+    public static native void addBytes(Address first, Address second, Address result);
+
+    public static native void addInts(Address first, Address second, Address result);
+
+    public static native void subInts(Address first, Address second, Address result);
+
+    public static native void mulInts(Address first, Address second, Address result);
+
+    public static native void addFloats(Address first, Address second, Address result);
+
+    public static native void mulFloats(Address first, Address second, Address result);
+
+    public static native void addDoubles(Address first, Address second, Address result);
+
+    public static native void mulDoubles(Address first, Address second, Address result);
+}
@@ -16,6 +16,7 @@
 package org.teavm.jso.typedarrays;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSIndexer;
 
 public abstract class Float32Array extends ArrayBufferView {
@@ -39,4 +40,11 @@ public abstract class Float32Array extends ArrayBufferView {
 
     @JSBody(params = { "buffer", "offset" }, script = "return new Float32Array(buffer, offset);")
     public static native Float32Array create(ArrayBuffer buffer, int offset);
+
+    @JSBody(params = "array", script = "return array;")
+    public static native Float32Array fromJavaArray(@JSByRef float[] array);
+
+    @JSBody(params = "array", script = "return array;")
+    @JSByRef
+    public static native float[] toJavaArray(Float32Array array);
 }
@@ -16,6 +16,7 @@
 package org.teavm.jso.typedarrays;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSIndexer;
 
 public abstract class Int8Array extends ArrayBufferView {
@@ -39,4 +40,11 @@ public abstract class Int8Array extends ArrayBufferView {
 
     @JSBody(params = { "buffer", "offset" }, script = "return new Int8Array(buffer, offset);")
     public static native Int8Array create(ArrayBuffer buffer, int offset);
+
+    @JSBody(params = "array", script = "return array;")
+    public static native Int8Array fromJavaArray(@JSByRef byte[] array);
+
+    @JSBody(params = "array", script = "return array;")
+    @JSByRef
+    public static native byte[] toJavaArray(Int8Array array);
 }
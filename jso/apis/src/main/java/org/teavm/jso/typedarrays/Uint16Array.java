@@ -16,6 +16,7 @@
 package org.teavm.jso.typedarrays;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSIndexer;
 
 public abstract class Uint16Array extends ArrayBufferView {
@@ -39,4 +40,11 @@ public abstract class Uint16Array extends ArrayBufferView {
 
     @JSBody(params = { "buffer", "offset" }, script = "return new Uint16Array(buffer, offset);")
     public static native Uint16Array create(ArrayBuffer buffer, int offset);
+
+    @JSBody(params = "array", script = "return array;")
+    public static native Uint16Array fromJavaArray(@JSByRef char[] array);
+
+    @JSBody(params = "array", script = "return array;")
+    @JSByRef
+    public static native char[] toJavaArray(Uint16Array array);
 }
@@ -16,6 +16,7 @@
 package org.teavm.jso.typedarrays;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSIndexer;
 
 public abstract class Uint8Array extends ArrayBufferView {
@@ -39,4 +40,11 @@ public abstract class Uint8Array extends ArrayBufferView {
 
     @JSBody(params = { "buffer", "offset" }, script = "return new Uint8Array(buffer, offset);")
     public static native Uint8Array create(ArrayBuffer buffer, int offset);
+
+    @JSBody(params = "array", script = "return new Uint8Array(array.buffer, array.byteOffset, array.length);")
+    public static native Uint8Array fromJavaArray(@JSByRef byte[] array);
+
+    @JSBody(params = "array", script = "return new Int8Array(array.buffer, array.byteOffset, array.length);")
+    @JSByRef
+    public static native byte[] toJavaArray(Uint8Array array);
 }
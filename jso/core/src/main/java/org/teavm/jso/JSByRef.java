@@ -24,6 +24,14 @@ import java.lang.annotation.Target;
  * <p>Marks parameters of JavaScript methods that should be passed by reference.
  * This annotation is only applicable to parameters of array type. More specifically:
  * to: byte[], short[], char[], int[], float[], double[] or T[], where T is JSObject.</p>
+ *
+ * <p>When applied to a method, marks that the returned value should be passed by reference.</p>
+ *
+ * <p>Primitive arrays are backed by typed arrays (<code>Int8Array</code> for byte[], <code>Int16Array</code>
+ * for short[], <code>Uint16Array</code> for char[], <code>Int32Array</code> for int[],
+ * <code>Float32Array</code> for float[] and <code>Float64Array</code> for double[]), so passing them by reference
+ * never copies data. JavaScript side receives the typed array itself and all changes made there
+ * are visible to Java, and vice versa.</p>
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ ElementType.PARAMETER, ElementType.METHOD })
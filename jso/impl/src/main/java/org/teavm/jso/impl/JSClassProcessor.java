@@ -509,6 +509,12 @@ class JSClassProcessor {
         if (!validateSignature(method, callLocation, byRefParams)) {
             return false;
         }
+        boolean returnByRef = method.getAnnotations().get(JSByRef.class.getName()) != null;
+        if (returnByRef && !typeHelper.isSupportedByRefType(method.getResultType())) {
+            diagnostics.error(callLocation, "Method {{m0}} is marked with @JSByRef, but does not return valid "
+                    + "array type", method.getReference());
+            return false;
+        }
 
         Variable result = invoke.getReceiver() != null ? program.createVariable() : null;
         InvokeInstruction newInvoke = new InvokeInstruction();
@@ -528,7 +534,7 @@ class JSClassProcessor {
         newInvoke.setArguments(newArguments.toArray(new Variable[0]));
         replacement.add(newInvoke);
         if (result != null) {
-            result = marshaller.unwrapReturnValue(callLocation, result, method.getResultType(), false);
+            result = marshaller.unwrapReturnValue(callLocation, result, method.getResultType(), returnByRef);
             copyVar(result, invoke.getReceiver(), invoke.getLocation());
         }
 
@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.teavm;
+
+import org.teavm.jso.browser.Performance;
+
+/**
+ * <p>Allocates objects of several classes that share a common superclass and then reads and updates
+ * their fields. Constructor of the superclass is shared by all its subclasses, so unless constructors are
+ * flattened, property stores in it see instances of every subclass.</p>
+ *
+ * <p>See README.md for how to build this benchmark with both object layouts and how to inspect
+ * inline cache states in V8.</p>
+ */
+public final class ObjectLayoutBenchmarkStarter {
+    private static final int PARTICLE_COUNT = 100000;
+    private static final int ROUNDS = 50;
+    private static final int STEPS = 10;
+
+    private ObjectLayoutBenchmarkStarter() {
+    }
+
+    public static void main(String[] args) {
+        double total = 0;
+        double checksum = 0;
+        for (int round = 0; round < ROUNDS; ++round) {
+            double start = Performance.now();
+            Particle[] particles = createParticles(round);
+            for (int step = 0; step < STEPS; ++step) {
+                for (Particle particle : particles) {
+                    particle.update();
+                }
+            }
+            checksum += sum(particles);
+            double time = Performance.now() - start;
+            total += time;
+            System.out.println("Round " + round + ": " + time + " ms");
+        }
+        System.out.println("Average: " + total / ROUNDS + " ms, checksum: " + checksum);
+    }
+
+    private static Particle[] createParticles(int seed) {
+        Particle[] particles = new Particle[PARTICLE_COUNT];
+        for (int i = 0; i < particles.length; ++i) {
+            double x = (i + seed) % 100;
+            double y = (i * 7 + seed) % 100;
+            switch (i % 4) {
+                case 0:
+                    particles[i] = new Dust(x, y);
+                    break;
+                case 1:
+                    particles[i] = new Spark(x, y);
+                    break;
+                case 2:
+                    particles[i] = new Ion(x, y);
+                    break;
+                default:
+                    particles[i] = new Smoke(x, y);
+                    break;
+            }
+        }
+        return particles;
+    }
+
+    private static double sum(Particle[] particles) {
+        double result = 0;
+        for (Particle particle : particles) {
+            result += particle.x + particle.y + particle.age + particle.ticks;
+        }
+        return result;
+    }
+
+    abstract static class Particle {
+        double x;
+        double y;
+        double vx;
+        double vy;
+        int age;
+        long ticks;
+        Particle next;
+
+        Particle(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        void update() {
+            x += vx;
+            y += vy;
+            age++;
+            ticks += age;
+            accelerate();
+        }
+
+        abstract void accelerate();
+    }
+
+    static class Dust extends Particle {
+        Dust(double x, double y) {
+            super(x, y);
+        }
+
+        @Override
+        void accelerate() {
+            vy -= 0.01;
+        }
+    }
+
+    static class Spark extends Particle {
+        double heat = 1;
+
+        Spark(double x, double y) {
+            super(x, y);
+        }
+
+        @Override
+        void accelerate() {
+            heat *= 0.9;
+            vx += heat;
+        }
+    }
+
+    static class Ion extends Particle {
+        int charge;
+
+        Ion(double x, double y) {
+            super(x, y);
+            charge = (int) x % 3 - 1;
+        }
+
+        @Override
+        void accelerate() {
+            vx += charge * 0.5;
+            vy -= charge * 0.5;
+        }
+    }
+
+    static class Smoke extends Spark {
+        double density = 1;
+
+        Smoke(double x, double y) {
+            super(x, y);
+        }
+
+        @Override
+        void accelerate() {
+            super.accelerate();
+            density *= 0.99;
+            vy += density;
+        }
+    }
+}
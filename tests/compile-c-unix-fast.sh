@@ -1,2 +1,2 @@
 SOURCE_DIR=$(pwd)
-gcc -g -O0 -lrt -lm all.c -o run_test
\ No newline at end of file
+gcc -g -O0 -pthread all.c -o run_test -lrt -lm
\ No newline at end of file
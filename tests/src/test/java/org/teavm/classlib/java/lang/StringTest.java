@@ -290,4 +290,35 @@ public class StringTest {
     public void internsConstants() {
         assertSame("abc", ("a" + "bc").intern());
     }
+
+    @Test
+    public void comparesStringsOfAnyLength() {
+        // Lengths are not multiples of vector size, so both vector and scalar parts of comparison are involved
+        StringBuilder sb = new StringBuilder();
+        for (int length = 0; length <= 37; ++length) {
+            String first = sb.toString();
+            String second = new String(first.toCharArray());
+            assertEquals(first, second);
+            for (int i = 0; i < length; ++i) {
+                char[] chars = first.toCharArray();
+                chars[i] = '*';
+                assertNotEquals("Difference at " + i + " of " + length, first, new String(chars));
+            }
+            sb.append((char) ('a' + length % 26));
+        }
+    }
+
+    @Test
+    public void comparesSubstrings() {
+        String str = "0123456789abcdefghijklmnopqrstuvwxyz0123456789abcdefghijklmnopqrstuvwxyz";
+        for (int from = 1; from < 17; ++from) {
+            for (int length = 0; length <= 36; ++length) {
+                String substring = str.substring(from, from + length);
+                assertEquals(substring, str.substring(from + 36, from + 36 + length));
+                if (length > 0) {
+                    assertNotEquals(substring, str.substring(from + 1, from + 1 + length));
+                }
+            }
+        }
+    }
 }
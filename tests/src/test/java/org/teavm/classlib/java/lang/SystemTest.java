@@ -52,6 +52,21 @@ public class SystemTest {
         assertEquals(25, dest[2]);
     }
 
+    @Test
+    public void copiesOverlappingRanges() {
+        for (int offset = -5; offset <= 5; ++offset) {
+            byte[] array = new byte[40];
+            for (int i = 0; i < array.length; ++i) {
+                array[i] = (byte) i;
+            }
+            System.arraycopy(array, 10, array, 10 + offset, 17);
+            for (int i = 0; i < array.length; ++i) {
+                int expected = i >= 10 + offset && i < 27 + offset ? i - offset : i;
+                assertEquals("offset " + offset + ", index " + i, expected, array[i]);
+            }
+        }
+    }
+
     @Test
     public void copiesToSubclassArray() {
         String[] src = { "foo", "bar", "baz" };
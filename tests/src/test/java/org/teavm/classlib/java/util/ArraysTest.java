@@ -120,4 +120,82 @@ public class ArraysTest {
         result = Arrays.stream(array, 0, 2).mapToObj(Double::toString).collect(Collectors.joining(","));
         assertEquals("23.0,42.0", result);
     }
+
+    @Test
+    public void fillsRangeOfIntArray() {
+        // Ranges start at unaligned indexes and are not multiples of vector size, so both vector and scalar
+        // parts of fill are involved
+        for (int from = 0; from < 5; ++from) {
+            for (int to = from; to <= 37; ++to) {
+                int[] array = new int[40];
+                Arrays.fill(array, from, to, 23);
+                for (int i = 0; i < array.length; ++i) {
+                    assertEquals("fill(" + from + ", " + to + ")[" + i + "]", i >= from && i < to ? 23 : 0,
+                            array[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fillsRangeOfLongArray() {
+        for (int from = 0; from < 5; ++from) {
+            for (int to = from; to <= 37; ++to) {
+                long[] array = new long[40];
+                Arrays.fill(array, from, to, 0x123456789L);
+                for (int i = 0; i < array.length; ++i) {
+                    assertEquals("fill(" + from + ", " + to + ")[" + i + "]", i >= from && i < to ? 0x123456789L : 0,
+                            array[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fillsRangeOfShortAndCharArrays() {
+        for (int from = 0; from < 9; ++from) {
+            for (int to = from; to <= 37; ++to) {
+                short[] shorts = new short[40];
+                char[] chars = new char[40];
+                Arrays.fill(shorts, from, to, (short) -2);
+                Arrays.fill(chars, from, to, 'q');
+                for (int i = 0; i < shorts.length; ++i) {
+                    boolean filled = i >= from && i < to;
+                    assertEquals("fill(" + from + ", " + to + ")[" + i + "]", filled ? -2 : 0, shorts[i]);
+                    assertEquals("fill(" + from + ", " + to + ")[" + i + "]", filled ? 'q' : 0, chars[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fillsRangeOfByteArray() {
+        for (int from = 0; from < 17; ++from) {
+            for (int to = from; to <= 37; ++to) {
+                byte[] array = new byte[40];
+                Arrays.fill(array, from, to, (byte) 7);
+                for (int i = 0; i < array.length; ++i) {
+                    assertEquals("fill(" + from + ", " + to + ")[" + i + "]", i >= from && i < to ? 7 : 0,
+                            array[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fillsRangeOfFloatingPointArrays() {
+        for (int from = 0; from < 5; ++from) {
+            for (int to = from; to <= 37; ++to) {
+                float[] floats = new float[40];
+                double[] doubles = new double[40];
+                Arrays.fill(floats, from, to, 1.5f);
+                Arrays.fill(doubles, from, to, -2.5);
+                for (int i = 0; i < floats.length; ++i) {
+                    boolean filled = i >= from && i < to;
+                    assertEquals("fill(" + from + ", " + to + ")[" + i + "]", filled ? 1.5f : 0, floats[i], 0);
+                    assertEquals("fill(" + from + ", " + to + ")[" + i + "]", filled ? -2.5 : 0, doubles[i], 0);
+                }
+            }
+        }
+    }
 }
@@ -71,8 +71,20 @@ public class DependencyTestData {
         MetaAssertions.assertTypes(array2[0], Long.class, RuntimeException.class);
     }
 
+    public static void domainMergedTwice() {
+        Object a = getI(0).foo();
+        Object c = pass(a);
+        Object b = getI(1) instanceof A ? a : c;
+        MetaAssertions.assertTypes(b, String.class, Integer.class, Class.class);
+        MetaAssertions.assertTypes(c, String.class, Integer.class, Class.class);
+    }
+
     static Object[] staticArrayField;
 
+    private static Object pass(Object value) {
+        return value;
+    }
+
     private static Object[] createArray() {
         Object[] array = new Object[3];
         fillArray(array);
@@ -0,0 +1,218 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.esmodule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assume;
+import org.junit.Test;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.support.ShapesMain;
+import org.teavm.support.TestBuild;
+
+public class EsModuleTest {
+    private static final String MAIN_SCRIPT = "import { main } from \"./classes.js\";\nmain([]);\n";
+    private static final String LAZY_SCRIPT = "import { main, shapes } from \"./classes.js\";\n"
+            + "main([]);\nshapes([]).then(() => console.log(\"loaded\"));\n";
+    private static final String COUNTING_SCRIPT = "import { main, counting } from \"./classes.js\";\n"
+            + "main([]);\ncounting([]).then(() => console.log(\"loaded\"));\n";
+
+    @Test
+    public void entryPointsExported() {
+        Map<String, String> files = build(false);
+        assertEquals(1, files.size());
+
+        String main = files.get("classes.js");
+        assertFalse(main.contains("(function()"));
+        assertFalse(main.contains("\"use strict\""));
+        assertTrue(main.contains("export { "));
+        assertTrue(main.contains(" main"));
+        assertFalse(main.contains("from \"./"));
+    }
+
+    @Test
+    public void runsInNode() throws IOException, InterruptedException {
+        assertEquals(ShapesMain.EXPECTED_OUTPUT, run(build(false), MAIN_SCRIPT));
+    }
+
+    @Test
+    public void minifiedRunsInNode() throws IOException, InterruptedException {
+        assertEquals(ShapesMain.EXPECTED_OUTPUT, run(build(true), MAIN_SCRIPT));
+    }
+
+    @Test
+    public void lazyEntryPointWrittenToChunk() {
+        Map<String, String> files = buildWithLazyEntryPoint(false);
+        assertEquals(2, files.size());
+
+        String main = files.get("classes.js");
+        assertTrue(main.contains("import(\"./classes-1.js\")"));
+        assertTrue(main.contains("Startup_main"));
+        assertFalse(main.contains("ShapesMain_main"));
+
+        String chunk = files.get("classes-1.js");
+        assertTrue(chunk.startsWith("import { "));
+        assertTrue(chunk.contains(" } from \"./classes.js\";"));
+        assertTrue(chunk.contains("ShapesMain_main"));
+        assertFalse(chunk.contains("Startup_main"));
+        assertTrue(chunk.contains("export default $rt_mainStarter("));
+        assertFalse(chunk.contains("eval"));
+        assertFalse(main.contains("eval("));
+    }
+
+    @Test
+    public void classAssigningStartupFieldStaysInMainModule() {
+        Map<String, String> files = buildWithLazyCounting();
+        assertTrue(files.get("classes.js").contains("Startup_counter"));
+        assertFalse(files.get("classes-1.js").contains("Startup_counter"));
+    }
+
+    @Test
+    public void lazyEntryPointRunsInNode() throws IOException, InterruptedException {
+        assertEquals(Startup.OUTPUT + "\n" + ShapesMain.EXPECTED_OUTPUT + "\nloaded",
+                run(buildWithLazyEntryPoint(false), LAZY_SCRIPT));
+    }
+
+    @Test
+    public void minifiedLazyEntryPointRunsInNode() throws IOException, InterruptedException {
+        assertEquals(Startup.OUTPUT + "\n" + ShapesMain.EXPECTED_OUTPUT + "\nloaded",
+                run(buildWithLazyEntryPoint(true), LAZY_SCRIPT));
+    }
+
+    @Test
+    public void classAssigningStartupFieldRunsInNode() throws IOException, InterruptedException {
+        assertEquals(Startup.OUTPUT + "\n1\nloaded", run(buildWithLazyCounting(), COUNTING_SCRIPT));
+    }
+
+    private Map<String, String> build(boolean minifying) {
+        JavaScriptTarget target = new JavaScriptTarget();
+        target.setMinifying(minifying);
+        target.setEsModule(true);
+        return new TestBuild(target).buildToMap("classes.js");
+    }
+
+    private Map<String, String> buildWithLazyEntryPoint(boolean minifying) {
+        JavaScriptTarget target = new JavaScriptTarget();
+        target.setMinifying(minifying);
+        target.setEsModule(true);
+        target.setLazyEntryPoints(Collections.singleton("shapes"));
+        return new TestBuild(target)
+                .setMainClass(Startup.class)
+                .addEntryPoint("shapes", ShapesMain.class)
+                .buildToMap("classes.js");
+    }
+
+    private Map<String, String> buildWithLazyCounting() {
+        JavaScriptTarget target = new JavaScriptTarget();
+        target.setEsModule(true);
+        target.setLazyEntryPoints(Collections.singleton("counting"));
+        return new TestBuild(target)
+                .setMainClass(Startup.class)
+                .addEntryPoint("counting", Counting.class)
+                .buildToMap("classes.js");
+    }
+
+    private String run(Map<String, String> files, String script) throws IOException, InterruptedException {
+        Assume.assumeTrue("Node.js is not available", isNodeAvailable());
+
+        File directory = Files.createTempDirectory("teavm-esm").toFile();
+        List<File> createdFiles = new ArrayList<>();
+        try {
+            for (Map.Entry<String, String> entry : files.entrySet()) {
+                createdFiles.add(write(directory, entry.getKey(), entry.getValue()));
+            }
+            createdFiles.add(write(directory, "run.mjs", script));
+
+            Process process = new ProcessBuilder("node", "run.mjs")
+                    .directory(directory)
+                    .redirectErrorStream(true)
+                    .start();
+            String output = readAll(process.getInputStream());
+            assertEquals(output, 0, process.waitFor());
+            return output.trim();
+        } finally {
+            for (File file : createdFiles) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static File write(File directory, String name, String content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static boolean isNodeAvailable() {
+        try {
+            Process process = new ProcessBuilder("node", "--version").redirectErrorStream(true).start();
+            readAll(process.getInputStream());
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public static final class Startup {
+        static final String OUTPUT = "started";
+        static int counter;
+
+        private Startup() {
+        }
+
+        public static void main(String[] args) {
+            System.out.println(OUTPUT);
+        }
+    }
+
+    public static final class Counting {
+        private Counting() {
+        }
+
+        public static void main(String[] args) {
+            Startup.counter++;
+            System.out.println(Startup.counter);
+        }
+    }
+
+    private static String readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] bytes = new byte[4096];
+        while (true) {
+            int count = input.read(bytes);
+            if (count < 0) {
+                break;
+            }
+            buffer.write(bytes, 0, count);
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
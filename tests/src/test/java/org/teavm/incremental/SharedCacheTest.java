@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.incremental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.teavm.support.ShapesMain;
+import org.teavm.tooling.TeaVMTargetType;
+import org.teavm.tooling.TeaVMTool;
+import org.teavm.tooling.TeaVMToolException;
+
+public class SharedCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void generationalProgramsAreNotReusedByMarkSweepBuild() throws Exception {
+        assertMissesWithOtherFlags(TeaVMTargetType.C, tool -> tool.setGenerationalGC(true), tool -> { });
+    }
+
+    @Test
+    public void markSweepProgramsAreNotReusedByGenerationalBuild() throws Exception {
+        assertMissesWithOtherFlags(TeaVMTargetType.C, tool -> { }, tool -> tool.setGenerationalGC(true));
+    }
+
+    @Test
+    public void markSweepProgramsAreNotReusedByIncrementalWasmBuild() throws Exception {
+        assertMissesWithOtherFlags(TeaVMTargetType.WEBASSEMBLY, tool -> { }, tool -> tool.setIncrementalGC(true));
+    }
+
+    private void assertMissesWithOtherFlags(TeaVMTargetType targetType, Consumer<TeaVMTool> exportedFlags,
+            Consumer<TeaVMTool> otherFlags) throws IOException, TeaVMToolException {
+        File exported = folder.newFolder("exported");
+        build(targetType, exportedFlags, folder.newFolder("first"), null, exported);
+        Set<String> exportedPrograms = listPrograms(exported);
+        assertFalse("Build should store programs", exportedPrograms.isEmpty());
+
+        File sameFlagsCache = folder.newFolder("same");
+        build(targetType, exportedFlags, sameFlagsCache, exported, null);
+        assertEquals("Build with same flags should reuse all programs", exportedPrograms,
+                listPrograms(new File(sameFlagsCache, "content")));
+
+        File otherFlagsCache = folder.newFolder("other");
+        build(targetType, otherFlags, otherFlagsCache, exported, null);
+        Set<String> newPrograms = listPrograms(new File(otherFlagsCache, "content"));
+        newPrograms.removeAll(exportedPrograms);
+        assertFalse("Build with other GC flags should not reuse programs", newPrograms.isEmpty());
+    }
+
+    private void build(TeaVMTargetType targetType, Consumer<TeaVMTool> flags, File cacheDirectory,
+            File importDirectory, File exportDirectory) throws IOException, TeaVMToolException {
+        TeaVMTool tool = new TeaVMTool();
+        tool.setTargetType(targetType);
+        tool.setClassLoader(SharedCacheTest.class.getClassLoader());
+        tool.setMainClass(ShapesMain.class.getName());
+        tool.setTargetDirectory(folder.newFolder());
+        tool.setIncremental(true);
+        tool.setContentHashCache(true);
+        tool.setCacheDirectory(cacheDirectory);
+        tool.setCacheImportDirectory(importDirectory);
+        tool.setCacheExportDirectory(exportDirectory);
+        flags.accept(tool);
+        tool.generate();
+        assertTrue("Unexpected problems", tool.getProblemProvider().getSevereProblems().isEmpty());
+    }
+
+    private static Set<String> listPrograms(File cacheDirectory) {
+        Set<String> result = new HashSet<>();
+        File[] buckets = new File(cacheDirectory, "programs").listFiles(File::isDirectory);
+        if (buckets != null) {
+            for (File bucket : buckets) {
+                String[] entries = bucket.list((dir, name) -> name.endsWith(".entry"));
+                if (entries != null) {
+                    for (String entry : entries) {
+                        result.add(bucket.getName() + "/" + entry);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -26,6 +26,9 @@ import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSObject;
 import org.teavm.jso.JSProperty;
 import org.teavm.jso.core.JSString;
+import org.teavm.jso.typedarrays.Float64Array;
+import org.teavm.jso.typedarrays.Int32Array;
+import org.teavm.jso.typedarrays.Uint8Array;
 import org.teavm.junit.SkipJVM;
 import org.teavm.junit.TeaVMTestRunner;
 
@@ -168,6 +171,57 @@ public class ConversionTest {
         assertEquals(99, first[0]);
     }
 
+    @Test
+    public void sharesDataWithTypedArrayView() {
+        int[] array = { 23, 42 };
+        Int32Array view = Int32Array.fromJavaArray(array);
+        assertEquals(2, view.getLength());
+
+        array[0] = 99;
+        assertEquals(99, view.get(0));
+        view.set(1, 100);
+        assertEquals(100, array[1]);
+
+        int[] javaView = Int32Array.toJavaArray(view);
+        javaView[0] = 101;
+        assertEquals(101, view.get(0));
+        assertEquals(101, array[0]);
+    }
+
+    @Test
+    public void sharesDataWithTypedArray() {
+        Float64Array typedArray = Float64Array.create(2);
+        double[] array = Float64Array.toJavaArray(typedArray);
+
+        typedArray.set(0, 1.5);
+        assertEquals(1.5, array[0], 0.01);
+        array[1] = 2.5;
+        assertEquals(2.5, typedArray.get(1), 0.01);
+    }
+
+    @Test
+    public void sharesSignedBytesWithUint8ArrayView() {
+        byte[] array = { 1, 2 };
+        Uint8Array view = Uint8Array.fromJavaArray(array);
+
+        array[0] = -1;
+        assertEquals(255, view.get(0));
+        view.set(1, (short) 200);
+        assertEquals(-56, array[1]);
+    }
+
+    @Test
+    public void sharesUint8ArrayWithSignedBytes() {
+        Uint8Array typedArray = Uint8Array.create(2);
+        byte[] array = Uint8Array.toJavaArray(typedArray);
+        assertEquals(2, array.length);
+
+        typedArray.set(0, (short) 255);
+        assertEquals(-1, array[0]);
+        array[1] = -2;
+        assertEquals(254, typedArray.get(1));
+    }
+
     @JSBody(params = { "a", "b", "c", "d", "e", "f", "g", "h" }, script = ""
             + "return '' + a + ':' + b + ':' + c + ':' + d + ':' + e + ':' + f.toFixed(1) + ':'"
                     + "+ g.toFixed(1) + ':' + h;")
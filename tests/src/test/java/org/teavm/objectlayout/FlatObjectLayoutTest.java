@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.objectlayout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.jso.JSBody;
+import org.teavm.platform.Platform;
+import org.teavm.platform.PlatformObject;
+import org.teavm.support.TestBuild;
+
+public class FlatObjectLayoutTest {
+    @Test
+    public void flatConstructorsKeepPropertyOrder() {
+        String nested = run(build(false));
+        String flat = run(build(true));
+        assertEquals(nested, flat);
+
+        String[] layouts = flat.split(";");
+        assertEquals(3, layouts.length);
+        assertTrue(layouts[2], layouts[2].contains("$id$"));
+        assertTrue(layouts[0], layouts[0].startsWith(layouts[1] + ","));
+        assertTrue(layouts[1], layouts[1].startsWith(layouts[2] + ","));
+        assertEquals(layouts[0], layouts[2].split(",").length + 4, layouts[0].split(",").length);
+    }
+
+    private String build(boolean flatObjectLayout) {
+        JavaScriptTarget target = new JavaScriptTarget();
+        target.setMinifying(false);
+        target.setFlatObjectLayout(flatObjectLayout);
+        return new TestBuild(target).setMainClass(Main.class).buildToString("classes.js");
+    }
+
+    private String run(String script) {
+        Context context = Context.enter();
+        try {
+            context.setOptimizationLevel(-1);
+            context.setLanguageVersion(Context.VERSION_ES6);
+            ScriptableObject rootScope = context.initStandardObjects();
+            Scriptable scope = new NativeObject();
+            scope.setParentScope(rootScope);
+            Scriptable result = new NativeObject();
+            scope.put("layoutTest", scope, result);
+            context.evaluateString(scope, script, "classes.js", 1, null);
+            Function main = (Function) scope.get("main", scope);
+            ScriptRuntime.doTopCall(main, context, scope, scope,
+                    new Object[] { new NativeArray(0), Undefined.instance });
+            return (String) result.get("result", result);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    public static final class Main {
+        private Main() {
+        }
+
+        public static void main(String[] args) {
+            Leaf leaf = new Leaf();
+            Middle middle = new Middle();
+            Base base = new Base();
+            leaf.use();
+            middle.use();
+            base.use();
+            report(keys(leaf) + ";" + keys(middle) + ";" + keys(base));
+        }
+
+        private static String keys(Object object) {
+            return keys(Platform.getPlatformObject(object));
+        }
+
+        @JSBody(params = "object", script = "return Object.keys(object).join(',');")
+        private static native String keys(PlatformObject object);
+
+        @JSBody(params = "value", script = "layoutTest.result = value;")
+        private static native void report(String value);
+    }
+
+    static class Base {
+        int a;
+        String b;
+
+        void use() {
+            a++;
+            b = String.valueOf(a);
+        }
+    }
+
+    static class Middle extends Base {
+        double c;
+        long d;
+
+        @Override
+        void use() {
+            super.use();
+            c += a;
+            d += a;
+        }
+    }
+
+    static class Leaf extends Middle {
+        Object e;
+        boolean f;
+
+        @Override
+        void use() {
+            super.use();
+            e = b;
+            f = !f;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Map;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.teavm.backend.c.CTarget;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.dependency.DependencyAnalyzerFactory;
+import org.teavm.dependency.ParallelDependencyAnalyzer;
+import org.teavm.dependency.PreciseDependencyAnalyzer;
+import org.teavm.dependency.SynchronizedDependencyInfo;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ListableClassReaderSource;
+import org.teavm.model.MethodReader;
+import org.teavm.model.text.ListingBuilder;
+import org.teavm.support.ShapesMain;
+import org.teavm.support.TestBuild;
+import org.teavm.vm.MemoryBuildTarget;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMOptimizationLevel;
+import org.teavm.vm.TeaVMTarget;
+
+public class ParallelBuildTest {
+    private static final int THREAD_COUNT = 4;
+    private static final DependencyAnalyzerFactory PRECISE = PreciseDependencyAnalyzer::new;
+    private static final DependencyAnalyzerFactory PARALLEL = ParallelDependencyAnalyzer.factory(THREAD_COUNT);
+
+    @Test
+    public void optimizedProgramsDoNotDependOnThreadCount() {
+        String sequential = dumpPrograms(buildJavaScript(1, false, PRECISE, new MemoryBuildTarget()));
+        String parallel = dumpPrograms(buildJavaScript(THREAD_COUNT, false, PRECISE, new MemoryBuildTarget()));
+        assertTrue(sequential.contains(ShapesMain.class.getName()));
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void dependencyInfoIsSafeToQueryFromWorkers() {
+        TeaVM parallel = buildJavaScript(THREAD_COUNT, false, PRECISE, new MemoryBuildTarget());
+        assertTrue(parallel.getDependencyInfo() instanceof SynchronizedDependencyInfo);
+        TeaVM sequential = buildJavaScript(1, false, PRECISE, new MemoryBuildTarget());
+        assertFalse(sequential.getDependencyInfo() instanceof SynchronizedDependencyInfo);
+    }
+
+    @Test
+    public void javaScriptDoesNotDependOnThreadCount() {
+        assertEquals(renderJavaScript(1, false, PRECISE), renderJavaScript(THREAD_COUNT, false, PRECISE));
+    }
+
+    @Test
+    public void minifiedJavaScriptDoesNotDependOnThreadCount() {
+        assertEquals(renderJavaScript(1, true, PRECISE), renderJavaScript(THREAD_COUNT, true, PRECISE));
+    }
+
+    @Test
+    public void cDoesNotDependOnThreadCount() {
+        assertSameFiles(generateC(1, PRECISE), generateC(THREAD_COUNT, PRECISE));
+    }
+
+    @Test
+    public void parallelDependencyAnalysisProducesSamePrograms() {
+        String precise = dumpPrograms(buildJavaScript(1, false, PRECISE, new MemoryBuildTarget()));
+        String parallel = dumpPrograms(buildJavaScript(1, false, PARALLEL, new MemoryBuildTarget()));
+        assertEquals(precise, parallel);
+    }
+
+    @Test
+    public void parallelDependencyAnalysisProducesSameJavaScript() {
+        assertEquals(renderJavaScript(1, false, PRECISE), renderJavaScript(THREAD_COUNT, false, PARALLEL));
+    }
+
+    @Test
+    public void parallelDependencyAnalysisProducesSameC() {
+        assertSameFiles(generateC(1, PRECISE), generateC(THREAD_COUNT, PARALLEL));
+    }
+
+    private static void assertSameFiles(Map<String, String> sequential, Map<String, String> parallel) {
+        assertEquals(sequential.keySet(), parallel.keySet());
+        for (String fileName : sequential.keySet()) {
+            assertEquals("File " + fileName + " differs", sequential.get(fileName), parallel.get(fileName));
+        }
+    }
+
+    private Map<String, String> generateC(int threadCount, DependencyAnalyzerFactory analyzerFactory) {
+        return createBuild(new CTarget(), threadCount, analyzerFactory).buildToMap("classes.c");
+    }
+
+    private String renderJavaScript(int threadCount, boolean minifying, DependencyAnalyzerFactory analyzerFactory) {
+        MemoryBuildTarget buildTarget = new MemoryBuildTarget();
+        buildJavaScript(threadCount, minifying, analyzerFactory, buildTarget);
+        return TestBuild.getContent(buildTarget, "classes.js");
+    }
+
+    private TeaVM buildJavaScript(int threadCount, boolean minifying, DependencyAnalyzerFactory analyzerFactory,
+            MemoryBuildTarget buildTarget) {
+        JavaScriptTarget target = new JavaScriptTarget();
+        target.setMinifying(minifying);
+        return createBuild(target, threadCount, analyzerFactory).build(buildTarget, "classes.js");
+    }
+
+    private static TestBuild createBuild(TeaVMTarget target, int threadCount,
+            DependencyAnalyzerFactory analyzerFactory) {
+        return new TestBuild(target)
+                .setOptimizationLevel(TeaVMOptimizationLevel.FULL)
+                .setThreadCount(threadCount)
+                .setDependencyAnalyzerFactory(analyzerFactory);
+    }
+
+    private static String dumpPrograms(TeaVM vm) {
+        ListableClassReaderSource classes = vm.getWrittenClasses();
+        ListingBuilder listingBuilder = new ListingBuilder();
+        StringBuilder sb = new StringBuilder();
+        for (String className : new TreeSet<>(classes.getClassNames())) {
+            ClassReader cls = classes.get(className);
+            for (MethodReader method : cls.getMethods()) {
+                if (method.getProgram() == null) {
+                    continue;
+                }
+                sb.append(method.getReference()).append('\n');
+                sb.append(listingBuilder.buildListing(method.getProgram(), "    "));
+            }
+        }
+        return sb.toString();
+    }
+}
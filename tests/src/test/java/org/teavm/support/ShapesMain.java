@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>Small program with virtual calls, lambdas and collections, used by tests that compile a whole program.
+ * Prints {@link #EXPECTED_OUTPUT}.</p>
+ */
+public final class ShapesMain {
+    public static final String EXPECTED_OUTPUT = "circle=30;square=20;";
+
+    private ShapesMain() {
+    }
+
+    public static void main(String[] args) {
+        System.out.println(compute());
+    }
+
+    public static String compute() {
+        List<Shape> shapes = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            shapes.add(i % 2 == 0 ? new Square(i) : new Circle(i));
+        }
+        Map<String, Integer> areas = new TreeMap<>();
+        for (Shape shape : shapes) {
+            areas.merge(shape.name(), shape.area(), Integer::sum);
+        }
+        StringBuilder sb = new StringBuilder();
+        areas.forEach((name, area) -> sb.append(name).append('=').append(area).append(';'));
+        return sb.toString();
+    }
+
+    interface Shape {
+        String name();
+
+        int area();
+    }
+
+    static class Square implements Shape {
+        private final int side;
+
+        Square(int side) {
+            this.side = side;
+        }
+
+        @Override
+        public String name() {
+            return "square";
+        }
+
+        @Override
+        public int area() {
+            return side * side;
+        }
+    }
+
+    static class Circle implements Shape {
+        private final int radius;
+
+        Circle(int radius) {
+            this.radius = radius;
+        }
+
+        @Override
+        public String name() {
+            return "circle";
+        }
+
+        @Override
+        public int area() {
+            return 3 * radius * radius;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.support;
+
+import static org.junit.Assert.assertEquals;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.teavm.dependency.DependencyAnalyzerFactory;
+import org.teavm.dependency.PreciseDependencyAnalyzer;
+import org.teavm.vm.MemoryBuildTarget;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+import org.teavm.vm.TeaVMOptimizationLevel;
+import org.teavm.vm.TeaVMTarget;
+
+/**
+ * <p>Builds a single entry point with given target into memory, for tests that check generated code
+ * rather than run it with {@link org.teavm.junit.TeaVMTestRunner}. By default builds {@link ShapesMain}.</p>
+ */
+public class TestBuild {
+    private final TeaVMTarget target;
+    private DependencyAnalyzerFactory dependencyAnalyzerFactory = PreciseDependencyAnalyzer::new;
+    private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.ADVANCED;
+    private int threadCount = 1;
+    private Class<?> mainClass = ShapesMain.class;
+    private final Map<String, Class<?>> additionalEntryPoints = new LinkedHashMap<>();
+
+    public TestBuild(TeaVMTarget target) {
+        this.target = target;
+    }
+
+    public TestBuild setDependencyAnalyzerFactory(DependencyAnalyzerFactory dependencyAnalyzerFactory) {
+        this.dependencyAnalyzerFactory = dependencyAnalyzerFactory;
+        return this;
+    }
+
+    public TestBuild setOptimizationLevel(TeaVMOptimizationLevel optimizationLevel) {
+        this.optimizationLevel = optimizationLevel;
+        return this;
+    }
+
+    public TestBuild setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+        return this;
+    }
+
+    public TestBuild setMainClass(Class<?> mainClass) {
+        this.mainClass = mainClass;
+        return this;
+    }
+
+    /**
+     * Adds entry point with given public name in addition to <code>main</code> entry point of main class.
+     */
+    public TestBuild addEntryPoint(String name, Class<?> entryClass) {
+        additionalEntryPoints.put(name, entryClass);
+        return this;
+    }
+
+    /**
+     * Builds main class and checks that there were no severe problems.
+     *
+     * @param buildTarget where to write generated files.
+     * @param outputName name of the main output file.
+     * @return TeaVM instance after build, which can be used to inspect written classes.
+     */
+    public TeaVM build(MemoryBuildTarget buildTarget, String outputName) {
+        TeaVM vm = new TeaVMBuilder(target)
+                .setClassLoader(TestBuild.class.getClassLoader())
+                .setDependencyAnalyzerFactory(dependencyAnalyzerFactory)
+                .build();
+        vm.setOptimizationLevel(optimizationLevel);
+        vm.setThreadCount(threadCount);
+        vm.installPlugins();
+        vm.entryPoint(mainClass.getName());
+        for (Map.Entry<String, Class<?>> entry : additionalEntryPoints.entrySet()) {
+            vm.entryPoint(entry.getValue().getName(), entry.getKey());
+        }
+        vm.build(buildTarget, outputName);
+        assertEquals("Unexpected problems", 0, vm.getProblemProvider().getSevereProblems().size());
+        return vm;
+    }
+
+    /**
+     * Builds main class and returns content of the main output file.
+     */
+    public String buildToString(String outputName) {
+        MemoryBuildTarget buildTarget = new MemoryBuildTarget();
+        build(buildTarget, outputName);
+        return getContent(buildTarget, outputName);
+    }
+
+    /**
+     * Builds main class and returns content of all generated files.
+     *
+     * @return map from file name to file content, sorted by file name.
+     */
+    public Map<String, String> buildToMap(String outputName) {
+        MemoryBuildTarget buildTarget = new MemoryBuildTarget();
+        build(buildTarget, outputName);
+        return getAllContent(buildTarget);
+    }
+
+    public static String getContent(MemoryBuildTarget buildTarget, String name) {
+        return new String(buildTarget.getContent(name), StandardCharsets.UTF_8);
+    }
+
+    public static Map<String, String> getAllContent(MemoryBuildTarget buildTarget) {
+        Map<String, String> result = new TreeMap<>();
+        for (String name : buildTarget.getNames()) {
+            result.put(name, getContent(buildTarget, name));
+        }
+        return result;
+    }
+}
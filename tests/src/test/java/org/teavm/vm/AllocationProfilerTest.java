@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.classlib.PlatformDetector;
+import org.teavm.junit.TeaVMTestRunner;
+import org.teavm.runtime.AllocationProfiler;
+
+@RunWith(TeaVMTestRunner.class)
+public class AllocationProfilerTest {
+    private static final int ARRAY_COUNT = 1000;
+    private static final int MAX_HEADER_SIZE = 32;
+    private static Object[] arrays;
+
+    @Test
+    public void samplesAtConfiguredInterval() {
+        if (!PlatformDetector.isLowLevel() || !AllocationProfiler.isEnabled()) {
+            return;
+        }
+        int interval = AllocationProfiler.getSampleInterval();
+        // Every array is smaller than interval, so every sample stands for exactly one interval
+        int arraySize = interval / 4;
+        arrays = new Object[ARRAY_COUNT];
+
+        int sampleCount = AllocationProfiler.getSampleCount();
+        long sampledBytes = AllocationProfiler.getSampledBytes();
+        for (int i = 0; i < ARRAY_COUNT; ++i) {
+            arrays[i] = new byte[arraySize];
+        }
+        int samples = AllocationProfiler.getSampleCount() - sampleCount;
+        long bytes = AllocationProfiler.getSampledBytes() - sampledBytes;
+        arrays = null;
+
+        assertEquals((long) samples * interval, bytes);
+        long minBytes = (long) ARRAY_COUNT * arraySize;
+        long maxBytes = (long) ARRAY_COUNT * (arraySize + MAX_HEADER_SIZE);
+        assertTrue("Too few bytes sampled: " + bytes, bytes > minBytes - interval);
+        assertTrue("Too many bytes sampled: " + bytes, bytes < maxBytes + interval);
+    }
+}
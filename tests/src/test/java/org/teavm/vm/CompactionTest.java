@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.classlib.PlatformDetector;
+import org.teavm.interop.Address;
+import org.teavm.junit.TeaVMTestRunner;
+import org.teavm.runtime.GC;
+
+@RunWith(TeaVMTestRunner.class)
+public class CompactionTest {
+    private static final int ATTEMPTS = 20;
+    private static Object[] survivors;
+
+    @Test
+    public void pointerIntoArraySurvivesCollection() {
+        if (!PlatformDetector.isLowLevel()) {
+            return;
+        }
+
+        // Garbage allocated right before the array leaves free space for the array to slide into.
+        // Array itself is not used after pointer is taken, so only the pointer keeps it alive and in place
+        allocateGarbage();
+        Address data = Address.ofData(createData());
+        int compactions = GC.getCompactionCount();
+        for (int i = 0; i < ATTEMPTS && GC.getCompactionCount() == compactions; ++i) {
+            fragmentHeap();
+            System.gc();
+        }
+
+        for (int i = 0; i < 256; ++i) {
+            assertEquals(i * 3, data.add(i * 4).getInt());
+        }
+        survivors = null;
+    }
+
+    private static int[] createData() {
+        int[] data = new int[256];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = i * 3;
+        }
+        return data;
+    }
+
+    private static void allocateGarbage() {
+        for (int i = 0; i < 1024; ++i) {
+            survivors = new Object[] { new int[64] };
+        }
+        survivors = null;
+    }
+
+    private static void fragmentHeap() {
+        survivors = new Object[4096];
+        for (int i = 0; i < survivors.length * 2; ++i) {
+            int[] array = new int[64];
+            if (i % 2 == 0) {
+                survivors[i / 2] = array;
+            }
+        }
+    }
+}
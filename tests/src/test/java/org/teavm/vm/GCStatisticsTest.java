@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.classlib.GCStatistics;
+import org.teavm.interop.Address;
+import org.teavm.junit.TeaVMTestRunner;
+import org.teavm.runtime.GC;
+
+@RunWith(TeaVMTestRunner.class)
+public class GCStatisticsTest {
+    private static final int ATTEMPTS = 50;
+    private static Object[] live;
+    private static Object garbage;
+
+    @Test
+    public void collectionCountIncreases() {
+        if (!GCStatistics.isSupported()) {
+            assertEquals(0, GCStatistics.getCollectionCount());
+            return;
+        }
+        int count = GCStatistics.getCollectionCount();
+        System.gc();
+        int countAfterFirst = GCStatistics.getCollectionCount();
+        assertTrue("Collection count did not increase: " + countAfterFirst, countAfterFirst > count);
+        System.gc();
+        assertTrue(GCStatistics.getCollectionCount() > countAfterFirst);
+    }
+
+    @Test
+    public void pauseTimesIncrease() {
+        if (!GCStatistics.isSupported()) {
+            return;
+        }
+
+        // Pause times are measured in milliseconds, so keep enough live objects for marking to take noticeable time
+        live = new Object[200000];
+        for (int i = 0; i < live.length; ++i) {
+            live[i] = new Object[] { new int[4] };
+        }
+
+        long totalPauseTime = GCStatistics.getTotalPauseTime();
+        for (int i = 0; i < ATTEMPTS && GCStatistics.getTotalPauseTime() == totalPauseTime; ++i) {
+            System.gc();
+        }
+        long newTotalPauseTime = GCStatistics.getTotalPauseTime();
+        assertTrue("Total pause time did not increase: " + newTotalPauseTime, newTotalPauseTime > totalPauseTime);
+        assertTrue(GCStatistics.getMaxPauseTime() > 0);
+        assertTrue(GCStatistics.getMaxPauseTime() >= GCStatistics.getLastPauseTime());
+        assertTrue(GCStatistics.getTotalPauseTime() >= GCStatistics.getMaxPauseTime());
+        live = null;
+    }
+
+    @Test
+    public void allocatedBytesIncrease() {
+        if (!GCStatistics.isSupported()) {
+            return;
+        }
+        long allocated = GCStatistics.getAllocatedBytes();
+        for (int i = 0; i < 1000; ++i) {
+            garbage = new byte[1000];
+        }
+        garbage = null;
+        long newAllocated = GCStatistics.getAllocatedBytes();
+        assertTrue("Allocated bytes did not increase enough: " + (newAllocated - allocated),
+                newAllocated - allocated >= 1000 * 1000);
+    }
+
+    @Test
+    public void allocationThatFillsChunkIsCounted() {
+        if (!GCStatistics.isSupported()) {
+            return;
+        }
+        System.gc();
+
+        // Two empty arrays allocated one after another are adjacent, which gives size of array header
+        byte[] first = new byte[0];
+        byte[] second = new byte[0];
+        int headerSize = (int) (Address.ofObject(second).toLong() - Address.ofObject(first).toLong());
+        garbage = second;
+
+        int chunkSize = GC.getCurrentChunkSize();
+        long allocated = GCStatistics.getAllocatedBytes();
+        garbage = new byte[chunkSize - headerSize];
+        long newAllocated = GCStatistics.getAllocatedBytes();
+        garbage = null;
+        assertTrue("Allocated bytes did not account object that fills chunk: " + (newAllocated - allocated),
+                newAllocated - allocated >= chunkSize);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.classlib.PlatformDetector;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class HeapResizeTest {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int ATTEMPTS = 10;
+    private static Object[] retained;
+
+    @Test
+    public void heapGrowsAndShrinksBack() {
+        if (!PlatformDetector.isLowLevel()) {
+            return;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long initialSize = runtime.totalMemory();
+        if (runtime.maxMemory() <= initialSize * 3) {
+            // Heap is not allowed to grow in this configuration
+            return;
+        }
+
+        retain(initialSize * 2);
+        long grownSize = runtime.totalMemory();
+        assertTrue("Heap did not grow: " + grownSize, grownSize > initialSize);
+
+        retained = null;
+        for (int i = 0; i < ATTEMPTS && runtime.totalMemory() >= grownSize; ++i) {
+            System.gc();
+        }
+        long shrunkSize = runtime.totalMemory();
+        assertTrue("Heap did not shrink: " + shrunkSize, shrunkSize < grownSize);
+        assertTrue("Heap shrunk below initial size: " + shrunkSize, shrunkSize >= initialSize);
+    }
+
+    private static void retain(long bytes) {
+        retained = new Object[(int) (bytes / BLOCK_SIZE) + 1];
+        for (int i = 0; i < retained.length; ++i) {
+            retained[i] = new byte[BLOCK_SIZE];
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.classlib.PlatformDetector;
+import org.teavm.junit.TeaVMTestRunner;
+import org.teavm.runtime.GC;
+
+@RunWith(TeaVMTestRunner.class)
+public class IncrementalGCTest {
+    private static final int NODE_COUNT = 2000;
+    private static final int PAYLOAD_SIZE = 16;
+    private static final int MAX_ROUNDS = 20000;
+    private static final int REQUIRED_MUTATIONS = 5000;
+    private static Object garbage;
+
+    @Test
+    public void referencesMovedDuringMarkingSurvive() {
+        if (!PlatformDetector.isLowLevel()) {
+            return;
+        }
+
+        // Nodes are moved back and forth between two lists, so a node that is referenced only from an unscanned
+        // part of one list gets stored into an already scanned part of other list. Without write barrier
+        // such node would not be marked and would be swept while still reachable.
+        Node[] lists = new Node[2];
+        for (int i = 0; i < NODE_COUNT; ++i) {
+            Node node = new Node(i);
+            node.next = lists[i % 2];
+            lists[i % 2] = node;
+        }
+
+        int mutations = 0;
+        for (int round = 0; round < MAX_ROUNDS && mutations < REQUIRED_MUTATIONS; ++round) {
+            allocateGarbage();
+            int source = round % 2;
+            Node moved = detachLast(lists, source);
+            if (moved == null) {
+                continue;
+            }
+            if (round % 3 == 0) {
+                // Objects allocated during marking must be allocated black, otherwise they are swept
+                // at the end of the cycle, as nothing scans them
+                moved = new Node(moved.value);
+            }
+            moved.next = lists[1 - source];
+            lists[1 - source] = moved;
+            if (GC.isMarkingInProgress()) {
+                mutations++;
+            }
+        }
+
+        System.gc();
+        boolean[] found = new boolean[NODE_COUNT];
+        for (Node list : lists) {
+            for (Node node = list; node != null; node = node.next) {
+                assertNotNull(node.payload);
+                assertEquals(PAYLOAD_SIZE, node.payload.length);
+                for (int i = 0; i < PAYLOAD_SIZE; ++i) {
+                    assertEquals(node.value * PAYLOAD_SIZE + i, node.payload[i]);
+                }
+                assertTrue("Node found twice: " + node.value, !found[node.value]);
+                found[node.value] = true;
+            }
+        }
+        for (int i = 0; i < NODE_COUNT; ++i) {
+            assertTrue("Node lost: " + i, found[i]);
+        }
+        garbage = null;
+    }
+
+    private static Node detachLast(Node[] lists, int index) {
+        Node node = lists[index];
+        if (node == null) {
+            return null;
+        }
+        if (node.next == null) {
+            lists[index] = null;
+            return node;
+        }
+        while (node.next.next != null) {
+            node = node.next;
+        }
+        Node last = node.next;
+        node.next = null;
+        return last;
+    }
+
+    private static void allocateGarbage() {
+        for (int i = 0; i < 16; ++i) {
+            garbage = new int[64];
+        }
+    }
+
+    static class Node {
+        final int value;
+        final int[] payload;
+        Node next;
+
+        Node(int value) {
+            this.value = value;
+            payload = new int[PAYLOAD_SIZE];
+            for (int i = 0; i < PAYLOAD_SIZE; ++i) {
+                payload[i] = value * PAYLOAD_SIZE + i;
+            }
+        }
+    }
+}
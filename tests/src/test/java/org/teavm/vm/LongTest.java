@@ -56,6 +56,44 @@ public class LongTest {
         assertEquals(0, a / b);
     }
 
+    @Test
+    public void longDivisionRoundsTowardsZero() {
+        assertEquals(-3L, id(7L) / id(-2L));
+        assertEquals(-3L, id(-7L) / id(2L));
+        assertEquals(1L, id(7L) % id(-2L));
+        assertEquals(-1L, id(-7L) % id(2L));
+        assertEquals(Long.MIN_VALUE, id(Long.MIN_VALUE) / id(-1L));
+        assertEquals(0L, id(Long.MIN_VALUE) % id(-1L));
+        assertEquals(4294967296L, id(Long.MAX_VALUE) / id(2147483648L) + 1);
+    }
+
+    @Test
+    public void longShifts() {
+        assertEquals(Long.MAX_VALUE, id(-1L) >>> 1);
+        assertEquals(15L, id(-8L) >>> 60);
+        assertEquals(-1L, id(-1L) >>> id(64));
+        assertEquals(1L, id(Long.MIN_VALUE) >>> 63);
+        assertEquals(-1L, id(Long.MIN_VALUE) >> 63);
+        assertEquals(Long.MIN_VALUE, id(1L) << 63);
+        assertEquals(2L, id(1L) << id(65));
+        assertEquals(0x00FFFFFFFFFFFFFFL, id(0xFFFFFFFFFFFFFFFFL) >>> 8);
+    }
+
+    @Test
+    public void doubleBitsConverted() {
+        assertEquals(0x3FF0000000000000L, Double.doubleToLongBits(id(1.0)));
+        assertEquals(0x8000000000000000L, Double.doubleToLongBits(id(-0.0)));
+        assertEquals(0x7FF8000000000000L, Double.doubleToLongBits(id(Double.NaN)));
+        assertEquals(0xC00921FB54442D18L, Double.doubleToLongBits(id(-Math.PI)));
+        assertEquals(1.0, Double.longBitsToDouble(id(0x3FF0000000000000L)), 0);
+        assertEquals(-Math.PI, Double.longBitsToDouble(id(0xC00921FB54442D18L)), 0);
+        assertEquals(Double.MIN_VALUE, Double.longBitsToDouble(id(1L)), 0);
+    }
+
+    private static double id(double value) {
+        return value;
+    }
+
     private static long id(long value) {
         return value;
     }
@@ -0,0 +1,206 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.teavm.vm.TeaVMBuildStage;
+import org.teavm.vm.TeaVMBuildStageListener;
+
+/**
+ * <p>Reports time and allocation of each {@link TeaVMBuildStage} as secondary JMH results. Intended for single
+ * shot benchmarks, i.e. one invocation per iteration.</p>
+ *
+ * <p>Allocation is measured on heap rather than per thread, since parallel stages allocate on pool threads
+ * which terminate before the stage ends. Allocated bytes are heap usage plus everything that collections freed
+ * so far, so allocation of all threads is included. Heap usage grows by whole TLABs, so results are accurate
+ * up to a few TLABs per thread, which is negligible for stages that allocate megabytes.</p>
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class BuildStageCounters implements TeaVMBuildStageListener {
+    private static final double NANOS_PER_MILLISECOND = 1_000_000.0;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+    private static final long GC_NOTIFICATION_TIMEOUT_MS = 1000;
+
+    public double dependencyAnalysisMs;
+    public double dependencyAnalysisAllocMb;
+    public double linkingMs;
+    public double linkingAllocMb;
+    public double devirtualizationMs;
+    public double devirtualizationAllocMb;
+    public double inliningMs;
+    public double inliningAllocMb;
+    public double optimizationMs;
+    public double optimizationAllocMb;
+    public double renderingMs;
+    public double renderingAllocMb;
+
+    private long[] startTimes = new long[TeaVMBuildStage.values().length];
+    private long[] startAllocations = new long[TeaVMBuildStage.values().length];
+    private final AtomicLong freedBytes = new AtomicLong();
+    private final AtomicLong notifiedCollections = new AtomicLong();
+    private long collectionsBeforeSubscription;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener gcListener = this::collectionFinished;
+
+    @Setup(Level.Trial)
+    public void subscribe() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(gcListener, null, null);
+                emitters.add(emitter);
+            }
+        }
+        collectionsBeforeSubscription = collectionCount();
+    }
+
+    @TearDown(Level.Trial)
+    public void unsubscribe() throws Exception {
+        for (NotificationEmitter emitter : emitters) {
+            emitter.removeNotificationListener(gcListener);
+        }
+        emitters.clear();
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        dependencyAnalysisMs = 0;
+        dependencyAnalysisAllocMb = 0;
+        linkingMs = 0;
+        linkingAllocMb = 0;
+        devirtualizationMs = 0;
+        devirtualizationAllocMb = 0;
+        inliningMs = 0;
+        inliningAllocMb = 0;
+        optimizationMs = 0;
+        optimizationAllocMb = 0;
+        renderingMs = 0;
+        renderingAllocMb = 0;
+    }
+
+    @Override
+    public void stageStarted(TeaVMBuildStage stage) {
+        startAllocations[stage.ordinal()] = allocatedBytes();
+        startTimes[stage.ordinal()] = System.nanoTime();
+    }
+
+    @Override
+    public void stageFinished(TeaVMBuildStage stage) {
+        double time = (System.nanoTime() - startTimes[stage.ordinal()]) / NANOS_PER_MILLISECOND;
+        double allocated = (allocatedBytes() - startAllocations[stage.ordinal()]) / BYTES_PER_MEGABYTE;
+        switch (stage) {
+            case DEPENDENCY_ANALYSIS:
+                dependencyAnalysisMs += time;
+                dependencyAnalysisAllocMb += allocated;
+                break;
+            case LINKING:
+                linkingMs += time;
+                linkingAllocMb += allocated;
+                break;
+            case DEVIRTUALIZATION:
+                devirtualizationMs += time;
+                devirtualizationAllocMb += allocated;
+                break;
+            case INLINING:
+                inliningMs += time;
+                inliningAllocMb += allocated;
+                break;
+            case OPTIMIZATION:
+                optimizationMs += time;
+                optimizationAllocMb += allocated;
+                break;
+            case RENDERING:
+                renderingMs += time;
+                renderingAllocMb += allocated;
+                break;
+        }
+    }
+
+    private long allocatedBytes() {
+        awaitGcNotifications();
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used + freedBytes.get();
+    }
+
+    /*
+     * GC notifications are delivered asynchronously, so wait until bytes freed by every finished collection
+     * are accounted. Otherwise a collection that just happened would show up as negative allocation.
+     */
+    private void awaitGcNotifications() {
+        long deadline = System.currentTimeMillis() + GC_NOTIFICATION_TIMEOUT_MS;
+        while (collectionsBeforeSubscription + notifiedCollections.get() < collectionCount()
+                && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long collectionCount() {
+        long count = 0;
+        for (NotificationEmitter emitter : emitters) {
+            count += Math.max(0, ((GarbageCollectorMXBean) emitter).getCollectionCount());
+        }
+        return count;
+    }
+
+    private void collectionFinished(Notification notification, Object handback) {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+                (CompositeData) notification.getUserData());
+        Map<String, MemoryUsage> before = info.getGcInfo().getMemoryUsageBeforeGc();
+        Map<String, MemoryUsage> after = info.getGcInfo().getMemoryUsageAfterGc();
+        long freed = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && before.containsKey(pool.getName())
+                    && after.containsKey(pool.getName())) {
+                freed += before.get(pool.getName()).getUsed() - after.get(pool.getName()).getUsed();
+            }
+        }
+        freedBytes.addAndGet(freed);
+        notifiedCollections.incrementAndGet();
+    }
+}
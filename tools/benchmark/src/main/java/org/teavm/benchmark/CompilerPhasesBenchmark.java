@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark;
+
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teavm.backend.c.CTarget;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.backend.wasm.WasmTarget;
+import org.teavm.diagnostics.Problem;
+import org.teavm.model.ClassHolderSource;
+import org.teavm.model.PreOptimizingClassHolderSource;
+import org.teavm.model.ReferenceCache;
+import org.teavm.parsing.ClasspathClassHolderSource;
+import org.teavm.vm.MemoryBuildTarget;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+import org.teavm.vm.TeaVMOptimizationLevel;
+import org.teavm.vm.TeaVMTarget;
+
+/**
+ * <p>Measures full compilation of a program that uses large part of class library for each of the supported
+ * targets. Besides total time, reports time and allocation of each build stage, see {@link BuildStageCounters}.</p>
+ *
+ * <p>Classes are parsed once per trial, so that the benchmark measures compiler itself, not parsing
+ * of class files. Each target is compiled with one and with several threads (see {@link TeaVM#setThreadCount(int)}),
+ * which shows how parallel stages scale. Dependency analysis is single-threaded in both cases.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CompilerPhasesBenchmark {
+    @Param("org.teavm.benchmark.inputs.ClasslibUsage")
+    public String mainClass;
+
+    @Param({ "js", "wasm", "c" })
+    public String target;
+
+    @Param("ADVANCED")
+    public TeaVMOptimizationLevel optimizationLevel;
+
+    @Param({ "1", "4" })
+    public int threadCount;
+
+    private ClassLoader classLoader;
+    private ReferenceCache referenceCache;
+    private ClassHolderSource classSource;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        classLoader = CompilerPhasesBenchmark.class.getClassLoader();
+        referenceCache = new ReferenceCache();
+        classSource = new PreOptimizingClassHolderSource(new ClasspathClassHolderSource(classLoader,
+                referenceCache));
+    }
+
+    @Benchmark
+    public MemoryBuildTarget compile(BuildStageCounters counters) {
+        TeaVM vm = new TeaVMBuilder(createTarget())
+                .setClassLoader(classLoader)
+                .setClassSource(classSource)
+                .setReferenceCache(referenceCache)
+                .build();
+        vm.setOptimizationLevel(optimizationLevel);
+        vm.setThreadCount(threadCount);
+        vm.setBuildStageListener(counters);
+        vm.installPlugins();
+        vm.entryPoint(mainClass);
+
+        MemoryBuildTarget buildTarget = new MemoryBuildTarget();
+        vm.build(buildTarget, "classes");
+
+        List<Problem> problems = vm.getProblemProvider().getSevereProblems();
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Compilation of " + mainClass + " to " + target + " reported "
+                    + problems.size() + " error(s), e.g. " + problems.get(0).getText());
+        }
+        return buildTarget;
+    }
+
+    private TeaVMTarget createTarget() {
+        switch (target) {
+            case "js":
+                return new JavaScriptTarget();
+            case "wasm":
+                return new WasmTarget();
+            case "c":
+                return new CTarget();
+            default:
+                throw new IllegalArgumentException("Unknown target: " + target);
+        }
+    }
+}
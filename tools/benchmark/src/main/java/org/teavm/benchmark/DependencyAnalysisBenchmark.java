@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark;
+
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.dependency.DependencyAnalyzerFactory;
+import org.teavm.dependency.DependencyInfo;
+import org.teavm.dependency.FastDependencyAnalyzer;
+import org.teavm.dependency.ParallelDependencyAnalyzer;
+import org.teavm.dependency.PreciseDependencyAnalyzer;
+import org.teavm.diagnostics.Problem;
+import org.teavm.model.ClassHolderSource;
+import org.teavm.model.PreOptimizingClassHolderSource;
+import org.teavm.model.ReferenceCache;
+import org.teavm.parsing.ClasspathClassHolderSource;
+import org.teavm.vm.MemoryBuildTarget;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+import org.teavm.vm.TeaVMPhase;
+import org.teavm.vm.TeaVMProgressFeedback;
+import org.teavm.vm.TeaVMProgressListener;
+
+/**
+ * <p>Measures time and peak heap usage of dependency analysis of a program that uses large part of class
+ * library.</p>
+ *
+ * <p>Comparing <code>precise</code> and <code>parallel</code> analyzers shows how much is saved by mapping
+ * variables of methods to dependency nodes on <code>threadCount</code> threads, since otherwise these analyzers
+ * do the same work.</p>
+ *
+ * <p>Classes are parsed once per trial, so that the benchmark measures dependency analysis itself
+ * (including class transformation), not parsing of class files.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DependencyAnalysisBenchmark {
+    @Param("org.teavm.benchmark.inputs.ClasslibUsage")
+    public String mainClass;
+
+    @Param({ "fast", "precise", "parallel" })
+    public String analyzer;
+
+    @Param("4")
+    public int threadCount;
+
+    private ClassLoader classLoader;
+    private ReferenceCache referenceCache;
+    private ClassHolderSource classSource;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        classLoader = DependencyAnalysisBenchmark.class.getClassLoader();
+        referenceCache = new ReferenceCache();
+        classSource = new PreOptimizingClassHolderSource(new ClasspathClassHolderSource(classLoader,
+                referenceCache));
+    }
+
+    @Benchmark
+    public DependencyInfo analyze(PeakHeapCounters counters) {
+        TeaVM vm = new TeaVMBuilder(new JavaScriptTarget())
+                .setClassLoader(classLoader)
+                .setClassSource(classSource)
+                .setReferenceCache(referenceCache)
+                .setDependencyAnalyzerFactory(getAnalyzerFactory())
+                .build();
+        vm.setProgressListener(new StopAfterDependencyAnalysis());
+        vm.installPlugins();
+        vm.entryPoint(mainClass);
+        vm.build(new MemoryBuildTarget(), "classes.js");
+        counters.record();
+
+        List<Problem> problems = vm.getProblemProvider().getSevereProblems();
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Dependency analysis of " + mainClass + " reported "
+                    + problems.size() + " error(s), e.g. " + problems.get(0).getText());
+        }
+        return vm.getDependencyInfo();
+    }
+
+    private DependencyAnalyzerFactory getAnalyzerFactory() {
+        switch (analyzer) {
+            case "fast":
+                return FastDependencyAnalyzer::new;
+            case "precise":
+                return PreciseDependencyAnalyzer::new;
+            case "parallel":
+                return ParallelDependencyAnalyzer.factory(threadCount);
+            default:
+                throw new IllegalArgumentException("Unknown dependency analyzer: " + analyzer);
+        }
+    }
+
+    static class StopAfterDependencyAnalysis implements TeaVMProgressListener {
+        @Override
+        public TeaVMProgressFeedback phaseStarted(TeaVMPhase phase, int count) {
+            return phase == TeaVMPhase.DEPENDENCY_ANALYSIS
+                    ? TeaVMProgressFeedback.CONTINUE
+                    : TeaVMProgressFeedback.CANCEL;
+        }
+
+        @Override
+        public TeaVMProgressFeedback progressReached(int progress) {
+            return TeaVMProgressFeedback.CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.benchmark.inputs;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Fixed input for compiler benchmarks. Touches large part of class library: collections, streams, regular
+ * expressions, text formatting and arbitrary precision arithmetic.
+ */
+public final class ClasslibUsage {
+    private ClasslibUsage() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<Integer> numbers = IntStream.range(0, 1000).map(i -> random.nextInt(10000)).boxed()
+                .collect(Collectors.toList());
+
+        Map<Integer, List<Integer>> byDigits = numbers.stream()
+                .collect(Collectors.groupingBy(n -> String.valueOf(n).length()));
+        TreeMap<Integer, Integer> counts = new TreeMap<>();
+        byDigits.forEach((digits, list) -> counts.put(digits, list.size()));
+
+        Deque<Integer> deque = new ArrayDeque<>(numbers);
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Collections.reverseOrder());
+        queue.addAll(new LinkedList<>(deque));
+        TreeSet<Integer> top = new TreeSet<>();
+        for (int i = 0; i < 10; ++i) {
+            top.add(queue.poll());
+        }
+
+        Map<String, Integer> words = new LinkedHashMap<>();
+        Matcher matcher = Pattern.compile("[a-z]+").matcher("the quick brown fox jumps over the lazy dog");
+        while (matcher.find()) {
+            words.merge(matcher.group(), 1, Integer::sum);
+        }
+
+        BigInteger factorial = BigInteger.ONE;
+        for (int i = 2; i <= 50; ++i) {
+            factorial = factorial.multiply(BigInteger.valueOf(i));
+        }
+        BigDecimal average = new BigDecimal(numbers.stream().mapToLong(Integer::longValue).sum())
+                .divide(BigDecimal.valueOf(numbers.size()), 5, RoundingMode.HALF_EVEN);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("counts", counts);
+        report.put("top", top);
+        report.put("words", words);
+        report.put("factorial", factorial);
+        report.put("average", new DecimalFormat("#,##0.00").format(average));
+        report.put("sorted", Arrays.toString(numbers.stream().sorted().limit(10).toArray()));
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : new TreeMap<>(report).entrySet()) {
+            lines.add(String.format("%-10s %s", entry.getKey(), entry.getValue()));
+        }
+        System.out.println(String.join("\n", lines));
+    }
+}
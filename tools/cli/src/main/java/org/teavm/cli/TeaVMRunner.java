@@ -77,11 +77,44 @@ public final class TeaVMRunner {
                 .withDescription("causes TeaVM to generate minimized JavaScript file")
                 .withLongOpt("minify")
                 .create("m"));
+        options.addOption(OptionBuilder
+                .withDescription("represent Java long values by JavaScript BigInt")
+                .withLongOpt("long-as-bigint")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("generate ECMAScript module that exports entry points")
+                .withLongOpt("es-module")
+                .create());
+        options.addOption(OptionBuilder
+                .withArgName("name=class name")
+                .hasArgs()
+                .withDescription("entry point that calls main method of given class and is loaded on demand "
+                        + "from separate file, only supported with --es-module")
+                .withLongOpt("lazy-entry-point")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("initialize fields of all superclasses directly in class constructor")
+                .withLongOpt("flat-object-layout")
+                .create());
+        options.addOption(OptionBuilder
+                .withArgName("number")
+                .hasArg()
+                .withDescription("replace virtual calls with at most this number of implementations by type checks "
+                        + "and direct calls (for JavaScript)")
+                .withLongOpt("guarded-dispatch-limit")
+                .create());
         options.addOption(OptionBuilder
                 .withDescription("optimization level (1-3)")
                 .hasArg()
                 .withArgName("number")
                 .create("O"));
+        options.addOption(OptionBuilder
+                .withArgName("number")
+                .hasArg()
+                .withDescription("number of threads used for optimization and code generation (1 by default). "
+                        + "Dependency analysis is single-threaded")
+                .withLongOpt("threads")
+                .create('j'));
         options.addOption(OptionBuilder
                 .withDescription("Generate debug information")
                 .withLongOpt("debug")
@@ -100,6 +133,33 @@ public final class TeaVMRunner {
                 .withDescription("Incremental build cache directory")
                 .withLongOpt("cachedir")
                 .create('c'));
+        options.addOption(OptionBuilder
+                .withDescription("Store incremental build cache in a few segment files instead of a file per method")
+                .withLongOpt("segmented-cache")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("Identify incremental build cache entries by hashes of class files")
+                .withLongOpt("content-hash-cache")
+                .create());
+        options.addOption(OptionBuilder
+                .withArgName("directory")
+                .hasArg()
+                .withDescription("Import content hash cache entries from directory before build")
+                .withLongOpt("cache-import")
+                .create());
+        options.addOption(OptionBuilder
+                .withArgName("directory")
+                .hasArg()
+                .withDescription("Export content hash cache entries to directory after build")
+                .withLongOpt("cache-export")
+                .create());
+        options.addOption(OptionBuilder
+                .withArgName("megabytes")
+                .hasArg()
+                .withDescription("Delete least recently used content hash cache entries above this size "
+                        + "(512 by default, 0 keeps all entries)")
+                .withLongOpt("cache-max-size")
+                .create());
         options.addOption(OptionBuilder
                 .withDescription("Wait for command after compilation, in order to enable hot recompilation")
                 .withLongOpt("wait")
@@ -122,6 +182,14 @@ public final class TeaVMRunner {
                 .hasArg()
                 .withDescription("WebAssembly binary version (currently, only 1 is supported)")
                 .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("wasm-simd")
+                .withDescription("Use 128-bit SIMD instructions in generated WebAssembly")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("wasm-bulk-memory")
+                .withDescription("Use memory.fill and memory.copy instructions in generated WebAssembly")
+                .create());
         options.addOption(OptionBuilder
                 .withLongOpt("entry-point")
                 .withArgName("name")
@@ -134,6 +202,54 @@ public final class TeaVMRunner {
                 .hasArg()
                 .withDescription("Minimum heap size in megabytes (for C and WebAssembly)")
                 .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("max-heap")
+                .withArgName("size")
+                .hasArg()
+                .withDescription("Maximum heap size in megabytes, heap grows up to this size on demand "
+                        + "(for C and WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("generational-gc")
+                .withDescription("Use generational GC (for C and WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("incremental-gc")
+                .withDescription("Use incremental GC (for WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("gc-slice-time")
+                .withArgName("ms")
+                .hasArg()
+                .withDescription("Max duration of a single incremental GC slice in milliseconds, 5 by default")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("compacting-gc")
+                .withDescription("Compact heap when free memory gets fragmented (for C)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("gc-telemetry")
+                .withDescription("Report GC pauses and allocation samples as JSON lines to file specified by "
+                        + "TEAVM_GC_LOG environment variable (for C)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("gc-threads")
+                .withArgName("number")
+                .hasArg()
+                .withDescription("Number of threads used to sweep heap, 1 by default (for C, requires -pthread)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("allocation-profiler")
+                .withDescription("Write call stacks of sampled allocations in collapsed stacks format to file "
+                        + "specified by TEAVM_ALLOCATION_PROFILE environment variable (for C)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("allocation-sample-interval")
+                .withArgName("bytes")
+                .hasArg()
+                .withDescription("Average number of bytes allocated between two allocation samples, "
+                        + "524288 by default (for C)")
+                .create());
         options.addOption(OptionBuilder
                 .withLongOpt("max-toplevel-names")
                 .withArgName("number")
@@ -223,6 +339,21 @@ public final class TeaVMRunner {
 
     private void parseJavaScriptOptions() {
         tool.setMinifying(commandLine.hasOption("m"));
+        tool.setLongAsBigInt(commandLine.hasOption("long-as-bigint"));
+        tool.setEsModule(commandLine.hasOption("es-module"));
+        tool.setFlatObjectLayout(commandLine.hasOption("flat-object-layout"));
+
+        if (commandLine.hasOption("lazy-entry-point")) {
+            for (String value : commandLine.getOptionValues("lazy-entry-point")) {
+                int separatorIndex = value.indexOf('=');
+                if (separatorIndex <= 0 || separatorIndex == value.length() - 1) {
+                    System.err.println("'--lazy-entry-point' must be in form name=class");
+                    printUsage();
+                }
+                tool.getLazyEntryPoints().put(value.substring(0, separatorIndex),
+                        value.substring(separatorIndex + 1));
+            }
+        }
 
         if (commandLine.hasOption("max-toplevel-names")) {
             try {
@@ -232,6 +363,15 @@ public final class TeaVMRunner {
                 printUsage();
             }
         }
+
+        if (commandLine.hasOption("guarded-dispatch-limit")) {
+            try {
+                tool.setGuardedDispatchLimit(Integer.parseInt(commandLine.getOptionValue("guarded-dispatch-limit")));
+            } catch (NumberFormatException e) {
+                System.err.println("'--guarded-dispatch-limit' must be integer number");
+                printUsage();
+            }
+        }
     }
 
     private void parseDebugOptions() {
@@ -274,6 +414,15 @@ public final class TeaVMRunner {
                     printUsage();
             }
         }
+
+        if (commandLine.hasOption('j')) {
+            try {
+                tool.setThreadCount(Integer.parseInt(commandLine.getOptionValue('j')));
+            } catch (NumberFormatException e) {
+                System.err.println("'--threads' must be integer number");
+                printUsage();
+            }
+        }
     }
 
     private void parseIncrementalOptions() {
@@ -285,6 +434,27 @@ public final class TeaVMRunner {
         } else {
             tool.setCacheDirectory(new File(tool.getTargetDirectory(), "teavm-cache"));
         }
+        if (commandLine.hasOption("segmented-cache")) {
+            tool.setSegmentedCache(true);
+        }
+        if (commandLine.hasOption("content-hash-cache")) {
+            tool.setContentHashCache(true);
+        }
+        if (commandLine.hasOption("cache-import")) {
+            tool.setCacheImportDirectory(new File(commandLine.getOptionValue("cache-import")));
+        }
+        if (commandLine.hasOption("cache-export")) {
+            tool.setCacheExportDirectory(new File(commandLine.getOptionValue("cache-export")));
+        }
+        if (commandLine.hasOption("cache-max-size")) {
+            try {
+                tool.setContentHashCacheMaxSize(Long.parseLong(commandLine.getOptionValue("cache-max-size"))
+                        * 1024 * 1024);
+            } catch (NumberFormatException e) {
+                System.err.println("'--cache-max-size' must be integer number");
+                printUsage();
+            }
+        }
     }
 
     private void parseClassPathOptions() {
@@ -311,6 +481,8 @@ public final class TeaVMRunner {
                 printUsage();
             }
         }
+        tool.setWasmSimd(commandLine.hasOption("wasm-simd"));
+        tool.setWasmBulkMemory(commandLine.hasOption("wasm-bulk-memory"));
     }
 
     private void parseHeap() {
@@ -325,6 +497,47 @@ public final class TeaVMRunner {
             }
             tool.setMinHeapSize(size * 1024 * 1024);
         }
+        if (commandLine.hasOption("max-heap")) {
+            int size;
+            try {
+                size = Integer.parseInt(commandLine.getOptionValue("max-heap"));
+            } catch (NumberFormatException e) {
+                System.err.print("Wrong heap size");
+                printUsage();
+                return;
+            }
+            tool.setMaxHeapSize(size * 1024 * 1024);
+        }
+        tool.setGenerationalGC(commandLine.hasOption("generational-gc"));
+        tool.setIncrementalGC(commandLine.hasOption("incremental-gc"));
+        if (commandLine.hasOption("gc-slice-time")) {
+            try {
+                tool.setGCSliceTime(Integer.parseInt(commandLine.getOptionValue("gc-slice-time")));
+            } catch (NumberFormatException e) {
+                System.err.print("Wrong GC slice time");
+                printUsage();
+            }
+        }
+        tool.setCompactingGC(commandLine.hasOption("compacting-gc"));
+        tool.setGCTelemetry(commandLine.hasOption("gc-telemetry"));
+        if (commandLine.hasOption("gc-threads")) {
+            try {
+                tool.setGCThreadCount(Integer.parseInt(commandLine.getOptionValue("gc-threads")));
+            } catch (NumberFormatException e) {
+                System.err.print("Wrong number of GC threads");
+                printUsage();
+            }
+        }
+        tool.setAllocationProfiler(commandLine.hasOption("allocation-profiler"));
+        if (commandLine.hasOption("allocation-sample-interval")) {
+            try {
+                tool.setAllocationSampleInterval(Integer.parseInt(
+                        commandLine.getOptionValue("allocation-sample-interval")));
+            } catch (NumberFormatException e) {
+                System.err.print("Wrong allocation sample interval");
+                printUsage();
+            }
+        }
     }
 
     private void setUp() {
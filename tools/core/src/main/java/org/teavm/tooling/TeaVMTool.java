@@ -18,31 +18,44 @@ package org.teavm.tooling;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import org.teavm.backend.c.CTarget;
 import org.teavm.backend.javascript.JavaScriptTarget;
 import org.teavm.backend.wasm.WasmTarget;
 import org.teavm.backend.wasm.render.WasmBinaryVersion;
 import org.teavm.cache.AlwaysStaleCacheStatus;
 import org.teavm.cache.CacheStatus;
+import org.teavm.cache.ContentHashCache;
+import org.teavm.cache.ContentHashClassReaderSource;
+import org.teavm.cache.ContentHashMethodNodeCache;
+import org.teavm.cache.ContentHashProgramCache;
 import org.teavm.cache.DiskCachedClassReaderSource;
 import org.teavm.cache.DiskMethodNodeCache;
 import org.teavm.cache.DiskProgramCache;
 import org.teavm.cache.EmptyProgramCache;
 import org.teavm.cache.FileSymbolTable;
+import org.teavm.cache.MethodNodeCache;
+import org.teavm.cache.SegmentedMethodNodeCache;
+import org.teavm.cache.SegmentedProgramCache;
 import org.teavm.debugging.information.DebugInformation;
 import org.teavm.debugging.information.DebugInformationBuilder;
 import org.teavm.dependency.DependencyInfo;
@@ -53,7 +66,9 @@ import org.teavm.model.ClassHolderSource;
 import org.teavm.model.ClassHolderTransformer;
 import org.teavm.model.ClassReader;
 import org.teavm.model.PreOptimizingClassHolderSource;
+import org.teavm.model.ProgramCache;
 import org.teavm.model.ReferenceCache;
+import org.teavm.parsing.ClassHashProvider;
 import org.teavm.parsing.ClasspathClassHolderSource;
 import org.teavm.tooling.sources.SourceFileProvider;
 import org.teavm.tooling.sources.SourceFilesCopier;
@@ -71,6 +86,10 @@ public class TeaVMTool {
     private String targetFileName = "";
     private boolean minifying = true;
     private int maxTopLevelNames = 10000;
+    private boolean longAsBigInt;
+    private boolean esModule;
+    private boolean flatObjectLayout;
+    private int guardedDispatchLimit;
     private String mainClass;
     private String entryPointName = "main";
     private Properties properties = new Properties();
@@ -79,13 +98,20 @@ public class TeaVMTool {
     private boolean sourceFilesCopied;
     private boolean incremental;
     private File cacheDirectory = new File("./teavm-cache");
+    private boolean segmentedCache;
+    private boolean contentHashCache;
+    private File cacheImportDirectory;
+    private File cacheExportDirectory;
+    private long contentHashCacheMaxSize = 512L * 1024 * 1024;
     private List<String> transformers = new ArrayList<>();
     private List<String> classesToPreserve = new ArrayList<>();
+    private Map<String, String> lazyEntryPoints = new LinkedHashMap<>();
     private TeaVMToolLog log = new EmptyTeaVMToolLog();
     private ClassLoader classLoader = TeaVMTool.class.getClassLoader();
-    private DiskCachedClassReaderSource cachedClassSource;
-    private DiskProgramCache programCache;
-    private DiskMethodNodeCache astCache;
+    private ContentHashCache contentCache;
+    private ProgramCache programCache;
+    private MethodNodeCache astCache;
+    private List<Flushable> cachesToFlush = new ArrayList<>();
     private FileSymbolTable symbolTable;
     private FileSymbolTable fileTable;
     private FileSymbolTable variableTable;
@@ -94,14 +120,26 @@ public class TeaVMTool {
     private TeaVM vm;
     private boolean fastDependencyAnalysis;
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.SIMPLE;
+    private int threadCount = 1;
     private List<SourceFileProvider> sourceFileProviders = new ArrayList<>();
     private DebugInformationBuilder debugEmitter;
     private JavaScriptTarget javaScriptTarget;
     private WasmTarget webAssemblyTarget;
     private WasmBinaryVersion wasmVersion = WasmBinaryVersion.V_0x1;
+    private boolean wasmSimd;
+    private boolean wasmBulkMemory;
     private CTarget cTarget;
     private Set<File> generatedFiles = new HashSet<>();
     private int minHeapSize = 32 * (1 << 20);
+    private int maxHeapSize;
+    private boolean generationalGC;
+    private boolean incrementalGC;
+    private int gcSliceTime = 5;
+    private int gcThreadCount = 1;
+    private boolean compactingGC;
+    private boolean gcTelemetry;
+    private boolean allocationProfiler;
+    private int allocationSampleInterval;
     private ReferenceCache referenceCache;
 
     public File getTargetDirectory() {
@@ -132,6 +170,38 @@ public class TeaVMTool {
         this.maxTopLevelNames = maxTopLevelNames;
     }
 
+    public boolean isLongAsBigInt() {
+        return longAsBigInt;
+    }
+
+    public void setLongAsBigInt(boolean longAsBigInt) {
+        this.longAsBigInt = longAsBigInt;
+    }
+
+    public boolean isEsModule() {
+        return esModule;
+    }
+
+    public void setEsModule(boolean esModule) {
+        this.esModule = esModule;
+    }
+
+    public boolean isFlatObjectLayout() {
+        return flatObjectLayout;
+    }
+
+    public void setFlatObjectLayout(boolean flatObjectLayout) {
+        this.flatObjectLayout = flatObjectLayout;
+    }
+
+    public int getGuardedDispatchLimit() {
+        return guardedDispatchLimit;
+    }
+
+    public void setGuardedDispatchLimit(int guardedDispatchLimit) {
+        this.guardedDispatchLimit = guardedDispatchLimit;
+    }
+
     public boolean isIncremental() {
         return incremental;
     }
@@ -168,6 +238,80 @@ public class TeaVMTool {
         this.cacheDirectory = cacheDirectory;
     }
 
+    public boolean isSegmentedCache() {
+        return segmentedCache;
+    }
+
+    /**
+     * Specifies whether incremental build should store optimized programs and ASTs in a few segment files
+     * in cache directory rather than in a separate file per method.
+     *
+     * @param segmentedCache whether to use segment files.
+     */
+    public void setSegmentedCache(boolean segmentedCache) {
+        this.segmentedCache = segmentedCache;
+    }
+
+    public boolean isContentHashCache() {
+        return contentHashCache;
+    }
+
+    /**
+     * Specifies whether incremental build should identify cached classes, programs and ASTs by hashes of
+     * class files instead of modification dates. Such cache does not depend on the machine it was produced on,
+     * so it can be exported and imported by other builds.
+     *
+     * @param contentHashCache whether to use content hashes.
+     * @see #setCacheImportDirectory(File)
+     * @see #setCacheExportDirectory(File)
+     */
+    public void setContentHashCache(boolean contentHashCache) {
+        this.contentHashCache = contentHashCache;
+    }
+
+    public long getContentHashCacheMaxSize() {
+        return contentHashCacheMaxSize;
+    }
+
+    /**
+     * Specifies how large content hash cache may get. After each build least recently used entries are deleted
+     * from cache directory, and from export directory if any, until their total size fits the limit.
+     * 512 MiB by default.
+     *
+     * @param contentHashCacheMaxSize max size of cache in bytes, or 0 to keep all entries.
+     */
+    public void setContentHashCacheMaxSize(long contentHashCacheMaxSize) {
+        this.contentHashCacheMaxSize = contentHashCacheMaxSize;
+    }
+
+    public File getCacheImportDirectory() {
+        return cacheImportDirectory;
+    }
+
+    /**
+     * Specifies directory to import content hash cache entries from before build.
+     * Entries that already exist in the local cache are not overwritten.
+     *
+     * @param cacheImportDirectory directory previously populated via {@link #setCacheExportDirectory(File)},
+     * or {@code null} to skip import.
+     */
+    public void setCacheImportDirectory(File cacheImportDirectory) {
+        this.cacheImportDirectory = cacheImportDirectory;
+    }
+
+    public File getCacheExportDirectory() {
+        return cacheExportDirectory;
+    }
+
+    /**
+     * Specifies directory to export content hash cache entries to after successful build.
+     *
+     * @param cacheExportDirectory directory to export entries to, or {@code null} to skip export.
+     */
+    public void setCacheExportDirectory(File cacheExportDirectory) {
+        this.cacheExportDirectory = cacheExportDirectory;
+    }
+
     public boolean isSourceMapsFileGenerated() {
         return sourceMapsFileGenerated;
     }
@@ -196,6 +340,16 @@ public class TeaVMTool {
         return classesToPreserve;
     }
 
+    /**
+     * Entry points that are loaded on demand, in addition to entry point of main class. Keys are public names
+     * of entry points, values are names of classes whose <code>main</code> methods they call. Only supported
+     * by JavaScript target in ECMAScript module mode, see
+     * {@link JavaScriptTarget#setLazyEntryPoints(java.util.Set)}.
+     */
+    public Map<String, String> getLazyEntryPoints() {
+        return lazyEntryPoints;
+    }
+
     public TeaVMToolLog getLog() {
         return log;
     }
@@ -220,6 +374,14 @@ public class TeaVMTool {
         this.optimizationLevel = optimizationLevel;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
     public boolean isFastDependencyAnalysis() {
         return fastDependencyAnalysis;
     }
@@ -232,6 +394,78 @@ public class TeaVMTool {
         this.minHeapSize = minHeapSize;
     }
 
+    public int getMaxHeapSize() {
+        return maxHeapSize;
+    }
+
+    public void setMaxHeapSize(int maxHeapSize) {
+        this.maxHeapSize = maxHeapSize;
+    }
+
+    public boolean isGenerationalGC() {
+        return generationalGC;
+    }
+
+    public void setGenerationalGC(boolean generationalGC) {
+        this.generationalGC = generationalGC;
+    }
+
+    public boolean isIncrementalGC() {
+        return incrementalGC;
+    }
+
+    public void setIncrementalGC(boolean incrementalGC) {
+        this.incrementalGC = incrementalGC;
+    }
+
+    public int getGCSliceTime() {
+        return gcSliceTime;
+    }
+
+    public void setGCSliceTime(int gcSliceTime) {
+        this.gcSliceTime = gcSliceTime;
+    }
+
+    public boolean isCompactingGC() {
+        return compactingGC;
+    }
+
+    public void setCompactingGC(boolean compactingGC) {
+        this.compactingGC = compactingGC;
+    }
+
+    public boolean isGCTelemetry() {
+        return gcTelemetry;
+    }
+
+    public void setGCTelemetry(boolean gcTelemetry) {
+        this.gcTelemetry = gcTelemetry;
+    }
+
+    public boolean isAllocationProfiler() {
+        return allocationProfiler;
+    }
+
+    public void setAllocationProfiler(boolean allocationProfiler) {
+        this.allocationProfiler = allocationProfiler;
+    }
+
+    public int getAllocationSampleInterval() {
+        return allocationSampleInterval;
+    }
+
+    public void setAllocationSampleInterval(int allocationSampleInterval) {
+        this.allocationSampleInterval = allocationSampleInterval;
+    }
+
+    public int getGCThreadCount() {
+        return gcThreadCount;
+    }
+
+    public void setGCThreadCount(int gcThreadCount) {
+        this.gcThreadCount = gcThreadCount;
+    }
+
     public ClassLoader getClassLoader() {
         return classLoader;
     }
@@ -248,6 +482,22 @@ public class TeaVMTool {
         this.wasmVersion = wasmVersion;
     }
 
+    public boolean isWasmSimd() {
+        return wasmSimd;
+    }
+
+    public void setWasmSimd(boolean wasmSimd) {
+        this.wasmSimd = wasmSimd;
+    }
+
+    public boolean isWasmBulkMemory() {
+        return wasmBulkMemory;
+    }
+
+    public void setWasmBulkMemory(boolean wasmBulkMemory) {
+        this.wasmBulkMemory = wasmBulkMemory;
+    }
+
     public void setProgressListener(TeaVMProgressListener progressListener) {
         this.progressListener = progressListener;
     }
@@ -300,6 +550,10 @@ public class TeaVMTool {
         javaScriptTarget = new JavaScriptTarget();
         javaScriptTarget.setMinifying(minifying);
         javaScriptTarget.setTopLevelNameLimit(maxTopLevelNames);
+        javaScriptTarget.setLongAsBigInt(longAsBigInt);
+        javaScriptTarget.setEsModule(esModule);
+        javaScriptTarget.setLazyEntryPoints(lazyEntryPoints.keySet());
+        javaScriptTarget.setFlatObjectLayout(flatObjectLayout);
 
         debugEmitter = debugInformationGenerated || sourceMapsFileGenerated
                 ? new DebugInformationBuilder(referenceCache) : null;
@@ -314,17 +568,111 @@ public class TeaVMTool {
         webAssemblyTarget.setCEmitted(debugInformationGenerated);
         webAssemblyTarget.setWastEmitted(debugInformationGenerated);
         webAssemblyTarget.setVersion(wasmVersion);
+        webAssemblyTarget.setSimdEnabled(wasmSimd);
+        webAssemblyTarget.setBulkMemoryEnabled(wasmBulkMemory);
         webAssemblyTarget.setMinHeapSize(minHeapSize);
+        webAssemblyTarget.setMaxHeapSize(maxHeapSize);
+        webAssemblyTarget.setGenerationalGC(generationalGC);
+        webAssemblyTarget.setIncrementalGC(incrementalGC);
+        webAssemblyTarget.setGCSliceTime(gcSliceTime);
         return webAssemblyTarget;
     }
 
     private CTarget prepareCTarget() {
         cTarget = new CTarget();
         cTarget.setMinHeapSize(minHeapSize);
+        cTarget.setMaxHeapSize(maxHeapSize);
+        cTarget.setGenerationalGC(generationalGC);
+        cTarget.setGCThreadCount(gcThreadCount);
+        cTarget.setCompactingGC(compactingGC);
+        cTarget.setGCTelemetry(gcTelemetry);
+        cTarget.setAllocationProfiler(allocationProfiler);
+        cTarget.setAllocationSampleInterval(allocationSampleInterval);
         cTarget.setLineNumbersGenerated(debugInformationGenerated);
         return cTarget;
     }
 
+    private ProgramCache createProgramCache(ClassHashProvider classHashProvider) {
+        if (contentCache != null) {
+            ContentHashProgramCache cache = new ContentHashProgramCache(contentCache, referenceCache,
+                    classHashProvider);
+            cachesToFlush.add(cache::flush);
+            return cache;
+        } else if (segmentedCache) {
+            SegmentedProgramCache cache = new SegmentedProgramCache(cacheDirectory, referenceCache, symbolTable,
+                    fileTable, variableTable);
+            cachesToFlush.add(cache::flush);
+            return cache;
+        } else {
+            DiskProgramCache cache = new DiskProgramCache(cacheDirectory, referenceCache, symbolTable, fileTable,
+                    variableTable);
+            cachesToFlush.add(cache::flush);
+            return cache;
+        }
+    }
+
+    private MethodNodeCache createAstCache(ClassHashProvider classHashProvider) {
+        if (contentCache != null) {
+            ContentHashMethodNodeCache cache = new ContentHashMethodNodeCache(contentCache, referenceCache,
+                    classHashProvider);
+            cachesToFlush.add(cache::flush);
+            return cache;
+        } else if (segmentedCache) {
+            SegmentedMethodNodeCache cache = new SegmentedMethodNodeCache(cacheDirectory, referenceCache,
+                    symbolTable, fileTable, variableTable);
+            cachesToFlush.add(cache::flush);
+            return cache;
+        } else {
+            DiskMethodNodeCache cache = new DiskMethodNodeCache(cacheDirectory, referenceCache, symbolTable,
+                    fileTable, variableTable);
+            cachesToFlush.add(cache::flush);
+            return cache;
+        }
+    }
+
+    private String contentCacheConfiguration() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("version=").append(compilerVersion()).append('\n');
+        sb.append("target=").append(targetType).append('\n');
+        sb.append("optimization=").append(optimizationLevel).append('\n');
+        sb.append("fastDependencyAnalysis=").append(fastDependencyAnalysis).append('\n');
+        sb.append("longAsBigInt=").append(longAsBigInt).append('\n');
+        sb.append("guardedDispatchLimit=").append(guardedDispatchLimit).append('\n');
+        // Low-level targets insert write barriers into cached programs depending on GC mode
+        sb.append("generationalGC=").append(generationalGC).append('\n');
+        sb.append("incrementalGC=").append(incrementalGC).append('\n');
+        sb.append("compactingGC=").append(compactingGC).append('\n');
+        sb.append("wasmSimd=").append(wasmSimd).append('\n');
+        sb.append("wasmBulkMemory=").append(wasmBulkMemory).append('\n');
+        sb.append("transformers=").append(transformers).append('\n');
+        Map<String, String> sortedProperties = new TreeMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            sortedProperties.put(name, properties.getProperty(name));
+        }
+        sb.append("properties=").append(sortedProperties).append('\n');
+        return sb.toString();
+    }
+
+    private static String compilerVersion() {
+        String version = TeaVM.class.getPackage().getImplementationVersion();
+        if (version == null) {
+            version = "unknown";
+        }
+        // Snapshot builds share implementation version, so also identify the particular jar
+        try {
+            CodeSource codeSource = TeaVM.class.getProtectionDomain().getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null) {
+                File file = new File(codeSource.getLocation().toURI());
+                if (file.isFile()) {
+                    version += ":" + file.length() + ":" + file.lastModified();
+                }
+            }
+        } catch (URISyntaxException | SecurityException | IllegalArgumentException e) {
+            // Fall back to implementation version only
+        }
+        return version;
+    }
+
     public void generate() throws TeaVMToolException {
         try {
             cancelled = false;
@@ -341,13 +689,30 @@ public class TeaVMTool {
                 ClasspathClassHolderSource innerClassSource = new ClasspathClassHolderSource(classLoader,
                         referenceCache);
                 ClassHolderSource classSource = new PreOptimizingClassHolderSource(innerClassSource);
-                cachedClassSource = new DiskCachedClassReaderSource(cacheDirectory, referenceCache, symbolTable,
-                        fileTable, variableTable, classSource, innerClassSource);
-                programCache = new DiskProgramCache(cacheDirectory, referenceCache, symbolTable, fileTable,
-                        variableTable);
+                cachesToFlush.clear();
+                contentCache = null;
+                if (contentHashCache) {
+                    contentCache = new ContentHashCache(new File(cacheDirectory, "content"),
+                            contentCacheConfiguration());
+                    if (cacheImportDirectory != null) {
+                        contentCache.importFrom(cacheImportDirectory);
+                        log.info("Cache imported from " + cacheImportDirectory);
+                    }
+                    ContentHashClassReaderSource cachedClassSource = new ContentHashClassReaderSource(contentCache,
+                            referenceCache, classSource, innerClassSource);
+                    cachesToFlush.add(cachedClassSource::flush);
+                    vmBuilder.setClassLoader(classLoader).setClassSource(cachedClassSource);
+                    cacheStatus = cachedClassSource;
+                } else {
+                    DiskCachedClassReaderSource cachedClassSource = new DiskCachedClassReaderSource(cacheDirectory,
+                            referenceCache, symbolTable, fileTable, variableTable, classSource, innerClassSource);
+                    cachesToFlush.add(cachedClassSource::flush);
+                    vmBuilder.setClassLoader(classLoader).setClassSource(cachedClassSource);
+                    cacheStatus = cachedClassSource;
+                }
+                programCache = createProgramCache(innerClassSource);
                 if (incremental && targetType == TeaVMTargetType.JAVASCRIPT) {
-                    astCache = new DiskMethodNodeCache(cacheDirectory, referenceCache, symbolTable, fileTable,
-                            variableTable);
+                    astCache = createAstCache(innerClassSource);
                     javaScriptTarget.setAstCache(astCache);
                 }
                 try {
@@ -357,17 +722,17 @@ public class TeaVMTool {
                 } catch (IOException e) {
                     log.info("Cache is missing");
                 }
-                vmBuilder.setClassLoader(classLoader).setClassSource(cachedClassSource);
-                cacheStatus = cachedClassSource;
             } else {
                 vmBuilder.setClassLoader(classLoader).setClassSource(new PreOptimizingClassHolderSource(
                         new ClasspathClassHolderSource(classLoader, referenceCache)));
                 cacheStatus = AlwaysStaleCacheStatus.INSTANCE;
             }
 
-            vmBuilder.setDependencyAnalyzerFactory(fastDependencyAnalysis
-                    ? FastDependencyAnalyzer::new
-                    : PreciseDependencyAnalyzer::new);
+            if (fastDependencyAnalysis) {
+                vmBuilder.setDependencyAnalyzerFactory(FastDependencyAnalyzer::new);
+            } else {
+                vmBuilder.setDependencyAnalyzerFactory(PreciseDependencyAnalyzer::new);
+            }
 
             vm = vmBuilder.build();
             if (progressListener != null) {
@@ -380,6 +745,10 @@ public class TeaVMTool {
             vm.setOptimizationLevel(!fastDependencyAnalysis && !incremental
                     ? optimizationLevel
                     : TeaVMOptimizationLevel.SIMPLE);
+            vm.setThreadCount(threadCount);
+            if (targetType == TeaVMTargetType.JAVASCRIPT) {
+                vm.setGuardedDispatchLimit(guardedDispatchLimit);
+            }
             if (incremental) {
                 vm.addVirtualMethods(m -> true);
             }
@@ -391,6 +760,9 @@ public class TeaVMTool {
             if (mainClass != null) {
                 vm.entryPoint(mainClass, entryPointName);
             }
+            for (Map.Entry<String, String> entry : lazyEntryPoints.entrySet()) {
+                vm.entryPoint(entry.getValue(), entry.getKey());
+            }
             for (String className : classesToPreserve) {
                 vm.preserveType(className);
             }
@@ -426,15 +798,24 @@ public class TeaVMTool {
             }
 
             if (incremental) {
-                programCache.flush();
-                if (astCache != null) {
-                    astCache.flush();
+                for (Flushable cache : cachesToFlush) {
+                    cache.flush();
                 }
-                cachedClassSource.flush();
                 symbolTable.flush();
                 fileTable.flush();
                 variableTable.flush();
+                if (contentCache != null && contentHashCacheMaxSize > 0) {
+                    contentCache.prune(contentHashCacheMaxSize);
+                }
                 log.info("Cache updated");
+                if (contentCache != null && cacheExportDirectory != null) {
+                    contentCache.exportTo(cacheExportDirectory);
+                    if (contentHashCacheMaxSize > 0) {
+                        new ContentHashCache(cacheExportDirectory, contentCacheConfiguration())
+                                .prune(contentHashCacheMaxSize);
+                    }
+                    log.info("Cache exported to " + cacheExportDirectory);
+                }
             }
 
             printStats();
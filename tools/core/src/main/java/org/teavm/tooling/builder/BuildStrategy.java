@@ -16,6 +16,7 @@
 package org.teavm.tooling.builder;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import org.teavm.backend.wasm.render.WasmBinaryVersion;
 import org.teavm.tooling.TeaVMTargetType;
@@ -56,12 +57,22 @@ public interface BuildStrategy {
 
     void setMaxTopLevelNames(int maxTopLevelNames);
 
+    void setFlatObjectLayout(boolean flatObjectLayout);
+
+    void setEsModule(boolean esModule);
+
+    void setLazyEntryPoints(Map<String, String> lazyEntryPoints);
+
+    void setGuardedDispatchLimit(int guardedDispatchLimit);
+
     void setProperties(Properties properties);
 
     void setTransformers(String[] transformers);
 
     void setOptimizationLevel(TeaVMOptimizationLevel level);
 
+    void setThreadCount(int threadCount);
+
     void setFastDependencyAnalysis(boolean value);
 
     void setTargetFileName(String targetFileName);
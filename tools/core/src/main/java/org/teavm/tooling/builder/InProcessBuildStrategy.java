@@ -21,7 +21,9 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -50,9 +52,14 @@ public class InProcessBuildStrategy implements BuildStrategy {
     private boolean incremental;
     private String cacheDirectory;
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.ADVANCED;
+    private int threadCount = 1;
     private boolean fastDependencyAnalysis;
     private boolean minifying;
     private int maxTopLevelNames;
+    private boolean flatObjectLayout;
+    private boolean esModule;
+    private Map<String, String> lazyEntryPoints = new LinkedHashMap<>();
+    private int guardedDispatchLimit;
     private boolean sourceMapsFileGenerated;
     private boolean debugInformationGenerated;
     private boolean sourceFilesCopied;
@@ -156,6 +163,27 @@ public class InProcessBuildStrategy implements BuildStrategy {
         this.maxTopLevelNames = maxTopLevelNames;
     }
 
+    @Override
+    public void setFlatObjectLayout(boolean flatObjectLayout) {
+        this.flatObjectLayout = flatObjectLayout;
+    }
+
+    @Override
+    public void setEsModule(boolean esModule) {
+        this.esModule = esModule;
+    }
+
+    @Override
+    public void setLazyEntryPoints(Map<String, String> lazyEntryPoints) {
+        this.lazyEntryPoints.clear();
+        this.lazyEntryPoints.putAll(lazyEntryPoints);
+    }
+
+    @Override
+    public void setGuardedDispatchLimit(int guardedDispatchLimit) {
+        this.guardedDispatchLimit = guardedDispatchLimit;
+    }
+
     @Override
     public void setTransformers(String[] transformers) {
         this.transformers = transformers.clone();
@@ -166,6 +194,11 @@ public class InProcessBuildStrategy implements BuildStrategy {
         this.optimizationLevel = level;
     }
 
+    @Override
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
     @Override
     public void setFastDependencyAnalysis(boolean fastDependencyAnalysis) {
         this.fastDependencyAnalysis = fastDependencyAnalysis;
@@ -208,6 +241,7 @@ public class InProcessBuildStrategy implements BuildStrategy {
         tool.setTargetFileName(targetFileName);
         tool.setClassLoader(buildClassLoader());
         tool.setOptimizationLevel(optimizationLevel);
+        tool.setThreadCount(threadCount);
         tool.setFastDependencyAnalysis(fastDependencyAnalysis);
 
         tool.setSourceMapsFileGenerated(sourceMapsFileGenerated);
@@ -216,6 +250,10 @@ public class InProcessBuildStrategy implements BuildStrategy {
 
         tool.setMinifying(minifying);
         tool.setMaxTopLevelNames(maxTopLevelNames);
+        tool.setFlatObjectLayout(flatObjectLayout);
+        tool.setEsModule(esModule);
+        tool.getLazyEntryPoints().putAll(lazyEntryPoints);
+        tool.setGuardedDispatchLimit(guardedDispatchLimit);
         tool.setIncremental(incremental);
         tool.getTransformers().addAll(Arrays.asList(transformers));
         tool.getClassesToPreserve().addAll(Arrays.asList(classesToPreserve));
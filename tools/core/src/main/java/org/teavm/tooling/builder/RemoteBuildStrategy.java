@@ -18,7 +18,9 @@ package org.teavm.tooling.builder;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import org.teavm.backend.wasm.render.WasmBinaryVersion;
 import org.teavm.callgraph.CallGraph;
@@ -50,6 +52,7 @@ public class RemoteBuildStrategy implements BuildStrategy {
     public void init() {
         request = new RemoteBuildRequest();
         request.optimizationLevel = TeaVMOptimizationLevel.ADVANCED;
+        request.threadCount = 1;
         request.wasmVersion = WasmBinaryVersion.V_0x1;
     }
 
@@ -134,6 +137,26 @@ public class RemoteBuildStrategy implements BuildStrategy {
         request.maxTopLevelNames = maxTopLevelNames;
     }
 
+    @Override
+    public void setFlatObjectLayout(boolean flatObjectLayout) {
+        request.flatObjectLayout = flatObjectLayout;
+    }
+
+    @Override
+    public void setEsModule(boolean esModule) {
+        request.esModule = esModule;
+    }
+
+    @Override
+    public void setLazyEntryPoints(Map<String, String> lazyEntryPoints) {
+        request.lazyEntryPoints = new LinkedHashMap<>(lazyEntryPoints);
+    }
+
+    @Override
+    public void setGuardedDispatchLimit(int guardedDispatchLimit) {
+        request.guardedDispatchLimit = guardedDispatchLimit;
+    }
+
     @Override
     public void setTransformers(String[] transformers) {
         request.transformers = transformers.clone();
@@ -144,6 +167,11 @@ public class RemoteBuildStrategy implements BuildStrategy {
         request.optimizationLevel = level;
     }
 
+    @Override
+    public void setThreadCount(int threadCount) {
+        request.threadCount = threadCount;
+    }
+
     @Override
     public void setFastDependencyAnalysis(boolean value) {
         request.fastDependencyAnalysis = value;
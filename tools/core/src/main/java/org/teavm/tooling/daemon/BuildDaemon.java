@@ -154,9 +154,16 @@ public class BuildDaemon extends UnicastRemoteObject implements RemoteBuildServi
         }
 
         tool.setOptimizationLevel(request.optimizationLevel);
+        tool.setThreadCount(request.threadCount);
         tool.setFastDependencyAnalysis(request.fastDependencyAnalysis);
         tool.setMinifying(request.minifying);
         tool.setMaxTopLevelNames(request.maxTopLevelNames);
+        tool.setFlatObjectLayout(request.flatObjectLayout);
+        tool.setEsModule(request.esModule);
+        if (request.lazyEntryPoints != null) {
+            tool.getLazyEntryPoints().putAll(request.lazyEntryPoints);
+        }
+        tool.setGuardedDispatchLimit(request.guardedDispatchLimit);
         tool.setWasmVersion(request.wasmVersion);
         tool.setMinHeapSize(request.heapSize);
 
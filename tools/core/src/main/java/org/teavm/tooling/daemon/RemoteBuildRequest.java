@@ -18,6 +18,7 @@ package org.teavm.tooling.daemon;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import org.teavm.backend.wasm.render.WasmBinaryVersion;
 import org.teavm.tooling.TeaVMTargetType;
@@ -41,8 +42,13 @@ public class RemoteBuildRequest implements Serializable {
     public String cacheDirectory;
     public boolean minifying;
     public int maxTopLevelNames;
+    public boolean flatObjectLayout;
+    public boolean esModule;
+    public Map<String, String> lazyEntryPoints;
+    public int guardedDispatchLimit;
     public Properties properties;
     public TeaVMOptimizationLevel optimizationLevel;
+    public int threadCount;
     public boolean fastDependencyAnalysis;
     public WasmBinaryVersion wasmVersion;
     public int heapSize;
@@ -80,6 +80,24 @@ interface TeaVMTestConfiguration<T extends TeaVMTarget> {
         }
     };
 
+    TeaVMTestConfiguration<JavaScriptTarget> JS_BIG_INT = new TeaVMTestConfiguration<JavaScriptTarget>() {
+        @Override
+        public String getSuffix() {
+            return "bigint";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(JavaScriptTarget target) {
+            target.setMinifying(false);
+            target.setLongAsBigInt(true);
+        }
+    };
+
     TeaVMTestConfiguration<WasmTarget> WASM_DEFAULT = new TeaVMTestConfiguration<WasmTarget>() {
         @Override
         public String getSuffix() {
@@ -116,6 +134,79 @@ interface TeaVMTestConfiguration<T extends TeaVMTarget> {
         }
     };
 
+    TeaVMTestConfiguration<WasmTarget> WASM_GENERATIONAL_GC = new TeaVMTestConfiguration<WasmTarget>() {
+        @Override
+        public String getSuffix() {
+            return "generational-gc";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(WasmTarget target) {
+            target.setGenerationalGC(true);
+        }
+    };
+
+    TeaVMTestConfiguration<WasmTarget> WASM_INCREMENTAL_GC = new TeaVMTestConfiguration<WasmTarget>() {
+        @Override
+        public String getSuffix() {
+            return "incremental-gc";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(WasmTarget target) {
+            target.setIncrementalGC(true);
+            target.setGCSliceTime(1);
+        }
+    };
+
+    TeaVMTestConfiguration<WasmTarget> WASM_SIMD = new TeaVMTestConfiguration<WasmTarget>() {
+        @Override
+        public String getSuffix() {
+            return "simd";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(WasmTarget target) {
+            target.setMinHeapSize(32 * 1024 * 1024);
+            target.setSimdEnabled(true);
+        }
+    };
+
+    TeaVMTestConfiguration<WasmTarget> WASM_BULK_MEMORY = new TeaVMTestConfiguration<WasmTarget>() {
+        @Override
+        public String getSuffix() {
+            return "bulk-memory";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(WasmTarget target) {
+            target.setMinHeapSize(1024 * 1024);
+            target.setMaxHeapSize(256 * 1024 * 1024);
+            target.setGenerationalGC(true);
+            target.setBulkMemoryEnabled(true);
+        }
+    };
+
     TeaVMTestConfiguration<CTarget> C_DEFAULT = new TeaVMTestConfiguration<CTarget>() {
         @Override
         public String getSuffix() {
@@ -147,4 +238,95 @@ interface TeaVMTestConfiguration<T extends TeaVMTarget> {
         public void apply(CTarget target) {
         }
     };
+
+    TeaVMTestConfiguration<CTarget> C_GENERATIONAL_GC = new TeaVMTestConfiguration<CTarget>() {
+        @Override
+        public String getSuffix() {
+            return "generational-gc";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(CTarget target) {
+            target.setGenerationalGC(true);
+        }
+    };
+
+    TeaVMTestConfiguration<CTarget> C_GROWING_HEAP = new TeaVMTestConfiguration<CTarget>() {
+        @Override
+        public String getSuffix() {
+            return "growing-heap";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(CTarget target) {
+            target.setMinHeapSize(1024 * 1024);
+            target.setMaxHeapSize(256 * 1024 * 1024);
+        }
+    };
+
+    TeaVMTestConfiguration<CTarget> C_PARALLEL_GC = new TeaVMTestConfiguration<CTarget>() {
+        @Override
+        public String getSuffix() {
+            return "parallel-gc";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(CTarget target) {
+            target.setMinHeapSize(1024 * 1024);
+            target.setMaxHeapSize(256 * 1024 * 1024);
+            target.setGCThreadCount(4);
+        }
+    };
+
+    TeaVMTestConfiguration<CTarget> C_COMPACTING_GC = new TeaVMTestConfiguration<CTarget>() {
+        @Override
+        public String getSuffix() {
+            return "compacting-gc";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(CTarget target) {
+            target.setMinHeapSize(1024 * 1024);
+            target.setMaxHeapSize(256 * 1024 * 1024);
+            target.setCompactingGC(true);
+        }
+    };
+
+    TeaVMTestConfiguration<CTarget> C_ALLOCATION_PROFILER = new TeaVMTestConfiguration<CTarget>() {
+        @Override
+        public String getSuffix() {
+            return "allocation-profiler";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(CTarget target) {
+            target.setAllocationProfiler(true);
+            target.setAllocationSampleInterval(4096);
+        }
+    };
 }
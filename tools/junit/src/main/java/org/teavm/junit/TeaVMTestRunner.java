@@ -98,13 +98,17 @@ public class TeaVMTestRunner extends Runner implements Filterable {
     private static final String THREAD_COUNT = "teavm.junit.threads";
     private static final String JS_ENABLED = "teavm.junit.js";
     static final String JS_DECODE_STACK = "teavm.junit.js.decodeStack";
+    private static final String JS_BIG_INT = "teavm.junit.js.bigint";
     private static final String C_ENABLED = "teavm.junit.c";
     private static final String WASM_ENABLED = "teavm.junit.wasm";
+    private static final String WASM_SIMD = "teavm.junit.wasm.simd";
+    private static final String WASM_BULK_MEMORY = "teavm.junit.wasm.bulkMemory";
     private static final String C_COMPILER = "teavm.junit.c.compiler";
     private static final String C_LINE_NUMBERS = "teavm.junit.c.lineNumbers";
     private static final String MINIFIED = "teavm.junit.minified";
     private static final String OPTIMIZED = "teavm.junit.optimized";
     private static final String FAST_ANALYSIS = "teavm.junit.fastAnalysis";
+    private static final String GC_MODES = "teavm.junit.gcModes";
 
     private static final int stopTimeout = 15000;
     private Class<?> testClass;
@@ -713,6 +717,9 @@ public class TeaVMTestRunner extends Runner implements Filterable {
             if (Boolean.getBoolean(OPTIMIZED)) {
                 configurations.add(TeaVMTestConfiguration.JS_OPTIMIZED);
             }
+            if (Boolean.getBoolean(JS_BIG_INT)) {
+                configurations.add(TeaVMTestConfiguration.JS_BIG_INT);
+            }
         }
         return configurations;
     }
@@ -724,6 +731,16 @@ public class TeaVMTestRunner extends Runner implements Filterable {
             if (Boolean.getBoolean(OPTIMIZED)) {
                 configurations.add(TeaVMTestConfiguration.WASM_OPTIMIZED);
             }
+            if (Boolean.getBoolean(GC_MODES)) {
+                configurations.add(TeaVMTestConfiguration.WASM_GENERATIONAL_GC);
+                configurations.add(TeaVMTestConfiguration.WASM_INCREMENTAL_GC);
+            }
+            if (Boolean.getBoolean(WASM_SIMD)) {
+                configurations.add(TeaVMTestConfiguration.WASM_SIMD);
+            }
+            if (Boolean.getBoolean(WASM_BULK_MEMORY)) {
+                configurations.add(TeaVMTestConfiguration.WASM_BULK_MEMORY);
+            }
         }
         return configurations;
     }
@@ -735,6 +752,13 @@ public class TeaVMTestRunner extends Runner implements Filterable {
             if (Boolean.getBoolean(OPTIMIZED)) {
                 configurations.add(TeaVMTestConfiguration.C_OPTIMIZED);
             }
+            if (Boolean.getBoolean(GC_MODES)) {
+                configurations.add(TeaVMTestConfiguration.C_GENERATIONAL_GC);
+                configurations.add(TeaVMTestConfiguration.C_GROWING_HEAP);
+                configurations.add(TeaVMTestConfiguration.C_PARALLEL_GC);
+                configurations.add(TeaVMTestConfiguration.C_COMPACTING_GC);
+                configurations.add(TeaVMTestConfiguration.C_ALLOCATION_PROFILER);
+            }
         }
         return configurations;
     }
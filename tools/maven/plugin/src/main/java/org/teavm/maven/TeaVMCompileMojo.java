@@ -23,6 +23,7 @@ import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.MavenArtifactRepository;
@@ -83,6 +84,18 @@ public class TeaVMCompileMojo extends AbstractMojo {
     @Parameter(property = "teavm.maxTopLevelNames", defaultValue = "10000")
     private int maxTopLevelNames = 10000;
 
+    @Parameter(property = "teavm.flatObjectLayout", defaultValue = "false")
+    private boolean flatObjectLayout;
+
+    @Parameter(property = "teavm.esModule", defaultValue = "false")
+    private boolean esModule;
+
+    @Parameter
+    private Map<String, String> lazyEntryPoints;
+
+    @Parameter(property = "teavm.guardedDispatchLimit", defaultValue = "0")
+    private int guardedDispatchLimit;
+
     @Parameter
     private Properties properties;
 
@@ -125,6 +138,9 @@ public class TeaVMCompileMojo extends AbstractMojo {
     @Parameter(property = "teavm.optimizationLevel", defaultValue = "SIMPLE")
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.SIMPLE;
 
+    @Parameter(property = "teavm.threads", defaultValue = "1")
+    private int threads = 1;
+
     @Parameter(property = "teavm.fastGlobalAnalysis", defaultValue = "false")
     private boolean fastGlobalAnalysis;
 
@@ -152,6 +168,12 @@ public class TeaVMCompileMojo extends AbstractMojo {
             builder.setClassPathEntries(prepareClassPath());
             builder.setMinifying(minifying);
             builder.setMaxTopLevelNames(maxTopLevelNames);
+            builder.setFlatObjectLayout(flatObjectLayout);
+            builder.setEsModule(esModule);
+            if (lazyEntryPoints != null) {
+                builder.setLazyEntryPoints(lazyEntryPoints);
+            }
+            builder.setGuardedDispatchLimit(guardedDispatchLimit);
             builder.setTargetDirectory(targetDirectory.getAbsolutePath());
             if (transformers != null) {
                 builder.setTransformers(transformers);
@@ -270,6 +292,7 @@ public class TeaVMCompileMojo extends AbstractMojo {
                 builder.setTargetFileName(targetFileName);
             }
             builder.setOptimizationLevel(optimizationLevel);
+            builder.setThreadCount(threads);
             builder.setFastDependencyAnalysis(fastGlobalAnalysis);
             if (classesToPreserve != null) {
                 builder.setClassesToPreserve(classesToPreserve);